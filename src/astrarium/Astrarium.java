@@ -1,7 +1,13 @@
 package astrarium;
 
+import astrarium.diagnostics.RuntimeMetrics;
+import astrarium.diagnostics.TickEvent;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * A class that wraps all the other objects of the simulation.
  * <p>
@@ -17,6 +23,11 @@ public class Astrarium {
      */
     public static final double G = 6.67408e-11;
 
+    /**
+     * The smallest number of solutions of Kepler's equation for a body to be considered by {@link #getExpensiveBodies(int)}.
+     */
+    public static final int MIN_KEPLER_SOLVES = 16;
+
     /**
      * Main body of the system.
      */
@@ -67,8 +78,125 @@ public class Astrarium {
      * @param time time in milliseconds.
      */
     public void setTime(long time) {
+        TickEvent event = TickEvent.beginIfRecorded();
+        long start = System.nanoTime();
+
         this.time = time;
 
-        root.renderAtTime(time);
+        int bodies = root.renderAndCount(time);
+        long elapsed = System.nanoTime() - start;
+
+        endTick(event, elapsed, bodies, false);
+    }
+
+    /**
+     * Sets the time of the {@link Astrarium} to the given one, interpolating between two precomputed states.
+     * <p>
+     * If any of the states is missing, the bodies are synchronised as in {@link #setTime(long)}.
+     *
+     * @param time   time in milliseconds.
+     * @param before the state at a time close to the given one, or {@code null}.
+     * @param after  the state at another time close to the given one, or {@code null}.
+     * @see Playback
+     */
+    public void setTime(long time, Snapshot before, Snapshot after) {
+        RuntimeMetrics.get().recordPositionCache(before != null && after != null);
+
+        if (before == null || after == null) {
+            setTime(time);
+            return;
+        }
+
+        TickEvent event = TickEvent.beginIfRecorded();
+        long start = System.nanoTime();
+
+        this.time = time;
+
+        before.renderTowards(after, time);
+        long elapsed = System.nanoTime() - start;
+
+        endTick(event, elapsed, before.getBodies().length, true);
+    }
+
+    /**
+     * Records the end of a change of time in the metrics and in the flight recorder.
+     *
+     * @param event        the event begun before moving the bodies, or {@code null} if not recorded.
+     * @param elapsed      the time taken to move the bodies in nanoseconds, measured before anything else.
+     * @param bodies       number of bodies moved.
+     * @param interpolated whether the positions have been interpolated.
+     */
+    private void endTick(TickEvent event, long elapsed, int bodies, boolean interpolated) {
+        RuntimeMetrics.get().recordTick(elapsed, bodies);
+
+        if (event == null)
+            return;
+
+        event.end();
+
+        if (!event.shouldCommit())
+            return;
+
+        event.time = time;
+        event.bodies = bodies;
+        event.interpolated = interpolated;
+        event.commit();
+    }
+
+    /**
+     * Computes the absolute positions of some bodies at some times, much faster than calling
+     * {@link Body#getPositionAtTime(long)} for each of them on large batches.
+     * <p>
+     * The positions are packed by body, then by time, then by coordinate: the x of the body {@code n}
+     * at the time {@code m} is at index {@code (n * times.length + m) * 3}, followed by y and z.
+     * Large batches are split across the threads of the common pool.
+     *
+     * @param bodies the bodies, which must belong to this system.
+     * @param times  the times in milliseconds, in any order.
+     * @return the positions in meters.
+     */
+    public double[] query(List<CelestialBody> bodies, long[] times) {
+        return new PositionQuery(root, bodies).run(times);
+    }
+
+    /**
+     * Returns the bodies whose orbits need the most iterations to solve Kepler's equation, on average
+     * since they have been created, e.g. to propagate them separately or with another method.
+     * <p>
+     * Only the bodies loaded and rendered at least {@value #MIN_KEPLER_SOLVES} times with {@link #setTime(long)}
+     * are considered, so that a single difficult position does not count.
+     *
+     * @param count the largest number of bodies returned.
+     * @return the bodies, the most expensive first.
+     * @see Orbit#getKeplerIterationsPerSolve()
+     */
+    public List<CelestialBody> getExpensiveBodies(int count) {
+        List<CelestialBody> bodies = new ArrayList<>();
+
+        for (CelestialBody body : Snapshot.flatten(root)) {
+            Orbit orbit = body.getOrbit();
+
+            if (orbit != null && orbit.getKeplerSolves() >= MIN_KEPLER_SOLVES)
+                bodies.add(body);
+        }
+
+        //noinspection ConstantConditions
+        bodies.sort(Comparator.comparingDouble((CelestialBody body) -> body.getOrbit().getKeplerIterationsPerSolve()).reversed());
+
+        return bodies.subList(0, Math.min(count, bodies.size()));
+    }
+
+    /**
+     * Returns a copy of the system that shares no mutable state with it, e.g. to save it in background
+     * while the original keeps changing.
+     * <p>
+     * The bodies not loaded yet are not copied, but loaded in the copy from the same source when needed.
+     *
+     * @return the copy.
+     */
+    public Astrarium copy() {
+        Astrarium copy = new Astrarium(root.copy(null));
+        copy.time = time;
+        return copy;
     }
 }
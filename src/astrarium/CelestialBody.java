@@ -2,10 +2,9 @@ package astrarium;
 
 import astrarium.utils.Position;
 import astrarium.utils.Vector;
-import com.sun.istack.internal.Nullable;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import static astrarium.utils.Mathematics.PI_BY_TWO;
@@ -29,6 +28,11 @@ public class CelestialBody extends Body {
      */
     private Orbit orbit;
 
+    /**
+     * Creates the children the first time they are needed, or {@code null} if they have been created already.
+     */
+    private transient ChildrenLoader childrenLoader = null;
+
     //region Constructors
 
     /**
@@ -48,6 +52,8 @@ public class CelestialBody extends Body {
         this.children = new ArrayList<>();
 
         if (orbit != null) {
+            // The siblings must come first, as when the system is loaded again
+            orbit.getParent().loadChildren();
             orbit.getParent().addChild(this);
         }
     }
@@ -68,6 +74,8 @@ public class CelestialBody extends Body {
 
     /**
      * Returns a {@link List} of {@link CelestialBody} that are contained inside the current object.
+     * <p>
+     * Note: it does not include the children that have not been loaded yet, see {@link #loadChildren()}.
      *
      * @return List of children CelestialBody.
      */
@@ -76,18 +84,32 @@ public class CelestialBody extends Body {
     }
 
     /**
-     * Returns all the children and sub-children of the current object.
+     * Returns all the children and sub-children of the current object, loading them if needed.
      *
      * @return all the orbiting objects.
      */
     public List<CelestialBody> getAllChildren() {
-        List<CelestialBody> allChildren = new LinkedList<>(getChildren());
+        List<CelestialBody> allChildren = new ArrayList<>();
 
-        getChildren().forEach(child -> allChildren.addAll(child.getAllChildren()));
+        addAllChildren(allChildren);
 
         return allChildren;
     }
 
+    /**
+     * Adds all the children and sub-children of the current object to a list, loading them if needed.
+     *
+     * @param allChildren the list.
+     */
+    private void addAllChildren(List<CelestialBody> allChildren) {
+        loadChildren();
+
+        allChildren.addAll(children);
+
+        for (CelestialBody child : children)
+            child.addAllChildren(allChildren);
+    }
+
     /**
      * Returns the parent {@link CelestialBody} of the current object.
      * Returns null if the current object is the root of the system.
@@ -113,6 +135,35 @@ public class CelestialBody extends Body {
         return getOrbit();
     }
 
+    /**
+     * Replaces the orbit of the body, moving it among the children of the new reference body if it changed.
+     *
+     * @param orbit the new orbit.
+     */
+    public void setOrbit(Orbit orbit) {
+        if (this.orbit == null || orbit == null)
+            throw new IllegalArgumentException("The root of a system cannot orbit, nor can a body stop orbiting.");
+
+        if (orbit.getParent() != this.orbit.getParent()) {
+            this.orbit.getParent().children.remove(this);
+
+            orbit.getParent().loadChildren();
+            orbit.getParent().addChild(this);
+        }
+
+        this.orbit = orbit;
+    }
+
+    /**
+     * Removes the body, and all its children, from the system.
+     */
+    public void remove() {
+        if (orbit == null)
+            throw new IllegalArgumentException("The root of a system cannot be removed.");
+
+        orbit.getParent().children.remove(this);
+    }
+
     //endregion Getters
 
     //region Calculations
@@ -185,6 +236,99 @@ public class CelestialBody extends Body {
     }
     //endregion Calculations
 
+    //region Lazy loading
+
+    /**
+     * Sets the loader creating the children of this body when they are first needed.
+     *
+     * @param childrenLoader the loader.
+     */
+    public void setChildrenLoader(ChildrenLoader childrenLoader) {
+        this.childrenLoader = childrenLoader;
+    }
+
+    /**
+     * Returns whether the children of this body have been created.
+     *
+     * @return true if loaded.
+     */
+    public boolean isLoaded() {
+        return childrenLoader == null;
+    }
+
+    /**
+     * Returns the largest apoapsis among the children not loaded yet, to decide whether they are worth loading.
+     *
+     * @return the apoapsis in meters, or zero if the children are loaded.
+     */
+    public double getUnloadedChildrenExtent() {
+        return childrenLoader == null ? 0 : childrenLoader.getExtent();
+    }
+
+    /**
+     * Creates the children of this body, if they have not been created yet.
+     */
+    public void loadChildren() {
+        if (childrenLoader == null)
+            return;
+
+        ChildrenLoader loader = childrenLoader;
+        childrenLoader = null;
+
+        loader.load(this);
+    }
+
+    /**
+     * Creates all the children and sub-children of this body, e.g. before saving it.
+     */
+    public void loadAll() {
+        loadChildren();
+
+        for (CelestialBody child : children)
+            child.loadAll();
+    }
+
+    /**
+     * Copies the body and all its loaded children, see {@link Astrarium#copy()}.
+     *
+     * @param parent the copy of the parent, or {@code null} for the root.
+     * @return the copy.
+     */
+    CelestialBody copy(CelestialBody parent) {
+        CelestialBody copy = parent == null ? new CelestialBody(getName(), getMass(), getRadius()) :
+                new CelestialBody(getName(), getMass(), getRadius(), new Orbit(parent,
+                        orbit.getSemiMajorAxis(), orbit.getEccentricity(), orbit.getInclination(),
+                        orbit.getLongitudeOfAscendingNode(), orbit.getArgumentOfPeriapsis(), orbit.getMeanAnomalyAtEpoch()));
+
+        for (CelestialBody child : children)
+            child.copy(copy);
+
+        // The loaders do not depend on the body they load the children of
+        copy.childrenLoader = childrenLoader;
+
+        return copy;
+    }
+
+    /**
+     * Creates the children of a body on demand, e.g. from a file.
+     */
+    public interface ChildrenLoader {
+        /**
+         * Creates the children of the given body.
+         *
+         * @param parent the body.
+         */
+        void load(CelestialBody parent);
+
+        /**
+         * Returns the largest apoapsis among the children, without creating them.
+         *
+         * @return the apoapsis in meters.
+         */
+        double getExtent();
+    }
+    //endregion Lazy loading
+
     /**
      * Adds a {@link CelestialBody} as a child of the current body.
      *
@@ -194,13 +338,42 @@ public class CelestialBody extends Body {
         this.children.add(celestialBody);
     }
 
+    /**
+     * Counts this body and all its children and sub-children, without loading them.
+     *
+     * @return the number of bodies.
+     */
+    public int countBodies() {
+        int count = 1;
+
+        for (int i = 0; i < children.size(); i++)
+            count += children.get(i).countBodies();
+
+        return count;
+    }
+
     @Override
     public void renderAtTime(long time) {
+        renderAndCount(time);
+    }
+
+    /**
+     * Renders the body and all its loaded children as in {@link #renderAtTime(long)},
+     * counting them on the way, so that the count does not need another walk of the tree.
+     *
+     * @param time time in milliseconds.
+     * @return the number of bodies rendered, as {@link #countBodies()}.
+     */
+    int renderAndCount(long time) {
         super.renderAtTime(time);
 
-        for (CelestialBody child : this.getChildren()) {
-            child.renderAtTime(time);
-        }
+        int count = 1;
+
+        // Indexed, as an iterator for every body would be allocated on every frame
+        for (int i = 0; i < children.size(); i++)
+            count += children.get(i).renderAndCount(time);
+
+        return count;
     }
 
     //region toString
@@ -1,10 +1,11 @@
 package astrarium;
 
+import astrarium.diagnostics.KeplerNonConvergenceEvent;
+import astrarium.diagnostics.RuntimeMetrics;
 import astrarium.utils.Mathematics;
 import astrarium.utils.Position;
 import astrarium.utils.Vector;
 import org.jetbrains.annotations.NotNull;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 import java.util.Date;
 
@@ -22,6 +23,33 @@ import static java.lang.Math.*;
  */
 @SuppressWarnings("WeakerAccess")
 public final class Orbit {
+    /**
+     * The counters of the solutions of Kepler's equation.
+     */
+    private static final RuntimeMetrics metrics = RuntimeMetrics.get();
+
+    /**
+     * The iterations performed to solve Kepler's equation by each thread, in a single element,
+     * so that the cost of a frame can be told from the one of the work done alongside it.
+     */
+    private static final ThreadLocal<long[]> threadKeplerIterations = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * The largest number of iterations of Newton's method when solving Kepler's equation.
+     */
+    public static final int MAX_NEWTON_ITERATIONS = 30;
+
+    /**
+     * The largest number of iterations when solving Kepler's equation, the safeguarded ones included.
+     * Enough to bisect the initial interval down to the precision of a double.
+     */
+    public static final int MAX_KEPLER_ITERATIONS = MAX_NEWTON_ITERATIONS + 64;
+
+    /**
+     * The largest error allowed on the mean anomaly when rendering, ten decimal places.
+     */
+    private static final double KEPLER_DELTA = 1e-10;
+
     /**
      * Standard Gravitational Parameter.
      **/
@@ -69,18 +97,48 @@ public final class Orbit {
 
     //region Rendered Values
     // These values are calculated with #renderAtTime() and are stored only for performance purposes.
+    // Rendering stores only numbers, so that it does not allocate, and the positions are created when first asked for.
     /**
-     * The position of the body from the parent when {@link #renderAtTime(long)} has been launched.
+     * The position of the body from the parent when {@link #renderAtTime(long)} has been launched,
+     * or {@code null} if not asked for since.
      */
     private transient Position _positionFromParent;
     /**
-     * The position of the body on the orbital plane when {@link #renderAtTime(long)} has been launched.
+     * The position of the body on the orbital plane when {@link #renderAtTime(long)} has been launched,
+     * or {@code null} if not asked for since.
      */
     private transient Position _positionFromOrbitalPlane;
     /**
      * The eccentric anomaly of the body when {@link #renderAtTime(long)} has been launched.
      */
     private transient double _eccentricAnomaly;
+    /**
+     * Whether {@link #renderAtTime(long)} has been launched at least once.
+     */
+    private transient boolean _rendered;
+    /**
+     * The coordinates of the body on the orbital plane when {@link #renderAtTime(long)} has been launched.
+     */
+    private transient double _planeX, _planeY;
+    /**
+     * The coordinates of the body from the parent when {@link #renderAtTime(long)} has been launched.
+     */
+    private transient double _parentX, _parentY, _parentZ;
+    /**
+     * The directions of the periapsis and of the point a quarter of orbit later in the reference plane, as x, y and z,
+     * computed on the first render as the elements never change.
+     */
+    private transient double[] _axes;
+    /**
+     * Number of times Kepler's equation has been solved to render this orbit.
+     * Only counted by {@link #renderAtTime(long)}, on the thread rendering, like the other rendered fields:
+     * the other solutions may run on several threads at once, e.g. while prefetching, and leave the orbit untouched.
+     */
+    private transient long _keplerSolves;
+    /**
+     * Number of iterations performed to solve Kepler's equation for this orbit, see {@link #_keplerSolves}.
+     */
+    private transient long _keplerIterations;
     //endregion
 
     //region Constructors
@@ -129,7 +187,11 @@ public final class Orbit {
     //region Calculate Eccentric Anomaly
 
     /**
-     * Uses Newton's method to calculate the Eccentric Anomaly from the Mean Anomaly.
+     * Calculates the Eccentric Anomaly from the Mean Anomaly, solving Kepler's equation.
+     * <p>
+     * Newton's method is used as long as it gets closer to the solution. When it stalls, e.g. on orbits
+     * close to parabolic, Halley's method takes over, bisecting the interval known to contain the solution
+     * whenever a step would leave it or does not halve the error.
      *
      * @param meanAnomaly  the mean anomaly.
      * @param eccentricity the eccentricity of the orbit.
@@ -137,6 +199,20 @@ public final class Orbit {
      * @return The value of the eccentric anomaly.
      */
     public static double calculateEccentricAnomaly(double meanAnomaly, double eccentricity, double precision) {
+        return solveKepler(meanAnomaly, eccentricity, pow(10, -precision), null);
+    }
+
+    /**
+     * Solves Kepler's equation as in {@link #calculateEccentricAnomaly(double, double, double)},
+     * counting the iterations in the metrics, and in the given orbit if it is being rendered.
+     *
+     * @param meanAnomaly  the mean anomaly.
+     * @param eccentricity the eccentricity of the orbit.
+     * @param delta        the largest error allowed on the mean anomaly.
+     * @param orbit        the orbit rendered, or {@code null} when not rendering.
+     * @return The value of the eccentric anomaly.
+     */
+    private static double solveKepler(double meanAnomaly, double eccentricity, double delta, Orbit orbit) {
         // values are confirmed to work here
         // This has been improved using the standard
         if (eccentricity < 0) {
@@ -147,27 +223,129 @@ public final class Orbit {
             throw new RuntimeException("Eccentricity > 1 not yet supported.");
         }
 
-        final int MAX_ITERATIONS = 30;
+        double eccentricAnomaly = meanAnomaly;
+        double zero = eccentricAnomaly - eccentricity * sin(meanAnomaly) - meanAnomaly;
+
+        // The solution is always within the eccentricity from the mean anomaly, as |E - M| = e |sin E|,
+        // and the interval shrinks with every point tried, as the equation grows with E
+        double lower = meanAnomaly - eccentricity;
+        double upper = meanAnomaly + eccentricity;
+
+        int i = 0;
+
+        while (abs(zero) > delta && i < MAX_NEWTON_ITERATIONS) {
+            if (zero < 0)
+                lower = max(lower, eccentricAnomaly);
+            else
+                upper = min(upper, eccentricAnomaly);
+
+            // Infinite when the derivative is zero, at the periapsis of a parabolic orbit
+            double next = eccentricAnomaly - zero / (1 - eccentricity * cos(eccentricAnomaly));
+            double nextZero = next - eccentricity * sin(next) - meanAnomaly;
+            i++;
+
+            // Stalled, or diverging, keeping the best guess so far
+            if (!(abs(nextZero) < abs(zero)))
+                break;
+
+            eccentricAnomaly = next;
+            zero = nextZero;
+        }
+
+        boolean safeguarded = abs(zero) > delta;
+        boolean bisect = false;
 
-        double delta = pow(10, -precision);
+        while (abs(zero) > delta && i < MAX_KEPLER_ITERATIONS) {
+            if (zero < 0)
+                lower = max(lower, eccentricAnomaly);
+            else
+                upper = min(upper, eccentricAnomaly);
 
-        double eccentricAnomaly;
-        double zero;
+            double next;
 
-        eccentricAnomaly = meanAnomaly;
+            if (bisect) {
+                next = (lower + upper) / 2;
+            } else {
+                double derivative = 1 - eccentricity * cos(eccentricAnomaly);
+                double secondDerivative = eccentricAnomaly - meanAnomaly - zero; // e sin(E), from the error
+
+                next = eccentricAnomaly - 2 * zero * derivative / (2 * derivative * derivative - zero * secondDerivative);
+
+                if (!(next > lower && next < upper))
+                    next = (lower + upper) / 2;
+            }
 
-        zero = eccentricAnomaly - eccentricity * sin(meanAnomaly) - meanAnomaly;
+            // The interval cannot be split any further
+            if (next <= lower || next >= upper)
+                break;
 
-        // Evil loop here
-        for (int i = 0; (abs(zero) > delta) && (i < MAX_ITERATIONS); i++) {
-            // TODO Fix possible division by zero.
-            eccentricAnomaly = eccentricAnomaly - zero / (1 - eccentricity * cos(eccentricAnomaly));
-            zero = eccentricAnomaly - eccentricity * sin(eccentricAnomaly) - meanAnomaly;
+            double nextZero = next - eccentricity * sin(next) - meanAnomaly;
+            i++;
+
+            // Halley's method is not getting closer fast enough, bisecting next time
+            bisect = !(abs(nextZero) <= abs(zero) / 2);
+            eccentricAnomaly = next;
+            zero = nextZero;
+        }
+
+        metrics.recordKeplerSolve(i, abs(zero), safeguarded);
+        threadKeplerIterations.get()[0] += i;
+
+        if (orbit != null) {
+            orbit._keplerSolves++;
+            orbit._keplerIterations += i;
         }
 
+        // Also when the mean anomaly is not a number
+        if (!(abs(zero) <= delta))
+            KeplerNonConvergenceEvent.report(meanAnomaly, eccentricity, delta, abs(zero), i);
+
         // TODO This value should be normalised.
         return eccentricAnomaly;
     }
+
+    /**
+     * Returns the total number of iterations performed to solve Kepler's equation since the start of the program,
+     * by all the threads.
+     *
+     * @return number of iterations.
+     * @see #getThreadKeplerIterations()
+     */
+    public static long getKeplerIterations() {
+        return metrics.getKeplerIterations();
+    }
+
+    /**
+     * Returns the number of iterations performed to solve Kepler's equation by the current thread
+     * since it started.
+     * <p>
+     * Useful to measure the cost of a propagation, taking the difference between two readings,
+     * without the work of the other threads, e.g. the prefetching of a {@link Playback}.
+     *
+     * @return number of iterations.
+     */
+    public static long getThreadKeplerIterations() {
+        return threadKeplerIterations.get()[0];
+    }
+
+    /**
+     * Returns the number of times Kepler's equation has been solved to render this orbit with {@link #renderAtTime(long)}.
+     *
+     * @return number of solutions.
+     */
+    public long getKeplerSolves() {
+        return _keplerSolves;
+    }
+
+    /**
+     * Returns the mean number of iterations needed to solve Kepler's equation for this orbit,
+     * high for the orbits that are expensive to propagate.
+     *
+     * @return iterations per solution, or zero if never solved.
+     */
+    public double getKeplerIterationsPerSolve() {
+        return _keplerSolves == 0 ? 0 : (double) _keplerIterations / _keplerSolves;
+    }
     //endregion calculateEccentricAnomaly
 
     //region Calculate Eccentricity
@@ -487,8 +665,8 @@ public final class Orbit {
      * @return angle of the tangent direction.
      */
     public double getTangentAngle() {
-        Position center = new Position(-getFocusDistance(), 0);
-        double theta = center.angleOfLineBetweenThisAnd(_positionFromOrbitalPlane);
+        // The angle from the center of the ellipse, without the positions, as it is called for every body on every frame
+        double theta = atan2(_planeY, _planeX + getFocusDistance());
 
         double tangent = -atan2(1 - (eccentricity * eccentricity), tan(theta));
 
@@ -552,7 +730,7 @@ public final class Orbit {
 //
 //        return velocity;
         // TODO
-        throw new NotImplementedException();
+        throw new UnsupportedOperationException("Not implemented yet.");
     }
 
     /**
@@ -573,7 +751,8 @@ public final class Orbit {
      * @return rendered magnitude of the velocity.
      */
     public double getVelocityMagnitude() {
-        return getVelocityMagnitudeAtRadius(getRenderedPositionFromParent().getMagnitude());
+        // The distance on the orbital plane, the same as from the parent, without creating the position
+        return getVelocityMagnitudeAtRadius(sqrt(_planeX * _planeX + _planeY * _planeY));
     }
 
     /**
@@ -675,7 +854,7 @@ public final class Orbit {
      */
     public double calculateEccentricAnomaly(long time) {
         double meanAnomaly = getMeanAnomaly(time);
-        return calculateEccentricAnomaly(meanAnomaly, eccentricity, 10);
+        return solveKepler(meanAnomaly, eccentricity, KEPLER_DELTA, null);
     }
 
     /**
@@ -797,25 +976,68 @@ public final class Orbit {
      * @return the position of the orbiting body.
      */
     public Position getRenderedPositionFromParent() {
+        if (_positionFromParent == null && _rendered)
+            _positionFromParent = new Position(_parentX, _parentY, _parentZ);
+
         return this._positionFromParent;
     }
 
+    /**
+     * Returns the x of {@link #getRenderedPositionFromParent()}, without creating the position.
+     *
+     * @return the coordinate in meters.
+     */
+    public double getRenderedX() {
+        return _parentX;
+    }
+
+    /**
+     * Returns the y of {@link #getRenderedPositionFromParent()}, without creating the position.
+     *
+     * @return the coordinate in meters.
+     */
+    public double getRenderedY() {
+        return _parentY;
+    }
+
+    /**
+     * Returns the z of {@link #getRenderedPositionFromParent()}, without creating the position.
+     *
+     * @return the coordinate in meters.
+     */
+    public double getRenderedZ() {
+        return _parentZ;
+    }
+
     /**
      * Returns the position from the orbital plane when {@link #renderAtTime(long)} was launched.
      *
      * @return the position of the orbiting body.
      */
     public Position getRenderedPositionFromOrbitalPlane() {
+        if (_positionFromOrbitalPlane == null && _rendered)
+            _positionFromOrbitalPlane = new Position(_planeX, _planeY);
+
         return this._positionFromOrbitalPlane;
     }
 
+    /**
+     * Returns the eccentric anomaly when {@link #renderAtTime(long)} was launched.
+     *
+     * @return the eccentric anomaly in radians.
+     */
+    public double getRenderedEccentricAnomaly() {
+        return this._eccentricAnomaly;
+    }
+
     /**
      * Returns the position from the system root when {@link #renderAtTime(long)} was launched.
      *
      * @return the position of the orbiting body.
      */
     public Position getRenderedAbsolutePosition() {
-        return (Position) this.getRenderedPositionFromParent().plus(this.parent.getPosition());
+        // plus() modifies the position it is called on, which must not be the rendered one
+        return (Position) this.parent.getPosition().plus(this.getRenderedPositionFromParent());
     }
 
     /**
@@ -995,9 +1217,41 @@ public final class Orbit {
      * @see #getEccentricity()
      */
     public void renderAtTime(long time) {
-        this._eccentricAnomaly = calculateEccentricAnomaly(time);
-        this._positionFromOrbitalPlane = getPositionOnOrbitalPlaneFromEccentricAnomaly(this._eccentricAnomaly);
-        this._positionFromParent = rotatePositionOnOrbitalPlane(this._positionFromOrbitalPlane.getCopy());
+        renderAtEccentricAnomaly(solveKepler(getMeanAnomaly(time), eccentricity, KEPLER_DELTA, this));
+    }
+
+    /**
+     * Renders the position of the given object at the eccentric anomaly specified,
+     * without solving Kepler's equation.
+     * <p>
+     * Used to display the states interpolated between two {@link Snapshot}.
+     *
+     * @param eccentricAnomaly the eccentric anomaly in radians.
+     * @see #renderAtTime(long)
+     */
+    public void renderAtEccentricAnomaly(double eccentricAnomaly) {
+        double[] axes = _axes;
+
+        if (axes == null) {
+            // The rotations are linear, so rotating the two axes of the orbital plane is enough
+            Vector p = rotateOnOrbitalPlane(new Vector(1, 0, 0));
+            Vector q = rotateOnOrbitalPlane(new Vector(0, 1, 0));
+
+            _axes = axes = new double[]{p.getX(), p.getY(), p.getZ(), q.getX(), q.getY(), q.getZ()};
+        }
+
+        double x = semiMajorAxis * (cos(eccentricAnomaly) - eccentricity);
+        double y = semiMajorAxis * sqrt(1D - eccentricity * eccentricity) * sin(eccentricAnomaly);
+
+        this._eccentricAnomaly = eccentricAnomaly;
+        this._planeX = x;
+        this._planeY = y;
+        this._parentX = x * axes[0] + y * axes[3];
+        this._parentY = x * axes[1] + y * axes[4];
+        this._parentZ = x * axes[2] + y * axes[5];
+        this._positionFromOrbitalPlane = null;
+        this._positionFromParent = null;
+        this._rendered = true;
     }
     //endregion
 
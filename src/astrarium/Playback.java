@@ -0,0 +1,446 @@
+package astrarium;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A simulation clock that plays an {@link Astrarium} faster than real time, forwards or backwards.
+ * <p>
+ * The clock advances in fixed steps of {@link #STEP} of real time, each one worth {@code STEP * warp} of simulation time.
+ * The state of the system at the next steps is computed ahead on a background thread as {@link Snapshot},
+ * and the frames displayed in between are interpolated, so that Kepler's equation is not solved at every frame.
+ * <p>
+ * The state displayed at every frame is published to the subscribers of {@link #getPublisher()}.
+ * <p>
+ * It must be used from a single thread, e.g. the UI thread.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Playback implements AutoCloseable {
+    /**
+     * The slowest warp factor, i.e. real time.
+     */
+    public static final double MINIMUM_WARP = 1;
+
+    /**
+     * The fastest warp factor.
+     */
+    public static final double MAXIMUM_WARP = 1e7;
+
+    /**
+     * Real time between two steps, in nanoseconds.
+     */
+    public static final long STEP = 50_000_000L;
+
+    /**
+     * Number of steps computed ahead.
+     */
+    public static final int PREFETCH_DEPTH = 8;
+
+    /**
+     * The thread computing the snapshots of the next steps.
+     */
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Astrarium prefetcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Publishes the state displayed at every frame.
+     */
+    private final SnapshotPublisher publisher = new SnapshotPublisher();
+
+    /**
+     * The snapshots of the steps from {@link #firstKeyframe} onwards, computed or being computed.
+     */
+    private final ArrayDeque<Future<Snapshot>> keyframes = new ArrayDeque<>();
+
+    /**
+     * The system played.
+     */
+    private Astrarium astrarium;
+
+    /**
+     * Provides the state of the system at the time of each step.
+     */
+    private KeyframeSource source = Snapshot::capture;
+
+    /**
+     * Receives the state of each step once played, or {@code null}.
+     */
+    private Consumer<Snapshot> onKeyframe = null;
+
+    /**
+     * The bodies of the system, captured when the system was last changed.
+     */
+    private CelestialBody[] bodies;
+
+    //region Clock
+    /**
+     * Ratio between the simulation time and the real time.
+     */
+    private double warp = MINIMUM_WARP;
+
+    /**
+     * Whether the clock is stopped.
+     */
+    private boolean paused = false;
+
+    /**
+     * Whether the clock goes backwards.
+     */
+    private boolean reversed = false;
+
+    /**
+     * Simulation time in milliseconds of the step zero, set every time the speed of the clock changes.
+     */
+    private long origin;
+
+    /**
+     * The current step, counted from the {@link #origin}.
+     */
+    private long step = 0;
+
+    /**
+     * Real time elapsed since the current step, in nanoseconds.
+     */
+    private long accumulator = 0;
+
+    /**
+     * Index of the step of the first keyframe.
+     */
+    private long firstKeyframe = 0;
+
+    /**
+     * Simulation time of the first keyframe in milliseconds, kept as the speed of the clock may change
+     * before it is recorded.
+     */
+    private long firstKeyframeTime;
+
+    /**
+     * The simulation time displayed, in milliseconds.
+     */
+    private long time;
+    //endregion Clock
+
+    /**
+     * Creates a new clock playing the given system from the given time.
+     *
+     * @param astrarium the system to play.
+     * @param time      the initial time in milliseconds.
+     */
+    public Playback(Astrarium astrarium, long time) {
+        this.astrarium = astrarium;
+        this.bodies = Snapshot.flatten(astrarium.getRoot());
+        this.origin = time;
+        this.time = time;
+    }
+
+    //region Getters and Setters
+
+    /**
+     * Returns the simulation time of the last frame.
+     *
+     * @return time in milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Jumps to the given simulation time.
+     *
+     * @param time time in milliseconds.
+     */
+    public void setTime(long time) {
+        this.time = time;
+        rebase();
+    }
+
+    /**
+     * Returns the ratio between the simulation time and the real time.
+     *
+     * @return the warp factor.
+     */
+    public double getWarp() {
+        return warp;
+    }
+
+    /**
+     * Sets the ratio between the simulation time and the real time.
+     *
+     * @param warp the warp factor, clamped between {@link #MINIMUM_WARP} and {@link #MAXIMUM_WARP}.
+     */
+    public void setWarp(double warp) {
+        this.warp = Math.max(MINIMUM_WARP, Math.min(MAXIMUM_WARP, warp));
+        rebase();
+    }
+
+    /**
+     * Returns whether the clock is stopped.
+     *
+     * @return true if paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Stops or restarts the clock.
+     *
+     * @param paused true to stop the clock.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        rebase();
+    }
+
+    /**
+     * Returns whether the clock goes backwards.
+     *
+     * @return true if reversed.
+     */
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * Sets the direction of the clock.
+     *
+     * @param reversed true to go backwards.
+     */
+    public void setReversed(boolean reversed) {
+        this.reversed = reversed;
+        rebase();
+    }
+
+    /**
+     * Replaces the system played, keeping the clock.
+     *
+     * @param astrarium the new system.
+     */
+    public void setAstrarium(Astrarium astrarium) {
+        this.astrarium = astrarium;
+        invalidate();
+    }
+
+    /**
+     * Sets where the states of the steps come from, e.g. a recording to replay instead of computing them.
+     *
+     * @param source the source, or {@code null} to compute the states with {@link Snapshot#capture(CelestialBody[], long)}.
+     */
+    public void setSource(KeyframeSource source) {
+        clearKeyframes();
+        this.source = source != null ? source : Snapshot::capture;
+    }
+
+    /**
+     * Sets a function receiving the state of every step once it has been played, e.g. to record the session.
+     * <p>
+     * No step is skipped: the states not computed ahead in time are waited for, or computed on the spot,
+     * before the next frame is rendered.
+     *
+     * @param onKeyframe the function, or {@code null}.
+     */
+    public void setOnKeyframe(Consumer<Snapshot> onKeyframe) {
+        this.onKeyframe = onKeyframe;
+    }
+
+    /**
+     * Returns the publisher of the state displayed at every frame. It is kept when the system is replaced,
+     * and closed with the playback.
+     *
+     * @return the publisher.
+     */
+    public SnapshotPublisher getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * Discards the states computed ahead. It must be called whenever a body is added, removed or edited.
+     */
+    public void invalidate() {
+        clearKeyframes();
+        bodies = Snapshot.flatten(astrarium.getRoot());
+    }
+    //endregion Getters and Setters
+
+    /**
+     * Advances the clock by the real time elapsed since the previous frame and renders the system at the new time.
+     * <p>
+     * If the states of the current step have not been computed yet, the system is rendered directly.
+     *
+     * @param elapsed real time elapsed in nanoseconds.
+     */
+    public void advance(long elapsed) {
+        if (!paused && elapsed > 0) {
+            accumulator += elapsed;
+
+            if (accumulator >= STEP) {
+                step += accumulator / STEP;
+                accumulator %= STEP;
+            }
+        }
+
+        prefetch();
+
+        long start = getKeyframeTime(step);
+        long end = getKeyframeTime(step + 1);
+
+        time = start + Math.round((double) accumulator / STEP * (end - start));
+
+        Iterator<Future<Snapshot>> iterator = keyframes.iterator();
+
+        astrarium.setTime(time, getReady(iterator.next()), getReady(iterator.next()));
+
+        if (publisher.hasSubscribers())
+            publisher.submit(Snapshot.ofRendered(bodies, time));
+    }
+
+    /**
+     * Stops the background threads, and completes the subscriptions to the publisher.
+     */
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+        publisher.close();
+    }
+
+    //region Keyframes
+
+    /**
+     * Starts the next steps from the displayed time, e.g. after the speed of the clock has changed.
+     */
+    private void rebase() {
+        origin = time;
+        step = 0;
+        accumulator = 0;
+
+        clearKeyframes();
+    }
+
+    /**
+     * Returns the simulation time of the given step.
+     *
+     * @param step the index of the step.
+     * @return time in milliseconds.
+     */
+    private long getKeyframeTime(long step) {
+        double stepMillis = STEP / 1e6 * warp * (reversed ? -1 : 1);
+
+        return origin + Math.round(step * stepMillis);
+    }
+
+    /**
+     * Drops the keyframes of the past steps and schedules the computation of the next ones.
+     */
+    private void prefetch() {
+        // While recording, the steps never scheduled are played too, one by one
+        while (firstKeyframe < step && (onKeyframe != null || !keyframes.isEmpty())) {
+            Future<Snapshot> keyframe = keyframes.poll();
+
+            if (onKeyframe != null)
+                record(keyframe, getKeyframeTime(firstKeyframe));
+
+            if (keyframe != null)
+                keyframe.cancel(true);
+
+            firstKeyframe++;
+        }
+
+        if (keyframes.isEmpty())
+            firstKeyframe = step;
+
+        firstKeyframeTime = getKeyframeTime(firstKeyframe);
+
+        final CelestialBody[] bodies = this.bodies;
+        final KeyframeSource source = this.source;
+
+        while (firstKeyframe + keyframes.size() <= step + PREFETCH_DEPTH) {
+            final long time = getKeyframeTime(firstKeyframe + keyframes.size());
+
+            keyframes.add(prefetcher.submit(() -> source.capture(bodies, time)));
+        }
+    }
+
+    /**
+     * Cancels all the keyframes, after recording the one of the current step, which has been displayed.
+     */
+    private void clearKeyframes() {
+        if (onKeyframe != null && !keyframes.isEmpty())
+            record(keyframes.peek(), firstKeyframeTime);
+
+        keyframes.forEach(keyframe -> keyframe.cancel(true));
+        keyframes.clear();
+        firstKeyframe = step;
+    }
+
+    /**
+     * Hands the state of a played step to {@link #onKeyframe}, waiting for its keyframe if it is still being computed,
+     * or computing it on the spot if it was never scheduled, has failed, or is of other bodies.
+     *
+     * @param keyframe the keyframe of the step, or {@code null}.
+     * @param time     the time of the step in milliseconds.
+     */
+    private void record(Future<Snapshot> keyframe, long time) {
+        Snapshot snapshot = null;
+
+        if (keyframe != null && !keyframe.isCancelled()) {
+            try {
+                snapshot = keyframe.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+            }
+        }
+
+        if (snapshot == null || !snapshot.isOf(bodies))
+            snapshot = source.capture(bodies, time);
+
+        if (snapshot != null)
+            onKeyframe.accept(snapshot);
+    }
+
+    /**
+     * Returns the snapshot of a keyframe if it has been computed from the current bodies.
+     *
+     * @param keyframe the keyframe.
+     * @return the snapshot, or {@code null} if not ready.
+     */
+    private Snapshot getReady(Future<Snapshot> keyframe) {
+        if (!keyframe.isDone() || keyframe.isCancelled())
+            return null;
+
+        try {
+            Snapshot snapshot = keyframe.get();
+
+            return snapshot != null && snapshot.isOf(bodies) ? snapshot : null;
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+    //endregion Keyframes
+
+    /**
+     * Provides the state of a system at a given time.
+     */
+    @FunctionalInterface
+    public interface KeyframeSource {
+        /**
+         * Returns the state of the given bodies at the given time. Called on a background thread, or,
+         * while the session is recorded, on the one playing it for the steps not computed ahead.
+         *
+         * @param bodies the bodies, as returned by {@link Snapshot#flatten(CelestialBody)}.
+         * @param time   time in milliseconds.
+         * @return the state, or {@code null} if not available, in which case the system is rendered directly.
+         */
+        Snapshot capture(CelestialBody[] bodies, long time);
+    }
+}
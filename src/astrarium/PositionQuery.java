@@ -0,0 +1,403 @@
+package astrarium;
+
+import astrarium.diagnostics.RuntimeMetrics;
+import astrarium.utils.Position;
+import astrarium.utils.Vector;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.*;
+
+/**
+ * Computes the positions of many bodies at many times, see {@link Astrarium#query(List, long[])}.
+ * <p>
+ * Compared to calling {@link Body#getPositionAtTime(long)} for each pair, the position of every ancestor
+ * is computed once per time and shared by all its descendants, the orbital rotations are reduced to two vectors
+ * computed once per orbit, and the times are visited in order, so that each solution of Kepler's equation
+ * starts from the previous one and converges in one or two iterations.
+ * <p>
+ * Open item: on 300 bodies and batches of 4096 times, a query is about 11 times faster than the single calls
+ * with samples a minute apart, but only about 8 times faster with samples an hour apart, short of the order
+ * of magnitude aimed at. The shortest orbits move too far in an hour for the warm start, and their solutions
+ * still take a few iterations with a full sine and cosine each.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+final class PositionQuery {
+    /**
+     * The largest error allowed on the mean anomaly, the same as {@link Orbit#calculateEccentricAnomaly(long)}.
+     */
+    private static final double DELTA = 1e-10;
+
+    /**
+     * The number of decimal places of {@link #DELTA}, for the solutions left to the orbit.
+     */
+    private static final double PRECISION = 10;
+
+    /**
+     * The largest change of mean anomaly from the previous time for which the previous solution is used,
+     * as Newton's method may diverge from a guess too far from the solution.
+     */
+    private static final double WARM_START_LIMIT = 0.5;
+
+    /**
+     * The largest change of eccentric anomaly from the previous time for which its sine and cosine are updated
+     * with a short series rather than computed again, with an error below 1e-17.
+     */
+    private static final double SMALL_ANGLE = 0.05;
+
+    /**
+     * The largest number of consecutive updates of the sine and the cosine, before computing them again
+     * to stop the rounding errors from adding up.
+     */
+    private static final int MAX_UPDATES = 64;
+
+    /**
+     * The smallest number of times computed by a task, as every task starts without previous solutions.
+     */
+    private static final int MINIMUM_CHUNK = 256;
+
+    /**
+     * The smallest number of positions worth splitting across threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    /**
+     * The bodies requested and all their ancestors, with the parents before their children, starting from the root.
+     */
+    private final CelestialBody[] nodes;
+
+    /**
+     * The index of the parent of each node, or -1 for the root.
+     */
+    private final int[] parents;
+
+    /**
+     * The node of each body requested.
+     */
+    private final int[] outputs;
+
+    //region Elements
+    private final double[] semiMajorAxes;
+    private final double[] semiMinorAxes;
+    private final double[] eccentricities;
+    private final double[] meanMotions;
+    private final double[] meanAnomaliesAtEpoch;
+    //endregion Elements
+
+    /**
+     * The directions of the periapsis, and of the point a quarter of orbit later, in the reference plane,
+     * as x, y and z for each node.
+     */
+    private final double[] periapsisAxes, normalAxes;
+
+    /**
+     * Prepares a query.
+     *
+     * @param root   the root of the system.
+     * @param bodies the bodies, in the order of the result.
+     */
+    PositionQuery(CelestialBody root, List<CelestialBody> bodies) {
+        Map<CelestialBody, Integer> indices = new IdentityHashMap<>();
+        CelestialBody[] nodes = new CelestialBody[16];
+        int[] parents = new int[16];
+        int count = 0;
+
+        nodes[count] = root;
+        parents[count] = -1;
+        indices.put(root, count++);
+
+        outputs = new int[bodies.size()];
+
+        for (int i = 0; i < bodies.size(); i++) {
+            CelestialBody body = bodies.get(i);
+
+            // Finds the closest ancestor already added, then adds the missing ones from the top
+            int depth = 0;
+            CelestialBody ancestor = body;
+
+            while (ancestor != null && !indices.containsKey(ancestor)) {
+                ancestor = ancestor.getParent();
+                depth++;
+            }
+
+            if (ancestor == null)
+                throw new IllegalArgumentException(body.getName() + " does not belong to the system.");
+
+            if (count + depth > nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, count + depth));
+                parents = Arrays.copyOf(parents, nodes.length);
+            }
+
+            for (int level = depth - 1; level >= 0; level--) {
+                CelestialBody node = body;
+
+                for (int k = 0; k < level; k++)
+                    node = node.getParent();
+
+                nodes[count] = node;
+                parents[count] = indices.get(node.getParent());
+                indices.put(node, count++);
+            }
+
+            outputs[i] = indices.get(body);
+        }
+
+        this.nodes = Arrays.copyOf(nodes, count);
+        this.parents = Arrays.copyOf(parents, count);
+
+        semiMajorAxes = new double[count];
+        semiMinorAxes = new double[count];
+        eccentricities = new double[count];
+        meanMotions = new double[count];
+        meanAnomaliesAtEpoch = new double[count];
+        periapsisAxes = new double[count * 3];
+        normalAxes = new double[count * 3];
+
+        for (int i = 1; i < count; i++) {
+            Orbit orbit = this.nodes[i].getOrbit();
+
+            semiMajorAxes[i] = orbit.getSemiMajorAxis();
+            eccentricities[i] = orbit.getEccentricity();
+            semiMinorAxes[i] = semiMajorAxes[i] * sqrt(1D - eccentricities[i] * eccentricities[i]);
+            meanMotions[i] = orbit.getMeanMotion();
+            meanAnomaliesAtEpoch[i] = orbit.getMeanAnomalyAtEpoch();
+
+            // The rotations are linear, so rotating the two axes of the orbital plane is enough
+            Vector p = orbit.rotateOnOrbitalPlane(new Vector(1, 0, 0));
+            Vector q = orbit.rotateOnOrbitalPlane(new Vector(0, 1, 0));
+
+            periapsisAxes[i * 3] = p.getX();
+            periapsisAxes[i * 3 + 1] = p.getY();
+            periapsisAxes[i * 3 + 2] = p.getZ();
+            normalAxes[i * 3] = q.getX();
+            normalAxes[i * 3 + 1] = q.getY();
+            normalAxes[i * 3 + 2] = q.getZ();
+        }
+    }
+
+    /**
+     * Computes the positions.
+     *
+     * @param times the times in milliseconds, in any order.
+     * @return the positions, see {@link Astrarium#query(List, long[])}.
+     */
+    double[] run(long[] times) {
+        long size = (long) outputs.length * times.length * 3;
+
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many positions for a single query, split it by time.");
+
+        double[] result = new double[(int) size];
+        int[] order = sort(times);
+
+        int tasks = (long) nodes.length * times.length < PARALLEL_THRESHOLD ? 1 :
+                Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, times.length / MINIMUM_CHUNK));
+
+        if (tasks == 1) {
+            solve(times, order, 0, times.length, result);
+        } else {
+            IntStream.range(0, tasks).parallel().forEach(task ->
+                    solve(times, order, (int) ((long) times.length * task / tasks),
+                            (int) ((long) times.length * (task + 1) / tasks), result));
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the positions at a range of the times in order.
+     *
+     * @param times  all the times.
+     * @param order  the indices of the times in increasing order, or {@code null} if already sorted.
+     * @param from   the first index in {@code order}, included.
+     * @param to     the last index in {@code order}, excluded.
+     * @param result the positions of all the bodies at all the times.
+     */
+    private void solve(long[] times, int[] order, int from, int to, double[] result) {
+        int count = nodes.length;
+
+        double[] absolute = new double[count * 3];
+        double[] previousMeanAnomalies = new double[count];
+        double[] previousAnomalies = new double[count];
+        double[] previousSines = new double[count];
+        double[] previousCosines = new double[count];
+        int[] updates = new int[count];
+        boolean first = true;
+        long[] iterationCounts = new long[RuntimeMetrics.KEPLER_ITERATION_BUCKETS];
+        long[] residualCounts = new long[RuntimeMetrics.getKeplerResidualBucketCount()];
+
+        for (int k = from; k < to; k++) {
+            int column = order == null ? k : order[k];
+            long time = times[column];
+
+            for (int i = 1; i < count; i++) {
+                double eccentricity = eccentricities[i];
+                double x, y, z;
+
+                if (eccentricity < 1) {
+                    double meanAnomaly = meanMotions[i] * (time / 1000D) + meanAnomaliesAtEpoch[i];
+                    double eccentricAnomaly = meanAnomaly;
+                    double sine = Double.NaN, cosine = Double.NaN;
+
+                    if (!first) {
+                        double step = meanAnomaly - previousMeanAnomalies[i];
+
+                        // Taylor expansion of the previous solution to the third order, often within the tolerance
+                        if (abs(step) < WARM_START_LIMIT) {
+                            double derivative = 1 / (1 - eccentricity * previousCosines[i]);
+                            double sineTerm = eccentricity * previousSines[i] * derivative;
+                            double cosineTerm = eccentricity * previousCosines[i] * derivative;
+                            double scaled = step * derivative;
+
+                            eccentricAnomaly = previousAnomalies[i] + scaled * (1 - scaled
+                                    * (0.5 * sineTerm + scaled * (cosineTerm - 3 * sineTerm * sineTerm) / 6));
+
+                            double angle = eccentricAnomaly - previousAnomalies[i];
+
+                            if (abs(angle) < SMALL_ANGLE && updates[i] < MAX_UPDATES) {
+                                double angleSine = smallSine(angle), angleCosine = smallCosine(angle);
+
+                                sine = previousSines[i] * angleCosine + previousCosines[i] * angleSine;
+                                cosine = previousCosines[i] * angleCosine - previousSines[i] * angleSine;
+                                updates[i]++;
+                            }
+                        }
+                    }
+
+                    if (Double.isNaN(sine)) {
+                        sine = sin(eccentricAnomaly);
+                        cosine = cos(eccentricAnomaly);
+                        updates[i] = 0;
+                    }
+
+                    // Newton's method as in Orbit, keeping the sine and the cosine of the solution for the position
+                    double zero = eccentricAnomaly - eccentricity * sine - meanAnomaly;
+
+                    int j;
+
+                    for (j = 0; abs(zero) > DELTA && j < Orbit.MAX_NEWTON_ITERATIONS; j++) {
+                        double correction = -zero / (1 - eccentricity * cosine);
+                        eccentricAnomaly += correction;
+
+                        // The corrections from a warm start are tiny, and rotating the sine and the cosine by them
+                        // is much cheaper than computing them again
+                        if (abs(correction) < SMALL_ANGLE && updates[i] < MAX_UPDATES) {
+                            double correctionSine = smallSine(correction), correctionCosine = smallCosine(correction);
+                            double rotatedSine = sine * correctionCosine + cosine * correctionSine;
+
+                            cosine = cosine * correctionCosine - sine * correctionSine;
+                            sine = rotatedSine;
+                            updates[i]++;
+                        } else {
+                            sine = sin(eccentricAnomaly);
+                            cosine = cos(eccentricAnomaly);
+                            updates[i] = 0;
+                        }
+
+                        zero = eccentricAnomaly - eccentricity * sine - meanAnomaly;
+                    }
+
+                    if (abs(zero) <= DELTA) {
+                        iterationCounts[j]++;
+                        residualCounts[RuntimeMetrics.getKeplerResidualBucket(abs(zero))]++;
+                    } else {
+                        // Stalled, left to the safeguarded solver of Orbit, which counts its own iterations
+                        eccentricAnomaly = Orbit.calculateEccentricAnomaly(meanAnomaly, eccentricity, PRECISION);
+                        sine = sin(eccentricAnomaly);
+                        cosine = cos(eccentricAnomaly);
+                        updates[i] = 0;
+                    }
+
+                    previousMeanAnomalies[i] = meanAnomaly;
+                    previousAnomalies[i] = eccentricAnomaly;
+                    previousSines[i] = sine;
+                    previousCosines[i] = cosine;
+
+                    double u = semiMajorAxes[i] * (cosine - eccentricity);
+                    double v = semiMinorAxes[i] * sine;
+
+                    x = u * periapsisAxes[i * 3] + v * normalAxes[i * 3];
+                    y = u * periapsisAxes[i * 3 + 1] + v * normalAxes[i * 3 + 1];
+                    z = u * periapsisAxes[i * 3 + 2] + v * normalAxes[i * 3 + 2];
+                } else {
+                    // Not supported by the fast path, left to the orbit
+                    Position position = nodes[i].getOrbit().getPositionFromParent(time);
+
+                    x = position.getX();
+                    y = position.getY();
+                    z = position.getZ();
+                }
+
+                int parent = parents[i] * 3;
+
+                absolute[i * 3] = absolute[parent] + x;
+                absolute[i * 3 + 1] = absolute[parent + 1] + y;
+                absolute[i * 3 + 2] = absolute[parent + 2] + z;
+            }
+
+            first = false;
+
+            for (int body = 0; body < outputs.length; body++) {
+                int offset = (body * times.length + column) * 3;
+                int node = outputs[body] * 3;
+
+                result[offset] = absolute[node];
+                result[offset + 1] = absolute[node + 1];
+                result[offset + 2] = absolute[node + 2];
+            }
+        }
+
+        // Counted once per task, not to touch the shared counters in the loop
+        RuntimeMetrics metrics = RuntimeMetrics.get();
+        metrics.recordKeplerSolves(iterationCounts, residualCounts);
+        metrics.recordBodiesPropagated((long) (count - 1) * (to - from));
+    }
+
+    /**
+     * Sorts the times.
+     *
+     * @param times the times.
+     * @return the indices of the times in increasing order, or {@code null} if they are sorted already.
+     */
+    private static int[] sort(long[] times) {
+        boolean sorted = true;
+
+        for (int i = 1; i < times.length && sorted; i++)
+            sorted = times[i - 1] <= times[i];
+
+        if (sorted)
+            return null;
+
+        return IntStream.range(0, times.length).boxed()
+                .sorted((a, b) -> Long.compare(times[a], times[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Returns the sine of an angle below {@link #SMALL_ANGLE} with its Taylor series, with an error below 1e-17.
+     *
+     * @param angle the angle in radians.
+     * @return the sine.
+     */
+    private static double smallSine(double angle) {
+        double square = angle * angle;
+        return angle * (1 - square / 6 * (1 - square / 20 * (1 - square / 42)));
+    }
+
+    /**
+     * Returns the cosine of an angle below {@link #SMALL_ANGLE} with its Taylor series, with an error below 1e-17.
+     *
+     * @param angle the angle in radians.
+     * @return the cosine.
+     */
+    private static double smallCosine(double angle) {
+        double square = angle * angle;
+        return 1 - square / 2 * (1 - square / 12 * (1 - square / 30 * (1 - square / 56)));
+    }
+}
@@ -0,0 +1,210 @@
+package astrarium;
+
+import astrarium.utils.DoubleDouble;
+import astrarium.utils.Position;
+
+/**
+ * A slow but exact implementation of the propagation of an {@link Orbit}, to check the fast one against.
+ * <p>
+ * Every step is computed with {@link DoubleDouble}, about 32 significant digits, and follows the definitions
+ * rather than the shortcuts of the fast path: Kepler's equation is solved by bisection alone, and the orbital
+ * rotations are applied one by one with Rodrigues' formula, in the same order as
+ * {@link Orbit#rotateOnOrbitalPlane(astrarium.utils.Vector)}. The results are rounded to doubles only at the end,
+ * so they are within half an ulp of the exact positions for the elements given.
+ * <p>
+ * Orbits up to parabolic are supported, as the fast path solves the same equation on all of them.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ReferencePropagator {
+    /**
+     * The largest number of bisections, enough to reach the precision of a {@link DoubleDouble}
+     * on an interval of two radians.
+     */
+    private static final int MAX_BISECTIONS = 128;
+
+    private ReferencePropagator() {
+    }
+
+    //region Kepler's Equation
+
+    /**
+     * Returns the mean anomaly of an orbit at a given {@code time}, as in {@link Orbit#getMeanAnomaly(long)}.
+     *
+     * @param orbit the orbit.
+     * @param time  the time in milliseconds.
+     * @return the mean anomaly in radians.
+     */
+    public static DoubleDouble getMeanAnomaly(Orbit orbit, long time) {
+        DoubleDouble semiMajorAxis = DoubleDouble.valueOf(orbit.getSemiMajorAxis());
+        DoubleDouble cube = semiMajorAxis.multiply(semiMajorAxis).multiply(semiMajorAxis);
+
+        DoubleDouble meanMotion = DoubleDouble.valueOf(orbit.getParent().getStandardGravitationalParameter())
+                .divide(cube)
+                .sqrt();
+
+        return meanMotion.multiply(DoubleDouble.valueOf(time).divide(1000D))
+                .add(orbit.getMeanAnomalyAtEpoch());
+    }
+
+    /**
+     * Solves Kepler's equation {@code M = E - e sin(E)} by bisection.
+     * <p>
+     * The solution is always within {@code e} from {@code M}, and the equation is monotonic for {@code e <= 1},
+     * so the interval is halved until it cannot be any more.
+     *
+     * @param meanAnomaly  the mean anomaly in radians.
+     * @param eccentricity the eccentricity, between 0 and 1.
+     * @return the eccentric anomaly in radians.
+     */
+    public static DoubleDouble solveKepler(DoubleDouble meanAnomaly, double eccentricity) {
+        if (!(eccentricity >= 0 && eccentricity <= 1))
+            throw new IllegalArgumentException("Eccentricity out of [0, 1]: " + eccentricity);
+
+        DoubleDouble low = meanAnomaly.add(-eccentricity);
+        DoubleDouble high = meanAnomaly.add(eccentricity);
+
+        for (int i = 0; i < MAX_BISECTIONS && low.compareTo(high) < 0; i++) {
+            DoubleDouble middle = low.add(high).multiply(0.5);
+
+            if (middle.equals(low) || middle.equals(high))
+                return middle;
+
+            if (getKeplerResidual(middle, meanAnomaly, eccentricity).signum() < 0)
+                low = middle;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns how much an eccentric anomaly misses Kepler's equation, {@code E - e sin(E) - M}.
+     *
+     * @param eccentricAnomaly the eccentric anomaly in radians.
+     * @param meanAnomaly      the mean anomaly in radians.
+     * @param eccentricity     the eccentricity.
+     * @return the residual in radians.
+     */
+    public static DoubleDouble getKeplerResidual(DoubleDouble eccentricAnomaly, DoubleDouble meanAnomaly,
+                                                 double eccentricity) {
+        return eccentricAnomaly.subtract(eccentricAnomaly.sin().multiply(eccentricity)).subtract(meanAnomaly);
+    }
+    //endregion Kepler's Equation
+
+    //region Positions
+
+    /**
+     * Returns the position of an orbiting body from its parent at a given {@code time},
+     * as in {@link Orbit#getPositionFromParent(long)}.
+     *
+     * @param orbit the orbit.
+     * @param time  the time in milliseconds.
+     * @return the position in meters.
+     */
+    public static Position getPositionFromParent(Orbit orbit, long time) {
+        return toPosition(getExactPositionFromParent(orbit, time));
+    }
+
+    /**
+     * Returns the position of a body from the root of its system at a given {@code time},
+     * as in {@link Body#getPositionAtTime(long)}.
+     *
+     * @param body the body.
+     * @param time the time in milliseconds.
+     * @return the position in meters.
+     */
+    public static Position getPositionAtTime(Body body, long time) {
+        DoubleDouble[] position = {DoubleDouble.ZERO, DoubleDouble.ZERO, DoubleDouble.ZERO};
+
+        for (Orbit orbit = body.getOrbitAtTime(time); orbit != null; orbit = orbit.getParent().getOrbitAtTime(time)) {
+            DoubleDouble[] fromParent = getExactPositionFromParent(orbit, time);
+
+            for (int i = 0; i < 3; i++)
+                position[i] = position[i].add(fromParent[i]);
+        }
+
+        return toPosition(position);
+    }
+
+    /**
+     * Returns the position from the parent without rounding it.
+     *
+     * @param orbit the orbit.
+     * @param time  the time in milliseconds.
+     * @return the coordinates in meters.
+     */
+    private static DoubleDouble[] getExactPositionFromParent(Orbit orbit, long time) {
+        double eccentricity = orbit.getEccentricity();
+        DoubleDouble eccentricAnomaly = solveKepler(getMeanAnomaly(orbit, time), eccentricity);
+
+        DoubleDouble semiMajorAxis = DoubleDouble.valueOf(orbit.getSemiMajorAxis());
+        DoubleDouble semiMinorAxis = semiMajorAxis.multiply(
+                DoubleDouble.ONE.subtract(DoubleDouble.valueOf(eccentricity).multiply(eccentricity)).sqrt());
+
+        DoubleDouble[] position = {
+                semiMajorAxis.multiply(eccentricAnomaly.cos().add(-eccentricity)),
+                semiMinorAxis.multiply(eccentricAnomaly.sin()),
+                DoubleDouble.ZERO
+        };
+
+        DoubleDouble node = DoubleDouble.valueOf(orbit.getLongitudeOfAscendingNode());
+        DoubleDouble inclination = DoubleDouble.valueOf(orbit.getInclination());
+
+        DoubleDouble[] nodeAxis = {node.cos(), node.sin(), DoubleDouble.ZERO};
+        DoubleDouble[] normalAxis = rotate(new DoubleDouble[]{DoubleDouble.ZERO, DoubleDouble.ZERO, DoubleDouble.ONE},
+                nodeAxis, inclination);
+        DoubleDouble[] zAxis = {DoubleDouble.ZERO, DoubleDouble.ZERO, DoubleDouble.ONE};
+
+        position = rotate(position, nodeAxis, inclination);
+        position = rotate(position, zAxis, node);
+        position = rotate(position, normalAxis, DoubleDouble.valueOf(orbit.getArgumentOfPeriapsis()));
+
+        return position;
+    }
+
+    /**
+     * Rotates a vector around a unit {@code axis} with Rodrigues' formula,
+     * {@code v cos + (k x v) sin + k (k . v) (1 - cos)}.
+     *
+     * @param vector the coordinates of the vector.
+     * @param axis   the coordinates of the axis, of length one.
+     * @param angle  the angle in radians.
+     * @return the coordinates of the rotated vector.
+     */
+    private static DoubleDouble[] rotate(DoubleDouble[] vector, DoubleDouble[] axis, DoubleDouble angle) {
+        DoubleDouble cos = angle.cos();
+        DoubleDouble sin = angle.sin();
+
+        DoubleDouble[] cross = {
+                axis[1].multiply(vector[2]).subtract(axis[2].multiply(vector[1])),
+                axis[2].multiply(vector[0]).subtract(axis[0].multiply(vector[2])),
+                axis[0].multiply(vector[1]).subtract(axis[1].multiply(vector[0]))
+        };
+
+        DoubleDouble dot = axis[0].multiply(vector[0])
+                .add(axis[1].multiply(vector[1]))
+                .add(axis[2].multiply(vector[2]))
+                .multiply(DoubleDouble.ONE.subtract(cos));
+
+        DoubleDouble[] rotated = new DoubleDouble[3];
+
+        for (int i = 0; i < 3; i++)
+            rotated[i] = vector[i].multiply(cos).add(cross[i].multiply(sin)).add(axis[i].multiply(dot));
+
+        return rotated;
+    }
+
+    /**
+     * Rounds exact coordinates to a position.
+     *
+     * @param coordinates the coordinates.
+     * @return the position.
+     */
+    private static Position toPosition(DoubleDouble[] coordinates) {
+        return new Position(coordinates[0].doubleValue(), coordinates[1].doubleValue(), coordinates[2].doubleValue());
+    }
+    //endregion Positions
+}
@@ -0,0 +1,209 @@
+package astrarium;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * The state of the bodies of a system at a given time, stored as the eccentric anomaly of each orbit.
+ * <p>
+ * Capturing a snapshot solves Kepler's equation for every body, but does not alter the bodies,
+ * so it can be done on a background thread.
+ * Rendering between two snapshots only interpolates the anomalies, which is much cheaper.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public class Snapshot {
+    /**
+     * Time of the snapshot in milliseconds.
+     */
+    private final long time;
+
+    /**
+     * The bodies of the system, with the root first.
+     */
+    private final CelestialBody[] bodies;
+
+    /**
+     * The eccentric anomaly of each body, or {@link Double#NaN} for the bodies without an orbit.
+     */
+    private final double[] anomalies;
+
+    /**
+     * Creates a snapshot from its content.
+     *
+     * @param time      time in milliseconds.
+     * @param bodies    the bodies.
+     * @param anomalies the eccentric anomalies of the bodies.
+     */
+    private Snapshot(long time, CelestialBody[] bodies, double[] anomalies) {
+        this.time = time;
+        this.bodies = bodies;
+        this.anomalies = anomalies;
+    }
+
+    /**
+     * Returns all the bodies of the system, with the parents before their children.
+     *
+     * @param root root of the system.
+     * @return the bodies, starting from the root.
+     */
+    public static CelestialBody[] flatten(CelestialBody root) {
+        List<CelestialBody> bodies = new ArrayList<>();
+
+        bodies.add(root);
+
+        for (int i = 0; i < bodies.size(); i++)
+            bodies.addAll(bodies.get(i).getChildren());
+
+        return bodies.toArray(new CelestialBody[0]);
+    }
+
+    /**
+     * Computes the state of the given bodies at the given time.
+     * <p>
+     * The bodies are not altered, so it is safe to capture snapshots from multiple threads,
+     * as long as the orbits are not edited at the same time.
+     *
+     * @param bodies the bodies, as returned by {@link #flatten(CelestialBody)}.
+     * @param time   time in milliseconds.
+     * @return the snapshot.
+     */
+    public static Snapshot capture(CelestialBody[] bodies, long time) {
+        double[] anomalies = new double[bodies.length];
+
+        for (int i = 0; i < bodies.length; i++) {
+            Orbit orbit = bodies[i].getOrbit();
+
+            anomalies[i] = orbit == null ? Double.NaN : orbit.calculateEccentricAnomaly(time);
+        }
+
+        return new Snapshot(time, bodies, anomalies);
+    }
+
+    /**
+     * Creates a snapshot of the state the given bodies have been rendered at, without computing it again.
+     *
+     * @param bodies the bodies, as returned by {@link #flatten(CelestialBody)}, all rendered at the same time.
+     * @param time   the time they have been rendered at, in milliseconds.
+     * @return the snapshot.
+     */
+    public static Snapshot ofRendered(CelestialBody[] bodies, long time) {
+        double[] anomalies = new double[bodies.length];
+
+        for (int i = 0; i < bodies.length; i++) {
+            Orbit orbit = bodies[i].getOrbit();
+
+            anomalies[i] = orbit == null ? Double.NaN : orbit.getRenderedEccentricAnomaly();
+        }
+
+        return new Snapshot(time, bodies, anomalies);
+    }
+
+    /**
+     * Creates a snapshot from eccentric anomalies computed elsewhere, e.g. recorded in a file.
+     *
+     * @param bodies    the bodies, as returned by {@link #flatten(CelestialBody)}.
+     * @param time      time in milliseconds.
+     * @param anomalies the eccentric anomaly of each body, or {@link Double#NaN} for the bodies without an orbit.
+     * @return the snapshot.
+     */
+    public static Snapshot of(CelestialBody[] bodies, long time, double[] anomalies) {
+        if (anomalies.length != bodies.length)
+            throw new IllegalArgumentException("There must be an anomaly for each body.");
+
+        return new Snapshot(time, bodies, anomalies);
+    }
+
+    //region Getters
+
+    /**
+     * Returns the time of the snapshot.
+     *
+     * @return time in milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns whether the snapshot was captured from the given bodies.
+     *
+     * @param bodies the bodies, as returned by {@link #flatten(CelestialBody)}.
+     * @return true if it contains exactly those bodies.
+     */
+    public boolean isOf(CelestialBody[] bodies) {
+        return this.bodies == bodies;
+    }
+
+    /**
+     * Returns the bodies of the snapshot. The array must not be modified.
+     *
+     * @return the bodies, starting from the root.
+     */
+    public CelestialBody[] getBodies() {
+        return bodies;
+    }
+
+    /**
+     * Returns the eccentric anomaly of a body.
+     *
+     * @param index index of the body in {@link #getBodies()}.
+     * @return the anomaly in radians, or {@link Double#NaN} for the root.
+     */
+    public double getEccentricAnomaly(int index) {
+        return anomalies[index];
+    }
+    //endregion Getters
+
+    /**
+     * Renders the bodies at the state of this snapshot.
+     * <p>
+     * Not public, as the snapshots handed to the subscribers of a {@link SnapshotPublisher} share the bodies
+     * displayed: they are rendered through {@link Astrarium#setTime(long, Snapshot, Snapshot)}.
+     */
+    void render() {
+        for (int i = 0; i < bodies.length; i++)
+            if (!Double.isNaN(anomalies[i]))
+                bodies[i].getOrbit().renderAtEccentricAnomaly(anomalies[i]);
+    }
+
+    /**
+     * Renders the bodies at a time between this snapshot and the {@code next} one.
+     * <p>
+     * The eccentric anomalies are interpolated linearly, then refined with a single Newton step of Kepler's equation,
+     * which is enough since the interpolated value is already close to the solution.
+     *
+     * @param next the other snapshot, captured from the same bodies.
+     * @param time time in milliseconds, usually between the times of the two snapshots.
+     */
+    void renderTowards(Snapshot next, long time) {
+        if (next.bodies != bodies)
+            throw new IllegalArgumentException("The snapshots were captured from different bodies.");
+
+        if (next.time == this.time) {
+            render();
+            return;
+        }
+
+        double alpha = (double) (time - this.time) / (next.time - this.time);
+
+        for (int i = 0; i < bodies.length; i++) {
+            if (Double.isNaN(anomalies[i]))
+                continue;
+
+            Orbit orbit = bodies[i].getOrbit();
+            double eccentricity = orbit.getEccentricity();
+
+            // The anomalies are not normalised, so the difference already counts the full revolutions
+            double eccentricAnomaly = anomalies[i] + alpha * (next.anomalies[i] - anomalies[i]);
+
+            double zero = eccentricAnomaly - eccentricity * sin(eccentricAnomaly) - orbit.getMeanAnomaly(time);
+            eccentricAnomaly -= zero / (1 - eccentricity * cos(eccentricAnomaly));
+
+            orbit.renderAtEccentricAnomaly(eccentricAnomaly);
+        }
+    }
+}
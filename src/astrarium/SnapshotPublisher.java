@@ -0,0 +1,294 @@
+package astrarium;
+
+import astrarium.utils.Flow;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the state of a system at every tick to any number of subscribers, e.g. dashboards or loggers.
+ * <p>
+ * The states are conflated: each subscriber receives the latest state at the time it requests one,
+ * and the states published while it is busy are skipped, so a slow subscriber never builds up a queue.
+ * Publishing only stores the state and wakes a background thread, so it takes the same time
+ * however many subscribers are attached. The subscribers are called on background threads,
+ * never concurrently with themselves.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SnapshotPublisher implements Flow.Publisher<Snapshot>, AutoCloseable {
+    /**
+     * The threads calling the subscribers.
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Astrarium publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The subscriptions not cancelled.
+     */
+    private final List<SnapshotSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Whether the subscriptions are being notified of the latest state, or are about to be.
+     */
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * The latest state, or {@code null} before the first one.
+     */
+    private volatile Published latest = null;
+
+    /**
+     * Whether the publisher has been closed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Adds a subscriber, which receives the states published from the time it requests them.
+     *
+     * @param subscriber the subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Snapshot> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException("The subscriber must not be null.");
+
+        SnapshotSubscription subscription = new SnapshotSubscription(subscriber);
+
+        if (closed) {
+            subscription.done = true;
+            subscriber.onSubscribe(subscription);
+            subscriber.onComplete();
+            return;
+        }
+
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Returns whether any subscriber is attached, to skip preparing the states when none is.
+     *
+     * @return true if there are subscribers.
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Returns the number of subscribers attached.
+     *
+     * @return number of subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Publishes a new state, replacing the previous one for the subscribers that have not received it yet.
+     * It must be called from a single thread at a time.
+     *
+     * @param snapshot the state.
+     */
+    public void submit(Snapshot snapshot) {
+        if (closed)
+            throw new IllegalStateException("The publisher has been closed.");
+
+        Published previous = latest;
+
+        latest = new Published(snapshot, previous == null ? 1 : previous.version + 1);
+
+        // A dispatch already scheduled will deliver this state, there is no need for another
+        if (dispatching.compareAndSet(false, true))
+            execute(this::dispatch);
+    }
+
+    /**
+     * Completes all the subscriptions, once they have received the latest state if they requested it.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+
+        for (SnapshotSubscription subscription : subscriptions)
+            subscription.signal();
+
+        executor.shutdown();
+    }
+
+    /**
+     * Notifies every subscription of the latest state.
+     */
+    private void dispatch() {
+        dispatching.set(false);
+
+        for (SnapshotSubscription subscription : subscriptions)
+            subscription.signal();
+    }
+
+    /**
+     * Runs a task on the background threads, unless closed.
+     *
+     * @param task the task.
+     */
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // Closed in the meantime, the subscriptions have been completed already
+        }
+    }
+
+    /**
+     * A state with its position in the sequence of states published.
+     */
+    private static final class Published {
+        /**
+         * The state.
+         */
+        private final Snapshot snapshot;
+
+        /**
+         * The number of states published up to this one.
+         */
+        private final long version;
+
+        /**
+         * Creates a published state.
+         *
+         * @param snapshot the state.
+         * @param version  the number of states published up to this one.
+         */
+        private Published(Snapshot snapshot, long version) {
+            this.snapshot = snapshot;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The subscription of a subscriber, delivering the states one call at a time.
+     */
+    private final class SnapshotSubscription implements Flow.Subscription {
+        /**
+         * The subscriber.
+         */
+        private final Flow.Subscriber<? super Snapshot> subscriber;
+
+        /**
+         * Number of states requested and not delivered yet.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Number of signals not handled yet by {@link #drain()}, which runs only while it is not zero.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * The version of the last state delivered.
+         */
+        private long delivered = 0;
+
+        /**
+         * Whether the subscription has been cancelled or completed.
+         */
+        private volatile boolean done = false;
+
+        /**
+         * The error to signal to the subscriber from {@link #drain()}, e.g. after a wrong request, or {@code null}.
+         */
+        private volatile Throwable error = null;
+
+        /**
+         * Creates a subscription.
+         *
+         * @param subscriber the subscriber.
+         */
+        private SnapshotSubscription(Flow.Subscriber<? super Snapshot> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Signalled by drain(), so that it is never concurrent with a delivery
+                error = new IllegalArgumentException("The number of states requested must be positive.");
+                signal();
+                return;
+            }
+
+            long current, next;
+
+            do {
+                current = demand.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!demand.compareAndSet(current, next));
+
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Schedules a delivery, unless one is in progress, in which case it checks again before ending.
+         */
+        private void signal() {
+            if (pending.getAndIncrement() == 0)
+                execute(this::drain);
+        }
+
+        /**
+         * Delivers the latest state if requested and not delivered yet, and the completion once closed.
+         */
+        private void drain() {
+            int missed = 1;
+
+            do {
+                if (!done && error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                }
+
+                Published published = latest;
+
+                if (!done && published != null && published.version > delivered && demand.get() > 0) {
+                    delivered = published.version;
+
+                    if (demand.get() != Long.MAX_VALUE)
+                        demand.decrementAndGet();
+
+                    try {
+                        subscriber.onNext(published.snapshot);
+                    } catch (Throwable e) {
+                        cancel();
+                        subscriber.onError(e);
+                    }
+                }
+
+                if (!done && closed && (latest == null || latest.version == delivered || demand.get() == 0)) {
+                    cancel();
+                    subscriber.onComplete();
+                }
+
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
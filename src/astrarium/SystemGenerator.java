@@ -0,0 +1,685 @@
+package astrarium;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static astrarium.utils.Mathematics.TWO_PI;
+import static java.lang.Math.*;
+
+/**
+ * Generates synthetic systems of a star with planets, moons and belts, to test how the application scales.
+ * <p>
+ * The same settings and seed always give the same system, whichever way it is generated:
+ * built at once with {@link #generate()}, built as it is explored with {@link #generateLazy()},
+ * or visited body by body with {@link #visit(Visitor)}, e.g. to write it to a file without keeping it in memory.
+ * Every body is derived only from its parent and its position among the siblings,
+ * so a subtree can be generated without generating the rest of the system.
+ * <p>
+ * The eccentricities and the inclinations follow Rayleigh distributions, as in observed planetary systems,
+ * and the moons orbit well inside the Hill sphere of their parent.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SystemGenerator {
+    /**
+     * The astronomical unit in meters.
+     */
+    public static final double AU = 1.495978707e11;
+
+    /**
+     * The largest eccentricity generated, to keep every orbit elliptic and away from its parent.
+     */
+    public static final double MAX_ECCENTRICITY = 0.9;
+
+    //region Star
+    /**
+     * The name of the star.
+     */
+    private static final String STAR_NAME = "Star";
+
+    /**
+     * The mass of the star in kilograms, the same as the Sun.
+     */
+    private static final double STAR_MASS = 1.989e30;
+
+    /**
+     * The radius of the star in meters, the same as the Sun.
+     */
+    private static final double STAR_RADIUS = 6.957e8;
+    //endregion Star
+
+    /**
+     * The mass above which a planet is a gas giant, with a lower density.
+     */
+    private static final double GIANT_MASS = 1e26;
+
+    /**
+     * Density of the rocky bodies in kg/m^3.
+     */
+    private static final double ROCK_DENSITY = 3000;
+
+    /**
+     * Density of the gas giants in kg/m^3.
+     */
+    private static final double GAS_DENSITY = 1300;
+
+    /**
+     * The range of the semi-major axes of the moons, as fractions of the Hill sphere of their parent.
+     */
+    private static final double MOON_MIN_AXIS = 0.02, MOON_MAX_AXIS = 0.3;
+
+    /**
+     * Spreads the seeds of the siblings, so that close indices give unrelated bodies.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The seed of the whole system.
+     */
+    private final long seed;
+
+    //region Settings
+    /**
+     * Number of planets.
+     */
+    private int planets = 8;
+
+    /**
+     * The semi-major axis of the innermost and the outermost planet, in meters.
+     */
+    private double innerAxis = 0.4 * AU, outerAxis = 30 * AU;
+
+    /**
+     * Number of moons of every planet, and of every moon up to {@link #moonDepth}.
+     */
+    private int moonsPerBody = 0;
+
+    /**
+     * Number of levels of moons below the planets.
+     */
+    private int moonDepth = 1;
+
+    /**
+     * The scale of the Rayleigh distributions of the eccentricities and the inclinations of planets and moons.
+     */
+    private double eccentricityScale = 0.05, inclinationScale = 0.03;
+
+    /**
+     * The belts orbiting the star.
+     */
+    private final List<Belt> belts = new ArrayList<>();
+    //endregion Settings
+
+    /**
+     * Creates a generator of eight planets, without moons and belts.
+     *
+     * @param seed the seed of the random numbers.
+     */
+    public SystemGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a generator of the given number of bodies besides the star: eight planets,
+     * about half of the others as moons of the planets and moons of the moons, and the rest in a belt
+     * between 2.2 and 3.3 AU.
+     *
+     * @param bodies number of bodies besides the star.
+     * @param seed   the seed of the random numbers.
+     * @return the generator.
+     */
+    public static SystemGenerator forBodyCount(long bodies, long seed) {
+        if (bodies < 0)
+            throw new IllegalArgumentException("The number of bodies must not be negative.");
+
+        SystemGenerator generator = new SystemGenerator(seed);
+        int planets = (int) min(bodies, 8);
+        long remaining = bodies - planets;
+
+        generator.setPlanets(planets, 0.4 * AU, 30 * AU);
+
+        if (planets > 0) {
+            int moons = (int) sqrt(remaining / 2D / planets);
+
+            generator.setMoons(moons, 2);
+            remaining -= planets * (moons + (long) moons * moons);
+        }
+
+        if (remaining > 0)
+            generator.addBelt(remaining, 2.2 * AU, 3.3 * AU, 0.1, 0.1);
+
+        return generator;
+    }
+
+    //region Setters
+
+    /**
+     * Sets the planets, with semi-major axes growing geometrically from the innermost to the outermost.
+     *
+     * @param count     number of planets.
+     * @param innerAxis semi-major axis of the innermost planet in meters.
+     * @param outerAxis semi-major axis of the outermost planet in meters.
+     */
+    public void setPlanets(int count, double innerAxis, double outerAxis) {
+        if (count < 0 || innerAxis <= 0 || outerAxis < innerAxis)
+            throw new IllegalArgumentException("Invalid planets.");
+
+        this.planets = count;
+        this.innerAxis = innerAxis;
+        this.outerAxis = outerAxis;
+    }
+
+    /**
+     * Sets the moons: every planet has {@code perBody} moons, every moon has as many moons,
+     * and so on for {@code depth} levels.
+     *
+     * @param perBody number of moons of every planet and moon.
+     * @param depth   number of levels of moons, one for moons without moons.
+     */
+    public void setMoons(int perBody, int depth) {
+        if (perBody < 0 || depth < 1)
+            throw new IllegalArgumentException("Invalid moons.");
+
+        this.moonsPerBody = perBody;
+        this.moonDepth = depth;
+    }
+
+    /**
+     * Sets the scales of the Rayleigh distributions of the eccentricities and the inclinations
+     * of the planets and the moons, i.e. their most likely values.
+     *
+     * @param eccentricityScale the scale of the eccentricities.
+     * @param inclinationScale  the scale of the inclinations in radians.
+     */
+    public void setDistributions(double eccentricityScale, double inclinationScale) {
+        this.eccentricityScale = eccentricityScale;
+        this.inclinationScale = inclinationScale;
+    }
+
+    /**
+     * Adds a belt of small bodies orbiting the star, with semi-major axes evenly distributed in a range.
+     *
+     * @param count             number of bodies.
+     * @param innerAxis         the smallest semi-major axis in meters.
+     * @param outerAxis         the largest semi-major axis in meters.
+     * @param eccentricityScale the scale of the Rayleigh distribution of the eccentricities.
+     * @param inclinationScale  the scale of the Rayleigh distribution of the inclinations in radians.
+     */
+    public void addBelt(long count, double innerAxis, double outerAxis, double eccentricityScale, double inclinationScale) {
+        if (count < 0 || innerAxis <= 0 || outerAxis < innerAxis)
+            throw new IllegalArgumentException("Invalid belt.");
+
+        belts.add(new Belt(count, innerAxis, outerAxis, eccentricityScale, inclinationScale));
+    }
+
+    /**
+     * Returns the number of bodies generated, including the star.
+     *
+     * @return number of bodies.
+     */
+    public long getBodyCount() {
+        long moons = 0;
+        long level = 1;
+
+        for (int depth = 0; depth < moonDepth; depth++) {
+            level *= moonsPerBody;
+            moons += level;
+        }
+
+        long count = 1 + planets * (1 + moons);
+
+        for (Belt belt : belts)
+            count += belt.count;
+
+        return count;
+    }
+    //endregion Setters
+
+    //region Generation
+
+    /**
+     * Builds the whole system.
+     *
+     * @return the system.
+     */
+    public Astrarium generate() {
+        Spec star = getStar();
+        CelestialBody root = new CelestialBody(star.name, star.mass, star.radius);
+
+        build(star, root);
+
+        return new Astrarium(root);
+    }
+
+    /**
+     * Builds a system whose bodies are generated when their parent is first explored,
+     * see {@link CelestialBody#loadChildren()}. Only the planets and the belts are generated at first.
+     *
+     * @return the system.
+     */
+    public Astrarium generateLazy() {
+        Spec star = getStar();
+        CelestialBody root = new CelestialBody(star.name, star.mass, star.radius);
+
+        attachLoader(star, root);
+        root.loadChildren();
+
+        return new Astrarium(root);
+    }
+
+    /**
+     * Visits every body in depth-first order, without creating any {@link CelestialBody}.
+     *
+     * @param visitor the visitor.
+     * @throws IOException if thrown by the visitor.
+     */
+    public void visit(Visitor visitor) throws IOException {
+        visit(getStar(), visitor);
+    }
+
+    /**
+     * Creates the children of a body and all their children.
+     *
+     * @param spec the body generated.
+     * @param body the body created.
+     */
+    private void build(Spec spec, CelestialBody body) {
+        long count = getChildCount(spec);
+
+        for (long i = 0; i < count; i++) {
+            Spec child = getChild(spec, i);
+            build(child, create(child, body));
+        }
+    }
+
+    /**
+     * Gives a body the loader of its children, if it has any.
+     *
+     * @param spec the body generated.
+     * @param body the body created.
+     */
+    private void attachLoader(Spec spec, CelestialBody body) {
+        if (getChildCount(spec) > 0)
+            body.setChildrenLoader(new GeneratorLoader(spec));
+    }
+
+    /**
+     * Visits a body and all its children.
+     *
+     * @param spec    the body.
+     * @param visitor the visitor.
+     * @throws IOException if thrown by the visitor.
+     */
+    private void visit(Spec spec, Visitor visitor) throws IOException {
+        visitor.enter(spec.name, spec.mass, spec.radius, spec.elements);
+
+        long count = getChildCount(spec);
+
+        for (long i = 0; i < count; i++)
+            visit(getChild(spec, i), visitor);
+
+        visitor.exit();
+    }
+
+    /**
+     * Creates a body from its parameters.
+     *
+     * @param spec   the body generated.
+     * @param parent the parent.
+     * @return the body.
+     */
+    private static CelestialBody create(Spec spec, CelestialBody parent) {
+        double[] e = spec.elements;
+
+        return new CelestialBody(spec.name, spec.mass, spec.radius, new Orbit(parent, e[0], e[1], e[2], e[3], e[4], e[5]));
+    }
+    //endregion Generation
+
+    //region Bodies
+
+    /**
+     * Returns the star at the root of the system.
+     *
+     * @return the star.
+     */
+    private Spec getStar() {
+        return new Spec(STAR_NAME, STAR_MASS, STAR_RADIUS, null, seed, 0, Double.POSITIVE_INFINITY, false);
+    }
+
+    /**
+     * Returns the number of children of a body.
+     *
+     * @param spec the body.
+     * @return number of children.
+     */
+    private long getChildCount(Spec spec) {
+        if (spec.level == 0) {
+            long count = planets;
+
+            for (Belt belt : belts)
+                count += belt.count;
+
+            return count;
+        }
+
+        return spec.belt || spec.level > moonDepth ? 0 : moonsPerBody;
+    }
+
+    /**
+     * Generates a child of a body.
+     *
+     * @param parent the body.
+     * @param index  the index of the child among its siblings.
+     * @return the child.
+     */
+    private Spec getChild(Spec parent, long index) {
+        SplittableRandom random = new SplittableRandom(parent.seed + (index + 1) * GOLDEN_GAMMA);
+
+        if (parent.level > 0)
+            return getMoon(parent, index, random);
+
+        if (index < planets)
+            return getPlanet(parent, (int) index, random);
+
+        index -= planets;
+
+        for (int i = 0; i < belts.size(); i++) {
+            Belt belt = belts.get(i);
+
+            if (index < belt.count)
+                return getBeltBody(parent, belt, i, index, random);
+
+            index -= belt.count;
+        }
+
+        throw new IndexOutOfBoundsException("No child " + index + " of " + parent.name + ".");
+    }
+
+    /**
+     * Generates a planet.
+     *
+     * @param star   the star.
+     * @param index  the index of the planet, from the innermost.
+     * @param random the random numbers of the planet.
+     * @return the planet.
+     */
+    private Spec getPlanet(Spec star, int index, SplittableRandom random) {
+        double fraction = planets == 1 ? 0 : index / (double) (planets - 1);
+        double axis = innerAxis * pow(outerAxis / innerAxis, fraction) * (1 + 0.1 * (random.nextDouble() - 0.5));
+        double mass = logUniform(random, 1e23, 2e27);
+
+        return newSpec("Planet " + (index + 1), mass, axis, eccentricityScale, inclinationScale, star, 1, false, random);
+    }
+
+    /**
+     * Generates a moon.
+     *
+     * @param parent the planet or the moon it orbits.
+     * @param index  the index of the moon.
+     * @param random the random numbers of the moon.
+     * @return the moon.
+     */
+    private Spec getMoon(Spec parent, long index, SplittableRandom random) {
+        double axis = parent.hill * (MOON_MIN_AXIS + random.nextDouble() * (MOON_MAX_AXIS - MOON_MIN_AXIS));
+        double mass = parent.mass * logUniform(random, 1e-8, 1e-4);
+
+        return newSpec(parent.name + "-" + (index + 1), mass, axis, eccentricityScale, inclinationScale,
+                parent, parent.level + 1, false, random);
+    }
+
+    /**
+     * Generates a body of a belt.
+     *
+     * @param star   the star.
+     * @param belt   the belt.
+     * @param number the index of the belt.
+     * @param index  the index of the body in the belt.
+     * @param random the random numbers of the body.
+     * @return the body.
+     */
+    private Spec getBeltBody(Spec star, Belt belt, int number, long index, SplittableRandom random) {
+        double axis = belt.innerAxis + random.nextDouble() * (belt.outerAxis - belt.innerAxis);
+        double mass = logUniform(random, 1e12, 1e21);
+
+        return newSpec("Belt " + (number + 1) + " #" + (index + 1), mass, axis, belt.eccentricityScale, belt.inclinationScale,
+                star, 1, true, random);
+    }
+
+    /**
+     * Generates the remaining parameters of a body.
+     *
+     * @param name              the name.
+     * @param mass              the mass in kilograms.
+     * @param axis              the semi-major axis in meters.
+     * @param eccentricityScale the scale of the distribution of the eccentricity.
+     * @param inclinationScale  the scale of the distribution of the inclination.
+     * @param parent            the parent.
+     * @param level             the depth in the tree.
+     * @param belt              whether the body belongs to a belt.
+     * @param random            the random numbers of the body.
+     * @return the body.
+     */
+    private static Spec newSpec(String name, double mass, double axis, double eccentricityScale, double inclinationScale,
+                                Spec parent, int level, boolean belt, SplittableRandom random) {
+        double eccentricity = min(rayleigh(random, eccentricityScale), MAX_ECCENTRICITY);
+        double inclination = min(rayleigh(random, inclinationScale), PI);
+
+        double[] elements = {axis, eccentricity, inclination,
+                random.nextDouble() * TWO_PI, random.nextDouble() * TWO_PI, random.nextDouble() * TWO_PI};
+
+        double density = mass > GIANT_MASS ? GAS_DENSITY : ROCK_DENSITY;
+        double radius = cbrt(3 * mass / (4 * PI * density));
+        double hill = axis * (1 - eccentricity) * cbrt(mass / (3 * parent.mass));
+
+        return new Spec(name, mass, radius, elements, random.nextLong(), level, hill, belt);
+    }
+
+    /**
+     * Returns the largest apoapsis among the children of a body, generating only the planets.
+     * The belts count as their outer edge at the largest eccentricity.
+     *
+     * @param spec the body.
+     * @return the apoapsis in meters.
+     */
+    private double getExtent(Spec spec) {
+        double extent = 0;
+        long count = spec.level == 0 ? planets : getChildCount(spec);
+
+        for (long i = 0; i < count; i++) {
+            double[] elements = getChild(spec, i).elements;
+            extent = max(extent, elements[0] * (1 + elements[1]));
+        }
+
+        if (spec.level == 0)
+            for (Belt belt : belts)
+                if (belt.count > 0)
+                    extent = max(extent, belt.outerAxis * (1 + MAX_ECCENTRICITY));
+
+        return extent;
+    }
+
+    /**
+     * Draws a number from a Rayleigh distribution.
+     *
+     * @param random the random numbers.
+     * @param scale  the scale, i.e. the most likely value.
+     * @return the number.
+     */
+    private static double rayleigh(SplittableRandom random, double scale) {
+        return scale * sqrt(-2 * log(1 - random.nextDouble()));
+    }
+
+    /**
+     * Draws a number whose logarithm is evenly distributed.
+     *
+     * @param random  the random numbers.
+     * @param minimum the smallest number.
+     * @param maximum the largest number.
+     * @return the number.
+     */
+    private static double logUniform(SplittableRandom random, double minimum, double maximum) {
+        return minimum * pow(maximum / minimum, random.nextDouble());
+    }
+    //endregion Bodies
+
+    /**
+     * Receives the bodies of a system in depth-first order, see {@link #visit(Visitor)}.
+     */
+    public interface Visitor {
+        /**
+         * Called for every body, before its children.
+         *
+         * @param name     the name.
+         * @param mass     the mass in kilograms.
+         * @param radius   the radius in meters.
+         * @param elements semi-major axis, eccentricity, inclination, longitude of the ascending node,
+         *                 argument of periapsis and mean anomaly at epoch, or {@code null} for the star.
+         * @throws IOException in case of failure.
+         */
+        void enter(String name, double mass, double radius, double[] elements) throws IOException;
+
+        /**
+         * Called after all the children of the last body entered.
+         *
+         * @throws IOException in case of failure.
+         */
+        void exit() throws IOException;
+    }
+
+    /**
+     * A belt of small bodies.
+     */
+    private static final class Belt {
+        /**
+         * Number of bodies.
+         */
+        private final long count;
+
+        /**
+         * The range of the semi-major axes in meters.
+         */
+        private final double innerAxis, outerAxis;
+
+        /**
+         * The scales of the distributions of the eccentricities and the inclinations.
+         */
+        private final double eccentricityScale, inclinationScale;
+
+        /**
+         * Creates a belt.
+         *
+         * @param count             number of bodies.
+         * @param innerAxis         the smallest semi-major axis.
+         * @param outerAxis         the largest semi-major axis.
+         * @param eccentricityScale the scale of the eccentricities.
+         * @param inclinationScale  the scale of the inclinations.
+         */
+        private Belt(long count, double innerAxis, double outerAxis, double eccentricityScale, double inclinationScale) {
+            this.count = count;
+            this.innerAxis = innerAxis;
+            this.outerAxis = outerAxis;
+            this.eccentricityScale = eccentricityScale;
+            this.inclinationScale = inclinationScale;
+        }
+    }
+
+    /**
+     * The parameters of a body generated, with what its children are derived from.
+     */
+    private static final class Spec {
+        /**
+         * The name.
+         */
+        private final String name;
+
+        /**
+         * The mass in kilograms and the radius in meters.
+         */
+        private final double mass, radius;
+
+        /**
+         * The orbital elements, as in {@link Visitor#enter(String, double, double, double[])}.
+         */
+        private final double[] elements;
+
+        /**
+         * The seed of the children.
+         */
+        private final long seed;
+
+        /**
+         * The depth in the tree: zero for the star, one for the planets and the belts.
+         */
+        private final int level;
+
+        /**
+         * The radius of the Hill sphere at the periapsis, in meters.
+         */
+        private final double hill;
+
+        /**
+         * Whether the body belongs to a belt.
+         */
+        private final boolean belt;
+
+        /**
+         * Creates the parameters of a body.
+         *
+         * @param name     the name.
+         * @param mass     the mass.
+         * @param radius   the radius.
+         * @param elements the orbital elements.
+         * @param seed     the seed of the children.
+         * @param level    the depth in the tree.
+         * @param hill     the radius of the Hill sphere.
+         * @param belt     whether the body belongs to a belt.
+         */
+        private Spec(String name, double mass, double radius, double[] elements, long seed, int level, double hill, boolean belt) {
+            this.name = name;
+            this.mass = mass;
+            this.radius = radius;
+            this.elements = elements;
+            this.seed = seed;
+            this.level = level;
+            this.hill = hill;
+            this.belt = belt;
+        }
+    }
+
+    /**
+     * Generates the children of a body when they are first needed.
+     */
+    private class GeneratorLoader implements CelestialBody.ChildrenLoader {
+        /**
+         * The parent body.
+         */
+        private final Spec spec;
+
+        /**
+         * Creates a loader for the children of a body.
+         *
+         * @param spec the parent body.
+         */
+        GeneratorLoader(Spec spec) {
+            this.spec = spec;
+        }
+
+        @Override
+        public void load(CelestialBody parent) {
+            long count = getChildCount(spec);
+
+            for (long i = 0; i < count; i++) {
+                Spec child = getChild(spec, i);
+                attachLoader(child, create(child, parent));
+            }
+        }
+
+        @Override
+        public double getExtent() {
+            return SystemGenerator.this.getExtent(spec);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package astrarium.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for each system loaded from a file, in any format.
+ * <p>
+ * Created on 18-Oct-26.
+ * @see io.JsonHub#importAstrariumJson(java.io.File, io.ProgressListener)
+ * @see io.JsonHub#importAstrariumBinary(java.io.File)
+ */
+@Name("astrarium.FileRead")
+@Label("File Read")
+@Category({"Astrarium", "I/O"})
+@Description("A system loaded from a file")
+public class FileReadEvent extends Event {
+    /**
+     * The path of the file.
+     */
+    @Label("Path")
+    public String path;
+
+    /**
+     * The format of the file, JSON or binary.
+     */
+    @Label("Format")
+    public String format;
+
+    /**
+     * Size of the file.
+     */
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Number of bodies created, those loaded on demand excluded.
+     */
+    @Label("Bodies")
+    public long bodies;
+}
@@ -0,0 +1,47 @@
+package astrarium.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for each system saved to a file, in any format.
+ * <p>
+ * Created on 18-Oct-26.
+ * @see io.JsonHub#export(java.io.File, astrarium.Astrarium, io.ProgressListener)
+ * @see io.JsonHub#exportJson(java.io.File, astrarium.Astrarium, io.ProgressListener)
+ * @see io.JsonHub#exportBinary(java.io.File, astrarium.Astrarium, io.ProgressListener)
+ */
+@Name("astrarium.FileWrite")
+@Label("File Write")
+@Category({"Astrarium", "I/O"})
+@Description("A system saved to a file")
+public class FileWriteEvent extends Event {
+    /**
+     * The path of the file.
+     */
+    @Label("Path")
+    public String path;
+
+    /**
+     * The format of the file, JSON or binary.
+     */
+    @Label("Format")
+    public String format;
+
+    /**
+     * Size of the file written.
+     */
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Number of bodies written.
+     */
+    @Label("Bodies")
+    public long bodies;
+}
@@ -0,0 +1,77 @@
+package astrarium.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for each frame drawn on the map, lasting from the propagation to the loading
+ * of the subtrees coming into view after the drawing.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@Name("astrarium.Frame")
+@Label("Frame")
+@Category({"Astrarium", "Rendering"})
+@Description("A frame of the map, propagated, drawn, and with the subtrees coming into view loaded")
+@Threshold("20 ms")
+@StackTrace(false)
+public class FrameEvent extends Event {
+    /**
+     * The time spent moving the bodies and recording their trails.
+     */
+    @Label("Propagation Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long propagationTime;
+
+    /**
+     * The time spent drawing.
+     */
+    @Label("Draw Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long drawTime;
+
+    /**
+     * The time spent loading the subtrees of the bodies coming into view.
+     */
+    @Label("Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long loadTime;
+
+    /**
+     * Number of bodies on screen.
+     */
+    @Label("Bodies Drawn")
+    public int bodiesDrawn;
+
+    /**
+     * Number of bodies off screen or too small to be seen.
+     */
+    @Label("Bodies Culled")
+    public int bodiesCulled;
+
+    /**
+     * Number of iterations performed to solve Kepler's equation on the drawing thread.
+     */
+    @Label("Kepler Iterations")
+    public long keplerIterations;
+
+    /**
+     * Memory allocated by the thread drawing, or -1 if it cannot be measured.
+     */
+    @Label("Allocated")
+    @DataAmount
+    public long allocated;
+
+    /**
+     * The ratio between the simulation time and the real time.
+     */
+    @Label("Warp")
+    public double warp;
+}
@@ -0,0 +1,73 @@
+package astrarium.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for each solution of Kepler's equation that stopped at the largest number of iterations
+ * without reaching the precision asked for.
+ * <p>
+ * Created on 18-Oct-26.
+ * @see astrarium.Orbit#calculateEccentricAnomaly(double, double, double)
+ */
+@Name("astrarium.KeplerNonConvergence")
+@Label("Kepler Non-Convergence")
+@Category({"Astrarium", "Propagation"})
+@Description("Kepler's equation has not been solved to the precision asked for")
+public class KeplerNonConvergenceEvent extends Event {
+    /**
+     * The mean anomaly solved for, in radians.
+     */
+    @Label("Mean Anomaly")
+    public double meanAnomaly;
+
+    /**
+     * The eccentricity of the orbit.
+     */
+    @Label("Eccentricity")
+    public double eccentricity;
+
+    /**
+     * The largest error allowed on the mean anomaly, in radians.
+     */
+    @Label("Tolerance")
+    public double tolerance;
+
+    /**
+     * The error left on the mean anomaly, in radians, or NaN if the iterations diverged.
+     */
+    @Label("Residual")
+    public double residual;
+
+    /**
+     * Number of iterations performed.
+     */
+    @Label("Iterations")
+    public int iterations;
+
+    /**
+     * Records a solution that did not converge, if the event is enabled.
+     *
+     * @param meanAnomaly  the mean anomaly solved for.
+     * @param eccentricity the eccentricity of the orbit.
+     * @param tolerance    the largest error allowed.
+     * @param residual     the error left.
+     * @param iterations   number of iterations performed.
+     */
+    public static void report(double meanAnomaly, double eccentricity, double tolerance, double residual, int iterations) {
+        KeplerNonConvergenceEvent event = new KeplerNonConvergenceEvent();
+
+        if (!event.isEnabled())
+            return;
+
+        event.meanAnomaly = meanAnomaly;
+        event.eccentricity = eccentricity;
+        event.tolerance = tolerance;
+        event.residual = residual;
+        event.iterations = iterations;
+        event.commit();
+    }
+}
@@ -0,0 +1,495 @@
+package astrarium.diagnostics;
+
+import astrarium.utils.RollingHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Math.min;
+
+/**
+ * The counters and timers of the simulation, shared by the whole program and exposed as an MBean
+ * named {@value #NAME} once {@link #register()} has been called, e.g. to watch them with JConsole.
+ * <p>
+ * The counters are {@link LongAdder}s, so the threads of a parallel propagation update them without contending.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class RuntimeMetrics implements RuntimeMetricsMBean {
+    /**
+     * The name of the MBean.
+     */
+    public static final String NAME = "astrarium:type=Runtime";
+
+    /**
+     * Number of ticks over which the latencies are measured.
+     */
+    private static final int TICK_WINDOW = 1024;
+
+    /**
+     * Number of loads and saves over which the durations are measured.
+     */
+    private static final int FILE_WINDOW = 64;
+
+    /**
+     * Number of buckets of the histogram of the iterations to solve Kepler's equation, one for each number
+     * of iterations, the last one counting also the solutions with more.
+     */
+    public static final int KEPLER_ITERATION_BUCKETS = 100;
+
+    /**
+     * The upper limits of the buckets of the histogram of the errors left by the solutions of Kepler's equation,
+     * followed by a bucket for the larger errors and one for the errors that are not a number.
+     */
+    private static final double[] KEPLER_RESIDUAL_LIMITS = {1e-16, 1e-14, 1e-12, 1e-10, 1e-8, 1e-6, 1e-4, 1e-2, 1};
+
+    /**
+     * The only instance.
+     */
+    private static final RuntimeMetrics INSTANCE = new RuntimeMetrics();
+
+    //region Counters
+    /**
+     * Number of changes of the time of a system.
+     */
+    private final LongAdder ticks = new LongAdder();
+
+    /**
+     * Number of positions computed.
+     */
+    private final LongAdder bodiesPropagated = new LongAdder();
+
+    /**
+     * Number of solutions of Kepler's equation by number of iterations, see {@link #KEPLER_ITERATION_BUCKETS}.
+     */
+    private final LongAdder[] keplerIterationCounts = newCounters(KEPLER_ITERATION_BUCKETS);
+
+    /**
+     * Number of solutions of Kepler's equation by error left, see {@link #KEPLER_RESIDUAL_LIMITS}.
+     */
+    private final LongAdder[] keplerResidualCounts = newCounters(KEPLER_RESIDUAL_LIMITS.length + 2);
+
+    /**
+     * Number of solutions of Kepler's equation that needed the safeguarded method.
+     */
+    private final LongAdder keplerFallbacks = new LongAdder();
+
+    /**
+     * Number of orbit polylines reused.
+     */
+    private final LongAdder orbitCacheHits = new LongAdder();
+
+    /**
+     * Number of orbit polylines computed.
+     */
+    private final LongAdder orbitCacheMisses = new LongAdder();
+
+    /**
+     * Number of ticks of the playback interpolated between prefetched states.
+     */
+    private final LongAdder positionCacheHits = new LongAdder();
+
+    /**
+     * Number of ticks of the playback computed as the states were not ready.
+     */
+    private final LongAdder positionCacheMisses = new LongAdder();
+    //endregion Counters
+
+    //region Timers
+    /**
+     * Nanoseconds taken by each of the last ticks.
+     */
+    private final RollingHistogram propagationLatency = new RollingHistogram(TICK_WINDOW);
+
+    /**
+     * Nanoseconds taken by each of the last loads.
+     */
+    private final RollingHistogram loadTimes = new RollingHistogram(FILE_WINDOW);
+
+    /**
+     * Nanoseconds taken by each of the last saves.
+     */
+    private final RollingHistogram saveTimes = new RollingHistogram(FILE_WINDOW);
+    //endregion Timers
+
+    //region Rate
+    /**
+     * The time of the last computation of {@link #getTicksPerSecond()}, in nanoseconds.
+     */
+    private long rateTime = System.nanoTime();
+
+    /**
+     * The number of ticks at the last computation of {@link #getTicksPerSecond()}.
+     */
+    private long rateTicks = 0;
+
+    /**
+     * The last rate computed.
+     */
+    private double rate = 0;
+    //endregion Rate
+
+    /**
+     * Only the shared instance can be created.
+     */
+    private RuntimeMetrics() {
+    }
+
+    /**
+     * Returns the metrics of the program.
+     *
+     * @return the shared instance.
+     */
+    public static RuntimeMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Exposes the metrics to the JMX clients through the platform MBean server, if not done already.
+     *
+     * @throws IllegalStateException if the MBean cannot be registered.
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(NAME);
+
+            if (!server.isRegistered(name))
+                server.registerMBean(INSTANCE, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register the metrics.", e);
+        }
+    }
+
+    //region Recording
+
+    /**
+     * Counts a change of the time of a system.
+     *
+     * @param nanoseconds the time taken to move the bodies.
+     * @param bodies      number of bodies moved.
+     */
+    public void recordTick(long nanoseconds, int bodies) {
+        ticks.increment();
+        bodiesPropagated.add(bodies);
+        propagationLatency.record(nanoseconds);
+    }
+
+    /**
+     * Counts positions computed outside of the ticks, e.g. by a batch query.
+     *
+     * @param bodies number of positions.
+     */
+    public void recordBodiesPropagated(long bodies) {
+        bodiesPropagated.add(bodies);
+    }
+
+    /**
+     * Counts a solution of Kepler's equation.
+     *
+     * @param iterations  number of iterations performed.
+     * @param residual    the error left on the mean anomaly.
+     * @param safeguarded whether Newton's method stalled and the safeguarded method was needed.
+     */
+    public void recordKeplerSolve(int iterations, double residual, boolean safeguarded) {
+        keplerIterationCounts[min(iterations, KEPLER_ITERATION_BUCKETS - 1)].increment();
+        keplerResidualCounts[getKeplerResidualBucket(residual)].increment();
+
+        if (safeguarded)
+            keplerFallbacks.increment();
+    }
+
+    /**
+     * Counts many solutions of Kepler's equation at once, e.g. those of a parallel task,
+     * so that the shared counters are not updated for each.
+     *
+     * @param iterationCounts number of solutions by number of iterations, {@link #KEPLER_ITERATION_BUCKETS} long.
+     * @param residualCounts  number of solutions by bucket of {@link #getKeplerResidualBucket(double)}.
+     */
+    public void recordKeplerSolves(long[] iterationCounts, long[] residualCounts) {
+        for (int i = 0; i < iterationCounts.length; i++)
+            if (iterationCounts[i] != 0)
+                keplerIterationCounts[i].add(iterationCounts[i]);
+
+        for (int i = 0; i < residualCounts.length; i++)
+            if (residualCounts[i] != 0)
+                keplerResidualCounts[i].add(residualCounts[i]);
+    }
+
+    /**
+     * Returns the bucket of the histogram of the errors left by the solutions of Kepler's equation
+     * where the given error falls.
+     *
+     * @param residual the error left on the mean anomaly.
+     * @return the index of the bucket.
+     */
+    public static int getKeplerResidualBucket(double residual) {
+        if (Double.isNaN(residual))
+            return KEPLER_RESIDUAL_LIMITS.length + 1;
+
+        int bucket = 0;
+
+        while (bucket < KEPLER_RESIDUAL_LIMITS.length && residual >= KEPLER_RESIDUAL_LIMITS[bucket])
+            bucket++;
+
+        return bucket;
+    }
+
+    /**
+     * Returns the number of buckets of the histogram of the errors left by the solutions of Kepler's equation.
+     *
+     * @return number of buckets.
+     */
+    public static int getKeplerResidualBucketCount() {
+        return KEPLER_RESIDUAL_LIMITS.length + 2;
+    }
+
+    /**
+     * Counts the lookups in the cache of the orbit polylines during a frame.
+     *
+     * @param hits   number of polylines reused.
+     * @param misses number of polylines computed.
+     */
+    public void recordOrbitCache(int hits, int misses) {
+        orbitCacheHits.add(hits);
+        orbitCacheMisses.add(misses);
+    }
+
+    /**
+     * Counts a tick of the playback, either interpolated between prefetched states or not.
+     *
+     * @param hit whether the states were ready.
+     */
+    public void recordPositionCache(boolean hit) {
+        if (hit)
+            positionCacheHits.increment();
+        else
+            positionCacheMisses.increment();
+    }
+
+    /**
+     * Counts a system loaded from a file.
+     *
+     * @param nanoseconds the time taken.
+     */
+    public void recordLoad(long nanoseconds) {
+        loadTimes.record(nanoseconds);
+    }
+
+    /**
+     * Counts a system saved to a file.
+     *
+     * @param nanoseconds the time taken.
+     */
+    public void recordSave(long nanoseconds) {
+        saveTimes.record(nanoseconds);
+    }
+    //endregion Recording
+
+    //region Propagation
+    @Override
+    public long getTickCount() {
+        return ticks.sum();
+    }
+
+    @Override
+    public synchronized double getTicksPerSecond() {
+        long now = System.nanoTime();
+
+        // Not shorter than a second, or a client polling often would see the jitter of the frames
+        if (now - rateTime >= 1_000_000_000L) {
+            long count = ticks.sum();
+
+            rate = (count - rateTicks) * 1e9 / (now - rateTime);
+            rateTime = now;
+            rateTicks = count;
+        }
+
+        return rate;
+    }
+
+    @Override
+    public long getPropagationLatencyP50Micros() {
+        return propagationLatency.getPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getPropagationLatencyP99Micros() {
+        return propagationLatency.getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getPropagationLatencyMaxMicros() {
+        return propagationLatency.getMax() / 1000;
+    }
+
+    @Override
+    public long getBodiesPropagated() {
+        return bodiesPropagated.sum();
+    }
+
+    @Override
+    public long getKeplerSolves() {
+        long solves = 0;
+
+        for (LongAdder count : keplerIterationCounts)
+            solves += count.sum();
+
+        return solves;
+    }
+
+    @Override
+    public long getKeplerIterations() {
+        long iterations = 0;
+
+        for (int i = 0; i < keplerIterationCounts.length; i++)
+            iterations += i * keplerIterationCounts[i].sum();
+
+        return iterations;
+    }
+
+    @Override
+    public double getKeplerIterationsPerSolve() {
+        return ratio(getKeplerIterations(), getKeplerSolves());
+    }
+
+    @Override
+    public long getKeplerFallbacks() {
+        return keplerFallbacks.sum();
+    }
+
+    @Override
+    public long[] getKeplerIterationHistogram() {
+        return sums(keplerIterationCounts);
+    }
+
+    @Override
+    public long[] getKeplerResidualHistogram() {
+        return sums(keplerResidualCounts);
+    }
+
+    @Override
+    public String[] getKeplerResidualBuckets() {
+        String[] labels = new String[KEPLER_RESIDUAL_LIMITS.length + 2];
+
+        for (int i = 0; i < KEPLER_RESIDUAL_LIMITS.length; i++)
+            labels[i] = "< " + KEPLER_RESIDUAL_LIMITS[i];
+
+        labels[KEPLER_RESIDUAL_LIMITS.length] = ">= " + KEPLER_RESIDUAL_LIMITS[KEPLER_RESIDUAL_LIMITS.length - 1];
+        labels[KEPLER_RESIDUAL_LIMITS.length + 1] = "NaN";
+
+        return labels;
+    }
+    //endregion Propagation
+
+    //region Caches
+    @Override
+    public long getOrbitCacheHits() {
+        return orbitCacheHits.sum();
+    }
+
+    @Override
+    public long getOrbitCacheMisses() {
+        return orbitCacheMisses.sum();
+    }
+
+    @Override
+    public double getOrbitCacheHitRate() {
+        long hits = orbitCacheHits.sum();
+        return ratio(hits, hits + orbitCacheMisses.sum());
+    }
+
+    @Override
+    public long getPositionCacheHits() {
+        return positionCacheHits.sum();
+    }
+
+    @Override
+    public long getPositionCacheMisses() {
+        return positionCacheMisses.sum();
+    }
+
+    @Override
+    public double getPositionCacheHitRate() {
+        long hits = positionCacheHits.sum();
+        return ratio(hits, hits + positionCacheMisses.sum());
+    }
+    //endregion Caches
+
+    //region Files
+    @Override
+    public long getLoadCount() {
+        return loadTimes.getTotalCount();
+    }
+
+    @Override
+    public double getLastLoadMillis() {
+        return loadTimes.getLast() / 1e6;
+    }
+
+    @Override
+    public double getMaxLoadMillis() {
+        return loadTimes.getMax() / 1e6;
+    }
+
+    @Override
+    public long getSaveCount() {
+        return saveTimes.getTotalCount();
+    }
+
+    @Override
+    public double getLastSaveMillis() {
+        return saveTimes.getLast() / 1e6;
+    }
+
+    @Override
+    public double getMaxSaveMillis() {
+        return saveTimes.getMax() / 1e6;
+    }
+    //endregion Files
+
+    /**
+     * Creates counters.
+     *
+     * @param count number of counters.
+     * @return the counters, all zero.
+     */
+    private static LongAdder[] newCounters(int count) {
+        LongAdder[] counters = new LongAdder[count];
+
+        for (int i = 0; i < count; i++)
+            counters[i] = new LongAdder();
+
+        return counters;
+    }
+
+    /**
+     * Reads counters.
+     *
+     * @param counters the counters.
+     * @return the value of each.
+     */
+    private static long[] sums(LongAdder[] counters) {
+        long[] sums = new long[counters.length];
+
+        for (int i = 0; i < counters.length; i++)
+            sums[i] = counters[i].sum();
+
+        return sums;
+    }
+
+    /**
+     * Divides two counts.
+     *
+     * @param numerator   the numerator.
+     * @param denominator the denominator.
+     * @return the ratio, or zero if the denominator is zero.
+     */
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+}
@@ -0,0 +1,201 @@
+package astrarium.diagnostics;
+
+/**
+ * The counters and timers of the simulation exposed through JMX, see {@link RuntimeMetrics}.
+ * <p>
+ * The counters are totals since the start of the program, never reset, so that the tools watching them
+ * can compute their own rates.
+ * The latencies are measured over the last samples only, see {@link astrarium.utils.RollingHistogram}.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("unused")
+public interface RuntimeMetricsMBean {
+    //region Propagation
+
+    /**
+     * Returns the number of times the time of a system has been changed.
+     *
+     * @return number of ticks.
+     */
+    long getTickCount();
+
+    /**
+     * Returns the number of ticks per second, averaged since the previous call at least a second before.
+     *
+     * @return ticks per second.
+     */
+    double getTicksPerSecond();
+
+    /**
+     * Returns the median time taken by a tick to move the bodies.
+     *
+     * @return latency in microseconds.
+     */
+    long getPropagationLatencyP50Micros();
+
+    /**
+     * Returns the 99th percentile of the time taken by a tick to move the bodies.
+     *
+     * @return latency in microseconds.
+     */
+    long getPropagationLatencyP99Micros();
+
+    /**
+     * Returns the longest time taken by a tick to move the bodies.
+     *
+     * @return latency in microseconds.
+     */
+    long getPropagationLatencyMaxMicros();
+
+    /**
+     * Returns the number of positions computed, by the ticks and by the batch queries.
+     *
+     * @return number of bodies propagated.
+     */
+    long getBodiesPropagated();
+
+    /**
+     * Returns the number of solutions of Kepler's equation.
+     *
+     * @return number of solutions.
+     */
+    long getKeplerSolves();
+
+    /**
+     * Returns the number of iterations performed to solve Kepler's equation.
+     *
+     * @return number of iterations.
+     */
+    long getKeplerIterations();
+
+    /**
+     * Returns the mean number of iterations to solve Kepler's equation once.
+     *
+     * @return iterations per solution, or zero before the first one.
+     */
+    double getKeplerIterationsPerSolve();
+
+    /**
+     * Returns the number of solutions of Kepler's equation for which Newton's method stalled,
+     * and the safeguarded method was needed.
+     *
+     * @return number of solutions.
+     */
+    long getKeplerFallbacks();
+
+    /**
+     * Returns the number of solutions of Kepler's equation by number of iterations, from zero,
+     * the last bucket counting also the solutions with more.
+     *
+     * @return the histogram.
+     */
+    long[] getKeplerIterationHistogram();
+
+    /**
+     * Returns the number of solutions of Kepler's equation by error left on the mean anomaly,
+     * in the buckets of {@link #getKeplerResidualBuckets()}. The solutions are accurate to 1e-10 when rendering,
+     * so the counts above are failures to converge.
+     *
+     * @return the histogram.
+     */
+    long[] getKeplerResidualHistogram();
+
+    /**
+     * Returns the ranges of the buckets of {@link #getKeplerResidualHistogram()}.
+     *
+     * @return the labels of the buckets.
+     */
+    String[] getKeplerResidualBuckets();
+    //endregion Propagation
+
+    //region Caches
+
+    /**
+     * Returns the number of orbit polylines reused from the cache of the map.
+     *
+     * @return number of hits.
+     */
+    long getOrbitCacheHits();
+
+    /**
+     * Returns the number of orbit polylines computed as they were not in the cache of the map.
+     *
+     * @return number of misses.
+     */
+    long getOrbitCacheMisses();
+
+    /**
+     * Returns the fraction of the orbit polylines reused from the cache of the map.
+     *
+     * @return hit rate between 0 and 1, or zero before the first lookup.
+     */
+    double getOrbitCacheHitRate();
+
+    /**
+     * Returns the number of ticks of the playback interpolated between prefetched states.
+     *
+     * @return number of hits.
+     */
+    long getPositionCacheHits();
+
+    /**
+     * Returns the number of ticks of the playback computed as the prefetched states were not ready.
+     *
+     * @return number of misses.
+     */
+    long getPositionCacheMisses();
+
+    /**
+     * Returns the fraction of the ticks of the playback interpolated between prefetched states.
+     *
+     * @return hit rate between 0 and 1, or zero before the first tick.
+     */
+    double getPositionCacheHitRate();
+    //endregion Caches
+
+    //region Files
+
+    /**
+     * Returns the number of systems loaded from a file.
+     *
+     * @return number of loads.
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the time taken by the last load.
+     *
+     * @return duration in milliseconds.
+     */
+    double getLastLoadMillis();
+
+    /**
+     * Returns the longest time taken by the last loads.
+     *
+     * @return duration in milliseconds.
+     */
+    double getMaxLoadMillis();
+
+    /**
+     * Returns the number of systems saved to a file.
+     *
+     * @return number of saves.
+     */
+    long getSaveCount();
+
+    /**
+     * Returns the time taken by the last save.
+     *
+     * @return duration in milliseconds.
+     */
+    double getLastSaveMillis();
+
+    /**
+     * Returns the longest time taken by the last saves.
+     *
+     * @return duration in milliseconds.
+     */
+    double getMaxSaveMillis();
+    //endregion Files
+}
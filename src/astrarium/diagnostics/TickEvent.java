@@ -0,0 +1,65 @@
+package astrarium.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timestamp;
+
+/**
+ * A flight recorder event for each change of the time of a system, lasting as long as the propagation of its bodies.
+ * <p>
+ * Created on 18-Oct-26.
+ * @see astrarium.Astrarium#setTime(long)
+ */
+@Name("astrarium.Tick")
+@Label("Tick")
+@Category({"Astrarium", "Propagation"})
+@Description("The bodies of a system moved to a new time")
+@Threshold("10 ms")
+@StackTrace(false)
+public class TickEvent extends Event {
+    /**
+     * The new time of the system.
+     */
+    @Label("Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long time;
+
+    /**
+     * Number of bodies moved, those not loaded yet excluded.
+     */
+    @Label("Bodies")
+    public int bodies;
+
+    /**
+     * Whether the positions have been interpolated between two states instead of computed.
+     */
+    @Label("Interpolated")
+    public boolean interpolated;
+
+    /**
+     * The type of the event, to know whether it is recorded without creating one.
+     */
+    private static final EventType TYPE = EventType.getEventType(TickEvent.class);
+
+    /**
+     * Creates and begins an event if the flight recorder is recording them, as ticks run on every frame
+     * and must not allocate otherwise.
+     *
+     * @return the event begun, or {@code null} if not recorded.
+     */
+    public static TickEvent beginIfRecorded() {
+        if (!TYPE.isEnabled())
+            return null;
+
+        TickEvent event = new TickEvent();
+        event.begin();
+
+        return event;
+    }
+}
@@ -0,0 +1,400 @@
+package astrarium.utils;
+
+/**
+ * An immutable number represented as the unevaluated sum of two doubles, with about 32 significant digits.
+ * <p>
+ * Much slower than a double, it is meant for the reference computations the faster ones are checked against,
+ * see {@link astrarium.ReferencePropagator}. The algorithms are the ones of Dekker and Knuth, as in the QD library
+ * by Hida, Li and Bailey, without fused multiply-add so that they run on Java 8.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class DoubleDouble implements Comparable<DoubleDouble> {
+    /**
+     * Zero.
+     */
+    public static final DoubleDouble ZERO = new DoubleDouble(0, 0);
+
+    /**
+     * One.
+     */
+    public static final DoubleDouble ONE = new DoubleDouble(1, 0);
+
+    /**
+     * Value of &pi;.
+     */
+    public static final DoubleDouble PI = new DoubleDouble(3.141592653589793, 1.2246467991473532e-16);
+
+    /**
+     * Value of &pi;/2.
+     */
+    public static final DoubleDouble PI_BY_TWO = new DoubleDouble(1.5707963267948966, 6.123233995736766e-17);
+
+    /**
+     * The factor splitting a double in two halves of 26 bits, 2^27 + 1.
+     */
+    private static final double SPLITTER = 134217729;
+
+    /**
+     * The terms of the series smaller than this, relatively to the first one, are left out.
+     */
+    private static final double SERIES_EPSILON = 1e-33;
+
+    /**
+     * The most significant part.
+     */
+    private final double high;
+
+    /**
+     * The least significant part, at most half an ulp of {@link #high}.
+     */
+    private final double low;
+
+    /**
+     * Creates a number from its two parts, which must not overlap.
+     *
+     * @param high the most significant part.
+     * @param low  the least significant part.
+     */
+    private DoubleDouble(double high, double low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    //region Creation
+
+    /**
+     * Returns the exact value of a double.
+     *
+     * @param value the value.
+     * @return the number.
+     */
+    public static DoubleDouble valueOf(double value) {
+        return new DoubleDouble(value, 0);
+    }
+
+    /**
+     * Returns the exact value of a long, even beyond the 53 bits of a double.
+     *
+     * @param value the value.
+     * @return the number.
+     */
+    public static DoubleDouble valueOf(long value) {
+        // Both halves fit in a double, and adding them rounds nothing away
+        return valueOf((double) (value >> 32 << 32)).add((double) (value & 0xFFFFFFFFL));
+    }
+    //endregion Creation
+
+    //region Getters
+
+    /**
+     * Returns the most significant part, the value rounded to the nearest double.
+     *
+     * @return the value as a double.
+     */
+    public double doubleValue() {
+        return high;
+    }
+
+    /**
+     * Returns the least significant part, the error of {@link #doubleValue()}.
+     *
+     * @return the least significant part.
+     */
+    public double getLow() {
+        return low;
+    }
+
+    /**
+     * Returns the sign of the number.
+     *
+     * @return -1, 0 or 1.
+     */
+    public int signum() {
+        return high > 0 ? 1 : high < 0 ? -1 : 0;
+    }
+    //endregion Getters
+
+    //region Arithmetic
+
+    /**
+     * Returns the sum of this number and another.
+     *
+     * @param other the other number.
+     * @return the sum.
+     */
+    public DoubleDouble add(DoubleDouble other) {
+        double s = high + other.high;
+        double v = s - high;
+        double e = (high - (s - v)) + (other.high - v);
+
+        double t = low + other.low;
+        double w = t - low;
+        double f = (low - (t - w)) + (other.low - w);
+
+        e += t;
+
+        double h = s + e;
+        e = e - (h - s);
+        e += f;
+
+        return normalised(h, e);
+    }
+
+    /**
+     * Returns the sum of this number and a double.
+     *
+     * @param other the double.
+     * @return the sum.
+     */
+    public DoubleDouble add(double other) {
+        double s = high + other;
+        double v = s - high;
+        double e = (high - (s - v)) + (other - v);
+
+        return normalised(s, e + low);
+    }
+
+    /**
+     * Returns the difference between this number and another.
+     *
+     * @param other the other number.
+     * @return the difference.
+     */
+    public DoubleDouble subtract(DoubleDouble other) {
+        return add(other.negate());
+    }
+
+    /**
+     * Returns the opposite of this number.
+     *
+     * @return the opposite.
+     */
+    public DoubleDouble negate() {
+        return new DoubleDouble(-high, -low);
+    }
+
+    /**
+     * Returns the absolute value of this number.
+     *
+     * @return the absolute value.
+     */
+    public DoubleDouble abs() {
+        return high < 0 ? negate() : this;
+    }
+
+    /**
+     * Returns the product of this number and another.
+     *
+     * @param other the other number.
+     * @return the product.
+     */
+    public DoubleDouble multiply(DoubleDouble other) {
+        double p = high * other.high;
+        double e = productError(high, other.high, p);
+
+        e += high * other.low + low * other.high;
+
+        return normalised(p, e);
+    }
+
+    /**
+     * Returns the product of this number and a double.
+     *
+     * @param other the double.
+     * @return the product.
+     */
+    public DoubleDouble multiply(double other) {
+        double p = high * other;
+        double e = productError(high, other, p);
+
+        e += low * other;
+
+        return normalised(p, e);
+    }
+
+    /**
+     * Returns the quotient of this number and another.
+     *
+     * @param other the divisor.
+     * @return the quotient.
+     */
+    public DoubleDouble divide(DoubleDouble other) {
+        double q1 = high / other.high;
+        DoubleDouble r = subtract(other.multiply(q1));
+
+        double q2 = r.high / other.high;
+        r = r.subtract(other.multiply(q2));
+
+        double q3 = r.high / other.high;
+
+        return normalised(q1, q2).add(q3);
+    }
+
+    /**
+     * Returns the quotient of this number and a double.
+     *
+     * @param other the divisor.
+     * @return the quotient.
+     */
+    public DoubleDouble divide(double other) {
+        return divide(valueOf(other));
+    }
+
+    /**
+     * Returns the square root of this number, which must not be negative.
+     *
+     * @return the square root.
+     */
+    public DoubleDouble sqrt() {
+        if (high == 0)
+            return ZERO;
+
+        if (high < 0)
+            throw new ArithmeticException("Square root of a negative number.");
+
+        // One step of Newton's method from the root of the double doubles the digits
+        double x = Math.sqrt(high);
+        DoubleDouble square = valueOf(x).multiply(x);
+
+        return valueOf(x).add(subtract(square).doubleValue() / (2 * x));
+    }
+    //endregion Arithmetic
+
+    //region Trigonometry
+
+    /**
+     * Returns the sine of this angle in radians.
+     *
+     * @return the sine.
+     */
+    public DoubleDouble sin() {
+        long quadrant = Math.round(high / PI_BY_TWO.high);
+        DoubleDouble angle = subtract(PI_BY_TWO.multiply((double) quadrant));
+
+        switch ((int) (quadrant & 3)) {
+            case 0:
+                return sinSeries(angle);
+            case 1:
+                return cosSeries(angle);
+            case 2:
+                return sinSeries(angle).negate();
+            default:
+                return cosSeries(angle).negate();
+        }
+    }
+
+    /**
+     * Returns the cosine of this angle in radians.
+     *
+     * @return the cosine.
+     */
+    public DoubleDouble cos() {
+        long quadrant = Math.round(high / PI_BY_TWO.high);
+        DoubleDouble angle = subtract(PI_BY_TWO.multiply((double) quadrant));
+
+        switch ((int) (quadrant & 3)) {
+            case 0:
+                return cosSeries(angle);
+            case 1:
+                return sinSeries(angle).negate();
+            case 2:
+                return cosSeries(angle).negate();
+            default:
+                return sinSeries(angle);
+        }
+    }
+
+    /**
+     * Returns the sine of a small angle with its Taylor series.
+     *
+     * @param angle the angle, within &pi;/4 from zero.
+     * @return the sine.
+     */
+    private static DoubleDouble sinSeries(DoubleDouble angle) {
+        DoubleDouble square = angle.multiply(angle);
+        DoubleDouble term = angle;
+        DoubleDouble sum = angle;
+
+        for (int n = 2; Math.abs(term.high) > SERIES_EPSILON * Math.abs(angle.high); n += 2) {
+            term = term.multiply(square).divide((double) (n * (n + 1))).negate();
+            sum = sum.add(term);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns the cosine of a small angle with its Taylor series.
+     *
+     * @param angle the angle, within &pi;/4 from zero.
+     * @return the cosine.
+     */
+    private static DoubleDouble cosSeries(DoubleDouble angle) {
+        DoubleDouble square = angle.multiply(angle);
+        DoubleDouble term = ONE;
+        DoubleDouble sum = ONE;
+
+        for (int n = 1; Math.abs(term.high) > SERIES_EPSILON; n += 2) {
+            term = term.multiply(square).divide((double) (n * (n + 1))).negate();
+            sum = sum.add(term);
+        }
+
+        return sum;
+    }
+    //endregion Trigonometry
+
+    /**
+     * Returns the rounding error of a product of two doubles, exactly, with Dekker's algorithm.
+     *
+     * @param a       the first factor.
+     * @param b       the second factor.
+     * @param product the product rounded to a double.
+     * @return the error.
+     */
+    private static double productError(double a, double b, double product) {
+        double t = SPLITTER * a;
+        double aHigh = t - (t - a);
+        double aLow = a - aHigh;
+
+        t = SPLITTER * b;
+        double bHigh = t - (t - b);
+        double bLow = b - bHigh;
+
+        return ((aHigh * bHigh - product) + aHigh * bLow + aLow * bHigh) + aLow * bLow;
+    }
+
+    /**
+     * Creates a number from two parts that may overlap, e.g. after an operation.
+     *
+     * @param high the most significant part.
+     * @param low  the least significant part.
+     * @return the number.
+     */
+    private static DoubleDouble normalised(double high, double low) {
+        double s = high + low;
+        return new DoubleDouble(s, low - (s - high));
+    }
+
+    @Override
+    public int compareTo(DoubleDouble other) {
+        int comparison = Double.compare(high, other.high);
+        return comparison != 0 ? comparison : Double.compare(low, other.low);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DoubleDouble && compareTo((DoubleDouble) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(high) * 31 + Double.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return high + " + " + low;
+    }
+}
@@ -0,0 +1,80 @@
+package astrarium.utils;
+
+/**
+ * The interfaces of a stream of items with backpressure, with the same methods and contracts
+ * as {@code java.util.concurrent.Flow} of Java 9, which is not available on Java 8.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public final class Flow {
+    /**
+     * Not instantiable.
+     */
+    private Flow() {
+    }
+
+    /**
+     * A producer of items received by one or more subscribers.
+     *
+     * @param <T> the type of the items.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        /**
+         * Adds a subscriber, which receives {@link Subscriber#onSubscribe(Subscription)} first.
+         *
+         * @param subscriber the subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods of a subscriber are never called concurrently.
+     *
+     * @param <T> the type of the items.
+     */
+    public interface Subscriber<T> {
+        /**
+         * Called before any other method, with the subscription used to request items.
+         *
+         * @param subscription the subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item, only if requested.
+         *
+         * @param item the item.
+         */
+        void onNext(T item);
+
+        /**
+         * Called when the stream fails. No other method is called afterwards.
+         *
+         * @param throwable the error.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when the stream ends. No other method is called afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and one of its subscribers.
+     */
+    public interface Subscription {
+        /**
+         * Requests more items.
+         *
+         * @param n number of items, greater than zero.
+         */
+        void request(long n);
+
+        /**
+         * Stops receiving items, possibly after a few ones already on their way.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,177 @@
+package astrarium.utils;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of the last {@code n} samples of a measurement, e.g. the time taken by each frame.
+ * <p>
+ * The samples are stored in a fixed-size ring, so older values are discarded as new ones are recorded,
+ * and recording a sample never allocates.
+ * The statistics are computed on demand over the samples currently in the window.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public class RollingHistogram {
+    /**
+     * The ring of samples.
+     */
+    private final long[] samples;
+
+    /**
+     * A sorted copy of the samples, used to compute the percentiles.
+     */
+    private final long[] sorted;
+
+    /**
+     * Position where the next sample will be written.
+     */
+    private int next = 0;
+
+    /**
+     * Number of samples in the window.
+     */
+    private int count = 0;
+
+    /**
+     * Number of samples recorded since the creation or the last {@link #clear()}.
+     */
+    private long totalCount = 0;
+
+    /**
+     * Whether {@link #sorted} is out of date.
+     */
+    private boolean dirty = false;
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param window the maximum number of samples kept.
+     */
+    public RollingHistogram(int window) {
+        if (window <= 0)
+            throw new IllegalArgumentException("The window must contain at least one sample.");
+
+        this.samples = new long[window];
+        this.sorted = new long[window];
+    }
+
+    /**
+     * Records a new sample, discarding the oldest one if the window is full.
+     *
+     * @param value the value of the sample.
+     */
+    public synchronized void record(long value) {
+        samples[next] = value;
+
+        next = (next + 1) % samples.length;
+
+        if (count < samples.length)
+            count++;
+
+        totalCount++;
+        dirty = true;
+    }
+
+    /**
+     * Removes all the samples.
+     */
+    public synchronized void clear() {
+        next = 0;
+        count = 0;
+        totalCount = 0;
+        dirty = false;
+    }
+
+    //region Statistics
+
+    /**
+     * Returns the number of samples currently in the window.
+     *
+     * @return number of samples.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of samples recorded since the creation of the histogram, including the discarded ones.
+     *
+     * @return total number of samples.
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the last recorded sample, or zero if there are none.
+     *
+     * @return the last sample.
+     */
+    public synchronized long getLast() {
+        if (count == 0)
+            return 0;
+
+        return samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    /**
+     * Returns the mean of the samples in the window, or zero if there are none.
+     *
+     * @return the mean value.
+     */
+    public synchronized double getMean() {
+        if (count == 0)
+            return 0;
+
+        double sum = 0;
+
+        for (int i = 0; i < count; i++)
+            sum += samples[i];
+
+        return sum / count;
+    }
+
+    /**
+     * Returns the smallest sample in the window, or zero if there are none.
+     *
+     * @return the minimum value.
+     */
+    public synchronized long getMin() {
+        return getPercentile(0);
+    }
+
+    /**
+     * Returns the largest sample in the window, or zero if there are none.
+     *
+     * @return the maximum value.
+     */
+    public synchronized long getMax() {
+        return getPercentile(100);
+    }
+
+    /**
+     * Returns the value below which the given {@code percentile} of the samples in the window falls,
+     * using the nearest-rank method.
+     *
+     * @param percentile the percentile between 0 and 100, e.g. 99.
+     * @return the value of the percentile, or zero if there are no samples.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+
+        if (count == 0)
+            return 0;
+
+        if (dirty) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            dirty = false;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100 * count);
+
+        return sorted[Math.max(0, rank - 1)];
+    }
+    //endregion Statistics
+}
@@ -0,0 +1,555 @@
+package bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Runs micro-benchmarks the way JMH does in its average time mode, and stores the results in the same JSON format,
+ * so they can be compared between runs, e.g. with {@link #compare(List, List, PrintStream)} or the JMH visualisers.
+ * <p>
+ * Each benchmark runs some warm-up iterations, to let the JIT compile it, and then some measured iterations
+ * of a fixed duration, calling the operation in batches to keep the cost of the clock negligible.
+ * The values returned by the operation are summed and published, so that the JIT cannot remove the computation.
+ * Unlike JMH, all the benchmarks run in the same JVM and share the same calling loop, which adds a few nanoseconds
+ * to the smallest operations once several benchmarks have run, so in case of doubt they should be run one at a time.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class BenchmarkRunner {
+    /**
+     * The unit of the scores.
+     */
+    public static final String UNIT = "ns/op";
+
+    /**
+     * The quantiles of Student's t-distribution for a two-sided confidence of 99.9%, as used by JMH,
+     * by degrees of freedom from 1 to 30.
+     */
+    private static final double[] T_QUANTILES = {
+            636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+
+    /**
+     * The benchmarks registered, in order.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Number of iterations before measuring.
+     */
+    private int warmUpIterations = 3;
+
+    /**
+     * Number of iterations measured.
+     */
+    private int measurementIterations = 5;
+
+    /**
+     * Duration of every iteration in milliseconds.
+     */
+    private long iterationTime = 1000;
+
+    /**
+     * The benchmarks run, matched against their names, or {@code null} for all of them.
+     */
+    private Pattern filter = null;
+
+    /**
+     * The sum of all the values returned by the operations, only written to keep them alive.
+     */
+    @SuppressWarnings("unused")
+    private volatile double sink;
+
+    //region Settings
+
+    /**
+     * Sets the number of iterations before measuring.
+     *
+     * @param warmUpIterations number of iterations.
+     */
+    public void setWarmUpIterations(int warmUpIterations) {
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    /**
+     * Sets the number of iterations measured, at least two for the error to be estimated.
+     *
+     * @param measurementIterations number of iterations.
+     */
+    public void setMeasurementIterations(int measurementIterations) {
+        if (measurementIterations < 1)
+            throw new IllegalArgumentException("At least one iteration must be measured.");
+
+        this.measurementIterations = measurementIterations;
+    }
+
+    /**
+     * Sets the duration of every iteration.
+     *
+     * @param iterationTime duration in milliseconds.
+     */
+    public void setIterationTime(long iterationTime) {
+        this.iterationTime = iterationTime;
+    }
+
+    /**
+     * Runs only the benchmarks whose name contains a match of a regular expression.
+     *
+     * @param filter the regular expression, or {@code null} for all the benchmarks.
+     */
+    public void setFilter(String filter) {
+        this.filter = filter == null ? null : Pattern.compile(filter);
+    }
+    //endregion Settings
+
+    //region Registration
+
+    /**
+     * Adds a benchmark without parameters.
+     *
+     * @param name  the name of the benchmark.
+     * @param setup prepares the operation measured, only if the benchmark is run.
+     */
+    public void register(String name, Setup setup) {
+        register(name, Collections.emptyMap(), setup);
+    }
+
+    /**
+     * Adds a benchmark with a single parameter.
+     *
+     * @param name      the name of the benchmark.
+     * @param parameter the name of the parameter.
+     * @param value     the value of the parameter.
+     * @param setup     prepares the operation measured, only if the benchmark is run.
+     */
+    public void register(String name, String parameter, Object value, Setup setup) {
+        register(name, Collections.singletonMap(parameter, String.valueOf(value)), setup);
+    }
+
+    /**
+     * Adds a benchmark.
+     *
+     * @param name       the name of the benchmark.
+     * @param parameters the parameters, used to tell apart the variants of the same benchmark.
+     * @param setup      prepares the operation measured, only if the benchmark is run.
+     */
+    public void register(String name, Map<String, String> parameters, Setup setup) {
+        entries.add(new Entry(name, new LinkedHashMap<>(parameters), setup));
+    }
+    //endregion Registration
+
+    //region Run
+
+    /**
+     * Runs the benchmarks matching the filter, in order.
+     *
+     * @param log the destination of the progress, e.g. {@link System#out}.
+     * @return the results.
+     * @throws Exception if a setup or an operation fails.
+     */
+    public List<Result> run(PrintStream log) throws Exception {
+        List<Result> results = new ArrayList<>();
+
+        for (Entry entry : entries) {
+            if (filter != null && !filter.matcher(entry.name).find())
+                continue;
+
+            log.printf("%s%s%n", entry.name, entry.parameters.isEmpty() ? "" : " " + entry.parameters);
+
+            Operation operation = entry.setup.prepare();
+            long batch = calibrate(operation);
+
+            for (int i = 0; i < warmUpIterations; i++)
+                log.printf("  Warm-up %d: %.3f %s%n", i + 1, iterate(operation, batch), UNIT);
+
+            double[] scores = new double[measurementIterations];
+
+            for (int i = 0; i < measurementIterations; i++) {
+                scores[i] = iterate(operation, batch);
+                log.printf("  Iteration %d: %.3f %s%n", i + 1, scores[i], UNIT);
+            }
+
+            Result result = new Result(entry.name, entry.parameters, scores);
+            results.add(result);
+
+            log.printf("  Result: %.3f +- %.3f %s%n", result.getScore(), result.getError(), UNIT);
+        }
+
+        return results;
+    }
+
+    /**
+     * Finds a number of calls taking about a millisecond, so that reading the clock takes a negligible time.
+     *
+     * @param operation the operation.
+     * @return number of calls in every batch.
+     * @throws Exception if the operation fails.
+     */
+    private long calibrate(Operation operation) throws Exception {
+        long batch = 1;
+
+        while (true) {
+            long start = System.nanoTime();
+            call(operation, batch);
+
+            if (System.nanoTime() - start >= 1_000_000 || batch >= 1L << 30)
+                return batch;
+
+            batch *= 2;
+        }
+    }
+
+    /**
+     * Runs an iteration.
+     *
+     * @param operation the operation.
+     * @param batch     number of calls between two readings of the clock.
+     * @return the average time of a call in nanoseconds.
+     * @throws Exception if the operation fails.
+     */
+    private double iterate(Operation operation, long batch) throws Exception {
+        long duration = iterationTime * 1_000_000L;
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            call(operation, batch);
+            calls += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < duration);
+
+        return elapsed / (double) calls;
+    }
+
+    /**
+     * Calls an operation a number of times.
+     *
+     * @param operation the operation.
+     * @param calls     number of calls.
+     * @throws Exception if the operation fails.
+     */
+    private void call(Operation operation, long calls) throws Exception {
+        double sum = 0;
+
+        for (long i = 0; i < calls; i++)
+            sum += operation.run();
+
+        sink += sum;
+    }
+    //endregion Run
+
+    //region JSON
+
+    /**
+     * Writes results in the JSON format of JMH.
+     *
+     * @param file    the destination.
+     * @param results the results.
+     * @throws IOException in case of failure to write.
+     */
+    public void write(File file, List<Result> results) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(writer)) {
+            json.setIndent("    ");
+            json.beginArray();
+
+            for (Result result : results) {
+                json.beginObject();
+                json.name("benchmark").value(result.name);
+                json.name("mode").value("avgt");
+                json.name("threads").value(1);
+                json.name("forks").value(0);
+                json.name("jdkVersion").value(System.getProperty("java.version"));
+                json.name("vmName").value(System.getProperty("java.vm.name"));
+                json.name("warmupIterations").value(warmUpIterations);
+                json.name("warmupTime").value(iterationTime + " ms");
+                json.name("measurementIterations").value(measurementIterations);
+                json.name("measurementTime").value(iterationTime + " ms");
+
+                if (!result.parameters.isEmpty()) {
+                    json.name("params").beginObject();
+
+                    for (Map.Entry<String, String> parameter : result.parameters.entrySet())
+                        json.name(parameter.getKey()).value(parameter.getValue());
+
+                    json.endObject();
+                }
+
+                json.name("primaryMetric").beginObject();
+                json.name("score").value(result.getScore());
+                json.name("scoreError").value(Double.isNaN(result.getError()) ? 0 : result.getError());
+                json.name("scoreUnit").value(UNIT);
+                json.name("rawData").beginArray().beginArray();
+
+                for (double score : result.scores)
+                    json.value(score);
+
+                json.endArray().endArray();
+                json.endObject();
+                json.endObject();
+            }
+
+            json.endArray();
+        }
+    }
+
+    /**
+     * Reads results in the JSON format of JMH, written either by {@link #write(File, List)} or by JMH itself.
+     * Only the results in nanoseconds per operation are read.
+     *
+     * @param file the file.
+     * @return the results.
+     * @throws IOException in case of failure to read.
+     */
+    public static List<Result> read(File file) throws IOException {
+        List<Result> results = new ArrayList<>();
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+                JsonObject object = element.getAsJsonObject();
+                JsonObject metric = object.getAsJsonObject("primaryMetric");
+
+                if (!UNIT.equals(metric.get("scoreUnit").getAsString()))
+                    continue;
+
+                Map<String, String> parameters = new LinkedHashMap<>();
+
+                if (object.has("params"))
+                    for (Map.Entry<String, JsonElement> parameter : object.getAsJsonObject("params").entrySet())
+                        parameters.put(parameter.getKey(), parameter.getValue().getAsString());
+
+                List<Double> scores = new ArrayList<>();
+
+                for (JsonElement fork : metric.getAsJsonArray("rawData"))
+                    for (JsonElement score : (JsonArray) fork)
+                        scores.add(score.getAsDouble());
+
+                results.add(new Result(object.get("benchmark").getAsString(), parameters,
+                        scores.stream().mapToDouble(Double::doubleValue).toArray()));
+            }
+        }
+
+        return results;
+    }
+    //endregion JSON
+
+    /**
+     * Prints the change of every benchmark found in both lists of results.
+     * A change is marked as significant when the confidence intervals of the two scores do not overlap.
+     *
+     * @param baseline the results before the change.
+     * @param current  the results after the change.
+     * @param out      the destination.
+     */
+    public static void compare(List<Result> baseline, List<Result> current, PrintStream out) {
+        Map<String, Result> previous = new LinkedHashMap<>();
+
+        for (Result result : baseline)
+            previous.put(result.getKey(), result);
+
+        out.printf("%-60s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+
+        for (Result result : current) {
+            Result before = previous.get(result.getKey());
+
+            if (before == null)
+                continue;
+
+            double change = result.getScore() / before.getScore() - 1;
+            boolean significant = Math.abs(result.getScore() - before.getScore())
+                    > nonNegative(result.getError()) + nonNegative(before.getError());
+
+            out.printf("%-60s %14.3f %14.3f %+8.1f%%%s%n", result.getKey(), before.getScore(), result.getScore(),
+                    change * 100, significant ? (change < 0 ? " faster" : " slower") : "");
+        }
+    }
+
+    /**
+     * Returns a value, or zero if it is not a number.
+     *
+     * @param value the value.
+     * @return the value or zero.
+     */
+    private static double nonNegative(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    /**
+     * Prepares the operation of a benchmark, e.g. loading a system.
+     */
+    @FunctionalInterface
+    public interface Setup {
+        /**
+         * Prepares the operation.
+         *
+         * @return the operation.
+         * @throws Exception in case of failure.
+         */
+        Operation prepare() throws Exception;
+    }
+
+    /**
+     * The operation measured by a benchmark.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @return any value depending on the result, e.g. a coordinate, so that the computation is not removed.
+         * @throws Exception in case of failure.
+         */
+        double run() throws Exception;
+    }
+
+    /**
+     * A benchmark registered.
+     */
+    private static final class Entry {
+        /**
+         * The name of the benchmark.
+         */
+        private final String name;
+
+        /**
+         * The parameters of the benchmark.
+         */
+        private final Map<String, String> parameters;
+
+        /**
+         * Prepares the operation.
+         */
+        private final Setup setup;
+
+        /**
+         * Creates a benchmark.
+         *
+         * @param name       the name of the benchmark.
+         * @param parameters the parameters of the benchmark.
+         * @param setup      prepares the operation.
+         */
+        private Entry(String name, Map<String, String> parameters, Setup setup) {
+            this.name = name;
+            this.parameters = parameters;
+            this.setup = setup;
+        }
+    }
+
+    /**
+     * The result of a benchmark.
+     */
+    public static final class Result {
+        /**
+         * The name of the benchmark.
+         */
+        private final String name;
+
+        /**
+         * The parameters of the benchmark.
+         */
+        private final Map<String, String> parameters;
+
+        /**
+         * The score of every iteration measured, in nanoseconds per operation.
+         */
+        private final double[] scores;
+
+        /**
+         * Creates a result.
+         *
+         * @param name       the name of the benchmark.
+         * @param parameters the parameters of the benchmark.
+         * @param scores     the score of every iteration measured.
+         */
+        public Result(String name, Map<String, String> parameters, double[] scores) {
+            this.name = name;
+            this.parameters = Collections.unmodifiableMap(parameters);
+            this.scores = scores.clone();
+        }
+
+        /**
+         * Returns the name of the benchmark with its parameters, which identifies it across runs.
+         *
+         * @return the key.
+         */
+        public String getKey() {
+            return parameters.isEmpty() ? name : name + parameters;
+        }
+
+        /**
+         * Returns the name of the benchmark.
+         *
+         * @return the name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the parameters of the benchmark.
+         *
+         * @return the parameters.
+         */
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Returns the average time of an operation.
+         *
+         * @return the time in nanoseconds.
+         */
+        public double getScore() {
+            double sum = 0;
+
+            for (double score : scores)
+                sum += score;
+
+            return sum / scores.length;
+        }
+
+        /**
+         * Returns the half-width of the 99.9% confidence interval of the score, as computed by JMH.
+         *
+         * @return the error in nanoseconds, or {@link Double#NaN} with a single iteration.
+         */
+        public double getError() {
+            if (scores.length < 2)
+                return Double.NaN;
+
+            double mean = getScore();
+            double variance = 0;
+
+            for (double score : scores)
+                variance += (score - mean) * (score - mean);
+
+            variance /= scores.length - 1;
+
+            int freedom = scores.length - 1;
+            double quantile = freedom <= T_QUANTILES.length ? T_QUANTILES[freedom - 1] : 3.291 + 10.6 / freedom;
+
+            return quantile * Math.sqrt(variance / scores.length);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package bench;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.SystemGenerator;
+import astrarium.utils.Matrix;
+import astrarium.utils.Vector;
+import io.JsonHub;
+import render.DisplayList;
+import render.Palette;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The benchmarks of the propagation, the maths, the serialisation and the preparation of the drawing,
+ * run with {@link BenchmarkRunner}.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Benchmarks {
+    /**
+     * A time to start from, 1 January 2000.
+     */
+    private static final long EPOCH = 946_684_800_000L;
+
+    /**
+     * One hour in milliseconds.
+     */
+    private static final long HOUR = 3_600_000L;
+
+    /**
+     * Number of inputs cycled by the benchmarks of the maths, a power of two.
+     */
+    private static final int INPUTS = 1024;
+
+    /**
+     * Not instantiable.
+     */
+    private Benchmarks() {
+    }
+
+    /**
+     * Registers all the benchmarks.
+     *
+     * @param runner the runner.
+     */
+    public static void registerAll(BenchmarkRunner runner) {
+        registerPropagation(runner);
+        registerMaths(runner);
+        registerSerialisation(runner);
+        registerDrawing(runner);
+    }
+
+    //region Propagation
+
+    /**
+     * Registers the benchmarks of Kepler's equation and of the positions.
+     *
+     * @param runner the runner.
+     */
+    private static void registerPropagation(BenchmarkRunner runner) {
+        for (double eccentricity : new double[]{0, 0.1, 0.5, 0.9, 0.99}) {
+            runner.register("Orbit.calculateEccentricAnomaly", "eccentricity", eccentricity, () -> {
+                double[] meanAnomalies = randomValues(0, 2 * Math.PI);
+                int[] index = {0};
+
+                return () -> Orbit.calculateEccentricAnomaly(meanAnomalies[index[0]++ & (INPUTS - 1)], eccentricity, 10);
+            });
+        }
+
+        for (String system : new String[]{"SolSystem", "1000", "10000"}) {
+            runner.register("CelestialBody.renderAtTime", "system", system, () -> {
+                CelestialBody root = loadSystem(system).getRoot();
+                long[] time = {EPOCH};
+
+                return () -> {
+                    root.renderAtTime(time[0] += HOUR);
+                    return root.getChildren().get(0).getOrbit().getRenderedEccentricAnomaly();
+                };
+            });
+        }
+
+        runner.register("Astrarium.query", "system", "SolSystem", () -> {
+            Astrarium astrarium = loadSystem("SolSystem");
+            List<CelestialBody> bodies = new ArrayList<>(astrarium.getRoot().getAllChildren());
+            long[] times = new long[24];
+
+            for (int i = 0; i < times.length; i++)
+                times[i] = EPOCH + i * HOUR;
+
+            return () -> {
+                for (int i = 0; i < times.length; i++)
+                    times[i] += times.length * HOUR;
+
+                return astrarium.query(bodies, times)[0];
+            };
+        });
+    }
+    //endregion Propagation
+
+    //region Maths
+
+    /**
+     * Registers the benchmarks of the rotations.
+     *
+     * @param runner the runner.
+     */
+    private static void registerMaths(BenchmarkRunner runner) {
+        runner.register("Orbit.rotateOnOrbitalPlane", () -> {
+            Orbit orbit = findBody(loadSystem("SolSystem"), "Earth").getOrbit();
+            double[] angles = randomValues(0, 2 * Math.PI);
+            int[] index = {0};
+
+            return () -> {
+                double angle = angles[index[0]++ & (INPUTS - 1)];
+                return orbit.rotateOnOrbitalPlane(new Vector(Math.cos(angle), Math.sin(angle), 0)).getZ();
+            };
+        });
+
+        runner.register("Vector.rotate", () -> {
+            double[] angles = randomValues(-Math.PI, Math.PI);
+            Vector axis = new Vector(1, 2, 3);
+            Vector vector = new Vector(1, 0, 0);
+            int[] index = {0};
+
+            return () -> {
+                vector.rotate(axis, angles[index[0]++ & (INPUTS - 1)]);
+                return vector.getX();
+            };
+        });
+
+        runner.register("Matrix.product", () -> {
+            Matrix[] matrices = new Matrix[INPUTS];
+            double[] angles = randomValues(-Math.PI, Math.PI);
+            Vector axis = new Vector(1, 2, 3);
+
+            axis.normalise();
+
+            for (int i = 0; i < INPUTS; i++)
+                matrices[i] = Matrix.getRotationMatrix(axis, angles[i]);
+
+            int[] index = {0};
+
+            return () -> {
+                int i = index[0]++;
+                return matrices[i & (INPUTS - 1)].product(matrices[(i + 1) & (INPUTS - 1)]).get(0, 0);
+            };
+        });
+    }
+    //endregion Maths
+
+    //region Serialisation
+
+    /**
+     * Registers the benchmarks of the JSON import and export.
+     *
+     * @param runner the runner.
+     */
+    private static void registerSerialisation(BenchmarkRunner runner) {
+        for (String system : new String[]{"SolSystem", "1000", "10000"}) {
+            runner.register("JsonHub.importAstrariumJson", "system", system, () -> {
+                String json = JsonHub.exportJson(loadSystem(system));
+
+                return () -> JsonHub.importAstrariumJson(json).getRoot().getChildren().size();
+            });
+
+            runner.register("JsonHub.exportJson", "system", system, () -> {
+                Astrarium astrarium = loadSystem(system);
+
+                return () -> JsonHub.exportJson(astrarium).length();
+            });
+        }
+    }
+    //endregion Serialisation
+
+    //region Drawing
+
+    /**
+     * Registers the benchmarks of the display list built by the map before drawing every frame.
+     *
+     * @param runner the runner.
+     */
+    private static void registerDrawing(BenchmarkRunner runner) {
+        for (String system : new String[]{"SolSystem", "1000", "10000"}) {
+            runner.register("DisplayList.build", "system", system, () -> {
+                CelestialBody root = loadSystem(system).getRoot();
+                DisplayList list = new DisplayList(Palette.HASH_PALETTE_SIZE);
+                DisplayList.Styler styler = body -> Palette.hashColorIndex(body.getName());
+
+                root.renderAtTime(EPOCH);
+
+                // Neptune at the edge of a full HD map
+                double zoom = 1080 / 2 / 4.5e12;
+
+                return () -> {
+                    list.build(root, zoom, 960, 540, 1920, 1080, styler);
+                    return list.getVisibleCount();
+                };
+            });
+        }
+    }
+    //endregion Drawing
+
+    //region Systems
+
+    /**
+     * Loads a default system, or creates a synthetic one.
+     *
+     * @param system the name of a default system, or the number of bodies of a synthetic one.
+     * @return the system.
+     * @throws Exception in case of failure.
+     */
+    private static Astrarium loadSystem(String system) throws Exception {
+        if (system.chars().allMatch(Character::isDigit))
+            return SystemGenerator.forBodyCount(Long.parseLong(system), 42).generate();
+
+        return JsonHub.importDefaultMap(system);
+    }
+
+    /**
+     * Finds a body by name.
+     *
+     * @param astrarium the system.
+     * @param name      the name.
+     * @return the body.
+     */
+    private static CelestialBody findBody(Astrarium astrarium, String name) {
+        return astrarium.getRoot().getAllChildren().stream()
+                .filter(body -> body.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown body " + name + "."));
+    }
+
+    /**
+     * Returns random values, the same at every run.
+     *
+     * @param minimum the smallest value.
+     * @param maximum the largest value.
+     * @return {@link #INPUTS} values.
+     */
+    private static double[] randomValues(double minimum, double maximum) {
+        Random random = new Random(INPUTS);
+        double[] values = new double[INPUTS];
+
+        for (int i = 0; i < INPUTS; i++)
+            values[i] = minimum + random.nextDouble() * (maximum - minimum);
+
+        return values;
+    }
+    //endregion Systems
+
+    /**
+     * Runs the benchmarks from the command line, writing the results in the JSON format of JMH,
+     * or compares two files of results.
+     * <p>
+     * Usage: {@code Benchmarks [-o file] [-wi warm-up iterations] [-i iterations] [-t ms per iteration] [regex]}
+     * or {@code Benchmarks compare <baseline file> <current file>}
+     * <p>
+     * The defaults are 3 warm-up and 5 measured iterations of a second each,
+     * and the results are written to {@code benchmarks-<date>.json}.
+     *
+     * @param args command line arguments.
+     * @throws Exception in case of failure.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("compare")) {
+            if (args.length != 3) {
+                System.err.println("Usage: Benchmarks compare <baseline file> <current file>");
+                System.exit(1);
+            }
+
+            BenchmarkRunner.compare(BenchmarkRunner.read(new File(args[1])), BenchmarkRunner.read(new File(args[2])), System.out);
+            return;
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner();
+        File output = new File("benchmarks-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o":
+                    output = new File(args[++i]);
+                    break;
+                case "-wi":
+                    runner.setWarmUpIterations(Integer.parseInt(args[++i]));
+                    break;
+                case "-i":
+                    runner.setMeasurementIterations(Integer.parseInt(args[++i]));
+                    break;
+                case "-t":
+                    runner.setIterationTime(Long.parseLong(args[++i]));
+                    break;
+                default:
+                    runner.setFilter(args[i]);
+            }
+        }
+
+        registerAll(runner);
+
+        List<BenchmarkRunner.Result> results = runner.run(System.out);
+        runner.write(output, results);
+
+        System.out.printf("%d results written to %s%n", results.size(), output);
+    }
+}
@@ -0,0 +1,386 @@
+package cli;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.SystemGenerator;
+import io.BinarySystem;
+import io.ColumnCodec;
+import io.EphemerisExporter;
+import io.JsonHub;
+import io.ProgressListener;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Main class for running the batch jobs of Astrarium from the command line, without the JavaFX UI.
+ * <p>
+ * It only depends on the {@code astrarium} and {@code io} packages, so it runs on servers without a display
+ * and starts without loading the JavaFX runtime. The jobs are:
+ * <ul>
+ * <li>{@code ephemeris}: prints the positions of some bodies from a time to another at regular steps;</li>
+ * <li>{@code query}: prints the positions of some bodies at a list of times;</li>
+ * <li>{@code export}: writes the positions to an {@link io.EphemerisFile} instead;</li>
+ * <li>{@code generate}: writes a synthetic system of any size, see {@link SystemGenerator#forBodyCount(long, long)}.</li>
+ * </ul>
+ * The positions are printed as CSV lines of body, time in milliseconds and x, y and z in metres.
+ * The times are either milliseconds since the epoch or ISO-8601 instants, e.g. {@code 2026-10-18T00:00:00Z},
+ * and the steps either milliseconds or ISO-8601 durations, e.g. {@code PT1H}.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Main {
+    /**
+     * The usage printed for wrong arguments.
+     */
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: astrarium <job> <system> ...",
+            "  ephemeris <system> <bodies> <start> <end> <step>",
+            "  query     <system> <bodies> <time>[,<time>...]",
+            "  export    <system> <output file> <start> <end> <step> [NONE|DELTA|XOR] [bodies]",
+            "  generate  <output file> <bodies> [seed]",
+            "The system is a JSON or binary file, or the name of a default system, e.g. SolSystem.",
+            "The bodies are names separated by commas, or all for every body.");
+
+    /**
+     * The largest number of times computed at once, to print long ephemerides in constant memory.
+     */
+    private static final int CHUNK = 4096;
+
+    /**
+     * Not instantiable.
+     */
+    private Main() {
+    }
+
+    /**
+     * Runs a job from the command line, exiting with status 1 in case of wrong arguments and 2 in case of failure.
+     *
+     * @param args command line arguments, see {@link #USAGE}.
+     */
+    public static void main(String[] args) {
+        // No AWT class is used, but a library loading one on a server must not look for a display
+        if (System.getProperty("java.awt.headless") == null)
+            System.setProperty("java.awt.headless", "true");
+
+        try {
+            run(args, System.out);
+        } catch (IllegalArgumentException | NoSuchElementException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Failed: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Runs a job.
+     *
+     * @param args the job and its arguments.
+     * @param out  the destination of the output.
+     * @throws IOException              in case of failure to read the system or to write the output.
+     * @throws IllegalArgumentException in case of wrong arguments.
+     * @throws NoSuchElementException   if a body is not in the system.
+     */
+    public static void run(String[] args, OutputStream out) throws IOException {
+        if (args.length < 2)
+            throw new IllegalArgumentException("Missing the job or its arguments.");
+
+        switch (args[0]) {
+            case "ephemeris": {
+                expectArguments(args, 6, 6);
+
+                Astrarium astrarium = loadSystem(args[1]);
+                List<CelestialBody> bodies = findBodies(astrarium, args[2]);
+                long start = parseTime(args[3]);
+                long end = parseTime(args[4]);
+                long step = parseStep(args[5]);
+
+                if (end < start)
+                    throw new IllegalArgumentException("The end must not be before the start.");
+
+                try (Writer writer = newWriter(out)) {
+                    long count = (end - start) / step + 1;
+
+                    for (long first = 0; first < count; first += CHUNK) {
+                        long[] times = new long[(int) Math.min(CHUNK, count - first)];
+
+                        for (int i = 0; i < times.length; i++)
+                            times[i] = start + (first + i) * step;
+
+                        print(writer, bodies, times, astrarium.query(bodies, times));
+                    }
+                }
+                break;
+            }
+            case "query": {
+                expectArguments(args, 4, 4);
+
+                Astrarium astrarium = loadSystem(args[1]);
+                List<CelestialBody> bodies = findBodies(astrarium, args[2]);
+                String[] values = args[3].split(",");
+                long[] times = new long[values.length];
+
+                for (int i = 0; i < values.length; i++)
+                    times[i] = parseTime(values[i].trim());
+
+                try (Writer writer = newWriter(out)) {
+                    print(writer, bodies, times, astrarium.query(bodies, times));
+                }
+                break;
+            }
+            case "export": {
+                expectArguments(args, 6, 8);
+
+                Astrarium astrarium = loadSystem(args[1]);
+                List<CelestialBody> bodies = findBodies(astrarium, args.length > 7 ? args[7] : "all");
+                EphemerisExporter exporter = new EphemerisExporter(bodies);
+
+                if (args.length > 6)
+                    exporter.setCodec(parseCodec(args[6]));
+
+                long begin = System.nanoTime();
+                long samples = exporter.export(new File(args[2]), parseTime(args[3]), parseTime(args[4]), parseStep(args[5]));
+
+                PrintStream print = new PrintStream(out, true, "UTF-8");
+                print.printf("Exported %d samples of %d bodies in %.1f s.%n", samples, bodies.size(), (System.nanoTime() - begin) / 1e9);
+                break;
+            }
+            case "generate": {
+                expectArguments(args, 3, 4);
+
+                File file = new File(args[1]);
+                SystemGenerator generator = SystemGenerator.forBodyCount(parseCount(args[2]), args.length > 3 ? parseCount(args[3]) : 0);
+
+                long begin = System.nanoTime();
+
+                // The binary format needs the whole system in memory, the JSON one is written as it is generated
+                if (file.getName().endsWith(BinarySystem.EXTENSION))
+                    JsonHub.export(file, generator.generateLazy());
+                else
+                    JsonHub.exportJson(file, generator, ProgressListener.NONE);
+
+                PrintStream print = new PrintStream(out, true, "UTF-8");
+                print.printf("Generated %d bodies in %.1f s.%n", generator.getBodyCount(), (System.nanoTime() - begin) / 1e9);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown job " + args[0] + ".");
+        }
+    }
+
+    /**
+     * Loads a system from a file, or one of the default ones if no such file exists.
+     *
+     * @param system path to the file, or name of a default system.
+     * @return the system.
+     * @throws IOException in case of failure to read it.
+     */
+    private static Astrarium loadSystem(String system) throws IOException {
+        File file = new File(system);
+
+        if (file.isFile())
+            return JsonHub.importAstrarium(file);
+
+        if (JsonHub.class.getResource("/astrarium/data/" + system + ".json") == null)
+            throw new NoSuchElementException("No system file or default system " + system + ".");
+
+        return JsonHub.importDefaultMap(system);
+    }
+
+    /**
+     * Returns the bodies named in a list, loading only the parts of the system needed to find them.
+     *
+     * @param astrarium the system.
+     * @param list      the names separated by commas, or {@code all} for every body but the root.
+     * @return the bodies, in the same order.
+     * @throws NoSuchElementException if a body is not in the system.
+     */
+    private static List<CelestialBody> findBodies(Astrarium astrarium, String list) {
+        CelestialBody root = astrarium.getRoot();
+
+        if (list.equals("all"))
+            return new ArrayList<>(root.getAllChildren());
+
+        Map<String, CelestialBody> found = new LinkedHashMap<>();
+
+        for (String name : list.split(","))
+            found.put(name.trim(), null);
+
+        int missing = found.size();
+        Deque<CelestialBody> queue = new ArrayDeque<>();
+        queue.add(root);
+
+        // Breadth first, as the bodies asked for are usually close to the root
+        while (missing > 0 && !queue.isEmpty()) {
+            CelestialBody body = queue.poll();
+
+            if (found.containsKey(body.getName()) && found.get(body.getName()) == null) {
+                found.put(body.getName(), body);
+                missing--;
+            }
+
+            body.loadChildren();
+            queue.addAll(body.getChildren());
+        }
+
+        List<CelestialBody> bodies = new ArrayList<>();
+
+        for (Map.Entry<String, CelestialBody> entry : found.entrySet()) {
+            if (entry.getValue() == null)
+                throw new NoSuchElementException("Unknown body " + entry.getKey() + ".");
+
+            bodies.add(entry.getValue());
+        }
+
+        return bodies;
+    }
+
+    /**
+     * Prints positions as CSV lines, by time and then by body.
+     *
+     * @param writer    the destination.
+     * @param bodies    the bodies.
+     * @param times     the times.
+     * @param positions the positions, as returned by {@link Astrarium#query(List, long[])}.
+     * @throws IOException in case of failure to write.
+     */
+    private static void print(Writer writer, List<CelestialBody> bodies, long[] times, double[] positions) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+
+        for (int m = 0; m < times.length; m++) {
+            for (int n = 0; n < bodies.size(); n++) {
+                int offset = (n * times.length + m) * 3;
+
+                line.setLength(0);
+                line.append(bodies.get(n).getName()).append(',').append(times[m])
+                        .append(',').append(positions[offset])
+                        .append(',').append(positions[offset + 1])
+                        .append(',').append(positions[offset + 2])
+                        .append(System.lineSeparator());
+
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Returns a buffered writer of UTF-8 text, which does not close {@code out}.
+     *
+     * @param out the destination.
+     * @return the writer.
+     */
+    private static Writer newWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, 1 << 16);
+    }
+
+    /**
+     * Checks the number of arguments of a job.
+     *
+     * @param args    the arguments, including the job.
+     * @param minimum the smallest number of arguments.
+     * @param maximum the largest number of arguments.
+     */
+    private static void expectArguments(String[] args, int minimum, int maximum) {
+        if (args.length < minimum || args.length > maximum)
+            throw new IllegalArgumentException("Wrong number of arguments for " + args[0] + ".");
+    }
+
+    /**
+     * Parses a time, in milliseconds since the epoch or as an ISO-8601 instant.
+     *
+     * @param value the time.
+     * @return the time in milliseconds.
+     */
+    private static long parseTime(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ignored) {
+            // Not a number, tries a date
+        }
+
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time " + value + ".");
+        }
+    }
+
+    /**
+     * Parses a step, in milliseconds or as an ISO-8601 duration.
+     *
+     * @param value the step.
+     * @return the step in milliseconds, greater than zero.
+     */
+    private static long parseStep(String value) {
+        long step;
+
+        try {
+            step = Long.parseLong(value);
+        } catch (NumberFormatException ignored) {
+            try {
+                step = Duration.parse(value).toMillis();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid step " + value + ".");
+            }
+        }
+
+        if (step <= 0)
+            throw new IllegalArgumentException("The step must be positive.");
+
+        return step;
+    }
+
+    /**
+     * Parses a number of bodies or a seed.
+     *
+     * @param value the number.
+     * @return the number.
+     */
+    private static long parseCount(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number " + value + ".");
+        }
+    }
+
+    /**
+     * Parses the name of a codec.
+     *
+     * @param value the name.
+     * @return the codec.
+     */
+    private static ColumnCodec parseCodec(String value) {
+        try {
+            return ColumnCodec.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown codec " + value + ", expected one of " + Arrays.toString(ColumnCodec.values()) + ".");
+        }
+    }
+}
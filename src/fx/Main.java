@@ -1,5 +1,6 @@
 package fx;
 
+import astrarium.diagnostics.RuntimeMetrics;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -38,6 +39,8 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws IOException {
+        RuntimeMetrics.register();
+
         Parent root = FXMLLoader.load(getClass().getResource("Main.fxml"));
         Scene scene = new Scene(root);
         primaryStage.setScene(scene);
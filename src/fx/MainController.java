@@ -3,6 +3,8 @@ package fx;
 import astrarium.Astrarium;
 import astrarium.CelestialBody;
 import astrarium.Orbit;
+import astrarium.Playback;
+import astrarium.Snapshot;
 import astrarium.utils.Vector;
 import com.google.gson.JsonParseException;
 import fx.components.SpaceCanvas;
@@ -10,9 +12,17 @@ import fx.modals.BodyModal;
 import fx.modals.Modal;
 import fx.modals.SpacecraftModal;
 import fx.modals.TransferModal;
+import fx.utils.FrameStatistics;
+import io.BinarySystem;
 import io.JsonHub;
+import io.Journal;
+import io.MinorPlanetCatalog;
+import io.SessionRecorder;
+import io.SessionRecording;
 import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.Parent;
 import javafx.scene.control.*;
@@ -21,6 +31,7 @@ import javafx.scene.control.MenuItem;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
+import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.Window;
@@ -32,11 +43,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.sql.Timestamp;
+import java.nio.file.FileSystemException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Date;
-import java.util.List;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Random;
 
 import static astrarium.utils.Mathematics.TWO_PI;
@@ -86,11 +98,56 @@ public class MainController {
      */
     @FXML
     public Spinner minutesField;
+    /**
+     * The button pausing the time.
+     */
+    @FXML
+    public ToggleButton pauseButton;
+    /**
+     * The button reversing the time.
+     */
+    @FXML
+    public ToggleButton reverseButton;
+    /**
+     * The slider setting the time warp as a power of ten.
+     */
+    @FXML
+    public Slider warpSlider;
+    /**
+     * The text showing the time warp.
+     */
+    @FXML
+    public Text warpText;
     /**
      * The side hierarchical tree view of the system.
      */
     @FXML
     public TreeView<CelestialBody> navigationTree;
+    /**
+     * The bar showing the progress of a file being loaded or saved.
+     */
+    @FXML
+    public HBox taskBar;
+    /**
+     * The description of the file operation in progress.
+     */
+    @FXML
+    public Text taskText;
+    /**
+     * The progress of the file operation.
+     */
+    @FXML
+    public ProgressBar taskProgress;
+    /**
+     * Whether the session is being recorded.
+     */
+    @FXML
+    public CheckMenuItem recordMenuItem;
+    /**
+     * Whether a recorded session is being replayed.
+     */
+    @FXML
+    public CheckMenuItem replayMenuItem;
     //endregion
 
     /**
@@ -98,15 +155,60 @@ public class MainController {
      */
     private File currentFile;
 
+    /**
+     * The journal of the edits to the current file, or {@code null} if the system has not been loaded from a file.
+     */
+    private Journal journal;
+
+    /**
+     * The file being loaded or saved in background, or {@code null}.
+     */
+    private Task<?> fileTask;
+
+    /**
+     * Number of edits made to the system, to know whether it has changed during a save.
+     */
+    private int revision = 0;
+
+    /**
+     * The recorder of the session, or {@code null} if not recording.
+     */
+    private SessionRecorder recorder;
+
+    /**
+     * The session being replayed, or {@code null}.
+     */
+    private SessionRecording recording;
+
+    /**
+     * The segment of {@link #recording} currently shown.
+     */
+    private int recordingSegment;
+
     //region Animation
     /**
      * The timer orchestrating the animation of the {@link SpaceCanvas} map.
      */
     private CanvasAnimationTimer canvasAnimationTimer;
     /**
-     * The time of the simulation.
+     * The clock of the simulation.
+     */
+    private Playback playback;
+    /**
+     * The minimum real time between two updates of the time fields, in nanoseconds.
+     */
+    private static final long TIME_FIELDS_UPDATE_INTERVAL = 250_000_000L;
+    //endregion
+
+    //region Minor Planets
+    /**
+     * The faintest minor planets imported from a catalog, as the whole catalog is over a million bodies.
+     */
+    private static final double MINOR_PLANETS_MAXIMUM_MAGNITUDE = 14;
+    /**
+     * The largest number of minor planets imported from a catalog, the first ones in the catalog.
      */
-    private long time = new Date().getTime();
+    private static final int MINOR_PLANETS_LIMIT = 10_000;
     //endregion
 
     //region Constructor
@@ -143,6 +245,7 @@ public class MainController {
         initMenu();
         initCanvas();
         initNavigationTree();
+        initPlayback();
         initAnimationTimer();
     }
 
@@ -150,9 +253,7 @@ public class MainController {
      * Populates the navigation tree with the bodies inside the {@link Astrarium}.
      */
     private void initNavigationTree() {
-        TreeItem<CelestialBody> root = new TreeItem<>(astrarium.getRoot());
-
-        addToTree(astrarium.getRoot(), root);
+        TreeItem<CelestialBody> root = new BodyTreeItem(astrarium.getRoot());
 
         root.setExpanded(true);
 
@@ -174,7 +275,10 @@ public class MainController {
                 case SECONDARY:
                     final ContextMenu contextMenu = new ContextMenu();
                     MenuItem name = new MenuItem(item.getValue().toString());
-                    contextMenu.getItems().addAll(name, new SeparatorMenuItem(), new MenuItem("Test contextual menu"));
+                    MenuItem remove = new MenuItem("Remove");
+                    remove.setDisable(item.getValue().getParent() == null);
+                    remove.setOnAction(e -> removeBody(item.getValue()));
+                    contextMenu.getItems().addAll(name, new SeparatorMenuItem(), remove);
                     navigationTree.setContextMenu(contextMenu);
                     break;
             }
@@ -182,19 +286,44 @@ public class MainController {
     }
 
     /**
-     * Adds the children of the body to the navigation tree.
+     * Removes a body and its children from the system.
      *
-     * @param parentBody the parent celestial body
-     * @param parentNode the parent node where to attach the nested tree view.
+     * @param body the body to remove.
      */
-    private void addToTree(CelestialBody parentBody, TreeItem<CelestialBody> parentNode) {
-        for (CelestialBody childBody : parentBody.getChildren()) {
-            TreeItem<CelestialBody> childNode = new TreeItem<>(childBody);
+    private void removeBody(CelestialBody body) {
+        revision++;
 
-            addToTree(childBody, childNode);
+        if (journal != null)
+            journal.remove(body);
+        else
+            body.remove();
 
-            parentNode.getChildren().add(childNode);
-        }
+        playback.invalidate();
+        initNavigationTree();
+    }
+
+    /**
+     * Called when a body has been added to the system, to record it in the journal.
+     *
+     * @param body the new body.
+     */
+    private void onBodyAdded(CelestialBody body) {
+        revision++;
+
+        if (journal != null)
+            journal.added(body);
+
+        playback.invalidate();
+        initNavigationTree();
+    }
+
+    /**
+     * Called when the children of a body have been loaded, so that they are rendered from the next frame.
+     *
+     * @param body the body whose children have been loaded.
+     */
+    private void onChildrenLoaded(CelestialBody body) {
+        playback.invalidate();
     }
 
     /**
@@ -207,6 +336,8 @@ public class MainController {
         ((CheckMenuItem) (menu.getMenus().get(3).getItems().get(3))).selectedProperty().bindBidirectional(canvas.showHillSphere);
         ((CheckMenuItem) (menu.getMenus().get(3).getItems().get(4))).selectedProperty().bindBidirectional(canvas.showTangentVector);
         ((CheckMenuItem) (menu.getMenus().get(3).getItems().get(5))).selectedProperty().bindBidirectional(canvas.showMarkers);
+        ((CheckMenuItem) (menu.getMenus().get(3).getItems().get(6))).selectedProperty().bindBidirectional(canvas.showTrails);
+        ((CheckMenuItem) (menu.getMenus().get(3).getItems().get(8))).selectedProperty().bindBidirectional(canvas.showStatistics);
     }
 
     /**
@@ -224,6 +355,7 @@ public class MainController {
         canvas.heightProperty().bind(((Pane) parent).heightProperty());
 
         canvas.setAstrarium(astrarium);
+        canvas.setOnChildrenLoadedHandler(this::onChildrenLoaded);
 
         canvas.setOnClickHandler(position -> {
             CelestialBody body = astrarium.getRoot();
@@ -260,11 +392,10 @@ public class MainController {
 
             //region Click collision
 
-            List<CelestialBody> allChildren = astrarium.getRoot().getAllChildren();
-
-            allChildren.add(0, astrarium.getRoot());
+            // Only the loaded bodies can be on screen
+            CelestialBody[] bodies = Snapshot.flatten(astrarium.getRoot());
 
-            allChildren.forEach((child) -> {
+            Arrays.stream(bodies).forEach((child) -> {
                 if (position.isInsideRadius2D(child.getPosition(), child.getRadius())) {
                     dialogInformation(child.getName(),
                             String.format("Mass: %e kg\nRadius: %e km\nParent: %s",
@@ -274,12 +405,25 @@ public class MainController {
             });
             //endregion
 
-            new CelestialBody(String.valueOf(new Random().nextInt(100)), 0, 2e5, orbit);
-
-            initNavigationTree();
+            onBodyAdded(new CelestialBody(String.valueOf(new Random().nextInt(100)), 0, 2e5, orbit));
         });
 
-        canvas.setTime(time);
+        canvas.setTime(System.currentTimeMillis());
+    }
+
+    /**
+     * Initialises the clock of the simulation and binds it to the time controls.
+     */
+    private void initPlayback() {
+        playback = new Playback(astrarium, System.currentTimeMillis());
+
+        pauseButton.selectedProperty().addListener((observable, oldValue, paused) -> playback.setPaused(paused));
+        reverseButton.selectedProperty().addListener((observable, oldValue, reversed) -> playback.setReversed(reversed));
+
+        warpSlider.valueProperty().addListener((observable, oldValue, exponent) -> {
+            playback.setWarp(Math.pow(10, exponent.doubleValue()));
+            warpText.setText(String.format("Warp: %,.0fx", playback.getWarp()));
+        });
     }
 
     /**
@@ -307,6 +451,14 @@ public class MainController {
 
     //region Handlers
 
+    /**
+     * Brings the simulation back to the current time.
+     */
+    @FXML
+    public void resetTime() {
+        playback.setTime(System.currentTimeMillis());
+    }
+
     /**
      * Handles action happening when the date picker is changed.
      */
@@ -317,35 +469,238 @@ public class MainController {
 
     /**
      * Opens a pop-up to load a save file.
+     * <p>
+     * The file is loaded in background, and replaces the current system only once complete.
      */
     @FXML
     public void loadFile() {
+        if (fileTask != null && !fileTask.isDone())
+            return;
+
         canvasAnimationTimer.stop();
 
         FileChooser fileChooser = getFileChooser();
         fileChooser.setTitle("Open Data File");
         File file = fileChooser.showOpenDialog(canvas.getScene().getWindow());
 
-        if (file != null)
-            try {
-                astrarium = JsonHub.importAstrariumJson(file);
+        canvasAnimationTimer.start();
 
-                initNavigationTree();
-                canvas.setAstrarium(astrarium);
+        if (file == null)
+            return;
 
-                currentFile = file;
-            } catch (IOException e) {
+        LoadTask task = new LoadTask(file);
+
+        task.setOnSucceeded(event -> {
+            if (journal != null)
+                journal.close();
+
+            astrarium = task.getValue();
+            journal = task.getJournal();
+            currentFile = file;
+
+            initNavigationTree();
+            canvas.setAstrarium(astrarium);
+            playback.setAstrarium(astrarium);
+        });
+
+        task.setOnCancelled(event -> task.close());
+
+        task.setOnFailed(event -> {
+            Throwable e = task.getException();
+
+            if (e instanceof IOException) {
                 dialogError("Load failed",
                         "The program failed to load the file because of an I/O exception.");
-            } catch (JsonParseException e) {
+            } else if (e instanceof JsonParseException) {
                 dialogError("Parsing failed",
                         "The program failed to load the file because the specified file was not a valid Astrarium save.");
-            } catch (Exception e) {
+            } else {
                 dialogError("Unknown Error",
-                        String.format("The program encountered an unknown error while saving the file. Exception details: %s.", e.getClass()));
+                        String.format("The program encountered an unknown error while loading the file. Exception details: %s.", e.getClass()));
             }
+        });
 
-        canvasAnimationTimer.start();
+        runFileTask(task);
+    }
+
+    /**
+     * Opens a pop-up to import the minor planets of an orbit catalog in the MPCORB format, adding them to the root.
+     * <p>
+     * The catalog is read in background. The import is too large to be recorded in the journal,
+     * so the next save writes the whole file.
+     */
+    @FXML
+    public void importMinorPlanets() {
+        if (fileTask != null && !fileTask.isDone())
+            return;
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Orbit Catalog");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("MPCORB", "*.DAT", "*.dat"),
+                new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File file = fileChooser.showOpenDialog(canvas.getScene().getWindow());
+
+        if (file == null)
+            return;
+
+        CelestialBody sun = astrarium.getRoot();
+
+        Task<MinorPlanetCatalog.Selection> task = new Task<MinorPlanetCatalog.Selection>() {
+            @Override
+            protected MinorPlanetCatalog.Selection call() throws Exception {
+                updateMessage("Importing " + file.getName() + "...");
+
+                try (MinorPlanetCatalog catalog = MinorPlanetCatalog.open(file)) {
+                    catalog.setMaximumAbsoluteMagnitude(MINOR_PLANETS_MAXIMUM_MAGNITUDE);
+                    return catalog.read(sun, this::updateProgress);
+                }
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            int read = task.getValue().size();
+            int attached = task.getValue().attach(MINOR_PLANETS_LIMIT);
+
+            revision++;
+
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+
+            playback.invalidate();
+            initNavigationTree();
+
+            if (attached < read)
+                dialogInformation("Catalog partially imported", String.format(
+                        "Only the first %d of the %d minor planets brighter than magnitude %.0f have been imported.",
+                        attached, read, MINOR_PLANETS_MAXIMUM_MAGNITUDE));
+        });
+
+        task.setOnFailed(event -> dialogError("Import failed", "The program was unable to read the catalog."));
+
+        runFileTask(task);
+    }
+
+    /**
+     * Starts recording the states played to a file chosen with a pop-up, or stops the recording in progress.
+     */
+    @FXML
+    public void toggleRecording() {
+        if (recorder != null) {
+            playback.setOnKeyframe(null);
+
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                dialogError("Recording failed", "The program was unable to complete the recording.");
+            }
+
+            recorder = null;
+            recordMenuItem.setSelected(false);
+            return;
+        }
+
+        recordMenuItem.setSelected(false);
+
+        File file = getSessionFileChooser().showSaveDialog(canvas.getScene().getWindow());
+
+        if (file == null)
+            return;
+
+        try {
+            recorder = SessionRecorder.create(file);
+        } catch (IOException e) {
+            dialogError("Recording failed", "The program was unable to create the file.");
+            return;
+        }
+
+        recordMenuItem.setSelected(true);
+
+        playback.setOnKeyframe(snapshot -> {
+            try {
+                recorder.record(snapshot);
+            } catch (IOException e) {
+                toggleRecording();
+                dialogError("Recording failed", "The program was unable to write the recording, which has been stopped.");
+            }
+        });
+    }
+
+    /**
+     * Replays a session recorded in a file chosen with a pop-up, or stops the replay in progress.
+     * <p>
+     * The states recorded are shown without computing them, and the system changes as it did during the session.
+     * The times not recorded are computed as usual.
+     */
+    @FXML
+    public void toggleReplay() {
+        if (recording != null) {
+            playback.setSource(null);
+            recording = null;
+            replayMenuItem.setSelected(false);
+            return;
+        }
+
+        replayMenuItem.setSelected(false);
+
+        File file = getSessionFileChooser().showOpenDialog(canvas.getScene().getWindow());
+
+        if (file == null)
+            return;
+
+        try {
+            recording = SessionRecording.map(file);
+        } catch (IOException e) {
+            dialogError("Replay failed", "The program was unable to read the recording.");
+            return;
+        }
+
+        if (recording.getBlockCount() == 0) {
+            recording = null;
+            dialogInformation("Empty recording", "The recording does not contain any state.");
+            return;
+        }
+
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+
+        currentFile = null;
+        replayMenuItem.setSelected(true);
+
+        playback.setSource(recording::getSnapshot);
+        playback.setTime(recording.getStartTime());
+        showRecordingSegment(recording.getSegmentAt(recording.getStartTime()));
+    }
+
+    /**
+     * Shows the system of a segment of the session being replayed.
+     *
+     * @param segment index of the segment.
+     */
+    private void showRecordingSegment(int segment) {
+        recordingSegment = segment;
+        astrarium = recording.getAstrarium(segment);
+
+        initNavigationTree();
+        canvas.setAstrarium(astrarium);
+        playback.setAstrarium(astrarium);
+    }
+
+    /**
+     * Returns a file chooser for the session recordings.
+     *
+     * @return file chooser.
+     */
+    @NotNull
+    private FileChooser getSessionFileChooser() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Session Recording", "*" + SessionRecording.EXTENSION));
+        return fileChooser;
     }
 
     /**
@@ -373,23 +728,92 @@ public class MainController {
     /**
      * Saves the current state of the astrarium to the specified {@code file}.
      * If current file is {@code null}, a save as dialog will appear.
+     * <p>
+     * If the file is the one the system was loaded from, only the edits are appended to its journal, in background.
      *
      * @param file file to save.
      */
     private void saveFile(File file) {
-        canvasAnimationTimer.stop();
+        if (file == null) {
+            saveAsFile();
+            return;
+        }
 
-        if (file != null)
-            try {
-                JsonHub.exportJson(file, astrarium);
-                currentFile = file;
-            } catch (IOException e) {
-                dialogError("Save failed", "The program was unable to save the file.");
+        // A system loaded lazily keeps its file mapped until all its bodies are loaded, and a mapped file
+        // cannot be replaced on some platforms
+        astrarium.getRoot().loadAll();
+
+        if (journal != null && file.equals(journal.getBase())) {
+            journal.commit().exceptionally(e -> {
+                Platform.runLater(() -> dialogSaveError(e, "The program was unable to save the changes."));
+                return null;
+            });
+
+            return;
+        }
+
+        if (fileTask != null && !fileTask.isDone())
+            return;
+
+        // Saved from a copy, as the system keeps changing while the file is written
+        Astrarium copy = astrarium.copy();
+        int savedRevision = revision;
+
+        Task<Journal> task = new Task<Journal>() {
+            @Override
+            protected Journal call() throws Exception {
+                updateMessage("Saving " + file.getName() + "...");
+
+                JsonHub.export(file, copy, this::updateProgress);
+
+                return Journal.create(file);
             }
-        else
-            saveAsFile();
+        };
 
-        canvasAnimationTimer.start();
+        task.setOnSucceeded(event -> {
+            if (journal != null)
+                journal.close();
+
+            journal = task.getValue();
+            currentFile = file;
+
+            // The edits made while saving are not in the file, so the next save must write it all again
+            if (revision != savedRevision) {
+                journal.close();
+                journal = null;
+            }
+        });
+
+        task.setOnFailed(event -> dialogSaveError(task.getException(), "The program was unable to save the file."));
+
+        runFileTask(task);
+    }
+
+    /**
+     * Runs a file operation in background, showing its progress until it ends.
+     *
+     * @param task the operation.
+     */
+    private void runFileTask(Task<?> task) {
+        fileTask = task;
+
+        taskText.textProperty().bind(task.messageProperty());
+        taskProgress.progressProperty().bind(task.progressProperty());
+        taskBar.visibleProperty().bind(task.runningProperty());
+        taskBar.managedProperty().bind(task.runningProperty());
+
+        Thread thread = new Thread(task, "Astrarium file task");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Cancels the file being loaded or saved. A file being saved is left as it was before.
+     */
+    @FXML
+    public void cancelFileTask() {
+        if (fileTask != null)
+            fileTask.cancel();
     }
 
     /**
@@ -400,7 +824,10 @@ public class MainController {
     @NotNull
     private FileChooser getFileChooser() {
         FileChooser fileChooser = new FileChooser();
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Data", "*.json"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Data", "*.json", "*" + BinarySystem.EXTENSION),
+                new FileChooser.ExtensionFilter("JSON Data", "*.json"),
+                new FileChooser.ExtensionFilter("Binary Data", "*" + BinarySystem.EXTENSION));
 
         try {
             File defaultFolder;
@@ -427,11 +854,14 @@ public class MainController {
      */
     @FXML
     public void newBody() {
-        Modal orbit = new BodyModal();
+        BodyModal orbit = new BodyModal();
         orbit.initOwner(canvas.getScene().getWindow());
         orbit.showAndWait();
-        orbit.getResult();
-        initNavigationTree();
+
+        CelestialBody body = orbit.getResult();
+
+        if (body != null)
+            onBodyAdded(body);
     }
 
     /**
@@ -526,6 +956,24 @@ public class MainController {
         dialogGeneric(headerText, contentText, "Error", Alert.AlertType.ERROR);
     }
 
+    /**
+     * Makes the error dialog of a failed save, telling apart a file that is in use and cannot be replaced.
+     *
+     * @param e           the failure, possibly wrapped.
+     * @param contentText body of the error dialog for the other failures.
+     */
+    private void dialogSaveError(Throwable e, String contentText) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FileSystemException) {
+                dialogError("Save failed", String.format("The file %s is in use and cannot be replaced. " +
+                        "Close the other programs using it, or save under another name.", ((FileSystemException) cause).getFile()));
+                return;
+            }
+        }
+
+        dialogError("Save failed", contentText);
+    }
+
     /**
      * Makes a default information dialog.
      *
@@ -537,24 +985,165 @@ public class MainController {
     }
     //endregion
 
+    /**
+     * An item of the navigation tree that creates the items of the children only when expanded,
+     * loading the children of the body if needed.
+     */
+    private class BodyTreeItem extends TreeItem<CelestialBody> {
+        /**
+         * Whether the items of the children have been created.
+         */
+        private boolean populated = false;
+
+        /**
+         * Creates the item of a body.
+         *
+         * @param body the body.
+         */
+        BodyTreeItem(CelestialBody body) {
+            super(body);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return getValue().isLoaded() && getValue().getChildren().isEmpty();
+        }
+
+        @Override
+        public ObservableList<TreeItem<CelestialBody>> getChildren() {
+            if (!populated) {
+                populated = true;
+
+                if (!getValue().isLoaded()) {
+                    getValue().loadChildren();
+                    onChildrenLoaded(getValue());
+                }
+
+                for (CelestialBody child : getValue().getChildren())
+                    super.getChildren().add(new BodyTreeItem(child));
+            }
+
+            return super.getChildren();
+        }
+    }
+
+    /**
+     * Loads a save file and its journal in background.
+     */
+    private static class LoadTask extends Task<Astrarium> {
+        /**
+         * The file to load.
+         */
+        private final File file;
+
+        /**
+         * The journal of the file, once opened.
+         */
+        private volatile Journal journal;
+
+        /**
+         * Creates the task.
+         *
+         * @param file the file to load.
+         */
+        LoadTask(File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected Astrarium call() throws Exception {
+            updateMessage("Loading " + file.getName() + "...");
+
+            Astrarium loaded = JsonHub.importAstrarium(file, this::updateProgress);
+
+            updateMessage("Applying the journal of " + file.getName() + "...");
+            journal = Journal.open(file, loaded);
+
+            if (isCancelled())
+                close();
+
+            return loaded;
+        }
+
+        /**
+         * Returns the journal of the loaded file.
+         *
+         * @return the journal.
+         */
+        Journal getJournal() {
+            return journal;
+        }
+
+        /**
+         * Closes the journal, if the task has been cancelled after opening it.
+         */
+        void close() {
+            if (journal != null)
+                journal.close();
+        }
+    }
+
     /**
      * An inner class that defines the animation behaviour of the SpaceCanvas.
      */
     private class CanvasAnimationTimer extends AnimationTimer {
-        @SuppressWarnings("unchecked")
+        /**
+         * The timestamp in nanoseconds of the previous frame, or zero before the first one.
+         */
+        private long lastFrame = 0;
+        /**
+         * The timestamp in nanoseconds of the last update of the time fields.
+         */
+        private long lastTimeFieldsUpdate = 0;
+
         @Override
         public void handle(long now) {
-            now = new Date().getTime();
+            long elapsed = 0;
 
-            canvas.draw(now);
-            time = new Date().getTime();
+            if (lastFrame != 0) {
+                elapsed = now - lastFrame;
+                canvas.getStatistics().record(FrameStatistics.Metric.FRAME_INTERVAL, elapsed);
+            }
+
+            lastFrame = now;
 
-            LocalDateTime localDateTime = new Timestamp(now).toLocalDateTime();
+            canvas.draw(playback, elapsed);
 
-            datePicker.setValue(localDateTime.toLocalDate());
+            // The fields are only meant to be read, refreshing them at every frame would be a waste
+            if (now - lastTimeFieldsUpdate >= TIME_FIELDS_UPDATE_INTERVAL) {
+                lastTimeFieldsUpdate = now;
+                updateTimeFields(playback.getTime());
 
-            hoursField.getValueFactory().setValue(localDateTime.getHour());
-            minutesField.getValueFactory().setValue(localDateTime.getMinute());
+                // The system of a replayed session changes where it was edited
+                if (recording != null && recording.getSegmentAt(playback.getTime()) != recordingSegment)
+                    showRecordingSegment(recording.getSegmentAt(playback.getTime()));
+            }
+        }
+
+        /**
+         * Shows the given time in the date picker and in the spinners, changing only the fields that differ.
+         *
+         * @param time time in milliseconds.
+         */
+        @SuppressWarnings("unchecked")
+        private void updateTimeFields(long time) {
+            LocalDateTime localDateTime = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDateTime();
+
+            if (!localDateTime.toLocalDate().equals(datePicker.getValue()))
+                datePicker.setValue(localDateTime.toLocalDate());
+
+            if (!Integer.valueOf(localDateTime.getHour()).equals(hoursField.getValue()))
+                hoursField.getValueFactory().setValue(localDateTime.getHour());
+
+            if (!Integer.valueOf(localDateTime.getMinute()).equals(minutesField.getValue()))
+                minutesField.getValueFactory().setValue(localDateTime.getMinute());
+        }
+
+        @Override
+        public void stop() {
+            super.stop();
+            // The pause must not be recorded as a frame, nor advance the clock
+            lastFrame = 0;
         }
     }
 }
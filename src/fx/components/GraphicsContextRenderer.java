@@ -0,0 +1,128 @@
+package fx.components;
+
+import fx.utils.Colors;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import render.Renderer;
+
+/**
+ * A {@link Renderer} that draws on the {@link GraphicsContext} of a JavaFX {@link Canvas}.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+class GraphicsContextRenderer implements Renderer {
+    /**
+     * The canvas drawn on.
+     */
+    private final Canvas canvas;
+
+    /**
+     * The graphics context of the canvas.
+     */
+    private final GraphicsContext gc;
+
+    /**
+     * Creates a new renderer for the given {@code canvas}.
+     *
+     * @param canvas the canvas to draw on.
+     */
+    GraphicsContextRenderer(Canvas canvas) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+    }
+
+    @Override
+    public double getWidth() {
+        return canvas.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return canvas.getHeight();
+    }
+
+    @Override
+    public void clear() {
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    //region State
+    @Override
+    public void setFill(int argb) {
+        gc.setFill(Colors.fromArgb(argb));
+    }
+
+    @Override
+    public void setStroke(int argb) {
+        gc.setStroke(Colors.fromArgb(argb));
+    }
+
+    @Override
+    public void setLineWidth(double width) {
+        gc.setLineWidth(width);
+    }
+
+    @Override
+    public void setFont(String family, double size) {
+        gc.setFont(Font.font(family, size));
+    }
+
+    @Override
+    public void setTextAlign(TextAlign align) {
+        gc.setTextAlign(align == TextAlign.CENTER ? TextAlignment.CENTER : TextAlignment.LEFT);
+    }
+    //endregion State
+
+    //region Path
+    @Override
+    public void beginPath() {
+        gc.beginPath();
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        gc.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        gc.lineTo(x, y);
+    }
+
+    @Override
+    public void closePath() {
+        gc.closePath();
+    }
+
+    @Override
+    public void circle(double x, double y, double radius) {
+        gc.moveTo(x + radius, y);
+        gc.arc(x, y, radius, radius, 0, 360);
+        gc.closePath();
+    }
+
+    @Override
+    public void fill() {
+        gc.fill();
+    }
+
+    @Override
+    public void stroke() {
+        gc.stroke();
+    }
+    //endregion Path
+
+    //region Shapes
+    @Override
+    public void fillRect(double x, double y, double width, double height) {
+        gc.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void fillText(String text, double x, double y) {
+        gc.fillText(text, x, y);
+    }
+    //endregion Shapes
+}
@@ -3,23 +3,26 @@ package fx.components;
 import astrarium.Astrarium;
 import astrarium.CelestialBody;
 import astrarium.Orbit;
-import astrarium.utils.Mathematics;
+import astrarium.Playback;
+import astrarium.diagnostics.FrameEvent;
 import astrarium.utils.Position;
 import astrarium.utils.Vector;
-import fx.utils.Colors;
+import fx.utils.FrameStatistics;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.geometry.Point3D;
 import javafx.scene.Cursor;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.input.MouseButton;
-import javafx.scene.paint.Color;
-import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.Affine;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Transform;
+import render.DisplayList;
+import render.Palette;
+import render.Renderer;
+import render.SceneRenderer;
+import render.Trails;
 
-import java.util.HashMap;
 import java.util.function.Consumer;
 
 import static astrarium.utils.Mathematics.TWO_PI;
@@ -33,6 +36,11 @@ import static java.lang.Math.toDegrees;
  * @author Vittorio
  */
 public class SpaceCanvas extends Canvas {
+    /**
+     * Background color of the statistics overlay.
+     */
+    private static final int OVERLAY_BACKGROUND = Palette.argb(0.6, 0, 0, 0);
+
     //region Flags
     /**
      * A flag for showing the orbit trace.
@@ -58,6 +66,14 @@ public class SpaceCanvas extends Canvas {
      * A flag for showing markers of important points of the orbit.
      */
     public BooleanProperty showMarkers = new SimpleBooleanProperty(false);
+    /**
+     * A flag for recording and showing the path travelled by the bodies.
+     */
+    public BooleanProperty showTrails = new SimpleBooleanProperty(false);
+    /**
+     * A flag for showing the overlay with the frame statistics.
+     */
+    public BooleanProperty showStatistics = new SimpleBooleanProperty(false);
     //endregion
 
     /**
@@ -78,15 +94,34 @@ public class SpaceCanvas extends Canvas {
     //endregion
 
     /**
-     * A cache of computed orbit position.
+     * The renderer drawing on the graphics context of this canvas.
+     */
+    private final Renderer renderer = new GraphicsContextRenderer(this);
+
+    /**
+     * The drawing logic, shared with the offscreen rendering.
+     */
+    private final SceneRenderer sceneRenderer = new SceneRenderer();
+
+    /**
+     * The paths travelled by the bodies, recorded only while they are shown.
+     */
+    private final Trails trails = new Trails(Trails.DEFAULT_CAPACITY);
+
+    /**
+     * The measurements of the last frames.
      */
-    private HashMap<Orbit, Position[]> orbitsCache = new HashMap<>();
+    private final FrameStatistics statistics = new FrameStatistics();
 
     //region Handlers
     /**
      * The even triggered when a point on the canvas is pressed.
      */
     private Consumer<Position> onClickHandler = null;
+    /**
+     * The event triggered when the children of a body have been loaded because they came into view.
+     */
+    private Consumer<CelestialBody> onChildrenLoadedHandler = null;
     //endregion
 
     /**
@@ -94,6 +129,9 @@ public class SpaceCanvas extends Canvas {
      **/
     public SpaceCanvas() {
         makeCanvasDraggable();
+
+        sceneRenderer.setTrails(trails);
+        showTrails.addListener((observable, oldValue, show) -> trails.clear());
     }
 
     /**
@@ -106,6 +144,16 @@ public class SpaceCanvas extends Canvas {
         this.onClickHandler = onClickHandler;
     }
 
+    /**
+     * Sets the handler for the event triggered when the children of a body have been loaded because they came into view.
+     * They are rendered only from the following frame.
+     *
+     * @param onChildrenLoadedHandler the new handler.
+     */
+    public void setOnChildrenLoadedHandler(Consumer<CelestialBody> onChildrenLoadedHandler) {
+        this.onChildrenLoadedHandler = onChildrenLoadedHandler;
+    }
+
     //region Time
 
     /**
@@ -131,117 +179,158 @@ public class SpaceCanvas extends Canvas {
 
     /**
      * Sets the time of the simulation and draws it at the current state.
+     * <p>
+     * The cost of both steps is recorded in the {@link #getStatistics() statistics}.
      *
      * @param time Unix timestamp in milliseconds.
      */
     public void draw(long time) {
-        setTime(time);
-        draw();
+        draw(() -> setTime(time), 1);
     }
 
     /**
-     * Draws the content of the {@link Astrarium}.
+     * Advances the {@code playback} clock and draws the system at its new time.
+     * <p>
+     * The cost of both steps is recorded in the {@link #getStatistics() statistics}.
+     *
+     * @param playback the clock playing the system shown by this canvas.
+     * @param elapsed  real time elapsed since the previous frame, in nanoseconds.
      */
-    private void draw() {
-        getGraphicsContext2D().clearRect(0, 0, this.getWidth(), this.getHeight());
-        getGraphicsContext2D().save();
-        translateToCenter();
-
-        getGraphicsContext2D().setStroke(Color.BLACK);
-        getGraphicsContext2D().setLineWidth(1);
-
-        drawPlanet(astrarium.getRoot());
-
-        getGraphicsContext2D().restore();
+    public void draw(Playback playback, long elapsed) {
+        draw(() -> playback.advance(elapsed), playback.getWarp());
     }
 
     /**
-     * Private method to draw a {@link CelestialBody} on the map.
+     * Propagates the system, draws it and loads the subtrees coming into view, measuring the cost of each step.
      *
-     * @param celestialBody the body to draw.
-     */
-    private void drawPlanet(CelestialBody celestialBody) {
-        double radius = 5;
-        if (celestialBody.getRadius() * zoom > radius)
-            radius = celestialBody.getRadius() * zoom;
-
-        //region non-rotated Position
-//        if (celestialBody.getOrbit() != null) {
-//            getGraphicsContext2D().save();
-//            getGraphicsContext2D().translate(celestialBody.getOrbit().getRenderedPositionFromOrbitalPlane().getX() * zoom, celestialBody.getOrbit().getRenderedPositionFromOrbitalPlane().getY() * zoom);
-//            getGraphicsContext2D().fillOval(-radius / 2, -radius / 2, radius, radius);
-//            getGraphicsContext2D().restore();
-//        }
-        //endregion
+     * @param propagation the action bringing the system to the time of the frame.
+     * @param warp        ratio between the simulation time and the real time.
+     */
+    private void draw(Runnable propagation, double warp) {
+        FrameEvent event = new FrameEvent();
+        event.begin();
 
-        getGraphicsContext2D().save();
-        Position position = celestialBody.getPositionFromParent();
+        long allocatedBytes = FrameStatistics.currentThreadAllocatedBytes();
+        long keplerIterations = Orbit.getThreadKeplerIterations();
+        long start = System.nanoTime();
+
+        propagation.run();
+
+        // The bodies drawn in the previous frame, at their new positions
+        if (showTrails.get())
+            trails.record(sceneRenderer.getDisplayList(), astrarium.getTime(), warp);
+
+        long propagated = System.nanoTime();
+        keplerIterations = Orbit.getThreadKeplerIterations() - keplerIterations;
 
-        getGraphicsContext2D().translate(position.getX() * zoom, position.getY() * zoom);
+        draw();
+
+        long drawn = System.nanoTime();
+
+        // The subtrees coming into view are read synchronously, and counted in the frame they delay
+        loadChildrenInView();
 
-        // Draw planet dot
-        getGraphicsContext2D().setFill(Colors.hashColor(celestialBody.getName()));
-        getGraphicsContext2D().fillOval(-radius, -radius, radius * 2, radius * 2);
+        long loaded = System.nanoTime();
 
-        // Draw label
-        if (showNames.get()) {
-            getGraphicsContext2D().setTextAlign(TextAlignment.CENTER);
-            getGraphicsContext2D().setFill(Color.GREY);
-            getGraphicsContext2D().fillText(celestialBody.getName(), 0, radius * 2 + 7);
+        if (allocatedBytes >= 0) {
+            allocatedBytes = FrameStatistics.currentThreadAllocatedBytes() - allocatedBytes;
+            statistics.record(FrameStatistics.Metric.ALLOCATED_BYTES, allocatedBytes);
         }
 
-        // Draw sphere of influence
-        if (showSphereOfInfluence.get())
-            drawSphereOfInfluence(celestialBody);
+        statistics.record(FrameStatistics.Metric.PROPAGATION_TIME, propagated - start);
+        statistics.record(FrameStatistics.Metric.DRAW_TIME, drawn - propagated);
+        statistics.record(FrameStatistics.Metric.LOAD_TIME, loaded - drawn);
+        statistics.record(FrameStatistics.Metric.KEPLER_ITERATIONS, keplerIterations);
+        statistics.record(FrameStatistics.Metric.BODIES_DRAWN, sceneRenderer.getDisplayList().getVisibleCount());
+        statistics.record(FrameStatistics.Metric.BODIES_CULLED, sceneRenderer.getDisplayList().getCulledCount());
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.propagationTime = propagated - start;
+            event.drawTime = drawn - propagated;
+            event.loadTime = loaded - drawn;
+            event.bodiesDrawn = sceneRenderer.getDisplayList().getVisibleCount();
+            event.bodiesCulled = sceneRenderer.getDisplayList().getCulledCount();
+            event.keplerIterations = keplerIterations;
+            event.allocated = allocatedBytes;
+            event.warp = warp;
+            event.commit();
+        }
 
-        if (showHillSphere.get())
-            drawHillSphere(celestialBody);
+        if (showStatistics.get())
+            drawStatistics();
+    }
 
-        if (showTangentVector.get())
-            drawTangentVector(celestialBody);
+    /**
+     * Loads the children of the bodies on screen whose orbits would be large enough to be drawn.
+     */
+    private void loadChildrenInView() {
+        DisplayList displayList = sceneRenderer.getDisplayList();
 
-        celestialBody.getChildren().forEach(children -> {
-            //noinspection ConstantConditions
-            if (children.getOrbit().getApoapsis() * zoom <= 9)
-                return;
+        for (int i = 0; i < displayList.size(); i++) {
+            CelestialBody body = displayList.getBody(i);
+
+            if (body.isLoaded())
+                continue;
+
+            double extent = body.getUnloadedChildrenExtent() * zoom;
+
+            boolean inView = displayList.getX(i) + extent >= 0 && displayList.getX(i) - extent <= getWidth()
+                    && displayList.getY(i) + extent >= 0 && displayList.getY(i) - extent <= getHeight();
 
-            if (showOrbit.get()) {
-                getGraphicsContext2D().setStroke(Colors.hashColor(children.getName()));
-                drawOrbit(children.getOrbit());
+            if (extent > DisplayList.MINIMUM_ORBIT_SIZE && inView) {
+                body.loadChildren();
+
+                if (onChildrenLoadedHandler != null)
+                    onChildrenLoadedHandler.accept(body);
             }
-            drawPlanet(children);
-        });
+        }
+    }
 
-        getGraphicsContext2D().restore();
+    /**
+     * Returns the measurements of the last frames drawn.
+     *
+     * @return the frame statistics.
+     */
+    public FrameStatistics getStatistics() {
+        return statistics;
     }
 
     /**
-     * Private method to draw the orbit on the map.
+     * Draws the content of the {@link Astrarium}.
      *
-     * @param orbit the orbit to draw.
-     */
-    private void drawOrbit(Orbit orbit) {
-        if (showMarkers.get()) {
-            Position periapsisPosition = orbit.getPeriapsisPosition();
-            Position apoapsisPosition = orbit.getApoapsisPosition();
-            Position northernVertex = orbit.getNorthernVertex();
-            Position southernVertex = orbit.getSouthernVertex();
-//            Position center = orbit.getCenter();
-
-            drawMarker(periapsisPosition, "Pe", Color.RED, 3);
-            drawMarker(apoapsisPosition, "Ap", Color.BLUE, 5);
-            drawMarker(northernVertex, "Ap", Color.GREEN, 5);
-            drawMarker(southernVertex, "Ap", Color.BLACK, 5);
-//            drawMarker(center, "Ap", Color.BLACK, 5);
-
-            drawLine(periapsisPosition, apoapsisPosition);
-            drawLine(northernVertex, southernVertex);
-        }
+     * @see SceneRenderer
+     */
+    private void draw() {
+        sceneRenderer.showOrbit = showOrbit.get();
+        sceneRenderer.showNames = showNames.get();
+        sceneRenderer.showSphereOfInfluence = showSphereOfInfluence.get();
+        sceneRenderer.showHillSphere = showHillSphere.get();
+        sceneRenderer.showTangentVector = showTangentVector.get();
+        sceneRenderer.showMarkers = showMarkers.get();
+        sceneRenderer.showTrails = showTrails.get();
+
+        sceneRenderer.draw(renderer, astrarium.getRoot(), zoom,
+                this.getWidth() / 2 + offset.getX(),
+                this.getHeight() / 2 + offset.getY());
+    }
+
+    /**
+     * Draws the overlay with the summary of the frame statistics in the top left corner.
+     */
+    private void drawStatistics() {
+        FrameStatistics.Metric[] metrics = FrameStatistics.Metric.values();
+
+        renderer.setFill(OVERLAY_BACKGROUND);
+        renderer.fillRect(5, 5, 470, metrics.length * 15 + 10);
 
-        if (Mathematics.equals(orbit.getInclination(), 0, 0.05) && orbit.getEccentricity() < 1)
-            overlyOptimisticDrawOrbit(orbit);
-        else
-            drawOrbitAltCached(orbit);
+        renderer.setFont("Monospaced", 11);
+        renderer.setTextAlign(Renderer.TextAlign.LEFT);
+        renderer.setFill(Palette.WHITE);
+
+        for (int i = 0; i < metrics.length; i++)
+            renderer.fillText(statistics.summary(metrics[i]), 12, 22 + i * 15);
     }
 
     /**
@@ -281,34 +370,6 @@ public class SpaceCanvas extends Canvas {
         getGraphicsContext2D().restore();
     }
 
-    /**
-     * Draws a line from {@code p1} to {@code p2}.
-     *
-     * @param p1 first point of the segment.
-     * @param p2 second point of the segment.
-     */
-    private void drawLine(Position p1, Position p2) {
-        getGraphicsContext2D().strokeLine(p1.getX() * zoom, p1.getY() * zoom, p2.getX() * zoom, p2.getY() * zoom);
-    }
-
-    /**
-     * Method to draw an elliptical equatorial orbit.
-     *
-     * @param orbit to draw.
-     */
-    private void overlyOptimisticDrawOrbit(Orbit orbit) {
-        getGraphicsContext2D().save();
-
-        getGraphicsContext2D().rotate(toDegrees(orbit.getLongitudeOfAscendingNode() + orbit.getArgumentOfPeriapsis()));
-
-        double x2 = orbit.getSemiMajorAxis() * zoom * 2;
-        double y = orbit.getSemiMinorAxis() * zoom;
-
-        getGraphicsContext2D().strokeOval(-x2 + orbit.getPeriapsis() * zoom, -y, x2, y * 2);
-
-        getGraphicsContext2D().restore();
-    }
-
     /**
      * Draws an orbit evaluating each point in the period.
      *
@@ -338,53 +399,6 @@ public class SpaceCanvas extends Canvas {
         getGraphicsContext2D().closePath();
     }
 
-    /**
-     * Optimised version of {@link #drawOrbitAlt(Orbit)} that keeps a cache of the values to improve performances.
-     *
-     * @param orbit to draw.
-     */
-    private void drawOrbitAltCached(Orbit orbit) {
-        if (!orbitsCache.containsKey(orbit))
-            createOrbitCache(orbit);
-
-        Position[] positions = orbitsCache.get(orbit);
-
-        getGraphicsContext2D().beginPath();
-
-        moveTo(toCanvasCoordinate(positions[0]));
-
-        for (int i = 1; i < positions.length; i++) {
-            lineTo(toCanvasCoordinate(positions[i]));
-        }
-
-        lineTo(toCanvasCoordinate(positions[0]));
-
-        getGraphicsContext2D().stroke();
-        getGraphicsContext2D().closePath();
-    }
-
-    /**
-     * Stores the given {@code orbit} in the cache.
-     *
-     * @param orbit to cache.
-     */
-    private void createOrbitCache(Orbit orbit) {
-        final int count = 4096;
-
-        final double epsilon = TWO_PI / count;
-
-        Position[] ps = new Position[count];
-
-        Position point;
-        for (int i = 0; i < count; i++) {
-            point = orbit.getPositionFromParentAtAngle(epsilon * i);
-
-            ps[i] = point;
-        }
-
-        this.orbitsCache.put(orbit, ps);
-    }
-
     /**
      * Issues the command to move the path to the given position {@code p}.
      *
@@ -403,98 +417,6 @@ public class SpaceCanvas extends Canvas {
         getGraphicsContext2D().lineTo(p.getX(), p.getY());
     }
 
-    /**
-     * Private method to draw PoIs on the map.
-     *
-     * @param position position of the marker.
-     * @param name     name of the marker.
-     * @param color    color of the marker.
-     */
-    @SuppressWarnings("unused")
-    private void drawMarker(Position position, String name, Color color) {
-        drawMarker(position, name, color, 3);
-    }
-
-    /**
-     * Private method to draw PoIs on the map.
-     *
-     * @param position position of the marker.
-     * @param name     name of the marker.
-     * @param color    color of the marker.
-     * @param radius   radius of the marker.
-     */
-    private void drawMarker(Position position, String name, Color color, int radius) {
-        getGraphicsContext2D().save();
-        getGraphicsContext2D().setFill(color);
-
-        getGraphicsContext2D().fillOval(position.getX() * zoom - radius * 0.5, position.getY() * zoom - radius * 0.5, radius, radius);
-
-        // Todo write labels
-
-        getGraphicsContext2D().restore();
-    }
-
-    /**
-     * Private method to draw the radius of the SoI.
-     *
-     * @param celestialBody body to draw the SoI of.
-     */
-    private void drawSphereOfInfluence(CelestialBody celestialBody) {
-        getGraphicsContext2D().save();
-
-        getGraphicsContext2D().setStroke(Color.GREEN);
-
-        double radius = celestialBody.getSphereOfInfluence() * zoom;
-
-        getGraphicsContext2D().strokeOval(-radius / 2, -radius / 2, radius, radius);
-
-        getGraphicsContext2D().restore();
-    }
-
-    /**
-     * Private method to draw the radius of the Hill Sphere.
-     *
-     * @param celestialBody body to draw the Hill Sphere of.
-     */
-    private void drawHillSphere(CelestialBody celestialBody) {
-        getGraphicsContext2D().save();
-
-        getGraphicsContext2D().setStroke(Color.BLUE);
-
-        double radius = celestialBody.getHillSphere() * zoom;
-
-        getGraphicsContext2D().strokeOval(-radius / 2, -radius / 2, radius, radius);
-
-        getGraphicsContext2D().restore();
-    }
-
-    /**
-     * Private method to draw a vector tangent to the orbit at the current position.
-     *
-     * @param celestialBody the body to draw the tangent vector of.
-     */
-    private void drawTangentVector(CelestialBody celestialBody) {
-        if (celestialBody.getOrbit() == null)
-            return;
-
-        //Position position = celestialBody.getPositionFromParent();
-
-        //getGraphicsContext2D().save();
-
-        //getGraphicsContext2D().translate(position.getX(), position.getY());
-
-        //getGraphicsContext2D().rotate(celestialBody.getOrbit().getTangentVector1());
-
-        double angle = celestialBody.getOrbit().getTangentAngle();
-
-        angle = angle + celestialBody.getOrbit().getLongitudeOfAscendingNode();
-
-        double magnitude = celestialBody.getOrbit().getVelocityMagnitude() / 10000;
-
-        getGraphicsContext2D().strokeLine(0, 0, Math.cos(angle) * magnitude, Math.sin(angle) * magnitude);
-
-        //getGraphicsContext2D().restore();
-    }
     //endregion
 
     //region Zoom
@@ -543,13 +465,6 @@ public class SpaceCanvas extends Canvas {
     public void setOffset(Position position) {
         setOffset(position.getX(), position.getY());
     }
-
-    /**
-     * Move the reference coordinates at the center of the {@link SpaceCanvas}.
-     */
-    private void translateToCenter() {
-        getGraphicsContext2D().translate(this.getWidth() / 2 + offset.getX(), this.getHeight() / 2 + offset.getY());
-    }
     //endregion
 
     /**
@@ -559,6 +474,8 @@ public class SpaceCanvas extends Canvas {
      */
     public void setAstrarium(Astrarium astrarium) {
         this.astrarium = astrarium;
+        this.sceneRenderer.clearCache();
+        this.trails.clear();
     }
 
     /**
@@ -638,4 +555,5 @@ public class SpaceCanvas extends Canvas {
     public boolean isResizable() {
         return true;
     }
+
 }
@@ -2,6 +2,7 @@ package fx.utils;
 
 
 import javafx.scene.paint.Color;
+import render.Palette;
 
 import java.util.Random;
 
@@ -13,6 +14,21 @@ import java.util.Random;
  */
 @SuppressWarnings("WeakerAccess")
 final public class Colors {
+    /**
+     * Number of slots of the cache used by {@link #fromArgb(int)}. Must be a power of two.
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * The ARGB values of the cached colors.
+     */
+    private static final int[] CACHE_KEYS = new int[CACHE_SIZE];
+
+    /**
+     * The cached colors, in the same slot of their ARGB value.
+     */
+    private static final Color[] CACHE_VALUES = new Color[CACHE_SIZE];
+
     /**
      * Prevents the class from being instantiated.
      */
@@ -40,14 +56,32 @@ final public class Colors {
      *
      * @param object the object to hash
      * @return a unique color generated from the hash
+     * @see Palette#hashColor(Object)
      */
     public static Color hashColor(Object object) {
-        double hue = object.hashCode();
-        // Intensity of the color
-        final float saturation = 0.8f;
-        // Brightness of the color
-        final float luminance = 0.7f;
+        return fromArgb(Palette.hashColor(object));
+    }
 
-        return Color.hsb(hue, saturation, luminance);
+    /**
+     * Converts a color expressed as an ARGB integer, as used by {@link render.Renderer}, into a JavaFX {@link Color}.
+     * <p>
+     * The colors are cached, so this method does not allocate when the same few colors are used over and over.
+     *
+     * @param argb the color.
+     * @return the equivalent JavaFX color.
+     */
+    public static Color fromArgb(int argb) {
+        int slot = (argb ^ (argb >>> 12)) & (CACHE_SIZE - 1);
+
+        Color color = CACHE_VALUES[slot];
+
+        if (color == null || CACHE_KEYS[slot] != argb) {
+            color = Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255D);
+
+            CACHE_KEYS[slot] = argb;
+            CACHE_VALUES[slot] = color;
+        }
+
+        return color;
     }
 }
@@ -0,0 +1,213 @@
+package fx.utils;
+
+import astrarium.utils.RollingHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A collection of {@link RollingHistogram}s measuring where the time of each frame goes.
+ * <p>
+ * Every {@link Metric} has its own histogram, holding the values of the last {@link #WINDOW} frames.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FrameStatistics {
+    /**
+     * Number of frames kept by each histogram.
+     */
+    public static final int WINDOW = 240;
+
+    /**
+     * The MX bean used to read the allocated bytes, or {@code null} if the JVM does not support it.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = getAllocationBean();
+
+    /**
+     * One histogram for each metric, indexed by ordinal.
+     */
+    private final RollingHistogram[] histograms = new RollingHistogram[Metric.values().length];
+
+    /**
+     * Creates a new set of empty histograms.
+     */
+    public FrameStatistics() {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new RollingHistogram(WINDOW);
+    }
+
+    /**
+     * Records a new sample of the given {@code metric}.
+     *
+     * @param metric the measured metric.
+     * @param value  the value, in the unit of the metric.
+     */
+    public void record(Metric metric, long value) {
+        histograms[metric.ordinal()].record(value);
+    }
+
+    /**
+     * Returns the histogram of the given {@code metric}.
+     *
+     * @param metric the metric.
+     * @return the histogram of the last frames.
+     */
+    public RollingHistogram get(Metric metric) {
+        return histograms[metric.ordinal()];
+    }
+
+    /**
+     * Clears all the histograms.
+     */
+    public void clear() {
+        for (RollingHistogram histogram : histograms)
+            histogram.clear();
+    }
+
+    /**
+     * Returns a line of text summarising the given {@code metric}, e.g. for an overlay.
+     *
+     * @param metric the metric.
+     * @return the summary of the metric.
+     */
+    public String summary(Metric metric) {
+        RollingHistogram histogram = get(metric);
+
+        return String.format("%-18s last %9.2f  mean %9.2f  p99 %9.2f %s",
+                metric.getLabel(),
+                histogram.getLast() / metric.getScale(),
+                histogram.getMean() / metric.getScale(),
+                histogram.getPercentile(99) / metric.getScale(),
+                metric.getUnit());
+    }
+
+    //region Allocations
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread,
+     * or -1 if the JVM is not able to measure it.
+     *
+     * @return allocated bytes.
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (ALLOCATION_BEAN == null)
+            return -1;
+
+        return ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the HotSpot extension of the {@link ThreadMXBean} with the allocation measurement enabled.
+     *
+     * @return the bean, or {@code null} if not supported.
+     */
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return null;
+
+        com.sun.management.ThreadMXBean hotSpotBean = (com.sun.management.ThreadMXBean) bean;
+
+        if (!hotSpotBean.isThreadAllocatedMemorySupported())
+            return null;
+
+        if (!hotSpotBean.isThreadAllocatedMemoryEnabled())
+            hotSpotBean.setThreadAllocatedMemoryEnabled(true);
+
+        return hotSpotBean;
+    }
+    //endregion Allocations
+
+    /**
+     * The quantities measured at each frame.
+     */
+    public enum Metric {
+        /**
+         * Time between two consecutive frames, in nanoseconds.
+         */
+        FRAME_INTERVAL("Frame interval", "ms", 1e6),
+        /**
+         * Time spent propagating the bodies to the time of the frame, in nanoseconds.
+         */
+        PROPAGATION_TIME("Propagation", "ms", 1e6),
+        /**
+         * Time spent drawing the frame, in nanoseconds.
+         */
+        DRAW_TIME("Draw", "ms", 1e6),
+        /**
+         * Time spent loading the subtrees of the bodies coming into view, in nanoseconds.
+         */
+        LOAD_TIME("Loading", "ms", 1e6),
+        /**
+         * Number of bodies drawn.
+         */
+        BODIES_DRAWN("Bodies drawn", "", 1),
+        /**
+         * Number of bodies skipped because too small or outside of the viewport.
+         */
+        BODIES_CULLED("Bodies culled", "", 1),
+        /**
+         * Number of iterations spent solving Kepler's equation on the drawing thread, the prefetching excluded.
+         */
+        KEPLER_ITERATIONS("Kepler iterations", "", 1),
+        /**
+         * Bytes allocated by the propagation, the drawing and the loading.
+         */
+        ALLOCATED_BYTES("Allocated", "KiB", 1024);
+
+        /**
+         * Human readable name.
+         */
+        private final String label;
+        /**
+         * Unit used when displaying the values.
+         */
+        private final String unit;
+        /**
+         * Factor converting the recorded values into the displayed unit.
+         */
+        private final double scale;
+
+        /**
+         * Creates a new metric.
+         *
+         * @param label human readable name.
+         * @param unit  unit used to display the values.
+         * @param scale factor converting the recorded values into the displayed unit.
+         */
+        Metric(String label, String unit, double scale) {
+            this.label = label;
+            this.unit = unit;
+            this.scale = scale;
+        }
+
+        /**
+         * Returns the human readable name of the metric.
+         *
+         * @return the name.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the unit used to display the values.
+         *
+         * @return the unit.
+         */
+        public String getUnit() {
+            return unit;
+        }
+
+        /**
+         * Returns the factor converting the recorded values into the displayed unit.
+         *
+         * @return the scale.
+         */
+        public double getScale() {
+            return scale;
+        }
+    }
+}
@@ -0,0 +1,629 @@
+package io;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary save format, read in place from a (usually memory-mapped) {@link ByteBuffer}.
+ * <p>
+ * The bodies are stored in depth-first order, so that the parent of a body always comes before it
+ * and every subtree is a contiguous range. All numbers are little-endian:
+ * <pre>
+ * magic          4 bytes  "ASTR"
+ * version        u16
+ * flags          u16      reserved, zero
+ * body count     i32      n
+ * names length   i32      size in bytes of the string table
+ * parents        i32[n]   index of the parent of each body, -1 for the root
+ * name offsets   i32[n+1] offset of each name in the string table, then the end of the table
+ * (padding to 8 bytes)
+ * masses         f64[n]   kg
+ * radii          f64[n]   m
+ * elements       f64[6n]  semi-major axis, eccentricity, inclination, longitude of the ascending node,
+ *                         argument of periapsis and mean anomaly at epoch of each body, zero for the root
+ * string table   UTF-8 names, one after the other
+ * </pre>
+ * When the file is opened only the header and the size are checked, each value is read when it is accessed.
+ * The parents and the name offsets are checked once, when the bodies are first created.
+ * A system can also be loaded lazily with {@link #toLazyAstrarium()}, creating each subtree when it is first needed.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class BinarySystem {
+    /**
+     * The first bytes of every file, "ASTR" in ASCII.
+     */
+    public static final int MAGIC = 0x52545341;
+
+    /**
+     * The version of the format written.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The usual extension of the files.
+     */
+    public static final String EXTENSION = ".astr";
+
+    /**
+     * Number of orbital elements stored for each body.
+     */
+    public static final int ELEMENTS = 6;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * The content of the file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Number of bodies.
+     */
+    private final int count;
+
+    /**
+     * Size in bytes of the string table.
+     */
+    private final int namesLength;
+
+    //region Offsets
+    /**
+     * Offset of the parents.
+     */
+    private final int parentsOffset;
+    /**
+     * Offset of the name offsets.
+     */
+    private final int nameOffsetsOffset;
+    /**
+     * Offset of the masses.
+     */
+    private final int massesOffset;
+    /**
+     * Offset of the radii.
+     */
+    private final int radiiOffset;
+    /**
+     * Offset of the orbital elements.
+     */
+    private final int elementsOffset;
+    /**
+     * Offset of the string table.
+     */
+    private final int namesOffset;
+    //endregion Offsets
+
+    //region Index
+    /**
+     * The index after the last body of the subtree of each body, or {@code null} before {@link #index()}.
+     */
+    private int[] subtreeEnds = null;
+
+    /**
+     * The largest apoapsis among the children of each body.
+     */
+    private double[] extents;
+    //endregion Index
+
+    /**
+     * Reads the header of a system stored in a buffer.
+     *
+     * @param buffer the content of the file, starting at its current position.
+     * @throws IOException if it does not contain a valid system.
+     */
+    public BinarySystem(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (this.buffer.remaining() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC)
+            throw new IOException("Not an Astrarium binary file.");
+
+        short version = this.buffer.getShort(4);
+
+        if (version != VERSION)
+            throw new IOException("Unsupported binary format version " + version + ".");
+
+        count = this.buffer.getInt(8);
+        namesLength = this.buffer.getInt(12);
+
+        if (count <= 0 || namesLength < 0)
+            throw new IOException("Corrupt Astrarium binary file.");
+
+        // In longs, as a corrupt count would overflow the offsets and pass the check below
+        long nameOffsetsOffset = HEADER_SIZE + count * 4L;
+        long massesOffset = align(nameOffsetsOffset + (count + 1) * 4L);
+        long radiiOffset = massesOffset + count * 8L;
+        long elementsOffset = radiiOffset + count * 8L;
+        long namesOffset = elementsOffset + count * 8L * ELEMENTS;
+
+        if (namesOffset + namesLength > this.buffer.limit())
+            throw new IOException("Truncated Astrarium binary file.");
+
+        this.parentsOffset = HEADER_SIZE;
+        this.nameOffsetsOffset = (int) nameOffsetsOffset;
+        this.massesOffset = (int) massesOffset;
+        this.radiiOffset = (int) radiiOffset;
+        this.elementsOffset = (int) elementsOffset;
+        this.namesOffset = (int) namesOffset;
+    }
+
+    /**
+     * Checks the parents and the name offsets, so that a corrupt file fails before any body is created.
+     *
+     * @throws IOException if the bodies are not in depth-first order or a name is outside the string table.
+     */
+    private void validate() throws IOException {
+        // The path from the root to the previous body, as each parent must be on it
+        int[] path = new int[count];
+        int depth = 0;
+
+        for (int i = 0; i < count; i++) {
+            int parent = getParent(i);
+
+            if (i == 0 ? parent != -1 : parent < 0 || parent >= i)
+                throw new IOException("Corrupt Astrarium binary file: invalid parent " + parent + " of body " + i + ".");
+
+            while (depth > 0 && path[depth - 1] != parent)
+                depth--;
+
+            if (i > 0 && depth == 0)
+                throw new IOException("Corrupt Astrarium binary file: body " + i + " out of depth-first order.");
+
+            path[depth++] = i;
+        }
+
+        int previous = buffer.getInt(nameOffsetsOffset);
+
+        if (previous != 0)
+            throw new IOException("Corrupt Astrarium binary file: invalid name offsets.");
+
+        for (int i = 1; i <= count; i++) {
+            int offset = buffer.getInt(nameOffsetsOffset + i * 4);
+
+            if (offset < previous || offset > namesLength)
+                throw new IOException("Corrupt Astrarium binary file: invalid name offsets.");
+
+            previous = offset;
+        }
+    }
+
+    /**
+     * Maps a file in memory and reads its header.
+     *
+     * @param file the file to open.
+     * @return the system stored in the file.
+     * @throws IOException in case of failure to read the file, or if it does not contain a valid system.
+     */
+    public static BinarySystem map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new BinarySystem(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns whether a file starts with the magic bytes of this format.
+     *
+     * @param file the file to check.
+     * @return true if it is a binary system file.
+     * @throws IOException in case of failure to read the file.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] magic = new byte[4];
+
+            if (in.read(magic) != magic.length)
+                return false;
+
+            return ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+        }
+    }
+
+    //region Getters
+
+    /**
+     * Returns the number of bodies.
+     *
+     * @return the count, at least one for the root.
+     */
+    public int getBodyCount() {
+        return count;
+    }
+
+    /**
+     * Returns the index of the parent of a body.
+     *
+     * @param index index of the body.
+     * @return index of the parent, or -1 for the root.
+     */
+    public int getParent(int index) {
+        return buffer.getInt(parentsOffset + index * 4);
+    }
+
+    /**
+     * Returns the name of a body.
+     *
+     * @param index index of the body.
+     * @return the name.
+     */
+    public String getName(int index) {
+        int start = buffer.getInt(nameOffsetsOffset + index * 4);
+        int end = buffer.getInt(nameOffsetsOffset + index * 4 + 4);
+
+        byte[] bytes = new byte[end - start];
+
+        ByteBuffer name = buffer.duplicate();
+        name.position(namesOffset + start);
+        name.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the mass of a body.
+     *
+     * @param index index of the body.
+     * @return the mass in kg.
+     */
+    public double getMass(int index) {
+        return buffer.getDouble(massesOffset + index * 8);
+    }
+
+    /**
+     * Returns the radius of a body.
+     *
+     * @param index index of the body.
+     * @return the radius in meters.
+     */
+    public double getRadius(int index) {
+        return buffer.getDouble(radiiOffset + index * 8);
+    }
+
+    /**
+     * Returns an orbital element of a body.
+     *
+     * @param index   index of the body.
+     * @param element index of the element, in the order of the {@link Orbit} constructor, from zero for the semi-major axis.
+     * @return the value of the element.
+     */
+    public double getElement(int index, int element) {
+        return buffer.getDouble(elementsOffset + (index * ELEMENTS + element) * 8);
+    }
+    //endregion Getters
+
+    /**
+     * Creates a body, attaching it to its parent.
+     *
+     * @param index  index of the body.
+     * @param parent the parent body, or {@code null} for the root.
+     * @return the new body, without children.
+     */
+    public CelestialBody createBody(int index, CelestialBody parent) {
+        if (parent == null)
+            return new CelestialBody(getName(index), getMass(index), getRadius(index));
+
+        Orbit orbit = new Orbit(parent,
+                getElement(index, 0), getElement(index, 1), getElement(index, 2),
+                getElement(index, 3), getElement(index, 4), getElement(index, 5));
+
+        return new CelestialBody(getName(index), getMass(index), getRadius(index), orbit);
+    }
+
+    /**
+     * Creates all the bodies of the system.
+     *
+     * @return the system.
+     * @throws IOException if the file is corrupt.
+     */
+    public Astrarium toAstrarium() throws IOException {
+        index();
+
+        CelestialBody[] bodies = new CelestialBody[count];
+
+        for (int i = 0; i < count; i++) {
+            int parent = getParent(i);
+
+            bodies[i] = createBody(i, parent < 0 ? null : bodies[parent]);
+        }
+
+        return new Astrarium(bodies[0]);
+    }
+
+    /**
+     * Creates the root and the bodies orbiting it, leaving their subtrees to be loaded on demand.
+     * <p>
+     * The bodies that have children get a {@link CelestialBody.ChildrenLoader} reading them from this buffer,
+     * which must therefore stay valid as long as the system is used.
+     *
+     * @return the system.
+     * @throws IOException if the file is corrupt.
+     * @see CelestialBody#loadChildren()
+     */
+    public Astrarium toLazyAstrarium() throws IOException {
+        index();
+
+        CelestialBody root = createBody(0, null);
+
+        attachLoader(0, root);
+        root.loadChildren();
+
+        return new Astrarium(root);
+    }
+
+    /**
+     * Checks the file, then computes the range of each subtree and the extent of the children of each body,
+     * in a single pass. It is done once, when the bodies are first created rather than when the file is opened.
+     *
+     * @throws IOException if the file is corrupt.
+     */
+    private synchronized void index() throws IOException {
+        if (subtreeEnds != null)
+            return;
+
+        validate();
+
+        int[] ends = new int[count];
+        double[] extents = new double[count];
+
+        // The children come after their parent, so going backwards every subtree is complete when its parent is reached
+        for (int i = count - 1; i >= 0; i--) {
+            ends[i] = Math.max(ends[i], i + 1);
+
+            int parent = getParent(i);
+
+            if (parent >= 0) {
+                ends[parent] = Math.max(ends[parent], ends[i]);
+                extents[parent] = Math.max(extents[parent], getElement(i, 0) * (1 + getElement(i, 1)));
+            }
+        }
+
+        this.extents = extents;
+        this.subtreeEnds = ends;
+    }
+
+    /**
+     * Gives a body the loader of its children, if it has any.
+     *
+     * @param index index of the body.
+     * @param body  the body.
+     */
+    private void attachLoader(int index, CelestialBody body) {
+        if (subtreeEnds[index] > index + 1)
+            body.setChildrenLoader(new SubtreeLoader(index));
+    }
+
+    /**
+     * Loads the direct children of a body from the buffer.
+     */
+    private class SubtreeLoader implements CelestialBody.ChildrenLoader {
+        /**
+         * Index of the parent body.
+         */
+        private final int index;
+
+        /**
+         * Creates a loader for the children of a body.
+         *
+         * @param index index of the parent body.
+         */
+        SubtreeLoader(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void load(CelestialBody parent) {
+            // The direct children are the first body after the parent, then the first one after each subtree
+            for (int child = index + 1; child < subtreeEnds[index]; child = subtreeEnds[child])
+                attachLoader(child, createBody(child, parent));
+        }
+
+        @Override
+        public double getExtent() {
+            return extents[index];
+        }
+    }
+
+    //region Write
+
+    /**
+     * Saves a system to a file in the binary format.
+     * <p>
+     * The file is written section by section through a small buffer.
+     *
+     * @param file      path to the output file.
+     * @param astrarium the system to save.
+     * @param listener  the listener of the progress, counting the bodies written.
+     * @throws IOException in case of failure to write the file, or {@link java.io.InterruptedIOException} if cancelled.
+     */
+    public static void write(File file, Astrarium astrarium, ProgressListener listener) throws IOException {
+        List<CelestialBody> bodies = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+
+        flatten(astrarium.getRoot(), -1, bodies, parents);
+
+        int count = bodies.size();
+        ProgressCounter progress = new ProgressCounter(listener, count);
+
+        byte[][] names = new byte[count][];
+        int namesLength = 0;
+
+        for (int i = 0; i < count; i++) {
+            names[i] = bodies.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            namesLength += names[i].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(channel);
+
+            out.ensure(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(count).putInt(namesLength);
+
+            for (int i = 0; i < count; i++)
+                out.ensure(4).putInt(parents.get(i));
+
+            int nameOffset = 0;
+
+            for (int i = 0; i < count; i++) {
+                out.ensure(4).putInt(nameOffset);
+                nameOffset += names[i].length;
+            }
+
+            out.ensure(4).putInt(nameOffset);
+
+            int position = HEADER_SIZE + count * 4 + (count + 1) * 4;
+
+            for (int i = position; i < align(position); i++)
+                out.ensure(1).put((byte) 0);
+
+            for (CelestialBody body : bodies)
+                out.ensure(8).putDouble(body.getMass());
+
+            for (CelestialBody body : bodies)
+                out.ensure(8).putDouble(body.getRadius());
+
+            for (CelestialBody body : bodies) {
+                Orbit orbit = body.getOrbit();
+
+                if (orbit == null) {
+                    for (int k = 0; k < ELEMENTS; k++)
+                        out.ensure(8).putDouble(0);
+                } else {
+                    out.ensure(ELEMENTS * 8)
+                            .putDouble(orbit.getSemiMajorAxis())
+                            .putDouble(orbit.getEccentricity())
+                            .putDouble(orbit.getInclination())
+                            .putDouble(orbit.getLongitudeOfAscendingNode())
+                            .putDouble(orbit.getArgumentOfPeriapsis())
+                            .putDouble(orbit.getMeanAnomalyAtEpoch());
+                }
+
+                progress.add(1);
+            }
+
+            for (byte[] name : names)
+                out.write(name);
+
+            out.flush();
+        }
+    }
+
+    /**
+     * Lists a body and all its children in depth-first order.
+     *
+     * @param body    the body.
+     * @param parent  index of its parent.
+     * @param bodies  the list of the bodies to fill.
+     * @param parents the list of the indices of the parents to fill.
+     */
+    private static void flatten(CelestialBody body, int parent, List<CelestialBody> bodies, List<Integer> parents) {
+        int index = bodies.size();
+
+        body.loadChildren();
+
+        bodies.add(body);
+        parents.add(parent);
+
+        for (CelestialBody child : body.getChildren())
+            flatten(child, index, bodies, parents);
+    }
+
+    /**
+     * Rounds an offset up to a multiple of 8 bytes.
+     *
+     * @param offset the offset.
+     * @return the aligned offset.
+     */
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Writes to a channel through a fixed-size buffer.
+     */
+    private static class SectionWriter {
+        /**
+         * Size of the buffer.
+         */
+        private static final int CAPACITY = 1 << 16;
+
+        /**
+         * The destination.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The buffer.
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Creates a new writer.
+         *
+         * @param channel the destination.
+         */
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Makes room in the buffer, flushing it if needed.
+         *
+         * @param bytes number of bytes about to be written, at most the capacity.
+         * @return the buffer.
+         * @throws IOException in case of failure to write.
+         */
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+
+            return buffer;
+        }
+
+        /**
+         * Writes an array of bytes of any length.
+         *
+         * @param bytes the bytes.
+         * @throws IOException in case of failure to write.
+         */
+        void write(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                int length = Math.min(bytes.length - offset, CAPACITY);
+
+                ensure(length).put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Writes the content of the buffer to the channel.
+         *
+         * @throws IOException in case of failure to write.
+         */
+        void flush() throws IOException {
+            buffer.flip();
+
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            buffer.clear();
+        }
+    }
+    //endregion Write
+}
@@ -0,0 +1,316 @@
+package io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The encodings of a column of doubles, e.g. a coordinate of a body over time.
+ * <p>
+ * All of them are lossless, down to the bits of each value, including the not-a-number ones.
+ * Every block of values is encoded on its own, so that it can be decoded without the previous ones.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public enum ColumnCodec {
+    /**
+     * The values as they are, 8 bytes each.
+     */
+    NONE {
+        @Override
+        public void encode(double[] values, int count, ByteBuffer out) {
+            for (int i = 0; i < count; i++)
+                out.putDouble(values[i]);
+        }
+
+        @Override
+        public void decode(ByteBuffer in, double[] values, int count) {
+            for (int i = 0; i < count; i++)
+                values[i] = in.getDouble();
+        }
+    },
+
+    /**
+     * The difference between the bits of each value and the ones of the previous value, as a variable-length integer.
+     * <p>
+     * Smooth series of values with the same sign and magnitude, like slowly changing coordinates,
+     * differ only in their last bits and take a few bytes each.
+     */
+    DELTA {
+        @Override
+        public void encode(double[] values, int count, ByteBuffer out) {
+            long previous = 0;
+
+            for (int i = 0; i < count; i++) {
+                long bits = Double.doubleToRawLongBits(values[i]);
+                long delta = bits - previous;
+
+                // Zig-zag, so that small negative differences are small too
+                long zigzag = (delta << 1) ^ (delta >> 63);
+
+                while ((zigzag & ~0x7FL) != 0) {
+                    out.put((byte) ((zigzag & 0x7F) | 0x80));
+                    zigzag >>>= 7;
+                }
+
+                out.put((byte) zigzag);
+
+                previous = bits;
+            }
+        }
+
+        @Override
+        public void decode(ByteBuffer in, double[] values, int count) {
+            long previous = 0;
+
+            for (int i = 0; i < count; i++) {
+                long zigzag = 0;
+                int shift = 0;
+                byte b;
+
+                do {
+                    b = in.get();
+                    zigzag |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                values[i] = Double.longBitsToDouble(previous);
+            }
+        }
+    },
+
+    /**
+     * The exclusive or of the bits of each value with the ones of the previous value,
+     * stored without its leading and trailing zeros, as in the Gorilla time series database.
+     * <p>
+     * Repeated values take a single bit, and values close to the previous one only their differing middle bits.
+     */
+    XOR {
+        @Override
+        public void encode(double[] values, int count, ByteBuffer out) {
+            if (count == 0)
+                return;
+
+            BitWriter writer = new BitWriter(out);
+
+            long previous = Double.doubleToRawLongBits(values[0]);
+            int leading = -1, trailing = 0;
+
+            writer.write(previous, 64);
+
+            for (int i = 1; i < count; i++) {
+                long bits = Double.doubleToRawLongBits(values[i]);
+                long xor = bits ^ previous;
+
+                if (xor == 0) {
+                    writer.write(0, 1);
+                } else {
+                    int newLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                    int newTrailing = Long.numberOfTrailingZeros(xor);
+
+                    if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+                        // The meaningful bits fit in the same window as the previous value
+                        writer.write(0b10, 2);
+                        writer.write(xor >>> trailing, 64 - leading - trailing);
+                    } else {
+                        int length = 64 - newLeading - newTrailing;
+
+                        writer.write(0b11, 2);
+                        writer.write(newLeading, 5);
+                        // A length of 64 does not fit in 6 bits, and is written as 0, which cannot happen otherwise
+                        writer.write(length & 0x3F, 6);
+                        writer.write(xor >>> newTrailing, length);
+
+                        leading = newLeading;
+                        trailing = newTrailing;
+                    }
+                }
+
+                previous = bits;
+            }
+
+            writer.flush();
+        }
+
+        @Override
+        public void decode(ByteBuffer in, double[] values, int count) {
+            if (count == 0)
+                return;
+
+            BitReader reader = new BitReader(in);
+
+            long previous = reader.read(64);
+            int leading = 0, trailing = 0;
+
+            values[0] = Double.longBitsToDouble(previous);
+
+            for (int i = 1; i < count; i++) {
+                if (reader.read(1) != 0) {
+                    if (reader.read(1) != 0) {
+                        leading = (int) reader.read(5);
+                        int length = (int) reader.read(6);
+
+                        if (length == 0)
+                            length = 64;
+
+                        trailing = 64 - leading - length;
+                    }
+
+                    previous ^= reader.read(64 - leading - trailing) << trailing;
+                }
+
+                values[i] = Double.longBitsToDouble(previous);
+            }
+        }
+    };
+
+    /**
+     * Encodes a block of values.
+     *
+     * @param values the values.
+     * @param count  the number of values to encode, from the first.
+     * @param out    the destination, with at least {@link #getMaximumSize(int)} bytes remaining.
+     */
+    public abstract void encode(double[] values, int count, ByteBuffer out);
+
+    /**
+     * Decodes a block of values.
+     *
+     * @param in     the source, positioned at the start of the block.
+     * @param values the array to fill.
+     * @param count  the number of values in the block.
+     */
+    public abstract void decode(ByteBuffer in, double[] values, int count);
+
+    /**
+     * Returns the largest size of a block of values, whatever the values.
+     *
+     * @param count the number of values.
+     * @return the size in bytes.
+     */
+    public static int getMaximumSize(int count) {
+        // A variable-length integer takes up to 10 bytes, and a value changing the window of XOR up to 77 bits
+        return count * 10 + 8;
+    }
+
+    /**
+     * Writes bits to a buffer, from the most significant.
+     */
+    private static final class BitWriter {
+        /**
+         * The destination.
+         */
+        private final ByteBuffer out;
+
+        /**
+         * The bits not written yet, in the lowest {@link #size} bits.
+         */
+        private long pending = 0;
+
+        /**
+         * The number of bits not written yet, always less than 8 between calls.
+         */
+        private int size = 0;
+
+        /**
+         * Creates a writer.
+         *
+         * @param out the destination.
+         */
+        BitWriter(ByteBuffer out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes the lowest bits of a value.
+         *
+         * @param value the value.
+         * @param bits  the number of bits, up to 64.
+         */
+        void write(long value, int bits) {
+            if (bits > 32) {
+                write(value >>> 32, bits - 32);
+                write(value, 32);
+                return;
+            }
+
+            pending = (pending << bits) | (value & mask(bits));
+            size += bits;
+
+            while (size >= 8) {
+                size -= 8;
+                out.put((byte) (pending >>> size));
+            }
+        }
+
+        /**
+         * Writes the last bits, padded with zeros to a whole byte.
+         */
+        void flush() {
+            if (size > 0)
+                out.put((byte) (pending << (8 - size)));
+
+            size = 0;
+        }
+    }
+
+    /**
+     * Reads bits from a buffer, from the most significant.
+     */
+    private static final class BitReader {
+        /**
+         * The source.
+         */
+        private final ByteBuffer in;
+
+        /**
+         * The bits read from the buffer and not returned yet, in the lowest {@link #size} bits.
+         */
+        private long pending = 0;
+
+        /**
+         * The number of bits read and not returned yet.
+         */
+        private int size = 0;
+
+        /**
+         * Creates a reader.
+         *
+         * @param in the source.
+         */
+        BitReader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads a value.
+         *
+         * @param bits the number of bits, up to 64.
+         * @return the value.
+         */
+        long read(int bits) {
+            if (bits > 32) {
+                long high = read(bits - 32);
+                return (high << 32) | read(32);
+            }
+
+            while (size < bits) {
+                pending = (pending << 8) | (in.get() & 0xFF);
+                size += 8;
+            }
+
+            size -= bits;
+
+            return (pending >>> size) & mask(bits);
+        }
+    }
+
+    /**
+     * Returns a mask of the lowest bits.
+     *
+     * @param bits the number of bits, up to 64.
+     * @return the mask.
+     */
+    private static long mask(int bits) {
+        return bits == 64 ? -1L : (1L << bits) - 1;
+    }
+}
@@ -0,0 +1,314 @@
+package io;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Exports the positions of some bodies over a time range to a column-oriented file, see {@link EphemerisFile},
+ * for tools scanning a few coordinates over long spans of time.
+ * <p>
+ * The export is pipelined: the positions of each chunk of samples are computed by worker threads
+ * with {@link Astrarium#query(List, long[])}, which shares the ancestors and starts every solution of Kepler's equation
+ * from the previous sample, while the calling thread encodes the chunks already computed and writes them, in order.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class EphemerisExporter {
+    /**
+     * The bodies to export.
+     */
+    private final List<CelestialBody> bodies;
+
+    /**
+     * The system of the bodies, queried for their positions.
+     */
+    private final Astrarium astrarium;
+
+    /**
+     * The encoding of the columns.
+     */
+    private ColumnCodec codec = ColumnCodec.XOR;
+
+    /**
+     * Number of samples in each chunk.
+     */
+    private int chunkSize = 4096;
+
+    /**
+     * Number of worker threads.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates an exporter.
+     *
+     * @param bodies the bodies to export, all of the same system, whose positions are taken from its root.
+     */
+    public EphemerisExporter(List<CelestialBody> bodies) {
+        if (bodies.isEmpty())
+            throw new IllegalArgumentException("At least a body is needed.");
+
+        this.bodies = new ArrayList<>(bodies);
+
+        CelestialBody root = bodies.get(0);
+
+        while (root.getParent() != null)
+            root = root.getParent();
+
+        this.astrarium = new Astrarium(root);
+    }
+
+    //region Setters
+
+    /**
+     * Sets the encoding of the columns.
+     *
+     * @param codec the encoding.
+     */
+    public void setCodec(ColumnCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Sets the number of samples in each chunk, the unit of work of the threads and of the readers.
+     *
+     * @param chunkSize the number of samples, at least one.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("The chunk size must be greater than zero.");
+
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param threads number of threads, at least one.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("At least a thread is needed.");
+
+        this.threads = threads;
+    }
+    //endregion Setters
+
+    /**
+     * Exports the positions from {@code start} to {@code end}, both included, every {@code step} milliseconds.
+     *
+     * @param file  the output file.
+     * @param start time of the first sample in milliseconds.
+     * @param end   time of the last sample in milliseconds.
+     * @param step  time between two samples in milliseconds.
+     * @return the number of samples exported.
+     * @throws IOException in case of failure to write, or {@link InterruptedIOException} if interrupted.
+     */
+    public long export(File file, long start, long end, long step) throws IOException {
+        if (step <= 0)
+            throw new IllegalArgumentException("The step must be greater than zero.");
+        if (end < start)
+            throw new IllegalArgumentException("The end must not be before the start.");
+
+        final long samples = (end - start) / step + 1;
+        final int chunks = (int) ((samples + chunkSize - 1) / chunkSize);
+        final int columns = bodies.size() * 3;
+
+        long[] offsets = new long[chunks * columns];
+        int[] lengths = new int[chunks * columns];
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, header(start, step, samples));
+
+            ByteBuffer block = ByteBuffer.allocate(ColumnCodec.getMaximumSize(chunkSize)).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Enough chunks in flight to keep the workers busy while one is written, but not the whole export
+            ArrayDeque<Future<double[][]>> pending = new ArrayDeque<>();
+            int submitted = 0;
+
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                while (submitted < chunks && pending.size() < threads * 2) {
+                    long first = (long) submitted * chunkSize;
+                    int rows = (int) Math.min(chunkSize, samples - first);
+
+                    pending.add(executor.submit(() -> propagate(start + first * step, step, rows)));
+                    submitted++;
+                }
+
+                double[][] values = pending.poll().get();
+
+                for (int column = 0; column < columns; column++) {
+                    block.clear();
+                    codec.encode(values[column], values[column].length, block);
+                    block.flip();
+
+                    offsets[chunk * columns + column] = channel.position();
+                    lengths[chunk * columns + column] = block.remaining();
+
+                    write(channel, block);
+                }
+            }
+
+            write(channel, footer(offsets, lengths, channel.position()));
+
+            return samples;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("The export has been interrupted.");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Propagation failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the positions of the bodies for a chunk of samples.
+     *
+     * @param start time of the first sample in milliseconds.
+     * @param step  time between two samples in milliseconds.
+     * @param rows  number of samples.
+     * @return the columns, x, y and z of each body in order.
+     */
+    private double[][] propagate(long start, long step, int rows) {
+        long[] times = new long[rows];
+
+        for (int row = 0; row < rows; row++)
+            times[row] = start + row * step;
+
+        double[] positions = astrarium.query(bodies, times);
+        double[][] values = new double[bodies.size() * 3][rows];
+
+        // From x, y and z time by time for each body, to a column for each coordinate
+        for (int i = 0; i < bodies.size(); i++) {
+            for (int row = 0; row < rows; row++) {
+                int offset = (i * rows + row) * 3;
+
+                values[i * 3][row] = positions[offset];
+                values[i * 3 + 1][row] = positions[offset + 1];
+                values[i * 3 + 2][row] = positions[offset + 2];
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Encodes the header of the file.
+     *
+     * @param start   time of the first sample.
+     * @param step    time between two samples.
+     * @param samples number of samples.
+     * @return the header, ready to be written.
+     */
+    private ByteBuffer header(long start, long step, long samples) {
+        byte[][] names = new byte[bodies.size()][];
+        int size = EphemerisFile.HEADER_SIZE;
+
+        for (int i = 0; i < names.length; i++) {
+            names[i] = bodies.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            size += 4 + names[i].length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(EphemerisFile.MAGIC).putShort(EphemerisFile.VERSION).putShort((short) codec.ordinal())
+                .putInt(bodies.size()).putInt(chunkSize)
+                .putLong(start).putLong(step).putLong(samples);
+
+        for (byte[] name : names)
+            header.putInt(name.length).put(name);
+
+        header.flip();
+
+        return header;
+    }
+
+    /**
+     * Encodes the index of the blocks, at the end of the file.
+     *
+     * @param offsets  offset of each block, by chunk and then by column.
+     * @param lengths  length of each block.
+     * @param position offset of the index.
+     * @return the index, ready to be written.
+     */
+    private static ByteBuffer footer(long[] offsets, int[] lengths, long position) {
+        ByteBuffer footer = ByteBuffer.allocate(offsets.length * 12 + EphemerisFile.TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < offsets.length; i++)
+            footer.putLong(offsets[i]).putInt(lengths[i]);
+
+        footer.putLong(position).putInt(EphemerisFile.MAGIC);
+        footer.flip();
+
+        return footer;
+    }
+
+    /**
+     * Writes the whole content of a buffer.
+     *
+     * @param channel the destination.
+     * @param buffer  the buffer.
+     * @throws IOException in case of failure to write.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Exports an ephemeris from the command line.
+     * <p>
+     * Usage: {@code EphemerisExporter <system file> <output file> <start ms> <end ms> <step ms> [NONE|DELTA|XOR] [body...]}
+     * <p>
+     * Without a list of bodies, all the bodies of the system are exported.
+     *
+     * @param args command line arguments.
+     * @throws Exception in case of failure.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: EphemerisExporter <system file> <output file> <start ms> <end ms> <step ms> [NONE|DELTA|XOR] [body...]");
+            System.exit(1);
+        }
+
+        Astrarium astrarium = JsonHub.importAstrarium(new File(args[0]));
+
+        List<CelestialBody> bodies = new ArrayList<>();
+
+        if (args.length > 6) {
+            for (CelestialBody body : astrarium.getRoot().getAllChildren())
+                for (int i = 6; i < args.length; i++)
+                    if (body.getName().equals(args[i]))
+                        bodies.add(body);
+        } else {
+            bodies.addAll(astrarium.getRoot().getAllChildren());
+        }
+
+        EphemerisExporter exporter = new EphemerisExporter(bodies);
+
+        if (args.length > 5)
+            exporter.setCodec(ColumnCodec.valueOf(args[5]));
+
+        long begin = System.nanoTime();
+        long samples = exporter.export(new File(args[1]), Long.parseLong(args[2]), Long.parseLong(args[3]), Long.parseLong(args[4]));
+
+        System.out.printf("Exported %d samples of %d bodies in %.1f s.%n", samples, bodies.size(), (System.nanoTime() - begin) / 1e9);
+    }
+}
@@ -0,0 +1,236 @@
+package io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A column-oriented file of the positions of some bodies over time, written by {@link EphemerisExporter}.
+ * <p>
+ * The samples are split in chunks, and each chunk stores a block for each coordinate of each body,
+ * encoded with a {@link ColumnCodec}. An index at the end gives the position of every block,
+ * so a reader can decode only the columns it needs.
+ * <p>
+ * The layout, in little-endian order, is:
+ * <ol>
+ * <li>the header: magic, version, codec, number of bodies, chunk size, start, step and number of samples;</li>
+ * <li>the name of each body, as a length and UTF-8 bytes;</li>
+ * <li>the blocks, by chunk and then by column, x, y and z of each body in order;</li>
+ * <li>the index: the offset and the length of each block, in the same order;</li>
+ * <li>the trailer: the offset of the index and the magic again.</li>
+ * </ol>
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class EphemerisFile {
+    /**
+     * The first bytes of every file, "ASTE" in ASCII.
+     */
+    public static final int MAGIC = 0x45545341;
+
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Size of the fixed part of the header.
+     */
+    static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 4 + 8 + 8 + 8;
+
+    /**
+     * Size of the trailer.
+     */
+    static final int TRAILER_SIZE = 8 + 4;
+
+    /**
+     * The content of the file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The encoding of the blocks.
+     */
+    private final ColumnCodec codec;
+
+    /**
+     * The names of the bodies.
+     */
+    private final String[] names;
+
+    /**
+     * Number of samples in each chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * Time of the first sample in milliseconds.
+     */
+    private final long start;
+
+    /**
+     * Time between two samples in milliseconds.
+     */
+    private final long step;
+
+    /**
+     * Number of samples.
+     */
+    private final long samples;
+
+    /**
+     * Offset of the index.
+     */
+    private final int index;
+
+    /**
+     * Reads the header of a file.
+     *
+     * @param buffer the content of the file.
+     * @throws IOException if the file is not valid.
+     */
+    private EphemerisFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.limit() < HEADER_SIZE + TRAILER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(buffer.limit() - 4) != MAGIC)
+            throw new IOException("Not an ephemeris file.");
+
+        if (buffer.getShort(4) != VERSION)
+            throw new IOException("Unsupported ephemeris version " + buffer.getShort(4) + ".");
+
+        codec = ColumnCodec.values()[buffer.getShort(6)];
+        names = new String[buffer.getInt(8)];
+        chunkSize = buffer.getInt(12);
+        start = buffer.getLong(16);
+        step = buffer.getLong(24);
+        samples = buffer.getLong(32);
+        index = (int) buffer.getLong(buffer.limit() - TRAILER_SIZE);
+
+        int position = HEADER_SIZE;
+
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = new byte[buffer.getInt(position)];
+
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + 4);
+            view.get(name);
+
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            position += 4 + name.length;
+        }
+    }
+
+    /**
+     * Maps a file in memory.
+     *
+     * @param file path to the file.
+     * @return the file.
+     * @throws IOException in case of failure to read the file, or if it is not valid.
+     */
+    public static EphemerisFile map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Ephemeris files larger than 2 GiB cannot be mapped, export them in parts.");
+
+            return new EphemerisFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    //region Getters
+
+    /**
+     * Returns the number of bodies.
+     *
+     * @return the number of bodies.
+     */
+    public int getBodyCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of a body.
+     *
+     * @param body index of the body.
+     * @return the name.
+     */
+    public String getName(int body) {
+        return names[body];
+    }
+
+    /**
+     * Returns the encoding of the columns.
+     *
+     * @return the codec.
+     */
+    public ColumnCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Returns the time of the first sample.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the time between two samples.
+     *
+     * @return the step in milliseconds.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return the number of samples.
+     */
+    public long getSampleCount() {
+        return samples;
+    }
+    //endregion Getters
+
+    /**
+     * Decodes all the samples of a coordinate of a body.
+     *
+     * @param body index of the body.
+     * @param axis the coordinate, 0 for x, 1 for y and 2 for z.
+     * @return the values in meters.
+     */
+    public double[] readColumn(int body, int axis) {
+        if (samples > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many samples to read in a single array.");
+
+        double[] values = new double[(int) samples];
+        double[] chunk = new double[chunkSize];
+
+        int columns = names.length * 3;
+        int column = body * 3 + axis;
+
+        for (int i = 0; i * (long) chunkSize < samples; i++) {
+            int rows = (int) Math.min(chunkSize, samples - i * (long) chunkSize);
+            int entry = index + (i * columns + column) * 12;
+
+            ByteBuffer block = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            block.position((int) buffer.getLong(entry));
+
+            codec.decode(block, chunk, rows);
+
+            System.arraycopy(chunk, 0, values, i * chunkSize, rows);
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,582 @@
+package io;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the edits made to a saved system, so that saving costs as much as the changes
+ * instead of the whole system.
+ * <p>
+ * The journal is stored next to the save file, called the base, with the {@link #EXTENSION}.
+ * Loading the base and replaying the journal gives the system as it was last saved.
+ * When the journal grows too much, it is compacted: the base is rewritten with the edits applied, and the journal emptied.
+ * <p>
+ * The edits are recorded in memory, then written by {@link #commit()} on a background thread,
+ * which syncs the file to disk once for all the commits waiting, and also performs the compaction.
+ * <p>
+ * A body is identified by the indices of its ancestors among their siblings, starting from the root,
+ * since names do not need to be unique.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Journal implements Closeable {
+    /**
+     * The extension added to the name of the base.
+     */
+    public static final String EXTENSION = ".journal";
+
+    /**
+     * The first bytes of every journal, "ASTJ" in ASCII.
+     */
+    public static final int MAGIC = 0x4A545341;
+
+    /**
+     * The version of the format written.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The minimum size in bytes of a journal before it is compacted.
+     */
+    public static final long MINIMUM_COMPACTION_SIZE = 1 << 20;
+
+    /**
+     * Size of the header: magic, version, and the length and modification time of the base.
+     */
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8;
+
+    //region Operations
+    /**
+     * A body has been added.
+     */
+    private static final byte ADD = 1;
+    /**
+     * The orbit of a body has been changed.
+     */
+    private static final byte SET_ORBIT = 2;
+    /**
+     * A body has been removed.
+     */
+    private static final byte REMOVE = 3;
+    //endregion Operations
+
+    /**
+     * The save file the journal applies to.
+     */
+    private final File base;
+
+    /**
+     * The journal file.
+     */
+    private final File file;
+
+    /**
+     * The edits recorded since the last commit. Used only by the thread making the edits.
+     */
+    private final List<byte[]> pending = new ArrayList<>();
+
+    /**
+     * The edits committed but not written yet.
+     */
+    private final Queue<byte[]> committed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The thread writing to the journal. It stops when idle, so that it does not keep the program running.
+     */
+    private final ExecutorService writer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "Astrarium journal"));
+
+    /**
+     * The open journal file. Used only by the writer.
+     */
+    private FileChannel channel;
+
+    /**
+     * Creates a journal, opening its file.
+     *
+     * @param base the save file.
+     * @throws IOException in case of failure to open the journal.
+     */
+    private Journal(File base) throws IOException {
+        this.base = base;
+        this.file = getFile(base);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Returns the journal file of a save file.
+     *
+     * @param base the save file.
+     * @return the journal file.
+     */
+    public static File getFile(File base) {
+        return new File(base.getPath() + EXTENSION);
+    }
+
+    /**
+     * Opens the journal of a save file just loaded, and applies its edits to the system.
+     * <p>
+     * A journal that does not match the current content of the base, e.g. because it has been compacted since,
+     * is discarded. A record left incomplete by a crash is discarded as well, with the ones following it.
+     *
+     * @param base      the save file.
+     * @param astrarium the system loaded from the base.
+     * @return the journal, ready to record new edits.
+     * @throws IOException in case of failure to read the journal.
+     */
+    public static Journal open(File base, Astrarium astrarium) throws IOException {
+        Journal journal = new Journal(base);
+
+        try {
+            journal.replay(astrarium);
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+
+        return journal;
+    }
+
+    /**
+     * Creates an empty journal for a save file just written, discarding any previous one.
+     *
+     * @param base the save file.
+     * @return the journal.
+     * @throws IOException in case of failure to write the journal.
+     */
+    public static Journal create(File base) throws IOException {
+        Journal journal = new Journal(base);
+
+        journal.reset();
+
+        return journal;
+    }
+
+    /**
+     * Returns the save file the journal applies to.
+     *
+     * @return the base.
+     */
+    public File getBase() {
+        return base;
+    }
+
+    /**
+     * Returns whether there are edits not committed yet.
+     *
+     * @return true if there are changes to save.
+     */
+    public boolean hasPendingEdits() {
+        return !pending.isEmpty();
+    }
+
+    //region Record
+
+    /**
+     * Records that a body has been added to the system.
+     *
+     * @param body the new body, already attached to its parent.
+     */
+    public void added(CelestialBody body) {
+        //noinspection ConstantConditions
+        Orbit orbit = body.getOrbit();
+
+        pending.add(record(out -> {
+            out.writeByte(ADD);
+            writePath(out, body.getParent());
+            out.writeUTF(body.getName());
+            out.writeDouble(body.getMass());
+            out.writeDouble(body.getRadius());
+            writeOrbit(out, orbit);
+        }));
+    }
+
+    /**
+     * Changes the orbit of a body and records the edit.
+     *
+     * @param body  the body.
+     * @param orbit the new orbit.
+     */
+    public void setOrbit(CelestialBody body, Orbit orbit) {
+        pending.add(record(out -> {
+            out.writeByte(SET_ORBIT);
+            writePath(out, body);
+            writePath(out, orbit.getParent());
+            writeOrbit(out, orbit);
+        }));
+
+        body.setOrbit(orbit);
+    }
+
+    /**
+     * Removes a body from the system and records the edit.
+     *
+     * @param body the body.
+     */
+    public void remove(CelestialBody body) {
+        pending.add(record(out -> {
+            out.writeByte(REMOVE);
+            writePath(out, body);
+        }));
+
+        body.remove();
+    }
+    //endregion Record
+
+    /**
+     * Writes the edits recorded so far to the journal, in background.
+     * <p>
+     * The journal is synced to disk once for all the commits waiting, and compacted if it has grown too much.
+     *
+     * @return a future completed when the edits are on disk.
+     */
+    public CompletableFuture<Void> commit() {
+        committed.addAll(pending);
+        pending.clear();
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                flush();
+
+                if (channel.size() > Math.max(MINIMUM_COMPACTION_SIZE, base.length() / 4))
+                    compact();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer);
+    }
+
+    /**
+     * Discards the edits not committed and closes the journal, once the commits waiting have been written.
+     * <p>
+     * Closing a journal more than once has no effect.
+     */
+    @Override
+    public void close() {
+        pending.clear();
+
+        if (writer.isShutdown())
+            return;
+
+        writer.execute(() -> {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to save
+            }
+        });
+
+        writer.shutdown();
+    }
+
+    //region Writer
+
+    /**
+     * Appends all the committed edits and syncs the file to disk.
+     *
+     * @throws IOException in case of failure to write.
+     */
+    private void flush() throws IOException {
+        if (committed.isEmpty())
+            return;
+
+        channel.position(channel.size());
+
+        for (byte[] record = committed.poll(); record != null; record = committed.poll())
+            write(ByteBuffer.wrap(record));
+
+        channel.force(false);
+    }
+
+    /**
+     * Rewrites the base with the edits applied and empties the journal.
+     * <p>
+     * The new base replaces the old one only once complete, see {@link JsonHub#export(File, Astrarium)},
+     * so that a crash leaves either the old base with its journal, or the new base.
+     * It is written in the format the old one was read in, whatever its extension.
+     *
+     * @throws IOException in case of failure to write.
+     */
+    private void compact() throws IOException {
+        boolean binary = BinarySystem.isBinary(base);
+        Astrarium astrarium = JsonHub.importAstrarium(base);
+
+        replay(astrarium);
+
+        JsonHub.export(base, astrarium, binary, ProgressListener.NONE);
+
+        // If a crash happens here, the header no longer matches the base and the journal will be discarded
+        reset();
+    }
+
+    /**
+     * Empties the journal and writes the header for the current base.
+     *
+     * @throws IOException in case of failure to write.
+     */
+    private void reset() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(MAGIC).putShort(VERSION).putLong(base.length()).putLong(base.lastModified());
+        header.flip();
+
+        channel.truncate(0);
+        channel.position(0);
+        write(header);
+        channel.force(false);
+    }
+
+    /**
+     * Writes the whole content of a buffer at the current position.
+     *
+     * @param buffer the buffer.
+     * @throws IOException in case of failure to write.
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+    //endregion Writer
+
+    //region Replay
+
+    /**
+     * Applies the edits in the journal to a system loaded from the base.
+     * <p>
+     * If the journal does not match the base, it is reset instead.
+     *
+     * @param astrarium the system.
+     * @throws IOException in case of failure to read the journal.
+     */
+    private void replay(Astrarium astrarium) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        channel.position(0);
+
+        while (header.hasRemaining() && channel.read(header) >= 0) ;
+
+        header.flip();
+
+        if (header.remaining() < HEADER_SIZE
+                || header.getInt() != MAGIC
+                || header.getShort() != VERSION
+                || header.getLong() != base.length()
+                || header.getLong() != base.lastModified()) {
+            reset();
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+        long size = channel.size();
+        long valid = HEADER_SIZE;
+
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            in.skip(HEADER_SIZE);
+
+            while (true) {
+                int length;
+
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                long checksum = in.readInt() & 0xFFFFFFFFL;
+
+                // A torn length may be anything, so it is checked against the bytes left before allocating
+                if (length < 0 || length > size - valid - 8)
+                    break;
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+
+                if (crc.getValue() != checksum)
+                    break;
+
+                apply(astrarium, new DataInputStream(new ByteArrayInputStream(payload)));
+
+                valid += 8 + length;
+            }
+        } catch (EOFException e) {
+            // An incomplete record at the end, left by a crash
+        } finally {
+            in.close();
+        }
+
+        if (valid < size)
+            channel.truncate(valid);
+    }
+
+    /**
+     * Applies a single edit to a system.
+     *
+     * @param astrarium the system.
+     * @param in        the content of the record.
+     * @throws IOException in case of a malformed record.
+     */
+    private static void apply(Astrarium astrarium, DataInputStream in) throws IOException {
+        byte operation = in.readByte();
+
+        switch (operation) {
+            case ADD: {
+                CelestialBody parent = readPath(in, astrarium);
+                String name = in.readUTF();
+                double mass = in.readDouble();
+                double radius = in.readDouble();
+
+                new CelestialBody(name, mass, radius, readOrbit(in, parent));
+                break;
+            }
+            case SET_ORBIT: {
+                CelestialBody body = readPath(in, astrarium);
+                CelestialBody parent = readPath(in, astrarium);
+
+                body.setOrbit(readOrbit(in, parent));
+                break;
+            }
+            case REMOVE:
+                readPath(in, astrarium).remove();
+                break;
+            default:
+                throw new IOException("Unknown journal operation " + operation + ".");
+        }
+    }
+    //endregion Replay
+
+    //region Encoding
+
+    /**
+     * Encodes a record, prefixed by its length and checksum.
+     *
+     * @param content the function writing the content.
+     * @return the record.
+     */
+    private static byte[] record(RecordContent content) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+            content.write(new DataOutputStream(payload));
+
+            CRC32 crc = new CRC32();
+            crc.update(payload.toByteArray());
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream(payload.size() + 8);
+            DataOutputStream out = new DataOutputStream(record);
+
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+
+            return record.toByteArray();
+        } catch (IOException e) {
+            // Byte arrays never fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the path from the root to a body.
+     *
+     * @param out  the destination.
+     * @param body the body.
+     * @throws IOException in case of failure to write.
+     */
+    private static void writePath(DataOutputStream out, CelestialBody body) throws IOException {
+        List<Integer> path = new ArrayList<>();
+
+        for (CelestialBody parent = body.getParent(); parent != null; body = parent, parent = body.getParent())
+            path.add(0, parent.getChildren().indexOf(body));
+
+        out.writeInt(path.size());
+
+        for (int index : path)
+            out.writeInt(index);
+    }
+
+    /**
+     * Reads a path and returns the body it leads to.
+     *
+     * @param in        the source.
+     * @param astrarium the system.
+     * @return the body.
+     * @throws IOException in case of failure to read, or if the body does not exist.
+     */
+    private static CelestialBody readPath(DataInputStream in, Astrarium astrarium) throws IOException {
+        CelestialBody body = astrarium.getRoot();
+
+        for (int depth = in.readInt(); depth > 0; depth--) {
+            int index = in.readInt();
+
+            body.loadChildren();
+
+            if (index < 0 || index >= body.getChildren().size())
+                throw new IOException("The journal does not match the system.");
+
+            body = body.getChildren().get(index);
+        }
+
+        return body;
+    }
+
+    /**
+     * Writes the elements of an orbit.
+     *
+     * @param out   the destination.
+     * @param orbit the orbit.
+     * @throws IOException in case of failure to write.
+     */
+    private static void writeOrbit(DataOutputStream out, Orbit orbit) throws IOException {
+        out.writeDouble(orbit.getSemiMajorAxis());
+        out.writeDouble(orbit.getEccentricity());
+        out.writeDouble(orbit.getInclination());
+        out.writeDouble(orbit.getLongitudeOfAscendingNode());
+        out.writeDouble(orbit.getArgumentOfPeriapsis());
+        out.writeDouble(orbit.getMeanAnomalyAtEpoch());
+    }
+
+    /**
+     * Reads the elements of an orbit.
+     *
+     * @param in     the source.
+     * @param parent the reference body.
+     * @return the orbit.
+     * @throws IOException in case of failure to read.
+     */
+    private static Orbit readOrbit(DataInputStream in, CelestialBody parent) throws IOException {
+        return new Orbit(parent,
+                in.readDouble(), in.readDouble(), in.readDouble(),
+                in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    /**
+     * Writes the content of a record.
+     */
+    @FunctionalInterface
+    private interface RecordContent {
+        /**
+         * Writes the content.
+         *
+         * @param out the destination.
+         * @throws IOException in case of failure to write.
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+    //endregion Encoding
+}
@@ -3,18 +3,34 @@ package io;
 import astrarium.Astrarium;
 import astrarium.CelestialBody;
 import astrarium.Orbit;
+import astrarium.SystemGenerator;
+import astrarium.diagnostics.FileReadEvent;
+import astrarium.diagnostics.FileWriteEvent;
+import astrarium.diagnostics.RuntimeMetrics;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
 import java.io.*;
 import java.lang.reflect.Type;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
 
 /**
  * A static class for loading the save format from the filesystem.
  * <p>
+ * The documents are read and written incrementally with {@link JsonReader} and {@link JsonWriter},
+ * so that large systems do not need a copy of the whole document in memory.
+ * <p>
  * Created on 17/02/2017.
  *
  * @author Vittorio
@@ -22,16 +38,17 @@ import java.nio.file.Paths;
 public abstract class JsonHub {
 
     /**
-     * Returns a {@link Gson} object with the default class registered.
-     *
-     * @return a pre-registered gson object.
+     * Indentation of the exported documents.
      */
-    private static Gson getRegisteredGson() {
-        return new GsonBuilder()
-                .registerTypeAdapter(CelestialBody.class, new CelestialBodySerializer())
-                .setPrettyPrinting()
-                .create();
-    }
+    private static final String INDENT = "  ";
+
+    /**
+     * The keys of the parameters of an {@link Orbit}, in the order of its constructor.
+     */
+    private static final List<String> ORBIT_KEYS = Arrays.asList("semiMajorAxis", "eccentricity", "inclination",
+            "longitudeOfAscendingNode", "argumentOfPeriapsis", "meanAnomalyAtEpoch");
+
+    //region Export
 
     /**
      * Serialises a {@link CelestialBody} to JSON format.
@@ -40,12 +57,18 @@ public abstract class JsonHub {
      * @return serialised string.
      */
     public static String exportJson(CelestialBody celestialBody) {
-        Gson gson = getRegisteredGson();
-
-        Type type = new TypeToken<CelestialBody>() {
-        }.getType();
+        StringWriter writer = new StringWriter();
+
+        try {
+            JsonWriter jsonWriter = newJsonWriter(writer);
+            writeCelestialBody(jsonWriter, celestialBody, ProgressCounter.none());
+            jsonWriter.flush();
+        } catch (IOException e) {
+            // A StringWriter never fails
+            throw new UncheckedIOException(e);
+        }
 
-        return gson.toJson(celestialBody, type);
+        return writer.toString();
     }
 
     /**
@@ -55,12 +78,16 @@ public abstract class JsonHub {
      * @return serialised string.
      */
     public static String exportJson(Astrarium astrarium) {
-        Gson gson = getRegisteredGson();
+        StringWriter writer = new StringWriter();
 
-        Type type = new TypeToken<Astrarium>() {
-        }.getType();
+        try {
+            exportJson(writer, astrarium);
+        } catch (IOException e) {
+            // A StringWriter never fails
+            throw new UncheckedIOException(e);
+        }
 
-        return gson.toJson(astrarium, type);
+        return writer.toString();
     }
 
     /**
@@ -71,9 +98,17 @@ public abstract class JsonHub {
      * @throws IOException in case of failure to save the file.
      */
     public static void exportJson(File file, CelestialBody celestialBody) throws IOException {
-        String string = exportJson(celestialBody);
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
 
-        Files.write(file.toPath(), string.getBytes());
+        // Loaded before opening the file, which could be the source of the lazy bodies
+        celestialBody.loadAll();
+
+        try (JsonWriter jsonWriter = newJsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writeCelestialBody(jsonWriter, celestialBody, ProgressCounter.none());
+        }
+
+        commit(event, file, false, celestialBody::countBodies);
     }
 
     /**
@@ -84,11 +119,99 @@ public abstract class JsonHub {
      * @throws IOException in case of failure to save the file.
      */
     public static void exportJson(File file, Astrarium astrarium) throws IOException {
-        String string = exportJson(astrarium);
+        exportJson(file, astrarium, ProgressListener.NONE);
+    }
+
+    /**
+     * Serialises an {@link Astrarium} and saves the content to {@code file}, reporting the bodies written.
+     *
+     * @param file      path to the output file.
+     * @param astrarium to serialise.
+     * @param listener  the listener of the progress.
+     * @throws IOException in case of failure to save the file, or {@link InterruptedIOException} if cancelled.
+     */
+    public static void exportJson(File file, Astrarium astrarium, ProgressListener listener) throws IOException {
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
+
+        writeJson(file, astrarium, listener);
 
-        Files.write(file.toPath(), string.getBytes());
+        commit(event, file, false, astrarium.getRoot()::countBodies);
     }
 
+    /**
+     * Serialises an {@link Astrarium} to {@code file}, without recording the event of the public entry points.
+     *
+     * @param file      path to the output file.
+     * @param astrarium to serialise.
+     * @param listener  the listener of the progress.
+     * @throws IOException in case of failure to save the file, or {@link InterruptedIOException} if cancelled.
+     */
+    private static void writeJson(File file, Astrarium astrarium, ProgressListener listener) throws IOException {
+        // Loaded before opening the file, which could be the source of the lazy bodies
+        astrarium.getRoot().loadAll();
+
+        ProgressCounter progress = new ProgressCounter(listener, astrarium.getRoot().countBodies());
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writeAstrarium(writer, astrarium, progress);
+        }
+    }
+
+    /**
+     * Serialises an {@link Astrarium} to the given {@code writer}, one body at a time.
+     * <p>
+     * The writer is flushed, but not closed.
+     *
+     * @param writer    the destination.
+     * @param astrarium to serialise.
+     * @throws IOException in case of failure to write.
+     */
+    public static void exportJson(Writer writer, Astrarium astrarium) throws IOException {
+        writeAstrarium(writer, astrarium, ProgressCounter.none());
+    }
+
+    /**
+     * Writes a synthetic system to {@code file} one body at a time as it is generated,
+     * so that the size of the system is not limited by the memory.
+     *
+     * @param file      path to the output file.
+     * @param generator the generator of the system.
+     * @param listener  the listener of the progress.
+     * @throws IOException in case of failure to save the file, or {@link InterruptedIOException} if cancelled.
+     */
+    public static void exportJson(File file, SystemGenerator generator, ProgressListener listener) throws IOException {
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
+
+        ProgressCounter progress = new ProgressCounter(listener, generator.getBodyCount());
+
+        try (JsonWriter writer = newJsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("root");
+
+            generator.visit(new SystemGenerator.Visitor() {
+                @Override
+                public void enter(String name, double mass, double radius, double[] elements) throws IOException {
+                    beginCelestialBody(writer, name, mass, radius, elements);
+                }
+
+                @Override
+                public void exit() throws IOException {
+                    endCelestialBody(writer);
+                    progress.add(1);
+                }
+            });
+
+            writer.endObject();
+        }
+
+        commit(event, file, false, generator::getBodyCount);
+    }
+    //endregion Export
+
+    //region Import
+
     /**
      * Attempts to deserialize a {@code file} into a {@link CelestialBody}.
      *
@@ -97,9 +220,9 @@ public abstract class JsonHub {
      * @throws IOException in case of error when accessing the file.
      */
     public static CelestialBody importCelestialBodyJson(File file) throws IOException {
-        String string = readFile(file.getAbsolutePath(), Charset.defaultCharset());
-
-        return importCelestialBodyJson(string);
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return importCelestialBodyJson(reader);
+        }
     }
 
     /**
@@ -109,12 +232,7 @@ public abstract class JsonHub {
      * @return the deserialized object.
      */
     public static CelestialBody importCelestialBodyJson(String string) {
-        Type type = new TypeToken<CelestialBody>() {
-        }.getType();
-
-        Gson gson = new GsonBuilder().registerTypeAdapter(CelestialBody.class, new CelestialBodyDeserializer()).create();
-
-        return gson.fromJson(string, type);
+        return importCelestialBodyJson(new StringReader(string));
     }
 
     /**
@@ -124,12 +242,13 @@ public abstract class JsonHub {
      * @return the deserialized object.
      */
     public static CelestialBody importCelestialBodyJson(Reader reader) {
-        Type type = new TypeToken<CelestialBody>() {
-        }.getType();
-
-        Gson gson = new GsonBuilder().registerTypeAdapter(CelestialBody.class, new CelestialBodyDeserializer()).create();
-
-        return gson.fromJson(reader, type);
+        try {
+            return readCelestialBody(new JsonReader(reader), null);
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
     }
 
     /**
@@ -140,9 +259,36 @@ public abstract class JsonHub {
      * @throws IOException in case of error when accessing the file.
      */
     public static Astrarium importAstrariumJson(File file) throws IOException {
-        String string = readFile(file.getAbsolutePath(), Charset.defaultCharset());
+        return importAstrariumJson(file, ProgressListener.NONE);
+    }
+
+    /**
+     * Attempts to deserialize a {@code file} into an {@link Astrarium}, reporting the bytes read.
+     *
+     * @param file     path to the file to deserialize.
+     * @param listener the listener of the progress.
+     * @return the deserialized object.
+     * @throws IOException in case of error when accessing the file, or {@link InterruptedIOException} if cancelled.
+     */
+    public static Astrarium importAstrariumJson(File file, ProgressListener listener) throws IOException {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+
+        ProgressCounter progress = new ProgressCounter(listener, file.length());
 
-        return importAstrariumJson(string);
+        try (Reader reader = new InputStreamReader(
+                new CountingInputStream(Files.newInputStream(file.toPath()), progress), StandardCharsets.UTF_8)) {
+            Astrarium astrarium = importAstrariumJson(reader);
+
+            commit(event, file, false, astrarium.getRoot()::countBodies);
+
+            return astrarium;
+        } catch (JsonIOException e) {
+            if (e.getCause() instanceof InterruptedIOException)
+                throw (InterruptedIOException) e.getCause();
+
+            throw e;
+        }
     }
 
     /**
@@ -152,42 +298,262 @@ public abstract class JsonHub {
      * @return the deserialized object.
      */
     public static Astrarium importAstrariumJson(String string) {
-        Type type = new TypeToken<Astrarium>() {
-        }.getType();
-
-        Gson gson = new GsonBuilder().registerTypeAdapter(CelestialBody.class, new CelestialBodyDeserializer()).create();
-
-        return gson.fromJson(string, type);
+        return importAstrariumJson(new StringReader(string));
     }
 
     /**
      * Attempts to deserialize a {@code reader} into an {@link Astrarium}.
+     * <p>
+     * The bodies are created while the document is read, without keeping it in memory.
      *
      * @param reader to the file to deserialize.
      * @return the deserialized object.
      */
     public static Astrarium importAstrariumJson(Reader reader) {
-        Type type = new TypeToken<Astrarium>() {
-        }.getType();
+        try {
+            return readAstrarium(new JsonReader(reader));
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+    //endregion Import
 
-        Gson gson = new GsonBuilder().registerTypeAdapter(CelestialBody.class, new CelestialBodyDeserializer()).create();
+    //region Binary
 
-        return gson.fromJson(reader, type);
+    /**
+     * Saves an {@link Astrarium} to {@code file} in the compact binary format.
+     *
+     * @param file      path to the output file.
+     * @param astrarium to save.
+     * @throws IOException in case of failure to save the file.
+     * @see BinarySystem
+     */
+    public static void exportBinary(File file, Astrarium astrarium) throws IOException {
+        exportBinary(file, astrarium, ProgressListener.NONE);
     }
 
     /**
-     * Reads a file and returns a string.
+     * Saves an {@link Astrarium} to {@code file} in the compact binary format, reporting the bodies written.
      *
-     * @param path     to read.
-     * @param encoding the encoding of the file.
-     * @return the contents of the file.
-     * @throws IOException in case of I/O error.
+     * @param file      path to the output file.
+     * @param astrarium to save.
+     * @param listener  the listener of the progress.
+     * @throws IOException in case of failure to save the file, or {@link InterruptedIOException} if cancelled.
+     * @see BinarySystem
      */
-    private static String readFile(String path, Charset encoding) throws IOException {
-        byte[] encoded = Files.readAllBytes(Paths.get(path));
-        return new String(encoded, encoding);
+    public static void exportBinary(File file, Astrarium astrarium, ProgressListener listener) throws IOException {
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
+
+        BinarySystem.write(file, astrarium, listener);
+
+        commit(event, file, true, astrarium.getRoot()::countBodies);
     }
 
+    /**
+     * Loads an {@link Astrarium} from a {@code file} in the compact binary format.
+     * <p>
+     * Only the root and the bodies orbiting it are created, the rest is loaded on demand.
+     *
+     * @param file path to the file to load.
+     * @return the loaded object.
+     * @throws IOException in case of error when accessing the file, or if it is not a valid binary file.
+     * @see BinarySystem
+     */
+    public static Astrarium importAstrariumBinary(File file) throws IOException {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+
+        Astrarium astrarium = BinarySystem.map(file).toLazyAstrarium();
+
+        commit(event, file, true, astrarium.getRoot()::countBodies);
+
+        return astrarium;
+    }
+
+    /**
+     * Loads an {@link Astrarium} from a {@code file} either in JSON or in the binary format,
+     * detected from its first bytes.
+     *
+     * @param file path to the file to load.
+     * @return the loaded object.
+     * @throws IOException in case of error when accessing the file.
+     */
+    public static Astrarium importAstrarium(File file) throws IOException {
+        return importAstrarium(file, ProgressListener.NONE);
+    }
+
+    /**
+     * Loads an {@link Astrarium} from a {@code file} either in JSON or in the binary format,
+     * detected from its first bytes, reporting the progress.
+     * <p>
+     * The binary files are loaded on demand, so they are complete as soon as they are opened.
+     *
+     * @param file     path to the file to load.
+     * @param listener the listener of the progress.
+     * @return the loaded object.
+     * @throws IOException in case of error when accessing the file, or {@link InterruptedIOException} if cancelled.
+     */
+    public static Astrarium importAstrarium(File file, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        Astrarium astrarium;
+
+        if (BinarySystem.isBinary(file)) {
+            astrarium = importAstrariumBinary(file);
+            listener.onProgress(1, 1);
+        } else {
+            astrarium = importAstrariumJson(file, listener);
+        }
+
+        RuntimeMetrics.get().recordLoad(System.nanoTime() - start);
+
+        return astrarium;
+    }
+
+    /**
+     * Saves an {@link Astrarium} to {@code file} in the binary format if it has the {@link BinarySystem#EXTENSION},
+     * in JSON otherwise.
+     * <p>
+     * The content is written to a temporary file first, which then replaces {@code file},
+     * so that a failure or a crash never leaves a partially written file.
+     * <p>
+     * All the bodies are loaded first, so that a system loaded lazily from {@code file} no longer needs its mapping.
+     * Some platforms, e.g. Windows, cannot replace a file still mapped in memory, in which case the mapping is
+     * given a chance to be released before failing with a {@link FileSystemException}.
+     *
+     * @param file      path to the output file.
+     * @param astrarium to save.
+     * @throws IOException in case of failure to save the file,
+     *                     or {@link FileSystemException} if {@code file} is still mapped by another system loaded from it.
+     */
+    public static void export(File file, Astrarium astrarium) throws IOException {
+        export(file, astrarium, ProgressListener.NONE);
+    }
+
+    /**
+     * Saves an {@link Astrarium} as in {@link #export(File, Astrarium)}, reporting the bodies written.
+     *
+     * @param file      path to the output file.
+     * @param astrarium to save.
+     * @param listener  the listener of the progress.
+     * @throws IOException in case of failure to save the file, {@link InterruptedIOException} if cancelled,
+     *                     or {@link FileSystemException} if {@code file} is still mapped by another system loaded from it.
+     */
+    public static void export(File file, Astrarium astrarium, ProgressListener listener) throws IOException {
+        export(file, astrarium, file.getName().endsWith(BinarySystem.EXTENSION), listener);
+    }
+
+    /**
+     * Saves an {@link Astrarium} as in {@link #export(File, Astrarium)}, in the given format whatever the extension,
+     * e.g. to rewrite a file in the format it was read in.
+     *
+     * @param file      path to the output file.
+     * @param astrarium to save.
+     * @param binary    true for the binary format, false for JSON.
+     * @param listener  the listener of the progress.
+     * @throws IOException in case of failure to save the file, {@link InterruptedIOException} if cancelled,
+     *                     or {@link FileSystemException} if {@code file} is still mapped by another system loaded from it.
+     */
+    public static void export(File file, Astrarium astrarium, boolean binary, ProgressListener listener) throws IOException {
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        File temporary = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".saving");
+
+        // The lazy loaders are the only holders of the mapping of a binary file, see BinarySystem#toLazyAstrarium()
+        astrarium.getRoot().loadAll();
+
+        try {
+            if (binary)
+                BinarySystem.write(temporary, astrarium, listener);
+            else
+                writeJson(temporary, astrarium, listener);
+
+            try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+
+            replace(temporary, file);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+
+        RuntimeMetrics.get().recordSave(System.nanoTime() - start);
+        commit(event, file, binary, astrarium.getRoot()::countBodies);
+    }
+
+    /**
+     * Replaces a file with another one atomically.
+     * <p>
+     * A mapped buffer cannot be unmapped explicitly, only once it is collected: if the replacement is refused,
+     * as on Windows while the target is mapped, the collection is requested and the replacement attempted again.
+     *
+     * @param source the new content.
+     * @param target the file to replace.
+     * @throws IOException in case of failure, or {@link FileSystemException} if the target is still in use.
+     */
+    private static void replace(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        } catch (FileSystemException e) {
+            System.gc();
+        }
+
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileSystemException e) {
+            FileSystemException inUse = new FileSystemException(target.getPath(), source.getPath(),
+                    "The file is in use, e.g. mapped by another system loaded from it, and cannot be replaced");
+            inUse.initCause(e);
+            throw inUse;
+        }
+    }
+
+    /**
+     * Ends the flight recorder event of a file read, and fills it in and commits it only if it is recorded.
+     *
+     * @param event  the event begun before reading.
+     * @param file   the file read.
+     * @param binary whether the file is in the binary format.
+     * @param bodies returns the number of bodies created.
+     */
+    private static void commit(FileReadEvent event, File file, boolean binary, LongSupplier bodies) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.format = binary ? "binary" : "JSON";
+            event.bytes = file.length();
+            event.bodies = bodies.getAsLong();
+            event.commit();
+        }
+    }
+
+    /**
+     * Ends the flight recorder event of a file written, and fills it in and commits it only if it is recorded.
+     *
+     * @param event  the event begun before writing.
+     * @param file   the file written.
+     * @param binary whether the file is in the binary format.
+     * @param bodies returns the number of bodies written.
+     */
+    private static void commit(FileWriteEvent event, File file, boolean binary, LongSupplier bodies) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.format = binary ? "binary" : "JSON";
+            event.bytes = file.length();
+            event.bodies = bodies.getAsLong();
+            event.commit();
+        }
+    }
+    //endregion Binary
+
     /**
      * Returns one of the default {@link Astrarium}s contained in the data folder.
      *
@@ -205,7 +571,9 @@ public abstract class JsonHub {
     //region Deserializers
 
     /**
-     * A class to deserialize a {@link CelestialBody}.
+     * A class to deserialize a {@link CelestialBody} from a JSON tree.
+     * <p>
+     * Only used for the documents listing the children of a body before its properties.
      */
     @SuppressWarnings("JavaDoc")
     private static class CelestialBodyDeserializer implements JsonDeserializer<CelestialBody> {
@@ -284,59 +652,297 @@ public abstract class JsonHub {
     }
     //endregion
 
-    //region Serializers
+    //region Streaming
 
     /**
-     * A class to serialise a {@link CelestialBody}.
+     * Creates a {@link JsonWriter} with the format of the exported documents.
+     *
+     * @param writer the destination.
+     * @return the JSON writer.
      */
-    @SuppressWarnings("JavaDoc")
-    private static class CelestialBodySerializer implements JsonSerializer<CelestialBody> {
+    private static JsonWriter newJsonWriter(Writer writer) {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setIndent(INDENT);
+        return jsonWriter;
+    }
 
-        @Override
-        public JsonElement serialize(CelestialBody celestialBody, Type type, JsonSerializationContext jsonSerializationContext) {
-            JsonObject object = new JsonObject();
+    /**
+     * Writes an {@link Astrarium} and flushes the writer.
+     *
+     * @param writer    the destination.
+     * @param astrarium to serialise.
+     * @param progress  the counter of the bodies written.
+     * @throws IOException in case of failure to write.
+     */
+    private static void writeAstrarium(Writer writer, Astrarium astrarium, ProgressCounter progress) throws IOException {
+        JsonWriter jsonWriter = newJsonWriter(writer);
 
-            JsonArray children = new JsonArray();
+        jsonWriter.beginObject();
+        jsonWriter.name("root");
+        writeCelestialBody(jsonWriter, astrarium.getRoot(), progress);
+        jsonWriter.endObject();
 
-            if (celestialBody.getChildren() != null)
-                for (CelestialBody child : celestialBody.getChildren()) {
-                    children.add(this.serialize(child, type, jsonSerializationContext));
-                }
+        jsonWriter.flush();
+    }
 
-            object.addProperty("name", celestialBody.getName());
-            object.addProperty("mass", celestialBody.getMass());
-            object.addProperty("radius", celestialBody.getRadius());
+    /**
+     * Writes a {@link CelestialBody} and all its children.
+     *
+     * @param writer        the destination.
+     * @param celestialBody to serialise.
+     * @param progress      the counter of the bodies written.
+     * @throws IOException in case of failure to write.
+     */
+    private static void writeCelestialBody(JsonWriter writer, CelestialBody celestialBody, ProgressCounter progress) throws IOException {
+        Orbit orbit = celestialBody.getOrbit();
 
+        beginCelestialBody(writer, celestialBody.getName(), celestialBody.getMass(), celestialBody.getRadius(), orbit == null ? null :
+                new double[]{orbit.getSemiMajorAxis(), orbit.getEccentricity(), orbit.getInclination(),
+                        orbit.getLongitudeOfAscendingNode(), orbit.getArgumentOfPeriapsis(), orbit.getMeanAnomalyAtEpoch()});
 
-            if (celestialBody.getOrbit() != null) {
-                Type orbitType = new TypeToken<Orbit>() {
-                }.getType();
+        celestialBody.loadChildren();
+
+        for (CelestialBody child : celestialBody.getChildren())
+            writeCelestialBody(writer, child, progress);
+
+        endCelestialBody(writer);
+
+        progress.add(1);
+    }
 
-                object.add("orbit", new OrbitSerializer().serialize(celestialBody.getOrbit(), orbitType, jsonSerializationContext));
+    /**
+     * Writes the properties of a {@link CelestialBody} and opens the array of its children.
+     *
+     * @param writer   the destination.
+     * @param name     name of the body.
+     * @param mass     mass of the body.
+     * @param radius   radius of the body.
+     * @param elements semi-major axis, eccentricity, inclination, longitude of the ascending node,
+     *                 argument of periapsis and mean anomaly at epoch, or {@code null} for the root.
+     * @throws IOException in case of failure to write.
+     */
+    private static void beginCelestialBody(JsonWriter writer, String name, double mass, double radius, double[] elements) throws IOException {
+        writer.beginObject();
+
+        writer.name("name").value(name);
+        writer.name("mass").value(mass);
+        writer.name("radius").value(radius);
+
+        if (elements != null) {
+            writer.name("orbit").beginObject();
+            writer.name("semiMajorAxis").value(elements[0]);
+            writer.name("eccentricity").value(elements[1]);
+            writer.name("inclination").value(elements[2]);
+            writer.name("longitudeOfAscendingNode").value(elements[3]);
+            writer.name("argumentOfPeriapsis").value(elements[4]);
+            writer.name("meanAnomalyAtEpoch").value(elements[5]);
+            writer.endObject();
+        }
+
+        // The children go last, so that a reader can create the body before them
+        writer.name("children").beginArray();
+    }
 
+    /**
+     * Closes the array of the children of a {@link CelestialBody} and the body itself.
+     *
+     * @param writer the destination.
+     * @throws IOException in case of failure to write.
+     */
+    private static void endCelestialBody(JsonWriter writer) throws IOException {
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /**
+     * Reads an {@link Astrarium}.
+     *
+     * @param reader the source.
+     * @return the deserialized object.
+     * @throws IOException in case of failure to read.
+     */
+    private static Astrarium readAstrarium(JsonReader reader) throws IOException {
+        CelestialBody root = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("root"))
+                root = readCelestialBody(reader, null);
+            else
+                reader.skipValue();
+        }
+
+        reader.endObject();
+
+        if (root == null)
+            throw new JsonParseException("Missing root.");
+
+        return new Astrarium(root);
+    }
+
+    /**
+     * Reads a {@link CelestialBody} and all its children.
+     * <p>
+     * The body is created as soon as its children are reached, and each child is attached while it is read.
+     * If the children come before the other properties, they have to be kept in memory until the end of the body.
+     *
+     * @param reader the source.
+     * @param parent the parent of the body, or {@code null} for the root.
+     * @return the deserialized object.
+     * @throws IOException in case of failure to read.
+     */
+    private static CelestialBody readCelestialBody(JsonReader reader, CelestialBody parent) throws IOException {
+        String name = null;
+        double mass = Double.NaN;
+        double radius = Double.NaN;
+        double[] orbit = null;
+
+        CelestialBody celestialBody = null;
+        JsonArray pendingChildren = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "mass":
+                    mass = reader.nextDouble();
+                    break;
+                case "radius":
+                    radius = reader.nextDouble();
+                    break;
+                case "orbit":
+                    orbit = readOrbit(reader);
+                    break;
+                case "children":
+                    if (name == null || Double.isNaN(mass) || Double.isNaN(radius) || (parent != null && orbit == null)) {
+                        pendingChildren = new JsonParser().parse(reader).getAsJsonArray();
+                        break;
+                    }
+
+                    celestialBody = createCelestialBody(name, mass, radius, orbit, parent);
+
+                    reader.beginArray();
+
+                    while (reader.hasNext())
+                        readCelestialBody(reader, celestialBody);
+
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
             }
+        }
+
+        reader.endObject();
+
+        if (celestialBody == null)
+            celestialBody = createCelestialBody(name, mass, radius, orbit, parent);
+
+        if (pendingChildren != null)
+            for (JsonElement child : pendingChildren)
+                new CelestialBodyDeserializer().deserialize(child, CelestialBody.class, null, celestialBody);
+
+        return celestialBody;
+    }
+
+    /**
+     * Reads the parameters of an {@link Orbit}.
+     *
+     * @param reader the source.
+     * @return the parameters in the order of {@link #ORBIT_KEYS}, {@link Double#NaN} for those missing.
+     * @throws IOException in case of failure to read.
+     */
+    private static double[] readOrbit(JsonReader reader) throws IOException {
+        double[] parameters = new double[ORBIT_KEYS.size()];
+        Arrays.fill(parameters, Double.NaN);
 
-            object.add("children", children);
+        reader.beginObject();
 
-            return object;
+        while (reader.hasNext()) {
+            int index = ORBIT_KEYS.indexOf(reader.nextName());
+
+            if (index >= 0)
+                parameters[index] = reader.nextDouble();
+            else
+                reader.skipValue();
         }
+
+        reader.endObject();
+
+        return parameters;
     }
 
     /**
-     * A class to serialise an {@link Orbit}.
+     * Creates a {@link CelestialBody} from the properties read, attaching it to its parent.
+     *
+     * @param name   name of the body.
+     * @param mass   mass of the body.
+     * @param radius radius of the body.
+     * @param orbit  parameters of the orbit as returned by {@link #readOrbit(JsonReader)}, or {@code null} for the root.
+     * @param parent the parent of the body, or {@code null} for the root.
+     * @return the new body.
      */
-    private static class OrbitSerializer implements JsonSerializer<Orbit> {
+    private static CelestialBody createCelestialBody(String name, double mass, double radius, double[] orbit, CelestialBody parent) {
+        if (name == null || Double.isNaN(mass) || Double.isNaN(radius))
+            throw new JsonParseException("A celestial body must have a name, a mass and a radius.");
+
+        if (parent == null)
+            return new CelestialBody(name, mass, radius);
+
+        if (orbit == null)
+            throw new JsonParseException(String.format("The celestial body %s has no orbit.", name));
+
+        for (int i = 0; i < orbit.length; i++)
+            if (Double.isNaN(orbit[i]))
+                throw new JsonParseException(String.format("The orbit of the celestial body %s has no %s.", name, ORBIT_KEYS.get(i)));
+
+        return new CelestialBody(name, mass, radius,
+                new Orbit(parent, orbit[0], orbit[1], orbit[2], orbit[3], orbit[4], orbit[5]));
+    }
+    //endregion Streaming
+
+    /**
+     * An input stream reporting the bytes read to a {@link ProgressCounter}.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        /**
+         * The counter.
+         */
+        private final ProgressCounter progress;
+
+        /**
+         * Creates the stream.
+         *
+         * @param in       the stream to read.
+         * @param progress the counter of the bytes read.
+         */
+        CountingInputStream(InputStream in, ProgressCounter progress) {
+            super(in);
+            this.progress = progress;
+        }
+
         @Override
-        public JsonElement serialize(Orbit orbit, Type type, JsonSerializationContext jsonSerializationContext) {
-            JsonObject object = new JsonObject();
-            object.addProperty("semiMajorAxis", orbit.getSemiMajorAxis());
-            object.addProperty("eccentricity", orbit.getEccentricity());
-            object.addProperty("inclination", orbit.getInclination());
-            object.addProperty("longitudeOfAscendingNode", orbit.getLongitudeOfAscendingNode());
-            object.addProperty("argumentOfPeriapsis", orbit.getArgumentOfPeriapsis());
-            object.addProperty("meanAnomalyAtEpoch", orbit.getMeanAnomalyAtEpoch());
-            return object;
+        public int read() throws IOException {
+            int b = super.read();
+
+            if (b >= 0)
+                progress.add(1);
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+
+            if (read > 0)
+                progress.add(read);
+
+            return read;
         }
     }
-    //endregion
 }
@@ -0,0 +1,602 @@
+package io;
+
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static astrarium.utils.Mathematics.TWO_PI;
+
+/**
+ * Imports the minor planets listed in an orbit catalog in the fixed-width layout of the MPCORB file
+ * published by the Minor Planet Center.
+ * <p>
+ * The file is split in chunks of lines, parsed in parallel straight from memory-mapped buffers:
+ * no string is created for the lines, only for the names of the bodies kept.
+ * The lines are filtered on their elements while parsing, so that a subset of the catalog costs as much as its size.
+ * <p>
+ * The lines that are not orbits, like the header of the file, are skipped.
+ * The masses and the radii are not in the catalog, and are estimated from the absolute magnitude.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MinorPlanetCatalog implements Closeable {
+    /**
+     * The astronomical unit in meters.
+     */
+    public static final double ASTRONOMICAL_UNIT = 1.495978707e11;
+
+    /**
+     * The albedo assumed for estimating the size of the bodies.
+     */
+    public static final double ALBEDO = 0.14;
+
+    /**
+     * The density assumed for estimating the mass of the bodies, in kg/m<sup>3</sup>.
+     */
+    public static final double DENSITY = 2000;
+
+    /**
+     * The absolute magnitude assumed for the bodies without one.
+     */
+    public static final double UNKNOWN_ABSOLUTE_MAGNITUDE = 20;
+
+    /**
+     * Size of the chunks of the file parsed by each task, in bytes.
+     */
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    /**
+     * The longest line expected, mapped past the end of a chunk to read its last line whole.
+     */
+    private static final int MAXIMUM_LINE_LENGTH = 512;
+
+    /**
+     * The powers of ten exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    //region Columns
+    // Offsets of the fields in a line, from zero, and their ends, excluded.
+    private static final int DESIGNATION = 0, DESIGNATION_END = 7;
+    private static final int MAGNITUDE = 8, MAGNITUDE_END = 13;
+    private static final int EPOCH = 20;
+    private static final int MEAN_ANOMALY = 26, MEAN_ANOMALY_END = 35;
+    private static final int PERIHELION = 37, PERIHELION_END = 46;
+    private static final int NODE = 48, NODE_END = 57;
+    private static final int INCLINATION = 59, INCLINATION_END = 68;
+    private static final int ECCENTRICITY = 70, ECCENTRICITY_END = 79;
+    private static final int SEMI_MAJOR_AXIS = 92, SEMI_MAJOR_AXIS_END = 103;
+    private static final int NAME = 166, NAME_END = 194;
+    //endregion Columns
+
+    /**
+     * The catalog file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Size of the file in bytes.
+     */
+    private final long size;
+
+    //region Filters
+    private double minimumSemiMajorAxis = 0;
+    private double maximumSemiMajorAxis = Double.POSITIVE_INFINITY;
+    private double minimumEccentricity = 0;
+    private double maximumEccentricity = 1;
+    private double minimumInclination = 0;
+    private double maximumInclination = Math.PI;
+    private double maximumAbsoluteMagnitude = Double.POSITIVE_INFINITY;
+    //endregion Filters
+
+    /**
+     * Number of worker threads.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a catalog reading the given file.
+     *
+     * @param channel the open file.
+     * @throws IOException in case of failure to access the file.
+     */
+    private MinorPlanetCatalog(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     * Opens a catalog file.
+     *
+     * @param file path to the file.
+     * @return the catalog.
+     * @throws IOException in case of failure to open the file.
+     */
+    public static MinorPlanetCatalog open(File file) throws IOException {
+        return new MinorPlanetCatalog(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    //region Setters
+
+    /**
+     * Keeps only the orbits with a semi-major axis in the given range.
+     *
+     * @param minimum the minimum in meters.
+     * @param maximum the maximum in meters.
+     */
+    public void setSemiMajorAxisRange(double minimum, double maximum) {
+        this.minimumSemiMajorAxis = minimum;
+        this.maximumSemiMajorAxis = maximum;
+    }
+
+    /**
+     * Keeps only the orbits with an eccentricity in the given range.
+     *
+     * @param minimum the minimum.
+     * @param maximum the maximum.
+     */
+    public void setEccentricityRange(double minimum, double maximum) {
+        this.minimumEccentricity = minimum;
+        this.maximumEccentricity = maximum;
+    }
+
+    /**
+     * Keeps only the orbits with an inclination in the given range.
+     *
+     * @param minimum the minimum in radians.
+     * @param maximum the maximum in radians.
+     */
+    public void setInclinationRange(double minimum, double maximum) {
+        this.minimumInclination = minimum;
+        this.maximumInclination = maximum;
+    }
+
+    /**
+     * Keeps only the bodies brighter than the given absolute magnitude, i.e. the largest ones.
+     *
+     * @param maximum the maximum absolute magnitude.
+     */
+    public void setMaximumAbsoluteMagnitude(double maximum) {
+        this.maximumAbsoluteMagnitude = maximum;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param threads number of threads, at least one.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("At least a thread is needed.");
+
+        this.threads = threads;
+    }
+    //endregion Setters
+
+    /**
+     * Reads the catalog and adds the bodies to the Sun.
+     *
+     * @param sun the body the orbits refer to.
+     * @return the number of bodies added.
+     * @throws IOException in case of failure to read the file.
+     */
+    public int load(CelestialBody sun) throws IOException {
+        return read(sun, ProgressListener.NONE).attach();
+    }
+
+    /**
+     * Reads the orbits matching the filters, without adding them to the Sun yet.
+     * <p>
+     * This is the expensive part of an import, and can run in background while the Sun is being used.
+     *
+     * @param sun      the body the orbits refer to.
+     * @param listener the listener of the progress, counting the bytes read.
+     * @return the orbits read, in the order of the file.
+     * @throws IOException in case of failure to read the file, or {@link InterruptedIOException} if cancelled.
+     */
+    public Selection read(CelestialBody sun, ProgressListener listener) throws IOException {
+        int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        double mu = sun.getStandardGravitationalParameter();
+
+        ProgressCounter progress = new ProgressCounter(listener, size);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, chunks)));
+
+        try {
+            List<Future<Chunk>> futures = new ArrayList<>(chunks);
+
+            for (int i = 0; i < chunks; i++) {
+                long start = (long) i * CHUNK_SIZE;
+                futures.add(executor.submit(() -> parse(start, Math.min(size, start + CHUNK_SIZE), sun, mu)));
+            }
+
+            List<Chunk> result = new ArrayList<>(chunks);
+
+            for (int i = 0; i < chunks; i++) {
+                result.add(futures.get(i).get());
+                progress.add(Math.min(CHUNK_SIZE, size - (long) i * CHUNK_SIZE));
+            }
+
+            return new Selection(result);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("The operation has been cancelled.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+
+            throw new RuntimeException("Catalog parsing failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    //region Parsing
+
+    /**
+     * Parses the lines starting in a range of the file.
+     *
+     * @param start the first byte of the range.
+     * @param end   the end of the range, excluded.
+     * @param sun   the body the orbits refer to.
+     * @param mu    its standard gravitational parameter.
+     * @return the orbits matching the filters.
+     * @throws IOException in case of failure to read the file.
+     */
+    private Chunk parse(long start, long end, CelestialBody sun, double mu) throws IOException {
+        // One byte before, to know if the range starts with a line, and enough after to end the last one
+        long from = Math.max(0, start - 1);
+        long to = Math.min(size, end + MAXIMUM_LINE_LENGTH);
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+
+        int limit = (int) (end - from);
+        int position = 0;
+
+        if (start > 0) {
+            while (position < buffer.limit() && buffer.get(position) != '\n')
+                position++;
+
+            position++;
+        }
+
+        Chunk chunk = new Chunk();
+        byte[] name = new byte[NAME_END - DESIGNATION];
+
+        while (position < limit) {
+            int lineEnd = position;
+
+            while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n')
+                lineEnd++;
+
+            int length = lineEnd - position;
+
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r')
+                length--;
+
+            parseLine(buffer, position, length, sun, mu, chunk, name);
+
+            position = lineEnd + 1;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Parses a line, adding the orbit to the chunk if it matches the filters.
+     * <p>
+     * The cheapest fields to check are parsed first, so that most of the work is skipped for the lines filtered out.
+     *
+     * @param buffer the file.
+     * @param line   offset of the line.
+     * @param length length of the line, without the line terminator.
+     * @param sun    the body the orbits refer to.
+     * @param mu     its standard gravitational parameter.
+     * @param chunk  the chunk to fill.
+     * @param name   a buffer for the name.
+     */
+    private void parseLine(MappedByteBuffer buffer, int line, int length, CelestialBody sun, double mu, Chunk chunk, byte[] name) {
+        if (length < SEMI_MAJOR_AXIS_END)
+            return;
+
+        double semiMajorAxis = parseNumber(buffer, line + SEMI_MAJOR_AXIS, line + SEMI_MAJOR_AXIS_END) * ASTRONOMICAL_UNIT;
+
+        if (!(semiMajorAxis >= minimumSemiMajorAxis && semiMajorAxis <= maximumSemiMajorAxis))
+            return;
+
+        double eccentricity = parseNumber(buffer, line + ECCENTRICITY, line + ECCENTRICITY_END);
+
+        // Only closed orbits can be represented
+        if (!(eccentricity >= minimumEccentricity && eccentricity <= maximumEccentricity && eccentricity < 1))
+            return;
+
+        double inclination = Math.toRadians(parseNumber(buffer, line + INCLINATION, line + INCLINATION_END));
+
+        if (!(inclination >= minimumInclination && inclination <= maximumInclination))
+            return;
+
+        double magnitude = parseNumber(buffer, line + MAGNITUDE, line + MAGNITUDE_END);
+
+        if (Double.isNaN(magnitude))
+            magnitude = UNKNOWN_ABSOLUTE_MAGNITUDE;
+
+        if (magnitude > maximumAbsoluteMagnitude)
+            return;
+
+        long epoch = parseEpoch(buffer, line + EPOCH);
+        double meanAnomaly = Math.toRadians(parseNumber(buffer, line + MEAN_ANOMALY, line + MEAN_ANOMALY_END));
+        double node = Math.toRadians(parseNumber(buffer, line + NODE, line + NODE_END));
+        double perihelion = Math.toRadians(parseNumber(buffer, line + PERIHELION, line + PERIHELION_END));
+
+        if (epoch == Long.MIN_VALUE || Double.isNaN(meanAnomaly) || Double.isNaN(node) || Double.isNaN(perihelion))
+            return;
+
+        // The orbits count the mean anomaly from the Unix epoch
+        double meanAnomalyAtEpoch = (meanAnomaly - Math.sqrt(mu / Math.pow(semiMajorAxis, 3)) * (epoch / 1000D)) % TWO_PI;
+
+        if (meanAnomalyAtEpoch < 0)
+            meanAnomalyAtEpoch += TWO_PI;
+
+        // Diameter in km from the absolute magnitude and the albedo
+        double radius = 1329 / Math.sqrt(ALBEDO) * Math.pow(10, -magnitude / 5) * 500;
+        double mass = 4 / 3D * Math.PI * radius * radius * radius * DENSITY;
+
+        Orbit orbit = new Orbit(sun, semiMajorAxis, eccentricity, inclination, node, perihelion, meanAnomalyAtEpoch);
+
+        chunk.add(parseName(buffer, line, length, name), mass, radius, orbit);
+    }
+
+    /**
+     * Returns the readable designation of a body, e.g. "(1) Ceres", or its packed designation if missing.
+     *
+     * @param buffer the file.
+     * @param line   offset of the line.
+     * @param length length of the line.
+     * @param name   a buffer for the name.
+     * @return the name.
+     */
+    private static String parseName(MappedByteBuffer buffer, int line, int length, byte[] name) {
+        int start = line + NAME, end = line + Math.min(length, NAME_END);
+
+        while (start < end && buffer.get(start) == ' ')
+            start++;
+
+        if (start >= end) {
+            start = line + DESIGNATION;
+            end = line + DESIGNATION_END;
+        }
+
+        while (end > start && buffer.get(end - 1) == ' ')
+            end--;
+
+        for (int i = start; i < end; i++)
+            name[i - start] = buffer.get(i);
+
+        return new String(name, 0, end - start, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses a decimal number, e.g. "-12.345", surrounded by spaces.
+     *
+     * @param buffer the file.
+     * @param start  the first byte of the field.
+     * @param end    the end of the field, excluded.
+     * @return the number, or {@link Double#NaN} if the field is blank or not a number.
+     */
+    private static double parseNumber(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ')
+            start++;
+
+        while (end > start && buffer.get(end - 1) == ' ')
+            end--;
+
+        if (start == end)
+            return Double.NaN;
+
+        boolean negative = buffer.get(start) == '-';
+
+        if (negative || buffer.get(start) == '+')
+            start++;
+
+        long mantissa = 0;
+        int decimals = -1;
+
+        for (int i = start; i < end; i++) {
+            byte c = buffer.get(i);
+
+            if (c == '.' && decimals < 0)
+                decimals = 0;
+            else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+
+                if (decimals >= 0)
+                    decimals++;
+            } else
+                return Double.NaN;
+        }
+
+        // Exact for the up to 18 digits of the catalog, as the powers of ten up to 22 are exact
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses an epoch in the packed form, e.g. "K2555" for 2025 May 5, at midnight.
+     *
+     * @param buffer the file.
+     * @param start  the first byte of the field.
+     * @return the time in milliseconds from the Unix epoch, or {@link Long#MIN_VALUE} if not valid.
+     */
+    private static long parseEpoch(MappedByteBuffer buffer, int start) {
+        int century = buffer.get(start) - 'A' + 10;
+        int decade = buffer.get(start + 1) - '0';
+        int unit = buffer.get(start + 2) - '0';
+        int month = unpack(buffer.get(start + 3));
+        int day = unpack(buffer.get(start + 4));
+
+        if (century < 10 || century > 35 || decade < 0 || decade > 9 || unit < 0 || unit > 9
+                || month < 1 || month > 12 || day < 1 || day > 31)
+            return Long.MIN_VALUE;
+
+        return daysFromCivil(century * 100 + decade * 10 + unit, month, day) * 86_400_000L;
+    }
+
+    /**
+     * Unpacks a digit of a packed date, from 1 to 9 and then from A for 10 to V for 31.
+     *
+     * @param c the character.
+     * @return the number, or -1 if not valid.
+     */
+    private static int unpack(byte c) {
+        if (c >= '1' && c <= '9')
+            return c - '0';
+        if (c >= 'A' && c <= 'V')
+            return c - 'A' + 10;
+
+        return -1;
+    }
+
+    /**
+     * Returns the number of days from the Unix epoch to a date of the Gregorian calendar,
+     * without creating a date object for every line.
+     *
+     * @param year  the year.
+     * @param month the month, from 1.
+     * @param day   the day of the month, from 1.
+     * @return the number of days.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+
+        int era = Math.floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+    //endregion Parsing
+
+    /**
+     * The orbits read from a catalog, ready to be added to the Sun.
+     */
+    public static class Selection {
+        /**
+         * The chunks, in the order of the file.
+         */
+        private final List<Chunk> chunks;
+
+        /**
+         * Creates a selection.
+         *
+         * @param chunks the chunks.
+         */
+        private Selection(List<Chunk> chunks) {
+            this.chunks = chunks;
+        }
+
+        /**
+         * Returns the number of bodies read.
+         *
+         * @return the size.
+         */
+        public int size() {
+            int size = 0;
+
+            for (Chunk chunk : chunks)
+                size += chunk.size;
+
+            return size;
+        }
+
+        /**
+         * Creates the bodies and adds them to the Sun, in the order of the file.
+         * <p>
+         * This must be done on the thread using the Sun, but is cheap compared to reading them.
+         *
+         * @return the number of bodies added.
+         */
+        public int attach() {
+            return attach(Integer.MAX_VALUE);
+        }
+
+        /**
+         * Creates at most {@code limit} bodies and adds them to the Sun, the first ones in the order of the file.
+         *
+         * @param limit the largest number of bodies added.
+         * @return the number of bodies added.
+         * @see #attach()
+         */
+        public int attach(int limit) {
+            int count = 0;
+
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.size && count < limit; i++, count++)
+                    new CelestialBody(chunk.names[i], chunk.masses[i], chunk.radii[i], chunk.orbits[i]);
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * The orbits read from a chunk of the file.
+     */
+    private static class Chunk {
+        private String[] names = new String[256];
+        private double[] masses = new double[256];
+        private double[] radii = new double[256];
+        private Orbit[] orbits = new Orbit[256];
+        private int size = 0;
+
+        /**
+         * Adds a body.
+         *
+         * @param name   the name.
+         * @param mass   the mass in kilograms.
+         * @param radius the radius in meters.
+         * @param orbit  the orbit.
+         */
+        void add(String name, double mass, double radius, Orbit orbit) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                masses = Arrays.copyOf(masses, size * 2);
+                radii = Arrays.copyOf(radii, size * 2);
+                orbits = Arrays.copyOf(orbits, size * 2);
+            }
+
+            names[size] = name;
+            masses[size] = mass;
+            radii[size] = radius;
+            orbits[size] = orbit;
+            size++;
+        }
+    }
+}
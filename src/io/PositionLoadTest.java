@@ -0,0 +1,240 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput and the latency of a {@link PositionServer} with concurrent clients on the same machine.
+ * <p>
+ * Each client sends position queries in a loop, each one for a random time, and records how long it took.
+ * The requests sent during the warm-up are not measured.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class PositionLoadTest {
+    /**
+     * The first time queried in milliseconds, 1 January 2000.
+     */
+    private static final long START = 946_684_800_000L;
+
+    /**
+     * The span of the times queried in milliseconds, about a century.
+     */
+    private static final long SPAN = 100L * 365 * 24 * 3_600_000L;
+
+    /**
+     * The base address of the server, e.g. {@code http://localhost:8080}.
+     */
+    private final String server;
+
+    /**
+     * The query string added to every request, without the time.
+     */
+    private final String query;
+
+    /**
+     * Number of times in every request.
+     */
+    private final int times;
+
+    /**
+     * Number of failed requests.
+     */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates a load test.
+     *
+     * @param server the base address of the server.
+     * @param query  the parameters of every request, e.g. {@code bodies=Earth,Moon&format=binary}.
+     * @param times  number of times in every request.
+     */
+    public PositionLoadTest(String server, String query, int times) {
+        this.server = server;
+        this.query = query;
+        this.times = times;
+    }
+
+    /**
+     * Runs the test.
+     *
+     * @param clients number of concurrent clients.
+     * @param warmUp  time before measuring in milliseconds.
+     * @param measure time measured in milliseconds.
+     * @return the latencies of the requests measured in nanoseconds, sorted.
+     * @throws InterruptedException if interrupted.
+     */
+    public long[] run(int clients, long warmUp, long measure) throws InterruptedException {
+        long begin = System.nanoTime();
+        long measureStart = begin + warmUp * 1_000_000L;
+        long measureEnd = measureStart + measure * 1_000_000L;
+
+        List<Thread> threads = new ArrayList<>();
+        List<long[]> results = new ArrayList<>();
+
+        for (int i = 0; i < clients; i++) {
+            final int client = i;
+            results.add(null);
+
+            Thread thread = new Thread(() -> results.set(client, runClient(measureStart, measureEnd)), "Load test client " + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        long[] latencies = results.stream().flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(latencies);
+
+        return latencies;
+    }
+
+    /**
+     * Returns the number of requests failed so far.
+     *
+     * @return number of failures.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Sends requests until the end of the test.
+     *
+     * @param measureStart time to start measuring, as in {@link System#nanoTime()}.
+     * @param measureEnd   time to stop, as in {@link System#nanoTime()}.
+     * @return the latencies measured in nanoseconds.
+     */
+    private long[] runClient(long measureStart, long measureEnd) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        byte[] buffer = new byte[64 * 1024];
+
+        while (true) {
+            long start = System.nanoTime();
+
+            if (start >= measureEnd)
+                break;
+
+            try {
+                request(buffer);
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                continue;
+            }
+
+            long end = System.nanoTime();
+
+            if (start >= measureStart) {
+                if (count == latencies.length)
+                    latencies = Arrays.copyOf(latencies, count * 2);
+
+                latencies[count++] = end - start;
+            }
+        }
+
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Sends a request for random times and reads the whole response.
+     *
+     * @param buffer a buffer for the response.
+     * @throws IOException in case of failure.
+     */
+    private void request(byte[] buffer) throws IOException {
+        StringBuilder url = new StringBuilder(server).append("/positions?").append(query);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        url.append(query.isEmpty() ? "time=" : "&time=");
+
+        for (int i = 0; i < times; i++) {
+            if (i > 0)
+                url.append(',');
+
+            url.append(START + random.nextLong(SPAN));
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url.toString()).openConnection();
+
+        if (connection.getResponseCode() != 200) {
+            connection.getErrorStream().close();
+            throw new IOException("Status " + connection.getResponseCode());
+        }
+
+        // Reading until the end lets the connection be reused by the next request
+        try (InputStream in = connection.getInputStream()) {
+            //noinspection StatementWithEmptyBody
+            while (in.read(buffer) >= 0) ;
+        }
+    }
+
+    /**
+     * Runs a load test from the command line, printing the throughput and the latencies.
+     * <p>
+     * Usage: {@code PositionLoadTest [server] [clients] [seconds] [times per request] [query]}
+     * <p>
+     * Without a server address, or with {@code -}, a server of the default solar system is started in this process.
+     * The defaults are 16 clients for 10 seconds, with a time per request and no other parameter.
+     *
+     * @param args command line arguments.
+     * @throws Exception in case of failure.
+     */
+    public static void main(String[] args) throws Exception {
+        String address = args.length > 0 ? args[0] : "-";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        int times = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        String query = args.length > 4 ? args[4] : "";
+
+        PositionServer server = null;
+
+        if (address.equals("-")) {
+            server = new PositionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), JsonHub.importDefaultMap("SolSystem"));
+            server.start();
+            address = "http://localhost:" + server.getPort();
+        }
+
+        try {
+            PositionLoadTest test = new PositionLoadTest(address, query, times);
+            long[] latencies = test.run(clients, Math.min(2000, seconds * 200), seconds * 1000);
+
+            if (latencies.length == 0) {
+                System.out.printf("No request completed, %d failed.%n", test.getFailures());
+                return;
+            }
+
+            System.out.printf("%d clients, %d requests of %d times in %d s, %d failed.%n",
+                    clients, latencies.length, times, seconds, test.getFailures());
+            System.out.printf("Throughput: %.0f requests/s%n", latencies.length / (double) seconds);
+            System.out.printf("Latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                    latencies[latencies.length - 1] / 1e6);
+        } finally {
+            if (server != null)
+                server.close();
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     *
+     * @param values   the values, sorted.
+     * @param fraction the percentile as a fraction between zero and one.
+     * @return the value.
+     */
+    private static long percentile(long[] values, double fraction) {
+        return values[(int) Math.min(values.length - 1, Math.ceil(fraction * values.length) - 1)];
+    }
+}
@@ -0,0 +1,577 @@
+package io;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.Snapshot;
+import astrarium.diagnostics.RuntimeMetrics;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read-only HTTP service answering queries about the positions and the orbits of the bodies of a system,
+ * for other programs needing the same model without the user interface.
+ * <p>
+ * The service answers {@code GET} requests on these paths:
+ * <ul>
+ * <li>{@code /bodies}: the names of the bodies, with the parents before their children;</li>
+ * <li>{@code /positions}: the absolute positions of some bodies at some times;</li>
+ * <li>{@code /elements}: the orbital elements of some bodies, with the mean anomaly at a time.</li>
+ * </ul>
+ * The bodies are selected with {@code bodies=Earth,Moon}, all of them by default.
+ * The times, in milliseconds, are either listed with {@code time=t1,t2,...},
+ * or sampled with {@code start}, {@code end} and {@code step}. The current time is used by default.
+ * <p>
+ * The positions are returned as JSON, or with {@code format=binary} as little-endian values:
+ * the number of times and of bodies as two ints, the times as longs,
+ * and then x, y and z as doubles for each body at each time, time by time.
+ * <p>
+ * Every request is handled on its own thread, virtual when the runtime supports them,
+ * over a private copy of the system that is never modified.
+ * The system can be replaced while serving with {@link #setAstrarium(Astrarium)}.
+ * <p>
+ * Without {@code -Dsun.net.httpserver.nodelay=true}, the headers and the body of the responses are sent
+ * in separate packets, and each response waits for the delayed acknowledgement of the client, about 40 ms.
+ * The property applies to every HTTP server of the process, so it is set by {@link #main(String[])} only:
+ * the applications embedding the server should pass it at launch.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class PositionServer implements Closeable {
+    /**
+     * The largest number of positions returned by a single request.
+     */
+    public static final int MAX_POSITIONS = 1 << 20;
+
+    /**
+     * The server.
+     */
+    private final HttpServer server;
+
+    /**
+     * The threads handling the requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The system served, replaced as a whole.
+     */
+    private volatile Model model;
+
+    /**
+     * Creates a server, which does not accept requests until {@link #start()}.
+     *
+     * @param address   the address to listen to, e.g. the loopback address. Port zero picks any free port.
+     * @param astrarium the system to serve, which is copied.
+     * @throws IOException in case of failure to open the port.
+     */
+    public PositionServer(InetSocketAddress address, Astrarium astrarium) throws IOException {
+        setAstrarium(astrarium);
+
+        executor = newExecutor();
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/bodies", handler(this::bodies));
+        server.createContext("/positions", handler(this::positions));
+        server.createContext("/elements", handler(this::elements));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens to.
+     *
+     * @return the port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Replaces the system served. The requests already started complete with the previous one.
+     *
+     * @param astrarium the system, which is copied.
+     */
+    public void setAstrarium(Astrarium astrarium) {
+        model = new Model(astrarium);
+    }
+
+    /**
+     * Stops the server, waiting at most a second for the requests in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor starting a virtual thread for each request, if the runtime supports them,
+     * or a pool of daemon threads otherwise.
+     *
+     * @return the executor.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            // Looked up at run time, so that the program still runs on the runtimes without virtual threads
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "Astrarium position server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    //region Handlers
+
+    /**
+     * Writes the names of the bodies.
+     *
+     * @param exchange the request.
+     * @param model    the system.
+     * @param query    the parameters.
+     * @throws IOException in case of failure to write.
+     */
+    private void bodies(HttpExchange exchange, Model model, Map<String, String> query) throws IOException {
+        try (JsonWriter json = openJson(exchange)) {
+            json.beginArray();
+
+            for (CelestialBody body : model.bodies)
+                json.value(body.getName());
+
+            json.endArray();
+        }
+    }
+
+    /**
+     * Writes the positions of the bodies selected at the times selected.
+     *
+     * @param exchange the request.
+     * @param model    the system.
+     * @param query    the parameters.
+     * @throws IOException in case of failure to write.
+     */
+    private void positions(HttpExchange exchange, Model model, Map<String, String> query) throws IOException {
+        String format = query.getOrDefault("format", "json");
+
+        if (!format.equals("json") && !format.equals("binary"))
+            throw new IllegalArgumentException("Unknown format " + format + ", expected json or binary.");
+
+        List<CelestialBody> bodies = model.select(query.get("bodies"));
+        long[] times = parseTimes(query, MAX_POSITIONS / bodies.size());
+
+        double[] positions = model.astrarium.query(bodies, times);
+
+        if (format.equals("binary")) {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + times.length * 8 + positions.length * 8)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(times.length).putInt(bodies.size());
+
+            for (long time : times)
+                buffer.putLong(time);
+
+            for (int time = 0; time < times.length; time++) {
+                for (int body = 0; body < bodies.size(); body++) {
+                    int offset = (body * times.length + time) * 3;
+
+                    buffer.putDouble(positions[offset])
+                            .putDouble(positions[offset + 1])
+                            .putDouble(positions[offset + 2]);
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.sendResponseHeaders(200, buffer.capacity());
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(buffer.array());
+            }
+        } else {
+            try (JsonWriter json = openJson(exchange)) {
+                json.beginObject();
+
+                json.name("times").beginArray();
+                for (long time : times)
+                    json.value(time);
+                json.endArray();
+
+                json.name("positions").beginObject();
+
+                for (int body = 0; body < bodies.size(); body++) {
+                    json.name(bodies.get(body).getName()).beginArray();
+
+                    for (int time = 0; time < times.length; time++) {
+                        int offset = (body * times.length + time) * 3;
+
+                        json.beginArray()
+                                .value(positions[offset])
+                                .value(positions[offset + 1])
+                                .value(positions[offset + 2])
+                                .endArray();
+                    }
+
+                    json.endArray();
+                }
+
+                json.endObject();
+                json.endObject();
+            }
+        }
+    }
+
+    /**
+     * Writes the orbital elements of the bodies selected, with their mean anomaly at a time.
+     *
+     * @param exchange the request.
+     * @param model    the system.
+     * @param query    the parameters.
+     * @throws IOException in case of failure to write.
+     */
+    private void elements(HttpExchange exchange, Model model, Map<String, String> query) throws IOException {
+        List<CelestialBody> bodies = model.select(query.get("bodies"));
+        long time = query.containsKey("time") ? parseLong(query, "time") : System.currentTimeMillis();
+
+        try (JsonWriter json = openJson(exchange)) {
+            json.beginObject();
+            json.name("time").value(time);
+            json.name("elements").beginObject();
+
+            for (CelestialBody body : bodies) {
+                Orbit orbit = body.getOrbit();
+
+                json.name(body.getName()).beginObject();
+                json.name("mass").value(body.getMass());
+                json.name("radius").value(body.getRadius());
+
+                if (orbit != null) {
+                    json.name("parent").value(orbit.getParent().getName());
+                    json.name("semiMajorAxis").value(orbit.getSemiMajorAxis());
+                    json.name("eccentricity").value(orbit.getEccentricity());
+                    json.name("inclination").value(orbit.getInclination());
+                    json.name("longitudeOfAscendingNode").value(orbit.getLongitudeOfAscendingNode());
+                    json.name("argumentOfPeriapsis").value(orbit.getArgumentOfPeriapsis());
+                    json.name("meanAnomaly").value(orbit.getMeanAnomaly(time));
+                    json.name("period").value(orbit.getPeriod());
+                }
+
+                json.endObject();
+            }
+
+            json.endObject();
+            json.endObject();
+        }
+    }
+
+    /**
+     * Wraps a query into a handler, answering errors with their status code and a message.
+     *
+     * @param query the query.
+     * @return the handler.
+     */
+    private HttpHandler handler(Query query) {
+        return exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    sendError(exchange, 405, "Only GET is supported.");
+                    return;
+                }
+
+                query.answer(exchange, model, parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (NoSuchElementException e) {
+                sendError(exchange, 404, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, "Internal error: " + e);
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+    //endregion Handlers
+
+    //region Parsing
+
+    /**
+     * Parses the parameters of a request.
+     *
+     * @param query the raw query string, or {@code null}.
+     * @return the parameters by name.
+     */
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+
+        if (query == null)
+            return parameters;
+
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+
+            if (equals < 0)
+                parameters.put(URLDecoder.decode(pair, "UTF-8"), "");
+            else
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Parses the times of a request.
+     *
+     * @param query   the parameters.
+     * @param maximum the largest number of times allowed.
+     * @return the times in milliseconds.
+     */
+    private static long[] parseTimes(Map<String, String> query, int maximum) {
+        long[] times;
+
+        if (query.containsKey("time")) {
+            String[] values = query.get("time").split(",");
+
+            if (values.length > maximum)
+                throw new IllegalArgumentException("Too many positions requested, at most " + MAX_POSITIONS + " are allowed.");
+
+            times = new long[values.length];
+
+            for (int i = 0; i < values.length; i++)
+                times[i] = parseLong(values[i].trim(), "time");
+        } else if (query.containsKey("start")) {
+            long start = parseLong(query, "start");
+            long end = parseLong(query, "end");
+            long step = parseLong(query, "step");
+
+            if (step <= 0 || end < start)
+                throw new IllegalArgumentException("The step must be positive, and the end not before the start.");
+
+            long range;
+
+            try {
+                range = Math.subtractExact(end, start);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("The range from the start to the end is too long.");
+            }
+
+            if (range / step >= maximum)
+                throw new IllegalArgumentException("Too many positions requested, at most " + MAX_POSITIONS + " are allowed.");
+
+            times = new long[(int) (range / step + 1)];
+
+            for (int i = 0; i < times.length; i++)
+                times[i] = start + i * step;
+        } else {
+            times = new long[]{System.currentTimeMillis()};
+        }
+
+        return times;
+    }
+
+    /**
+     * Parses a required parameter as a long.
+     *
+     * @param query the parameters.
+     * @param name  name of the parameter.
+     * @return the value.
+     */
+    private static long parseLong(Map<String, String> query, String name) {
+        if (!query.containsKey(name))
+            throw new IllegalArgumentException("Missing parameter " + name + ".");
+
+        return parseLong(query.get(name), name);
+    }
+
+    /**
+     * Parses a value as a long.
+     *
+     * @param value the value.
+     * @param name  name of the parameter, for the error message.
+     * @return the value.
+     */
+    private static long parseLong(String value, String name) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " is not an integer: " + value + ".");
+        }
+    }
+    //endregion Parsing
+
+    //region Responses
+
+    /**
+     * Starts a JSON response.
+     *
+     * @param exchange the request.
+     * @return the writer of the body, to be closed.
+     * @throws IOException in case of failure to write.
+     */
+    private static JsonWriter openJson(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+
+        JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+
+        // Hyperbolic orbits have no period, written as NaN rather than failing the whole response
+        json.setLenient(true);
+
+        return json;
+    }
+
+    /**
+     * Answers a request with an error, unless the response has already started.
+     *
+     * @param exchange the request.
+     * @param status   the status code.
+     * @param message  the description of the error.
+     * @throws IOException in case of failure to write.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1)
+            return;
+
+        byte[] body = ("{\"error\":" + new JsonPrimitive(message) + "}").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+    //endregion Responses
+
+    /**
+     * Answers a request.
+     */
+    @FunctionalInterface
+    private interface Query {
+        /**
+         * Writes the response to a request.
+         *
+         * @param exchange the request.
+         * @param model    the system, which must not be modified.
+         * @param query    the parameters.
+         * @throws IOException in case of failure to write.
+         */
+        void answer(HttpExchange exchange, Model model, Map<String, String> query) throws IOException;
+    }
+
+    /**
+     * A copy of a system with all its bodies loaded, shared by all the requests and never modified.
+     */
+    private static class Model {
+        /**
+         * The copy of the system.
+         */
+        private final Astrarium astrarium;
+
+        /**
+         * All the bodies, with the parents before their children.
+         */
+        private final List<CelestialBody> bodies;
+
+        /**
+         * The bodies by name. With duplicate names, the first body is kept.
+         */
+        private final Map<String, CelestialBody> names = new HashMap<>();
+
+        /**
+         * Copies a system.
+         *
+         * @param astrarium the system.
+         */
+        private Model(Astrarium astrarium) {
+            this.astrarium = astrarium.copy();
+
+            CelestialBody root = this.astrarium.getRoot();
+
+            // Loading the bodies while serving would modify the system shared by the requests
+            root.loadAll();
+
+            bodies = Collections.unmodifiableList(Arrays.asList(Snapshot.flatten(root)));
+
+            for (CelestialBody body : bodies)
+                names.putIfAbsent(body.getName(), body);
+        }
+
+        /**
+         * Returns the bodies named in a parameter.
+         *
+         * @param list the names separated by commas, or {@code null} for all the bodies.
+         * @return the bodies, in the same order.
+         */
+        private List<CelestialBody> select(String list) {
+            if (list == null)
+                return bodies;
+
+            List<CelestialBody> selected = new ArrayList<>();
+
+            for (String name : list.split(",")) {
+                CelestialBody body = names.get(name.trim());
+
+                if (body == null)
+                    throw new NoSuchElementException("Unknown body " + name.trim() + ".");
+
+                selected.add(body);
+            }
+
+            return selected;
+        }
+    }
+
+    /**
+     * Serves a system from the command line, on the loopback address only.
+     * <p>
+     * Usage: {@code PositionServer [system file] [port]}
+     * <p>
+     * Without a file, the default solar system is served. The default port is 8080.
+     *
+     * @param args command line arguments.
+     * @throws Exception in case of failure.
+     */
+    public static void main(String[] args) throws Exception {
+        // Read once, when the first server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        RuntimeMetrics.register();
+
+        Astrarium astrarium = args.length > 0 ? JsonHub.importAstrarium(new File(args[0])) : JsonHub.importDefaultMap("SolSystem");
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+
+        PositionServer server = new PositionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), astrarium);
+        server.start();
+
+        System.out.printf("Serving %d bodies on http://localhost:%d/%n", server.model.bodies.size(), server.getPort());
+    }
+}
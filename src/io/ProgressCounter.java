@@ -0,0 +1,81 @@
+package io;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Counts the work done by a file operation, reporting it to a {@link ProgressListener} about a thousand times at most,
+ * and stops the operation if its thread has been interrupted.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+class ProgressCounter {
+    /**
+     * Number of reports over the whole operation.
+     */
+    private static final long REPORTS = 1000;
+
+    /**
+     * The listener.
+     */
+    private final ProgressListener listener;
+
+    /**
+     * The total amount of work.
+     */
+    private final long total;
+
+    /**
+     * The amount of work between two reports.
+     */
+    private final long interval;
+
+    /**
+     * The amount of work done.
+     */
+    private long done = 0;
+
+    /**
+     * The amount of work done at the last report.
+     */
+    private long reported = 0;
+
+    /**
+     * Creates a counter.
+     *
+     * @param listener the listener to report to.
+     * @param total    the total amount of work.
+     */
+    ProgressCounter(ProgressListener listener, long total) {
+        this.listener = listener;
+        this.total = total;
+        this.interval = Math.max(1, total / REPORTS);
+    }
+
+    /**
+     * Creates a counter for an operation that does not report its progress, nor can be cancelled.
+     *
+     * @return the counter.
+     */
+    static ProgressCounter none() {
+        return new ProgressCounter(ProgressListener.NONE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Adds to the work done, reporting it if enough has been done since the last report.
+     *
+     * @param amount the amount of work.
+     * @throws InterruptedIOException if the thread has been interrupted.
+     */
+    void add(long amount) throws InterruptedIOException {
+        done += amount;
+
+        if (done - reported < interval && done < total)
+            return;
+
+        if (Thread.currentThread().isInterrupted())
+            throw new InterruptedIOException("The operation has been cancelled.");
+
+        reported = done;
+        listener.onProgress(Math.min(done, total), total);
+    }
+}
@@ -0,0 +1,26 @@
+package io;
+
+/**
+ * Receives the progress of a long file operation, e.g. to show it in a progress bar.
+ * <p>
+ * The operations reporting their progress can also be cancelled, by interrupting the thread running them,
+ * in which case they fail with an {@link java.io.InterruptedIOException}.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * A listener ignoring the progress.
+     */
+    ProgressListener NONE = (done, total) -> {
+    };
+
+    /**
+     * Called when the operation has progressed.
+     *
+     * @param done  the amount of work done, e.g. in bytes or bodies.
+     * @param total the total amount of work.
+     */
+    void onProgress(long done, long total);
+}
@@ -0,0 +1,317 @@
+package io;
+
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.Snapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Records a simulation session to a file, see {@link SessionRecording}, one {@link Snapshot} at a time,
+ * e.g. every step played by {@link astrarium.Playback}.
+ * <p>
+ * The snapshots are buffered in blocks, written when full. Whenever the snapshots come from different bodies,
+ * because the system has been edited or loaded, the new bodies are written before the next block.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SessionRecorder implements Closeable {
+    /**
+     * The largest number of anomalies buffered in a block, to bound the memory used with large systems.
+     */
+    private static final int BLOCK_VALUES = 1 << 20;
+
+    /**
+     * The largest number of snapshots in a block.
+     */
+    private static final int BLOCK_TICKS = 256;
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The bodies of the current segment.
+     */
+    private CelestialBody[] bodies = null;
+
+    /**
+     * Number of segments written.
+     */
+    private int segments = 0;
+
+    //region Block
+    /**
+     * The times of the snapshots of the current block.
+     */
+    private double[] times;
+
+    /**
+     * The anomalies of the snapshots of the current block, by body.
+     */
+    private double[][] anomalies;
+
+    /**
+     * Number of snapshots in the current block.
+     */
+    private int ticks = 0;
+
+    /**
+     * The smallest time of the current block.
+     */
+    private long minimumTime;
+
+    /**
+     * The largest time of the current block.
+     */
+    private long maximumTime;
+    //endregion Block
+
+    //region Index
+    private long[] segmentOffsets = new long[16];
+    private long[] blockOffsets = new long[256];
+    private int[] blockSegments = new int[256];
+    private long[] blockMinimumTimes = new long[256];
+    private long[] blockMaximumTimes = new long[256];
+    private int blocks = 0;
+    //endregion Index
+
+    /**
+     * Creates a recorder writing to a file.
+     *
+     * @param channel the file.
+     */
+    private SessionRecorder(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a new recording, replacing the file if it exists.
+     *
+     * @param file path to the file.
+     * @return the recorder.
+     * @throws IOException in case of failure to create the file.
+     */
+    public static SessionRecorder create(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(SessionRecording.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(SessionRecording.MAGIC).putShort(SessionRecording.VERSION).putShort((short) 0);
+        header.flip();
+
+        write(channel, header);
+
+        return new SessionRecorder(channel);
+    }
+
+    /**
+     * Records the state of the system at a point of the session.
+     *
+     * @param snapshot the state.
+     * @throws IOException in case of failure to write.
+     */
+    public void record(Snapshot snapshot) throws IOException {
+        if (!snapshot.isOf(bodies)) {
+            flushBlock();
+            writeSegment(snapshot.getBodies());
+        } else if (ticks == times.length) {
+            flushBlock();
+
+            // Each block starts from the last state of the previous one, so that every time in between is in a block
+            int last = times.length - 1;
+
+            for (double[] column : anomalies)
+                column[0] = column[last];
+
+            times[0] = times[last];
+            minimumTime = maximumTime = (long) times[0];
+            ticks = 1;
+        }
+
+        long time = snapshot.getTime();
+
+        if (ticks == 0) {
+            minimumTime = maximumTime = time;
+        } else {
+            minimumTime = Math.min(minimumTime, time);
+            maximumTime = Math.max(maximumTime, time);
+        }
+
+        times[ticks] = time;
+
+        for (int i = 0; i < bodies.length; i++)
+            anomalies[i][ticks] = snapshot.getEccentricAnomaly(i);
+
+        ticks++;
+    }
+
+    /**
+     * Writes the last block and the index, and closes the file.
+     *
+     * @throws IOException in case of failure to write.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+
+            ByteBuffer index = ByteBuffer.allocate(8 + segments * 8 + blocks * 28 + SessionRecording.TRAILER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            long position = channel.position();
+
+            index.putInt(segments).putInt(blocks);
+
+            for (int i = 0; i < segments; i++)
+                index.putLong(segmentOffsets[i]);
+
+            for (int i = 0; i < blocks; i++)
+                index.putLong(blockOffsets[i]).putInt(blockSegments[i]).putLong(blockMinimumTimes[i]).putLong(blockMaximumTimes[i]);
+
+            index.putLong(position).putInt(SessionRecording.MAGIC);
+            index.flip();
+
+            write(channel, index);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the bodies of a new segment, and prepares the buffers of its blocks.
+     *
+     * @param bodies the bodies, starting from the root.
+     * @throws IOException in case of failure to write.
+     */
+    private void writeSegment(CelestialBody[] bodies) throws IOException {
+        Map<CelestialBody, Integer> indices = new IdentityHashMap<>();
+        byte[][] names = new byte[bodies.length][];
+        int size = 1 + 4;
+
+        for (int i = 0; i < bodies.length; i++) {
+            indices.put(bodies[i], i);
+            names[i] = bodies[i].getName().getBytes(StandardCharsets.UTF_8);
+            size += 4 + 4 + names[i].length + 8 * (2 + 6);
+        }
+
+        ByteBuffer segment = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        segment.put(SessionRecording.SEGMENT).putInt(bodies.length);
+
+        for (int i = 0; i < bodies.length; i++) {
+            CelestialBody body = bodies[i];
+            Orbit orbit = body.getOrbit();
+
+            segment.putInt(orbit == null ? -1 : indices.get(orbit.getParent()));
+            segment.putInt(names[i].length).put(names[i]);
+            segment.putDouble(body.getMass()).putDouble(body.getRadius());
+
+            if (orbit == null) {
+                for (int k = 0; k < 6; k++)
+                    segment.putDouble(0);
+            } else {
+                segment.putDouble(orbit.getSemiMajorAxis())
+                        .putDouble(orbit.getEccentricity())
+                        .putDouble(orbit.getInclination())
+                        .putDouble(orbit.getLongitudeOfAscendingNode())
+                        .putDouble(orbit.getArgumentOfPeriapsis())
+                        .putDouble(orbit.getMeanAnomalyAtEpoch());
+            }
+        }
+
+        segment.flip();
+
+        if (segments == segmentOffsets.length)
+            segmentOffsets = Arrays.copyOf(segmentOffsets, segments * 2);
+
+        segmentOffsets[segments++] = channel.position();
+
+        write(channel, segment);
+
+        int capacity = Math.max(2, Math.min(BLOCK_TICKS, BLOCK_VALUES / bodies.length));
+
+        this.bodies = bodies;
+        this.times = new double[capacity];
+        this.anomalies = new double[bodies.length][capacity];
+        this.ticks = 0;
+    }
+
+    /**
+     * Writes the snapshots buffered, if any.
+     *
+     * @throws IOException in case of failure to write.
+     */
+    private void flushBlock() throws IOException {
+        if (ticks == 0)
+            return;
+
+        int columnSize = 4 + ColumnCodec.getMaximumSize(ticks);
+        ByteBuffer block = ByteBuffer.allocate(1 + 4 + 4 + columnSize * (bodies.length + 1)).order(ByteOrder.LITTLE_ENDIAN);
+
+        block.put(SessionRecording.BLOCK).putInt(segments - 1).putInt(ticks);
+
+        writeColumn(block, ColumnCodec.DELTA, times);
+
+        for (double[] column : anomalies)
+            writeColumn(block, ColumnCodec.XOR, column);
+
+        block.flip();
+
+        if (blocks == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+            blockSegments = Arrays.copyOf(blockSegments, blocks * 2);
+            blockMinimumTimes = Arrays.copyOf(blockMinimumTimes, blocks * 2);
+            blockMaximumTimes = Arrays.copyOf(blockMaximumTimes, blocks * 2);
+        }
+
+        blockOffsets[blocks] = channel.position();
+        blockSegments[blocks] = segments - 1;
+        blockMinimumTimes[blocks] = minimumTime;
+        blockMaximumTimes[blocks] = maximumTime;
+        blocks++;
+
+        write(channel, block);
+
+        ticks = 0;
+    }
+
+    /**
+     * Encodes a column of the current block, prefixed by its length so that the readers can skip it.
+     *
+     * @param block  the destination.
+     * @param codec  the encoding.
+     * @param values the column.
+     */
+    private void writeColumn(ByteBuffer block, ColumnCodec codec, double[] values) {
+        int start = block.position();
+
+        block.position(start + 4);
+        codec.encode(values, ticks, block);
+        block.putInt(start, block.position() - start - 4);
+    }
+
+    /**
+     * Writes the whole content of a buffer.
+     *
+     * @param channel the destination.
+     * @param buffer  the buffer.
+     * @throws IOException in case of failure to write.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
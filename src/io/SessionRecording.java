@@ -0,0 +1,501 @@
+package io;
+
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.Snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A simulation session recorded by {@link SessionRecorder}, replayed without solving Kepler's equation.
+ * <p>
+ * The file is a sequence of segments, each one made of the bodies of the system followed by blocks of states.
+ * A new segment starts whenever the system is edited. Every state is stored as a {@link Snapshot},
+ * i.e. the eccentric anomaly of each body, which is what the bodies are rendered from.
+ * <p>
+ * Each block holds the times of its states, encoded with {@link ColumnCodec#DELTA},
+ * and then the anomalies of each body over those times, encoded with {@link ColumnCodec#XOR},
+ * which takes a few bits for anomalies changing smoothly.
+ * An index at the end gives the position and the time range of every block, so that any time can be reached
+ * by decoding a single block, found by binary search among the blocks of its segment sorted by time.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SessionRecording {
+    /**
+     * The first bytes of every file, "ASTS" in ASCII.
+     */
+    public static final int MAGIC = 0x53545341;
+
+    /**
+     * The version of the format.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The extension of the files.
+     */
+    public static final String EXTENSION = ".session";
+
+    /**
+     * Size of the header.
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Size of the trailer.
+     */
+    static final int TRAILER_SIZE = 8 + 4;
+
+    /**
+     * Type of the records of the bodies of a segment.
+     */
+    static final byte SEGMENT = 1;
+
+    /**
+     * Type of the records of a block of states.
+     */
+    static final byte BLOCK = 2;
+
+    /**
+     * The content of the file.
+     */
+    private final MappedByteBuffer buffer;
+
+    //region Index
+    private final long[] segmentOffsets;
+    private final long[] blockOffsets;
+    private final int[] blockSegments;
+    private final long[] blockMinimumTimes;
+    private final long[] blockMaximumTimes;
+
+    /**
+     * The blocks of each segment, sorted by their minimum time.
+     */
+    private final int[][] segmentBlocks;
+
+    /**
+     * For each block of {@link #segmentBlocks}, the largest maximum time of the blocks up to it.
+     */
+    private final long[][] segmentMaximumTimes;
+    //endregion Index
+
+    /**
+     * The systems of the segments, created when first needed.
+     */
+    private final Astrarium[] systems;
+
+    //region Decoded block
+    /**
+     * Index of the block decoded last, or -1.
+     */
+    private int decodedBlock = -1;
+
+    /**
+     * The times of the decoded block.
+     */
+    private double[] times = new double[0];
+
+    /**
+     * The anomalies of the decoded block, by body.
+     */
+    private double[][] anomalies = new double[0][];
+
+    /**
+     * Number of states in the decoded block.
+     */
+    private int ticks = 0;
+    //endregion Decoded block
+
+    /**
+     * Reads the index of a recording.
+     *
+     * @param buffer the content of the file.
+     * @throws IOException if the file is not valid, or has not been closed properly.
+     */
+    private SessionRecording(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.limit() < HEADER_SIZE + TRAILER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(buffer.limit() - 4) != MAGIC)
+            throw new IOException("Not a complete session recording.");
+
+        if (buffer.getShort(4) != VERSION)
+            throw new IOException("Unsupported session recording version " + buffer.getShort(4) + ".");
+
+        ByteBuffer index = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        index.position((int) buffer.getLong(buffer.limit() - TRAILER_SIZE));
+
+        int segments = index.getInt();
+        int blocks = index.getInt();
+
+        segmentOffsets = new long[segments];
+        blockOffsets = new long[blocks];
+        blockSegments = new int[blocks];
+        blockMinimumTimes = new long[blocks];
+        blockMaximumTimes = new long[blocks];
+        systems = new Astrarium[segments];
+
+        for (int i = 0; i < segments; i++)
+            segmentOffsets[i] = index.getLong();
+
+        for (int i = 0; i < blocks; i++) {
+            blockOffsets[i] = index.getLong();
+            blockSegments[i] = index.getInt();
+            blockMinimumTimes[i] = index.getLong();
+            blockMaximumTimes[i] = index.getLong();
+
+            if (blockSegments[i] < 0 || blockSegments[i] >= segments)
+                throw new IOException("Corrupted session recording.");
+        }
+
+        segmentBlocks = new int[segments][];
+        segmentMaximumTimes = new long[segments][];
+
+        List<Integer> sorted = new ArrayList<>(blocks);
+
+        for (int block = 0; block < blocks; block++)
+            sorted.add(block);
+
+        sorted.sort(Comparator.<Integer>comparingInt(block -> blockSegments[block])
+                .thenComparingLong(block -> blockMinimumTimes[block]));
+
+        for (int segment = 0, i = 0; segment < segments; segment++) {
+            int start = i;
+
+            while (i < blocks && blockSegments[sorted.get(i)] == segment)
+                i++;
+
+            segmentBlocks[segment] = new int[i - start];
+            segmentMaximumTimes[segment] = new long[i - start];
+
+            for (int j = 0; j < i - start; j++) {
+                int block = sorted.get(start + j);
+
+                segmentBlocks[segment][j] = block;
+                segmentMaximumTimes[segment][j] = j == 0 ? blockMaximumTimes[block] :
+                        Math.max(segmentMaximumTimes[segment][j - 1], blockMaximumTimes[block]);
+            }
+        }
+    }
+
+    /**
+     * Maps a recording in memory.
+     *
+     * @param file path to the file.
+     * @return the recording.
+     * @throws IOException in case of failure to read the file, or if it is not valid.
+     */
+    public static SessionRecording map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Session recordings larger than 2 GiB cannot be mapped.");
+
+            return new SessionRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    //region Getters
+
+    /**
+     * Returns the number of segments, i.e. the number of times the system changed, plus one.
+     *
+     * @return the number of segments.
+     */
+    public int getSegmentCount() {
+        return segmentOffsets.length;
+    }
+
+    /**
+     * Returns the number of blocks.
+     *
+     * @return the number of blocks.
+     */
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Returns the time of the first state recorded.
+     *
+     * @return time in milliseconds, or zero if the recording is empty.
+     */
+    public synchronized long getStartTime() {
+        if (blockOffsets.length == 0)
+            return 0;
+
+        decode(0);
+
+        return (long) times[0];
+    }
+
+    /**
+     * Returns the segment recorded around the given time, i.e. the one of the first block containing it,
+     * or of the closest block if none does.
+     *
+     * @param time time in milliseconds.
+     * @return the index of the segment, or -1 if the recording is empty.
+     */
+    public int getSegmentAt(long time) {
+        int closest = -1;
+        long distance = Long.MAX_VALUE;
+
+        for (int i = 0; i < blockOffsets.length; i++) {
+            long d = time < blockMinimumTimes[i] ? blockMinimumTimes[i] - time :
+                    time > blockMaximumTimes[i] ? time - blockMaximumTimes[i] : 0;
+
+            if (d < distance) {
+                closest = i;
+                distance = d;
+
+                if (d == 0)
+                    break;
+            }
+        }
+
+        return closest < 0 ? -1 : blockSegments[closest];
+    }
+
+    /**
+     * Returns the system of a segment. The same instance is returned at every call.
+     *
+     * @param segment index of the segment.
+     * @return the system.
+     */
+    public synchronized Astrarium getAstrarium(int segment) {
+        if (systems[segment] == null)
+            systems[segment] = readSegment(segment);
+
+        return systems[segment];
+    }
+    //endregion Getters
+
+    /**
+     * Returns the recorded state of a system at a given time, interpolating between the states recorded around it.
+     * <p>
+     * It can be used as the {@link astrarium.Playback.KeyframeSource} of a playback.
+     * If the session went through the same time more than once, the first recording of that time is returned.
+     *
+     * @param bodies the bodies of a system returned by {@link #getAstrarium(int)},
+     *               as returned by {@link Snapshot#flatten(CelestialBody)}.
+     * @param time   time in milliseconds.
+     * @return the state, or {@code null} if the time has not been recorded with those bodies.
+     */
+    public synchronized Snapshot getSnapshot(CelestialBody[] bodies, long time) {
+        int segment = -1;
+
+        for (int i = 0; i < systems.length && segment < 0 && bodies.length > 0; i++)
+            if (systems[i] != null && bodies[0] == systems[i].getRoot())
+                segment = i;
+
+        int block = segment < 0 ? -1 : findBlock(segment, time);
+
+        if (block < 0)
+            return null;
+
+        decode(block);
+
+        if (anomalies.length != bodies.length)
+            return null;
+
+        // The states of a block follow each other, so one of them is around any time within its range
+        for (int i = 0; i < ticks; i++) {
+            double start = times[i];
+            double end = i + 1 < ticks ? times[i + 1] : start;
+
+            if (time < Math.min(start, end) || time > Math.max(start, end))
+                continue;
+
+            double alpha = end == start ? 0 : (time - start) / (end - start);
+            double[] state = new double[bodies.length];
+
+            for (int body = 0; body < bodies.length; body++) {
+                double[] column = anomalies[body];
+
+                state[body] = alpha == 0 ? column[i] : column[i] + alpha * (column[i + 1] - column[i]);
+            }
+
+            return Snapshot.of(bodies, time, state);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the first block of a segment recorded whose range contains the given time,
+     * binary-searching the blocks sorted by their minimum time.
+     *
+     * @param segment index of the segment.
+     * @param time    time in milliseconds.
+     * @return the index of the block, or -1 if none contains the time.
+     */
+    private int findBlock(int segment, long time) {
+        int[] blocks = segmentBlocks[segment];
+        long[] maximumTimes = segmentMaximumTimes[segment];
+
+        // The last block starting at or before the time
+        int low = 0, high = blocks.length - 1, last = -1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if (blockMinimumTimes[blocks[middle]] <= time) {
+                last = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // The blocks before it may contain the time too if the session went back, as long as one ends after it
+        int first = -1;
+
+        for (int i = last; i >= 0 && maximumTimes[i] >= time; i--)
+            if (blockMaximumTimes[blocks[i]] >= time && (first < 0 || blocks[i] < first))
+                first = blocks[i];
+
+        return first;
+    }
+
+    /**
+     * Replays every state of the recording as fast as possible, to measure the cost of rendering them.
+     *
+     * @return the number of states replayed.
+     */
+    public synchronized long replayAll() {
+        long count = 0;
+
+        for (int block = 0; block < blockOffsets.length; block++) {
+            Astrarium system = getAstrarium(blockSegments[block]);
+            CelestialBody[] bodies = Snapshot.flatten(system.getRoot());
+
+            decode(block);
+
+            for (int i = 0; i < ticks; i++) {
+                double[] state = new double[bodies.length];
+
+                for (int body = 0; body < bodies.length; body++)
+                    state[body] = anomalies[body][i];
+
+                Snapshot snapshot = Snapshot.of(bodies, (long) times[i], state);
+
+                system.setTime(snapshot.getTime(), snapshot, snapshot);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Decodes a block, unless it has been decoded last.
+     *
+     * @param block index of the block.
+     */
+    private void decode(int block) {
+        if (block == decodedBlock)
+            return;
+
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.position((int) blockOffsets[block]);
+
+        if (in.get() != BLOCK)
+            throw new IllegalStateException("Corrupted session recording.");
+
+        in.getInt();
+        ticks = in.getInt();
+
+        ByteBuffer bodiesStart = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int count = bodiesStart.getInt((int) segmentOffsets[blockSegments[block]] + 1);
+
+        if (times.length < ticks)
+            times = new double[ticks];
+
+        if (anomalies.length != count || anomalies[0].length < ticks)
+            anomalies = new double[count][ticks];
+
+        in.getInt();
+        ColumnCodec.DELTA.decode(in, times, ticks);
+
+        for (double[] column : anomalies) {
+            in.getInt();
+            ColumnCodec.XOR.decode(in, column, ticks);
+        }
+
+        decodedBlock = block;
+    }
+
+    /**
+     * Creates the system of a segment.
+     *
+     * @param segment index of the segment.
+     * @return the system.
+     */
+    private Astrarium readSegment(int segment) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.position((int) segmentOffsets[segment]);
+
+        if (in.get() != SEGMENT)
+            throw new IllegalStateException("Corrupted session recording.");
+
+        CelestialBody[] bodies = new CelestialBody[in.getInt()];
+
+        for (int i = 0; i < bodies.length; i++) {
+            int parent = in.getInt();
+
+            byte[] name = new byte[in.getInt()];
+            in.get(name);
+
+            double mass = in.getDouble();
+            double radius = in.getDouble();
+            double a = in.getDouble(), e = in.getDouble(), inclination = in.getDouble();
+            double node = in.getDouble(), periapsis = in.getDouble(), meanAnomaly = in.getDouble();
+
+            String string = new String(name, StandardCharsets.UTF_8);
+
+            // The bodies are in breadth-first order, so the parent is always created first
+            bodies[i] = parent < 0 ? new CelestialBody(string, mass, radius) :
+                    new CelestialBody(string, mass, radius,
+                            new Orbit(bodies[parent], a, e, inclination, node, periapsis, meanAnomaly));
+        }
+
+        return new Astrarium(bodies[0]);
+    }
+
+    /**
+     * Replays a recording from the command line, printing how fast the states can be rendered.
+     * <p>
+     * Usage: {@code SessionRecording <recording>}
+     *
+     * @param args command line arguments.
+     * @throws Exception in case of failure.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: SessionRecording <recording>");
+            System.exit(1);
+        }
+
+        SessionRecording recording = map(new File(args[0]));
+
+        long begin = System.nanoTime();
+        long states = recording.replayAll();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf("Replayed %d states of %d segments in %.2f s, %.0f states/s.%n",
+                states, recording.getSegmentCount(), seconds, states / seconds);
+    }
+}
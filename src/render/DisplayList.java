@@ -0,0 +1,405 @@
+package render;
+
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A flat list of the bodies to draw in a frame, used by {@link SceneRenderer} to batch its drawing commands.
+ * <p>
+ * The hierarchy of the system is visited breadth-first and every visible body is stored with its absolute
+ * coordinates on the screen, so that no transformation is required while drawing.
+ * The bodies can then be iterated grouped by style, so that each color is set only once per frame.
+ * <p>
+ * All the storage is made of primitive arrays that grow when needed and are reused between frames,
+ * so rebuilding the list does not allocate once it has reached the size of the scene.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public final class DisplayList {
+    /**
+     * Minimum size in pixels that the apoapsis of an orbit must have for its body, and its subtree, to be drawn.
+     */
+    public static final double MINIMUM_ORBIT_SIZE = 9;
+
+    /**
+     * Minimum radius in pixels of the dot representing a body.
+     */
+    public static final double MINIMUM_BODY_RADIUS = 5;
+
+    /**
+     * Number of the distinct styles the bodies can have.
+     */
+    private final int styleCount;
+
+    /**
+     * Number of bodies in the list.
+     */
+    private int size = 0;
+
+    /**
+     * Number of bodies that have been culled while building the list.
+     */
+    private int culled = 0;
+
+    /**
+     * Number of bodies whose dot intersects the viewport.
+     */
+    private int visible = 0;
+
+    //region Per-body storage
+    /**
+     * The bodies in the list, in breadth-first order.
+     */
+    private CelestialBody[] bodies = new CelestialBody[64];
+    /**
+     * Index of the parent of each body in the list, or -1 for the root.
+     */
+    private int[] parents = new int[64];
+    /**
+     * Horizontal screen coordinate of each body.
+     */
+    private double[] xs = new double[64];
+    /**
+     * Vertical screen coordinate of each body.
+     */
+    private double[] ys = new double[64];
+    /**
+     * Radius in pixels of the dot of each body.
+     */
+    private double[] radii = new double[64];
+    /**
+     * Style, or color index, of each body.
+     */
+    private int[] styles = new int[64];
+    /**
+     * Whether the dot of each body intersects the viewport.
+     */
+    private boolean[] bodyVisible = new boolean[64];
+    /**
+     * Whether the orbit of each body intersects the viewport.
+     */
+    private boolean[] orbitVisible = new boolean[64];
+    //endregion
+
+    //region Style grouping
+    /**
+     * Indices of the bodies sorted by style.
+     */
+    private int[] order = new int[64];
+    /**
+     * Start of each style group inside {@link #order}. The group {@code s} ends where the group {@code s + 1} starts.
+     */
+    private final int[] groupStart;
+    //endregion
+
+    /**
+     * Creates a new empty list.
+     *
+     * @param styleCount number of distinct styles, e.g. the size of the palette.
+     */
+    public DisplayList(int styleCount) {
+        this.styleCount = styleCount;
+        this.groupStart = new int[styleCount + 1];
+    }
+
+    //region Build
+
+    /**
+     * Rebuilds the list from the rendered state of the system.
+     * <p>
+     * Note that the bodies must have been rendered with {@link CelestialBody#renderAtTime(long)} first.
+     *
+     * @param root    root of the system.
+     * @param zoom    scale of the map in pixels per meter.
+     * @param originX horizontal screen coordinate of the origin of the system.
+     * @param originY vertical screen coordinate of the origin of the system.
+     * @param width   width of the viewport.
+     * @param height  height of the viewport.
+     * @param styler  the function giving the style of a body.
+     */
+    public void build(CelestialBody root, double zoom, double originX, double originY, double width, double height, Styler styler) {
+        size = 0;
+        culled = 0;
+        visible = 0;
+
+        add(root, -1, originX, originY, zoom, styler);
+        orbitVisible[0] = false;
+
+        // The list itself is the queue of the breadth-first visit
+        for (int i = 0; i < size; i++) {
+            List<CelestialBody> children = bodies[i].getChildren();
+
+            for (int c = 0; c < children.size(); c++) {
+                CelestialBody child = children.get(c);
+                Orbit orbit = child.getOrbit();
+
+                //noinspection ConstantConditions
+                if (orbit.getApoapsis() * zoom <= MINIMUM_ORBIT_SIZE) {
+                    culled++;
+                    continue;
+                }
+
+                int index = add(child, i, xs[i] + orbit.getRenderedX() * zoom, ys[i] + orbit.getRenderedY() * zoom, zoom, styler);
+
+                orbitVisible[index] = intersectsViewport(xs[i], ys[i], orbit.getApoapsis() * zoom, width, height);
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            bodyVisible[i] = intersectsViewport(xs[i], ys[i], radii[i], width, height);
+
+            if (bodyVisible[i])
+                visible++;
+            else if (!orbitVisible[i])
+                culled++;
+        }
+
+        sortByStyle();
+    }
+
+    /**
+     * Appends a body to the list.
+     *
+     * @param body   the body to add.
+     * @param parent index of its parent.
+     * @param x      horizontal screen coordinate.
+     * @param y      vertical screen coordinate.
+     * @param zoom   scale of the map.
+     * @param styler the function giving the style of the body.
+     * @return the index of the body in the list.
+     */
+    private int add(CelestialBody body, int parent, double x, double y, double zoom, Styler styler) {
+        if (size == bodies.length)
+            grow();
+
+        bodies[size] = body;
+        parents[size] = parent;
+        xs[size] = x;
+        ys[size] = y;
+        radii[size] = Math.max(MINIMUM_BODY_RADIUS, body.getRadius() * zoom);
+        styles[size] = styler.styleOf(body);
+
+        return size++;
+    }
+
+    /**
+     * Doubles the capacity of every array.
+     */
+    private void grow() {
+        int capacity = bodies.length * 2;
+
+        bodies = Arrays.copyOf(bodies, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        styles = Arrays.copyOf(styles, capacity);
+        bodyVisible = Arrays.copyOf(bodyVisible, capacity);
+        orbitVisible = Arrays.copyOf(orbitVisible, capacity);
+        order = Arrays.copyOf(order, capacity);
+    }
+
+    /**
+     * Counting sort of the bodies by style. Linear in the number of bodies and styles, and allocation free.
+     */
+    private void sortByStyle() {
+        Arrays.fill(groupStart, 0);
+
+        for (int i = 0; i < size; i++)
+            groupStart[styles[i] + 1]++;
+
+        for (int s = 0; s < styleCount; s++)
+            groupStart[s + 1] += groupStart[s];
+
+        // groupStart[s] is used as the insertion cursor and then shifted back into place
+        for (int i = 0; i < size; i++)
+            order[groupStart[styles[i]]++] = i;
+
+        for (int s = styleCount; s > 0; s--)
+            groupStart[s] = groupStart[s - 1];
+
+        groupStart[0] = 0;
+    }
+
+    /**
+     * Checks if the circle of the given {@code radius} intersects the viewport.
+     *
+     * @param x      horizontal coordinate of the center.
+     * @param y      vertical coordinate of the center.
+     * @param radius radius of the circle.
+     * @param width  width of the viewport.
+     * @param height height of the viewport.
+     * @return {@code true} if the bounding box of the circle intersects the viewport.
+     */
+    private static boolean intersectsViewport(double x, double y, double radius, double width, double height) {
+        return x + radius >= 0 && x - radius <= width && y + radius >= 0 && y - radius <= height;
+    }
+    //endregion
+
+    //region Getters
+
+    /**
+     * Returns the number of bodies in the list.
+     *
+     * @return number of bodies.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bodies discarded while building the list,
+     * either because their orbit was too small or because they were outside of the viewport.
+     *
+     * @return number of culled bodies.
+     */
+    public int getCulledCount() {
+        return culled;
+    }
+
+    /**
+     * Returns the number of bodies whose dot intersects the viewport.
+     *
+     * @return number of visible bodies.
+     */
+    public int getVisibleCount() {
+        return visible;
+    }
+
+    /**
+     * Returns the number of distinct styles.
+     *
+     * @return number of styles.
+     */
+    public int getStyleCount() {
+        return styleCount;
+    }
+
+    /**
+     * Returns the index, in the list sorted by style, where the group of the given {@code style} starts.
+     *
+     * @param style the style.
+     * @return the first position of the group.
+     */
+    public int groupStart(int style) {
+        return groupStart[style];
+    }
+
+    /**
+     * Returns the index, in the list sorted by style, where the group of the given {@code style} ends (excluded).
+     *
+     * @param style the style.
+     * @return the position after the last of the group.
+     */
+    public int groupEnd(int style) {
+        return groupStart[style + 1];
+    }
+
+    /**
+     * Returns the index of the body at the given position of the list sorted by style.
+     *
+     * @param position position in the sorted list.
+     * @return index of the body.
+     */
+    public int sorted(int position) {
+        return order[position];
+    }
+
+    /**
+     * Returns the body at the given index.
+     *
+     * @param index index of the body.
+     * @return the body.
+     */
+    public CelestialBody getBody(int index) {
+        return bodies[index];
+    }
+
+    /**
+     * Returns the index of the parent of the body, or -1 for the root.
+     *
+     * @param index index of the body.
+     * @return index of the parent.
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * Returns the horizontal screen coordinate of the body.
+     *
+     * @param index index of the body.
+     * @return the x coordinate in pixels.
+     */
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Returns the vertical screen coordinate of the body.
+     *
+     * @param index index of the body.
+     * @return the y coordinate in pixels.
+     */
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Returns the radius of the dot of the body.
+     *
+     * @param index index of the body.
+     * @return the radius in pixels.
+     */
+    public double getRadius(int index) {
+        return radii[index];
+    }
+
+    /**
+     * Returns the style of the body.
+     *
+     * @param index index of the body.
+     * @return the style.
+     */
+    public int getStyle(int index) {
+        return styles[index];
+    }
+
+    /**
+     * Returns whether the dot of the body intersects the viewport.
+     *
+     * @param index index of the body.
+     * @return {@code true} if the body is visible.
+     */
+    public boolean isBodyVisible(int index) {
+        return bodyVisible[index];
+    }
+
+    /**
+     * Returns whether the orbit of the body intersects the viewport.
+     *
+     * @param index index of the body.
+     * @return {@code true} if the orbit is visible.
+     */
+    public boolean isOrbitVisible(int index) {
+        return orbitVisible[index];
+    }
+    //endregion
+
+    /**
+     * A function that gives the style of a body.
+     */
+    @FunctionalInterface
+    public interface Styler {
+        /**
+         * Returns the style of the given body.
+         *
+         * @param body the body.
+         * @return a style between 0 and the number of styles of the list (excluded).
+         */
+        int styleOf(CelestialBody body);
+    }
+}
@@ -0,0 +1,202 @@
+package render;
+
+import astrarium.Astrarium;
+import io.JsonHub;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Renders a time range of a system offscreen and saves every frame as a PNG image, e.g. to make a time-lapse video.
+ * <p>
+ * The frames are rendered in parallel. Every worker thread has its own copy of the system,
+ * its own {@link SceneRenderer} and its own image, since none of them can be shared between threads.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class FrameExporter {
+    /**
+     * Creates a new copy of the system for each worker.
+     */
+    private final Supplier<Astrarium> systemFactory;
+
+    /**
+     * Width of the frames in pixels.
+     */
+    private final int width;
+
+    /**
+     * Height of the frames in pixels.
+     */
+    private final int height;
+
+    /**
+     * Scale of the frames in pixels per meter.
+     */
+    private double zoom = 5e-10;
+
+    /**
+     * Number of worker threads.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a new exporter.
+     *
+     * @param systemFactory a function returning a new, independent, copy of the system at each call.
+     * @param width         width of the frames in pixels.
+     * @param height        height of the frames in pixels.
+     * @see #copiesOf(Astrarium)
+     */
+    public FrameExporter(Supplier<Astrarium> systemFactory, int width, int height) {
+        this.systemFactory = systemFactory;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns a factory of independent copies of the given system, made through its JSON serialisation.
+     *
+     * @param astrarium the system to copy.
+     * @return a function returning a new copy at each call.
+     */
+    public static Supplier<Astrarium> copiesOf(Astrarium astrarium) {
+        String json = JsonHub.exportJson(astrarium);
+
+        return () -> JsonHub.importAstrariumJson(json);
+    }
+
+    //region Setters
+
+    /**
+     * Sets the scale of the frames.
+     *
+     * @param zoom scale in pixels per meter.
+     */
+    public void setZoom(double zoom) {
+        this.zoom = zoom;
+    }
+
+    /**
+     * Sets the number of frames rendered at the same time.
+     *
+     * @param threads number of worker threads, by default the number of processors.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("At least one thread is required.");
+
+        this.threads = threads;
+    }
+    //endregion Setters
+
+    /**
+     * Renders the frames from {@code start} to {@code end}, both included, every {@code step} milliseconds.
+     * <p>
+     * The frames are saved in {@code directory} as {@code frame-000000.png}, {@code frame-000001.png}, etc.
+     *
+     * @param directory the output directory, created if missing.
+     * @param start     time of the first frame in milliseconds.
+     * @param end       time of the last frame in milliseconds.
+     * @param step      time between two frames in milliseconds.
+     * @return the number of frames written.
+     * @throws IOException          in case of failure to write a frame.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    public int export(File directory, long start, long end, long step) throws IOException, InterruptedException {
+        if (step <= 0)
+            throw new IllegalArgumentException("The step must be greater than zero.");
+        if (end < start)
+            throw new IllegalArgumentException("The end must not be before the start.");
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create the directory " + directory);
+
+        final int count = (int) ((end - start) / step) + 1;
+
+        AtomicInteger next = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, count));
+
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+
+            for (int i = 0; i < Math.min(threads, count); i++) {
+                workers.add(executor.submit(() -> {
+                    Astrarium astrarium = systemFactory.get();
+                    SceneRenderer sceneRenderer = new SceneRenderer();
+                    Java2DRenderer renderer = new Java2DRenderer(width, height);
+
+                    try {
+                        for (int frame = next.getAndIncrement(); frame < count; frame = next.getAndIncrement()) {
+                            astrarium.setTime(start + frame * step);
+
+                            sceneRenderer.draw(renderer, astrarium.getRoot(), zoom, width / 2D, height / 2D);
+
+                            File file = new File(directory, String.format("frame-%06d.png", frame));
+
+                            if (!ImageIO.write(renderer.getImage(), "png", file))
+                                throw new IOException("No PNG writer available.");
+                        }
+                    } finally {
+                        renderer.dispose();
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<Void> worker : workers)
+                worker.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+
+            throw new RuntimeException("Frame rendering failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return count;
+    }
+
+    /**
+     * Exports a time-lapse from the command line, without a display.
+     * <p>
+     * Usage: {@code FrameExporter <system file> <output directory> <start ms> <end ms> <step ms> [width height zoom]}
+     *
+     * @param args command line arguments.
+     * @throws Exception in case of failure.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 5 && args.length != 8) {
+            System.err.println("Usage: FrameExporter <system file> <output directory> <start ms> <end ms> <step ms> [width height zoom]");
+            System.exit(1);
+        }
+
+        System.setProperty("java.awt.headless", "true");
+
+        Astrarium astrarium = JsonHub.importAstrarium(new File(args[0]));
+
+        int width = args.length == 8 ? Integer.parseInt(args[5]) : 1920;
+        int height = args.length == 8 ? Integer.parseInt(args[6]) : 1080;
+
+        FrameExporter exporter = new FrameExporter(copiesOf(astrarium), width, height);
+
+        if (args.length == 8)
+            exporter.setZoom(Double.parseDouble(args[7]));
+
+        long startTime = System.nanoTime();
+
+        int frames = exporter.export(new File(args[1]), Long.parseLong(args[2]), Long.parseLong(args[3]), Long.parseLong(args[4]));
+
+        System.out.printf("Exported %d frames in %.2f s.%n", frames, (System.nanoTime() - startTime) / 1e9);
+    }
+}
@@ -0,0 +1,200 @@
+package render;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@link Renderer} that draws offscreen on a {@link BufferedImage} through Java2D.
+ * <p>
+ * It does not need a display, so it can run on a headless machine with {@code -Djava.awt.headless=true}.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public class Java2DRenderer implements Renderer {
+    /**
+     * The image drawn on.
+     */
+    private final BufferedImage image;
+
+    /**
+     * The graphics of the image.
+     */
+    private final Graphics2D graphics;
+
+    /**
+     * The path being built.
+     */
+    private final Path2D.Double path = new Path2D.Double();
+
+    /**
+     * A reusable circle, appended to the path.
+     */
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+
+    /**
+     * Color used to clear the image.
+     */
+    private final Color background;
+
+    /**
+     * Current fill color.
+     */
+    private Color fill = Color.BLACK;
+
+    /**
+     * Current stroke color.
+     */
+    private Color stroke = Color.BLACK;
+
+    /**
+     * Current text alignment.
+     */
+    private TextAlign textAlign = TextAlign.LEFT;
+
+    /**
+     * Creates a new renderer with a new image of the given size and a white background.
+     *
+     * @param width  width of the image in pixels.
+     * @param height height of the image in pixels.
+     */
+    public Java2DRenderer(int width, int height) {
+        this(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), Palette.WHITE);
+    }
+
+    /**
+     * Creates a new renderer drawing on the given {@code image}.
+     *
+     * @param image      the image to draw on.
+     * @param background the color used to clear the image, e.g. {@link Palette#WHITE}.
+     */
+    public Java2DRenderer(BufferedImage image, int background) {
+        this.image = image;
+        this.background = new Color(background, true);
+        this.graphics = image.createGraphics();
+
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setStroke(new BasicStroke(1));
+    }
+
+    /**
+     * Returns the image drawn on.
+     *
+     * @return the image.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Releases the resources of the graphics. The renderer must not be used afterwards.
+     */
+    public void dispose() {
+        graphics.dispose();
+    }
+
+    @Override
+    public double getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public void clear() {
+        graphics.setBackground(background);
+        graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    //region State
+    @Override
+    public void setFill(int argb) {
+        if (fill.getRGB() != argb)
+            fill = new Color(argb, true);
+    }
+
+    @Override
+    public void setStroke(int argb) {
+        if (stroke.getRGB() != argb)
+            stroke = new Color(argb, true);
+    }
+
+    @Override
+    public void setLineWidth(double width) {
+        graphics.setStroke(new BasicStroke((float) width));
+    }
+
+    @Override
+    public void setFont(String family, double size) {
+        graphics.setFont(new Font(family, Font.PLAIN, (int) Math.round(size)));
+    }
+
+    @Override
+    public void setTextAlign(TextAlign align) {
+        this.textAlign = align;
+    }
+    //endregion State
+
+    //region Path
+    @Override
+    public void beginPath() {
+        path.reset();
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        path.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        path.lineTo(x, y);
+    }
+
+    @Override
+    public void closePath() {
+        path.closePath();
+    }
+
+    @Override
+    public void circle(double x, double y, double radius) {
+        ellipse.setFrame(x - radius, y - radius, radius * 2, radius * 2);
+        path.append(ellipse, false);
+    }
+
+    @Override
+    public void fill() {
+        graphics.setColor(fill);
+        graphics.fill(path);
+    }
+
+    @Override
+    public void stroke() {
+        graphics.setColor(stroke);
+        graphics.draw(path);
+    }
+    //endregion Path
+
+    //region Shapes
+    @Override
+    public void fillRect(double x, double y, double width, double height) {
+        graphics.setColor(fill);
+        graphics.fill(new Rectangle.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillText(String text, double x, double y) {
+        graphics.setColor(fill);
+
+        if (textAlign == TextAlign.CENTER)
+            x -= graphics.getFontMetrics().stringWidth(text) / 2D;
+
+        graphics.drawString(text, (float) x, (float) y);
+    }
+    //endregion Shapes
+}
@@ -0,0 +1,163 @@
+package render;
+
+/**
+ * The colors used to draw a system, expressed as ARGB integers so that they do not depend on any UI toolkit.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Palette {
+    //region Fixed colors
+    /**
+     * Opaque black.
+     */
+    public static final int BLACK = 0xFF000000;
+    /**
+     * Opaque white.
+     */
+    public static final int WHITE = 0xFFFFFFFF;
+    /**
+     * Opaque grey, used for the labels.
+     */
+    public static final int GREY = 0xFF808080;
+    /**
+     * Opaque red.
+     */
+    public static final int RED = 0xFFFF0000;
+    /**
+     * Opaque green, as in the CSS named colors.
+     */
+    public static final int GREEN = 0xFF008000;
+    /**
+     * Opaque blue.
+     */
+    public static final int BLUE = 0xFF0000FF;
+    //endregion Fixed colors
+
+    /**
+     * Number of distinct colors returned by {@link #hashColor(Object)}.
+     * <p>
+     * The hue is an integer number of degrees, so there cannot be more than 360 of them.
+     */
+    public static final int HASH_PALETTE_SIZE = 360;
+
+    /**
+     * Intensity of the hashed colors.
+     */
+    private static final double HASH_SATURATION = 0.8;
+
+    /**
+     * Brightness of the hashed colors.
+     */
+    private static final double HASH_BRIGHTNESS = 0.7;
+
+    /**
+     * The precomputed hashed colors, indexed by hue.
+     */
+    private static final int[] HASH_PALETTE = new int[HASH_PALETTE_SIZE];
+
+    static {
+        for (int hue = 0; hue < HASH_PALETTE_SIZE; hue++)
+            HASH_PALETTE[hue] = hsb(hue, HASH_SATURATION, HASH_BRIGHTNESS);
+    }
+
+    /**
+     * Prevents the class from being instantiated.
+     */
+    private Palette() {
+    }
+
+    /**
+     * Returns a unique color generated from the object's hash.
+     * Objects with the same hash will have the same color.
+     *
+     * @param object the object to hash.
+     * @return a color generated from the hash.
+     */
+    public static int hashColor(Object object) {
+        return hashPaletteColor(hashColorIndex(object));
+    }
+
+    /**
+     * Returns the index in the hash palette of the color of the given object.
+     * Objects with the same hash will have the same index.
+     * <p>
+     * It can be stored to group objects by color.
+     *
+     * @param object the object to hash.
+     * @return an index between 0 and {@link #HASH_PALETTE_SIZE} (excluded).
+     */
+    public static int hashColorIndex(Object object) {
+        return Math.floorMod(object.hashCode(), HASH_PALETTE_SIZE);
+    }
+
+    /**
+     * Returns the color of the hash palette at the given {@code index}.
+     *
+     * @param index index of the color, as returned by {@link #hashColorIndex(Object)}.
+     * @return the color.
+     */
+    public static int hashPaletteColor(int index) {
+        return HASH_PALETTE[index];
+    }
+
+    /**
+     * Converts a color from the HSB model to ARGB, with the same algorithm used by JavaFX.
+     *
+     * @param hue        hue in degrees.
+     * @param saturation saturation between 0 and 1.
+     * @param brightness brightness between 0 and 1.
+     * @return the opaque color.
+     */
+    public static int hsb(double hue, double saturation, double brightness) {
+        double h = (((hue % 360) + 360) % 360) / 60;
+        double f = h - Math.floor(h);
+
+        double p = brightness * (1 - saturation);
+        double q = brightness * (1 - saturation * f);
+        double t = brightness * (1 - saturation * (1 - f));
+
+        switch ((int) h) {
+            case 0:
+                return rgb(brightness, t, p);
+            case 1:
+                return rgb(q, brightness, p);
+            case 2:
+                return rgb(p, brightness, t);
+            case 3:
+                return rgb(p, q, brightness);
+            case 4:
+                return rgb(t, p, brightness);
+            default:
+                return rgb(brightness, p, q);
+        }
+    }
+
+    /**
+     * Packs an opaque color from its components.
+     *
+     * @param red   red between 0 and 1.
+     * @param green green between 0 and 1.
+     * @param blue  blue between 0 and 1.
+     * @return the ARGB color.
+     */
+    public static int rgb(double red, double green, double blue) {
+        return argb(1, red, green, blue);
+    }
+
+    /**
+     * Packs a color from its components.
+     *
+     * @param alpha opacity between 0 and 1.
+     * @param red   red between 0 and 1.
+     * @param green green between 0 and 1.
+     * @param blue  blue between 0 and 1.
+     * @return the ARGB color.
+     */
+    public static int argb(double alpha, double red, double green, double blue) {
+        return (int) Math.round(alpha * 255) << 24
+                | (int) Math.round(red * 255) << 16
+                | (int) Math.round(green * 255) << 8
+                | (int) Math.round(blue * 255);
+    }
+}
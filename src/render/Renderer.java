@@ -0,0 +1,158 @@
+package render;
+
+/**
+ * The drawing surface used by {@link SceneRenderer}, independent from any UI toolkit.
+ * <p>
+ * It follows the model of a 2D canvas: a current path is built with {@link #moveTo(double, double)},
+ * {@link #lineTo(double, double)} and {@link #circle(double, double, double)},
+ * then painted all at once with {@link #fill()} or {@link #stroke()}.
+ * <p>
+ * Colors are expressed as 32 bit ARGB integers, e.g. {@code 0xFF808080} for an opaque grey.
+ * <p>
+ * Created on 18-Oct-26.
+ * @see Java2DRenderer
+ */
+public interface Renderer {
+    /**
+     * Returns the width of the drawing surface in pixels.
+     *
+     * @return the width.
+     */
+    double getWidth();
+
+    /**
+     * Returns the height of the drawing surface in pixels.
+     *
+     * @return the height.
+     */
+    double getHeight();
+
+    /**
+     * Clears the whole surface.
+     */
+    void clear();
+
+    //region State
+
+    /**
+     * Sets the color used by {@link #fill()}, {@link #fillRect(double, double, double, double)}
+     * and {@link #fillText(String, double, double)}.
+     *
+     * @param argb the color.
+     */
+    void setFill(int argb);
+
+    /**
+     * Sets the color used by {@link #stroke()}.
+     *
+     * @param argb the color.
+     */
+    void setStroke(int argb);
+
+    /**
+     * Sets the width of the lines drawn by {@link #stroke()}.
+     *
+     * @param width the width in pixels.
+     */
+    void setLineWidth(double width);
+
+    /**
+     * Sets the font used by {@link #fillText(String, double, double)}.
+     *
+     * @param family name of the font family, e.g. "Monospaced".
+     * @param size   size of the font in points.
+     */
+    void setFont(String family, double size);
+
+    /**
+     * Sets the horizontal alignment of the text relatively to the point passed to {@link #fillText(String, double, double)}.
+     *
+     * @param align the alignment.
+     */
+    void setTextAlign(TextAlign align);
+    //endregion State
+
+    //region Path
+
+    /**
+     * Starts a new empty path, discarding the current one.
+     */
+    void beginPath();
+
+    /**
+     * Starts a new sub-path at the given point.
+     *
+     * @param x horizontal coordinate.
+     * @param y vertical coordinate.
+     */
+    void moveTo(double x, double y);
+
+    /**
+     * Adds a segment from the current point to the given one.
+     *
+     * @param x horizontal coordinate.
+     * @param y vertical coordinate.
+     */
+    void lineTo(double x, double y);
+
+    /**
+     * Closes the current sub-path with a segment to its first point.
+     */
+    void closePath();
+
+    /**
+     * Adds a circle to the current path as a new closed sub-path.
+     *
+     * @param x      horizontal coordinate of the center.
+     * @param y      vertical coordinate of the center.
+     * @param radius radius of the circle.
+     */
+    void circle(double x, double y, double radius);
+
+    /**
+     * Fills the current path with the fill color.
+     */
+    void fill();
+
+    /**
+     * Strokes the current path with the stroke color.
+     */
+    void stroke();
+    //endregion Path
+
+    //region Shapes
+
+    /**
+     * Fills a rectangle with the fill color.
+     *
+     * @param x      horizontal coordinate of the top left corner.
+     * @param y      vertical coordinate of the top left corner.
+     * @param width  width of the rectangle.
+     * @param height height of the rectangle.
+     */
+    void fillRect(double x, double y, double width, double height);
+
+    /**
+     * Draws a line of text with the fill color.
+     *
+     * @param text the text to draw.
+     * @param x    horizontal coordinate, interpreted according to the text alignment.
+     * @param y    vertical coordinate of the baseline.
+     */
+    void fillText(String text, double x, double y);
+    //endregion Shapes
+
+    /**
+     * The horizontal alignment of a text.
+     */
+    enum TextAlign {
+        /**
+         * The text starts at the given point.
+         */
+        LEFT,
+        /**
+         * The text is centered on the given point.
+         */
+        CENTER
+    }
+}
@@ -0,0 +1,572 @@
+package render;
+
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.diagnostics.RuntimeMetrics;
+import astrarium.utils.Position;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import static astrarium.utils.Mathematics.TWO_PI;
+
+/**
+ * Draws the rendered state of a system on a {@link Renderer}.
+ * <p>
+ * The system is first flattened into a {@link DisplayList}, then drawn one style at a time,
+ * so that the state of the {@link Renderer} changes as little as possible.
+ * <p>
+ * An instance keeps caches that are reused between frames, so it must not be shared between threads.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+public class SceneRenderer {
+    //region Flags
+    /**
+     * A flag for showing the orbit trace.
+     */
+    public boolean showOrbit = true;
+    /**
+     * A flag for showing the labels with bodies names.
+     */
+    public boolean showNames = true;
+    /**
+     * A flag for showing the radius of the SoI.
+     */
+    public boolean showSphereOfInfluence = false;
+    /**
+     * A flag for showing the radius of the Hill Sphere.
+     */
+    public boolean showHillSphere = false;
+    /**
+     * A flag for showing a vector tangent to the current orbit position.
+     */
+    public boolean showTangentVector = false;
+    /**
+     * A flag for showing markers of important points of the orbit.
+     */
+    public boolean showMarkers = false;
+    /**
+     * A flag for showing the path travelled by the bodies, if any {@link #setTrails(Trails) trails} are set.
+     */
+    public boolean showTrails = false;
+    //endregion
+
+    /**
+     * The largest number of points of all the cached orbit shapes together, about 64 MB,
+     * so that large catalogs do not fill the memory.
+     */
+    private static final int MAX_CACHED_POINTS = 1 << 22;
+
+    /**
+     * A cache of computed orbit shapes, in the order they were last drawn.
+     */
+    private final LinkedHashMap<Orbit, OrbitShape> orbitsCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of points of all the shapes in {@link #orbitsCache}.
+     */
+    private int cachedPoints = 0;
+
+    /**
+     * The flattened list of the bodies to draw, rebuilt at each frame.
+     */
+    private final DisplayList displayList = new DisplayList(Palette.HASH_PALETTE_SIZE);
+
+    /**
+     * The style of each body, i.e. its color in the hash palette.
+     */
+    private final DisplayList.Styler styler = body -> Palette.hashColorIndex(body.getName());
+
+    /**
+     * The recorded paths of the bodies, or {@code null}.
+     */
+    private Trails trails = null;
+
+    /**
+     * Scale of the frame being drawn, in pixels per meter.
+     */
+    private double zoom;
+
+    /**
+     * Horizontal screen coordinate of the origin of the frame being drawn.
+     */
+    private double originX;
+
+    /**
+     * Vertical screen coordinate of the origin of the frame being drawn.
+     */
+    private double originY;
+
+    /**
+     * Number of orbit shapes reused from the cache in the frame being drawn, added to the metrics at its end.
+     */
+    private int orbitCacheHits = 0;
+
+    /**
+     * Number of orbit shapes computed in the frame being drawn, added to the metrics at its end.
+     */
+    private int orbitCacheMisses = 0;
+
+    /**
+     * Returns the display list of the last frame drawn.
+     *
+     * @return the display list.
+     */
+    public DisplayList getDisplayList() {
+        return displayList;
+    }
+
+    /**
+     * Sets the recorded paths of the bodies, drawn when {@link #showTrails} is set.
+     *
+     * @param trails the trails, or {@code null}.
+     */
+    public void setTrails(Trails trails) {
+        this.trails = trails;
+    }
+
+    /**
+     * Clears the {@code renderer} and draws the system at the state it was rendered.
+     * <p>
+     * Note that the bodies must have been rendered with {@link CelestialBody#renderAtTime(long)} first.
+     *
+     * @param renderer the surface to draw on.
+     * @param root     root of the system.
+     * @param zoom     scale of the map in pixels per meter.
+     * @param originX  horizontal screen coordinate of the origin of the system.
+     * @param originY  vertical screen coordinate of the origin of the system.
+     */
+    public void draw(Renderer renderer, CelestialBody root, double zoom, double originX, double originY) {
+        this.zoom = zoom;
+        this.originX = originX;
+        this.originY = originY;
+
+        renderer.clear();
+
+        displayList.build(root, zoom, originX, originY, renderer.getWidth(), renderer.getHeight(), styler);
+
+        renderer.setLineWidth(1);
+
+        if (showTrails && trails != null)
+            strokeTrails(renderer);
+
+        if (showOrbit || showTangentVector)
+            strokeOrbits(renderer);
+
+        if (showMarkers)
+            fillMarkers(renderer);
+
+        fillBodies(renderer);
+
+        if (showNames)
+            fillLabels(renderer);
+
+        if (showSphereOfInfluence)
+            strokeSpheres(renderer, Palette.GREEN, false);
+
+        if (showHillSphere)
+            strokeSpheres(renderer, Palette.BLUE, true);
+
+        RuntimeMetrics.get().recordOrbitCache(orbitCacheHits, orbitCacheMisses);
+        orbitCacheHits = 0;
+        orbitCacheMisses = 0;
+    }
+
+    /**
+     * Forgets the cached shape of all the orbits, e.g. after the system has been edited.
+     */
+    public void clearCache() {
+        orbitsCache.clear();
+        cachedPoints = 0;
+    }
+
+    //region Drawing Functions
+
+    /**
+     * Strokes the orbits, the markers' axes and the tangent vectors, with a single path for each color.
+     *
+     * @param renderer the surface to draw on.
+     */
+    private void strokeOrbits(Renderer renderer) {
+        for (int style = 0; style < displayList.getStyleCount(); style++) {
+            boolean empty = true;
+
+            for (int k = displayList.groupStart(style); k < displayList.groupEnd(style); k++) {
+                int i = displayList.sorted(k);
+                int parent = displayList.getParent(i);
+
+                if (parent < 0)
+                    continue;
+
+                boolean orbitVisible = showOrbit && displayList.isOrbitVisible(i);
+                boolean tangentVisible = showTangentVector && displayList.isBodyVisible(i);
+
+                if (!orbitVisible && !tangentVisible)
+                    continue;
+
+                if (empty) {
+                    renderer.setStroke(Palette.hashPaletteColor(style));
+                    renderer.beginPath();
+                    empty = false;
+                }
+
+                //noinspection ConstantConditions
+                Orbit orbit = displayList.getBody(i).getOrbit();
+                int points = getPointCount(orbit);
+                OrbitShape shape = getOrbitShape(orbit, points);
+
+                double x = displayList.getX(parent);
+                double y = displayList.getY(parent);
+
+                if (orbitVisible)
+                    appendOrbit(renderer, shape, points, x, y);
+
+                if (orbitVisible && showMarkers) {
+                    appendLine(renderer, shape.markers, 0, 1, x, y);
+                    appendLine(renderer, shape.markers, 2, 3, x, y);
+                }
+
+                if (tangentVisible)
+                    appendTangentVector(renderer, displayList.getBody(i), displayList.getX(i), displayList.getY(i));
+            }
+
+            if (!empty)
+                renderer.stroke();
+        }
+    }
+
+    /**
+     * Strokes the trail of each body as a polyline ending at its current position.
+     * <p>
+     * The points closer than a pixel to the previous one are skipped.
+     *
+     * @param renderer the surface to draw on.
+     */
+    private void strokeTrails(Renderer renderer) {
+        for (int style = 0; style < displayList.getStyleCount(); style++) {
+            boolean stroked = false;
+
+            for (int k = displayList.groupStart(style); k < displayList.groupEnd(style); k++) {
+                int i = displayList.sorted(k);
+
+                TrailBuffer trail = trails.get(displayList.getBody(i));
+
+                if (trail == null || trail.size() == 0)
+                    continue;
+
+                if (!stroked) {
+                    renderer.setStroke(Palette.hashPaletteColor(style));
+                    stroked = true;
+                }
+
+                double lastX = originX + trail.getX(0) * zoom;
+                double lastY = originY + trail.getY(0) * zoom;
+
+                renderer.beginPath();
+                renderer.moveTo(lastX, lastY);
+
+                for (int j = 1; j < trail.size(); j++) {
+                    double x = originX + trail.getX(j) * zoom;
+                    double y = originY + trail.getY(j) * zoom;
+
+                    if (Math.abs(x - lastX) < 1 && Math.abs(y - lastY) < 1)
+                        continue;
+
+                    renderer.lineTo(x, y);
+                    lastX = x;
+                    lastY = y;
+                }
+
+                renderer.lineTo(displayList.getX(i), displayList.getY(i));
+                renderer.stroke();
+            }
+        }
+    }
+
+    /**
+     * Adds the closed polyline of the orbit to the current path.
+     *
+     * @param renderer the surface to draw on.
+     * @param shape    the cached shape of the orbit.
+     * @param count    number of points to draw, at most those of the shape, see {@link #getPointCount(Orbit)}.
+     * @param x        horizontal screen coordinate of the reference body.
+     * @param y        vertical screen coordinate of the reference body.
+     */
+    private void appendOrbit(Renderer renderer, OrbitShape shape, int count, double x, double y) {
+        double[] points = shape.points;
+        int stride = shape.count / count;
+
+        renderer.moveTo(x + points[0] * zoom, y + points[1] * zoom);
+
+        for (int i = stride; i < shape.count; i += stride)
+            renderer.lineTo(x + points[i * 2] * zoom, y + points[i * 2 + 1] * zoom);
+
+        renderer.closePath();
+    }
+
+    /**
+     * Returns the number of points an orbit needs at the current zoom, for segments of about 3 pixels.
+     *
+     * @param orbit the orbit.
+     * @return a power of two between {@link OrbitShape#MIN_POINTS} and {@link OrbitShape#MAX_POINTS}.
+     */
+    private int getPointCount(Orbit orbit) {
+        double segments = TWO_PI * orbit.getApoapsis() * zoom / 3;
+        int count = OrbitShape.MIN_POINTS;
+
+        while (count < segments && count < OrbitShape.MAX_POINTS)
+            count <<= 1;
+
+        return count;
+    }
+
+    /**
+     * Adds a segment between two markers of an orbit to the current path.
+     *
+     * @param renderer the surface to draw on.
+     * @param markers  the coordinates of the markers.
+     * @param from     index of the first marker.
+     * @param to       index of the second marker.
+     * @param x        horizontal screen coordinate of the reference body.
+     * @param y        vertical screen coordinate of the reference body.
+     */
+    private void appendLine(Renderer renderer, double[] markers, int from, int to, double x, double y) {
+        renderer.moveTo(x + markers[from * 2] * zoom, y + markers[from * 2 + 1] * zoom);
+        renderer.lineTo(x + markers[to * 2] * zoom, y + markers[to * 2 + 1] * zoom);
+    }
+
+    /**
+     * Adds a vector tangent to the orbit at the current position to the current path.
+     *
+     * @param renderer      the surface to draw on.
+     * @param celestialBody the body to draw the tangent vector of.
+     * @param x             horizontal screen coordinate of the body.
+     * @param y             vertical screen coordinate of the body.
+     */
+    private void appendTangentVector(Renderer renderer, CelestialBody celestialBody, double x, double y) {
+        Orbit orbit = celestialBody.getOrbit();
+
+        //noinspection ConstantConditions
+        double angle = orbit.getTangentAngle() + orbit.getLongitudeOfAscendingNode();
+
+        double magnitude = orbit.getVelocityMagnitude() / 10000;
+
+        renderer.moveTo(x, y);
+        renderer.lineTo(x + Math.cos(angle) * magnitude, y + Math.sin(angle) * magnitude);
+    }
+
+    /**
+     * Fills the dots of the bodies, with a single path for each color.
+     *
+     * @param renderer the surface to draw on.
+     */
+    private void fillBodies(Renderer renderer) {
+        for (int style = 0; style < displayList.getStyleCount(); style++) {
+            boolean empty = true;
+
+            for (int k = displayList.groupStart(style); k < displayList.groupEnd(style); k++) {
+                int i = displayList.sorted(k);
+
+                if (!displayList.isBodyVisible(i))
+                    continue;
+
+                if (empty) {
+                    renderer.setFill(Palette.hashPaletteColor(style));
+                    renderer.beginPath();
+                    empty = false;
+                }
+
+                renderer.circle(displayList.getX(i), displayList.getY(i), displayList.getRadius(i));
+            }
+
+            if (!empty)
+                renderer.fill();
+        }
+    }
+
+    /**
+     * Draws the labels with the bodies' names.
+     *
+     * @param renderer the surface to draw on.
+     */
+    private void fillLabels(Renderer renderer) {
+        renderer.setTextAlign(Renderer.TextAlign.CENTER);
+        renderer.setFill(Palette.GREY);
+
+        for (int i = 0; i < displayList.size(); i++) {
+            if (displayList.isBodyVisible(i))
+                renderer.fillText(displayList.getBody(i).getName(), displayList.getX(i), displayList.getY(i) + displayList.getRadius(i) * 2 + 7);
+        }
+    }
+
+    /**
+     * Draws the markers of the important points of the visible orbits, with a single path for each kind.
+     *
+     * @param renderer the surface to draw on.
+     */
+    private void fillMarkers(Renderer renderer) {
+        fillMarkers(renderer, 0, Palette.RED, 3);
+        fillMarkers(renderer, 1, Palette.BLUE, 5);
+        fillMarkers(renderer, 2, Palette.GREEN, 5);
+        fillMarkers(renderer, 3, Palette.BLACK, 5);
+    }
+
+    /**
+     * Draws one kind of marker for all the visible orbits.
+     *
+     * @param renderer the surface to draw on.
+     * @param marker   index of the marker in {@link OrbitShape#markers}.
+     * @param color    color of the marker.
+     * @param size     diameter of the marker.
+     */
+    private void fillMarkers(Renderer renderer, int marker, int color, int size) {
+        renderer.setFill(color);
+        renderer.beginPath();
+
+        for (int i = 0; i < displayList.size(); i++) {
+            int parent = displayList.getParent(i);
+
+            if (parent < 0 || !displayList.isOrbitVisible(i))
+                continue;
+
+            //noinspection ConstantConditions
+            double[] markers = getOrbitShape(displayList.getBody(i).getOrbit(), OrbitShape.MIN_POINTS).markers;
+
+            renderer.circle(
+                    displayList.getX(parent) + markers[marker * 2] * zoom,
+                    displayList.getY(parent) + markers[marker * 2 + 1] * zoom,
+                    size * 0.5);
+        }
+
+        renderer.fill();
+    }
+
+    /**
+     * Strokes the spheres of influence or the Hill spheres of the visible bodies.
+     *
+     * @param renderer the surface to draw on.
+     * @param color    color of the spheres.
+     * @param hill     {@code true} for the Hill spheres, {@code false} for the spheres of influence.
+     */
+    private void strokeSpheres(Renderer renderer, int color, boolean hill) {
+        renderer.setStroke(color);
+        renderer.beginPath();
+
+        for (int i = 0; i < displayList.size(); i++) {
+            CelestialBody body = displayList.getBody(i);
+
+            double radius = (hill ? body.getHillSphere() : body.getSphereOfInfluence()) * zoom;
+
+            if (Double.isFinite(radius))
+                renderer.circle(displayList.getX(i), displayList.getY(i), radius / 2);
+        }
+
+        renderer.stroke();
+    }
+    //endregion
+
+    /**
+     * Returns the shape of the given {@code orbit}, computing it when it is not cached with enough points.
+     * <p>
+     * The shapes drawn least recently are forgotten when the cache holds more than {@link #MAX_CACHED_POINTS}.
+     *
+     * @param orbit  the orbit.
+     * @param points the smallest number of points needed.
+     * @return the cached shape.
+     */
+    private OrbitShape getOrbitShape(Orbit orbit, int points) {
+        OrbitShape shape = orbitsCache.get(orbit);
+
+        if (shape != null && shape.count >= points) {
+            orbitCacheHits++;
+            return shape;
+        }
+
+        if (shape != null)
+            cachedPoints -= shape.count;
+
+        shape = new OrbitShape(orbit, points);
+        orbitsCache.put(orbit, shape);
+        cachedPoints += points;
+        orbitCacheMisses++;
+
+        if (cachedPoints > MAX_CACHED_POINTS) {
+            Iterator<OrbitShape> eldest = orbitsCache.values().iterator();
+
+            // The shape just computed is the most recent, and is never removed
+            while (cachedPoints > MAX_CACHED_POINTS && orbitsCache.size() > 1) {
+                cachedPoints -= eldest.next().count;
+                eldest.remove();
+            }
+        }
+
+        return shape;
+    }
+
+    /**
+     * The points of an orbit relative to its reference body, computed once and reused at every frame.
+     */
+    private static final class OrbitShape {
+        /**
+         * The fewest points of a polyline.
+         */
+        static final int MIN_POINTS = 64;
+
+        /**
+         * The most points of a polyline, for the orbits filling the screen.
+         */
+        static final int MAX_POINTS = 4096;
+
+        /**
+         * Number of points of the polyline, a power of two.
+         */
+        final int count;
+
+        /**
+         * Coordinates of the points of the orbit in meters, stored as x and y pairs.
+         */
+        final double[] points;
+
+        /**
+         * Coordinates of the periapsis, apoapsis, northern and southern vertices, stored as x and y pairs.
+         */
+        final double[] markers = new double[8];
+
+        /**
+         * Computes the shape of the given {@code orbit}.
+         *
+         * @param orbit the orbit.
+         * @param count number of points, a power of two.
+         */
+        OrbitShape(Orbit orbit, int count) {
+            final double epsilon = TWO_PI / count;
+
+            this.count = count;
+            this.points = new double[count * 2];
+
+            for (int i = 0; i < count; i++) {
+                Position point = orbit.getPositionFromParentAtAngle(epsilon * i);
+
+                points[i * 2] = point.getX();
+                points[i * 2 + 1] = point.getY();
+            }
+
+            setMarker(0, orbit.getPeriapsisPosition());
+            setMarker(1, orbit.getApoapsisPosition());
+            setMarker(2, orbit.getNorthernVertex());
+            setMarker(3, orbit.getSouthernVertex());
+        }
+
+        /**
+         * Stores the coordinates of a marker.
+         *
+         * @param index    index of the marker.
+         * @param position position of the marker.
+         */
+        private void setMarker(int index, Position position) {
+            markers[index * 2] = position.getX();
+            markers[index * 2 + 1] = position.getY();
+        }
+    }
+}
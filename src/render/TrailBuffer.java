@@ -0,0 +1,135 @@
+package render;
+
+/**
+ * A fixed-capacity ring of the most recent positions of a body.
+ * <p>
+ * When full, every new position replaces the oldest one, so the memory used does not grow with the length of the run
+ * and appending does not allocate.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class TrailBuffer {
+    /**
+     * The coordinates of the positions, interleaved as x, y, z.
+     */
+    private final double[] coordinates;
+
+    /**
+     * Maximum number of positions stored.
+     */
+    private final int capacity;
+
+    /**
+     * Index of the next position to write.
+     */
+    private int head = 0;
+
+    /**
+     * Number of positions stored.
+     */
+    private int size = 0;
+
+    /**
+     * Creates an empty trail.
+     *
+     * @param capacity maximum number of positions stored.
+     */
+    public TrailBuffer(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be greater than zero.");
+
+        this.capacity = capacity;
+        this.coordinates = new double[capacity * 3];
+    }
+
+    /**
+     * Appends a position, dropping the oldest one if the trail is full.
+     *
+     * @param x horizontal coordinate in meters.
+     * @param y vertical coordinate in meters.
+     * @param z depth coordinate in meters.
+     */
+    public void append(double x, double y, double z) {
+        coordinates[head * 3] = x;
+        coordinates[head * 3 + 1] = y;
+        coordinates[head * 3 + 2] = z;
+
+        head = (head + 1) % capacity;
+
+        if (size < capacity)
+            size++;
+    }
+
+    /**
+     * Removes all the positions.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    //region Getters
+
+    /**
+     * Returns the number of positions stored.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of positions stored.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the horizontal coordinate of a position.
+     *
+     * @param index index of the position, from zero for the oldest to {@code size() - 1} for the newest.
+     * @return the coordinate in meters.
+     */
+    public double getX(int index) {
+        return coordinates[offset(index)];
+    }
+
+    /**
+     * Returns the vertical coordinate of a position.
+     *
+     * @param index index of the position, from zero for the oldest to {@code size() - 1} for the newest.
+     * @return the coordinate in meters.
+     */
+    public double getY(int index) {
+        return coordinates[offset(index) + 1];
+    }
+
+    /**
+     * Returns the depth coordinate of a position.
+     *
+     * @param index index of the position, from zero for the oldest to {@code size() - 1} for the newest.
+     * @return the coordinate in meters.
+     */
+    public double getZ(int index) {
+        return coordinates[offset(index) + 2];
+    }
+    //endregion Getters
+
+    /**
+     * Returns the offset in the array of the coordinates of a position.
+     *
+     * @param index index of the position from the oldest.
+     * @return the offset of its first coordinate.
+     */
+    private int offset(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        return ((head - size + index + capacity) % capacity) * 3;
+    }
+}
@@ -0,0 +1,162 @@
+package render;
+
+import astrarium.Body;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+
+import java.util.IdentityHashMap;
+
+/**
+ * Records the path travelled by the bodies of a system, keeping a {@link TrailBuffer} for each one drawn.
+ * <p>
+ * Only the bodies of the {@link DisplayList} are recorded, and the trails of the others are dropped at every sample,
+ * so the memory used follows what is on the map rather than the size of the system, and the bodies removed
+ * or replaced are forgotten.
+ * <p>
+ * A new position is sampled only after a given amount of simulation time, proportional to the time warp,
+ * so that a trail always covers about the same amount of real time, whatever the speed of the simulation.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Trails {
+    /**
+     * Default number of positions kept for each body.
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    /**
+     * Real time between two samples at a time warp of one, in milliseconds.
+     */
+    public static final long SAMPLE_INTERVAL = 100;
+
+    /**
+     * Number of sample intervals after which a change of time is considered a jump rather than a movement.
+     * <p>
+     * The trails are cleared after a jump, instead of joining two unrelated positions.
+     */
+    private static final long JUMP_INTERVALS = 50;
+
+    /**
+     * The trail of each body.
+     */
+    private IdentityHashMap<Body, TrailBuffer> trails = new IdentityHashMap<>();
+
+    /**
+     * The map the trails are moved to at every sample, swapped with {@link #trails} so that none is allocated.
+     */
+    private IdentityHashMap<Body, TrailBuffer> recorded = new IdentityHashMap<>();
+
+    /**
+     * Absolute coordinates of the bodies of the display list, in meters, reused between samples.
+     */
+    private double[] xs = new double[0], ys = new double[0], zs = new double[0];
+
+    /**
+     * Number of positions kept for each body.
+     */
+    private final int capacity;
+
+    /**
+     * Simulation time of the last sample in milliseconds.
+     */
+    private long lastSample;
+
+    /**
+     * Whether a sample has been taken since the trails were cleared.
+     */
+    private boolean sampled = false;
+
+    /**
+     * Creates an empty set of trails.
+     *
+     * @param capacity number of positions kept for each body.
+     */
+    public Trails(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the trail of a body.
+     *
+     * @param body the body.
+     * @return its trail, or {@code null} if it has never been recorded.
+     */
+    public TrailBuffer get(Body body) {
+        return trails.get(body);
+    }
+
+    /**
+     * Forgets all the trails, e.g. after a different system has been loaded.
+     */
+    public void clear() {
+        trails.clear();
+        sampled = false;
+    }
+
+    /**
+     * Appends the rendered absolute position of every body of a display list to its trail,
+     * if enough time has passed since the last sample, and drops the trails of the bodies not in the list.
+     * <p>
+     * Note that the bodies must have been rendered with {@link CelestialBody#renderAtTime(long)} first.
+     * The list can be the one of the previous frame, as only its bodies and their hierarchy are used.
+     *
+     * @param list the bodies drawn.
+     * @param time time of the rendered state in milliseconds.
+     * @param warp ratio between the simulation time and the real time.
+     */
+    public void record(DisplayList list, long time, double warp) {
+        long interval = Math.max(1, Math.round(SAMPLE_INTERVAL * warp));
+
+        if (sampled) {
+            long elapsed = Math.abs(time - lastSample);
+
+            if (elapsed < interval)
+                return;
+
+            if (elapsed > interval * JUMP_INTERVALS)
+                trails.values().forEach(TrailBuffer::clear);
+        }
+
+        lastSample = time;
+        sampled = true;
+
+        if (xs.length < list.size()) {
+            xs = new double[list.size()];
+            ys = new double[list.size()];
+            zs = new double[list.size()];
+        }
+
+        // The parents come first in the list, so their positions are known when their children are reached
+        for (int i = 0; i < list.size(); i++) {
+            CelestialBody body = list.getBody(i);
+            int parent = list.getParent(i);
+
+            if (parent < 0) {
+                xs[i] = ys[i] = zs[i] = 0;
+            } else {
+                Orbit orbit = body.getOrbit();
+
+                //noinspection ConstantConditions
+                xs[i] = xs[parent] + orbit.getRenderedX();
+                ys[i] = ys[parent] + orbit.getRenderedY();
+                zs[i] = zs[parent] + orbit.getRenderedZ();
+            }
+
+            TrailBuffer trail = trails.remove(body);
+
+            if (trail == null)
+                trail = new TrailBuffer(capacity);
+
+            trail.append(xs[i], ys[i], zs[i]);
+            recorded.put(body, trail);
+        }
+
+        // What is left are the trails of the bodies no longer drawn
+        IdentityHashMap<Body, TrailBuffer> dropped = trails;
+        dropped.clear();
+
+        trails = recorded;
+        recorded = dropped;
+    }
+}
@@ -0,0 +1,193 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Snapshot;
+import astrarium.SystemGenerator;
+import io.JsonHub;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import render.Renderer;
+import render.SceneRenderer;
+import render.Trails;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when the paths run on every frame start allocating again, which shows up as pauses of the garbage collector.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class AllocationBudgetTest {
+    private static final long EPOCH = 946_684_800_000L;
+    private static final long HOUR = 3_600_000L;
+
+    // Enough frames for the compiler to settle, and for the few bytes of a reading to vanish in the average
+    private static final int WARM_UP_FRAMES = 2_000;
+    private static final int FRAMES = 2_000;
+
+    // Bytes allowed per body propagated, and per frame prepared for drawing whatever the number of bodies
+    private static final double PROPAGATION_BUDGET = 0.01;
+    private static final double FRAME_BUDGET = 1024;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void enableMeasurement() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Allocations cannot be measured on this JVM.");
+
+        threads = (com.sun.management.ThreadMXBean) bean;
+
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Allocations cannot be measured on this JVM.");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void propagation() throws IOException {
+        for (CelestialBody root : new CelestialBody[]{
+                JsonHub.importDefaultMap("SolSystem").getRoot(),
+                SystemGenerator.forBodyCount(1000, 42).generate().getRoot()}) {
+            CelestialBody[] bodies = Snapshot.flatten(root);
+            Astrarium astrarium = new Astrarium(root);
+            long[] time = {EPOCH};
+
+            assertPropagationBudget("renderAtTime", bodies.length, () -> root.renderAtTime(time[0] += HOUR));
+            assertPropagationBudget("setTime", bodies.length, () -> astrarium.setTime(time[0] += HOUR));
+
+            // The path of the playback, interpolating between two states within the hour
+            Snapshot before = Snapshot.capture(bodies, EPOCH);
+            Snapshot after = Snapshot.capture(bodies, EPOCH + HOUR);
+
+            assertPropagationBudget("setTime(time, before, after)", bodies.length,
+                    () -> astrarium.setTime(EPOCH + (time[0] += 1_000) % HOUR, before, after));
+        }
+    }
+
+    private static void assertPropagationBudget(String path, int bodies, Runnable frame) {
+        double perBody = allocatedPerFrame(frame) / bodies;
+
+        assertTrue(perBody <= PROPAGATION_BUDGET,
+                String.format("%s: %.3f bytes allocated per body propagated, %d bodies.", path, perBody, bodies));
+    }
+
+    @Test
+    void drawPreparation() throws IOException {
+        for (CelestialBody root : new CelestialBody[]{
+                JsonHub.importDefaultMap("SolSystem").getRoot(),
+                SystemGenerator.forBodyCount(1000, 42).generate().getRoot()}) {
+            SceneRenderer scene = new SceneRenderer();
+            Trails trails = new Trails(64);
+            Renderer renderer = new NullRenderer();
+
+            scene.setTrails(trails);
+            scene.showTrails = true;
+            scene.showMarkers = true;
+            scene.showTangentVector = true;
+            scene.showSphereOfInfluence = true;
+            scene.showHillSphere = true;
+
+            // Neptune at the edge of a full HD map
+            double zoom = 1080 / 2 / 4.5e12;
+            long[] time = {EPOCH};
+
+            double perFrame = allocatedPerFrame(() -> {
+                root.renderAtTime(time[0] += HOUR);
+                trails.record(scene.getDisplayList(), time[0], 1);
+                scene.draw(renderer, root, zoom, 960, 540);
+            });
+
+            assertTrue(perFrame <= FRAME_BUDGET, String.format("%.0f bytes allocated per frame.", perFrame));
+        }
+    }
+
+    private static double allocatedPerFrame(Runnable frame) {
+        for (int i = 0; i < WARM_UP_FRAMES; i++)
+            frame.run();
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+
+        for (int i = 0; i < FRAMES; i++)
+            frame.run();
+
+        return (double) (threads.getThreadAllocatedBytes(thread) - before) / FRAMES;
+    }
+
+    private static final class NullRenderer implements Renderer {
+        @Override
+        public double getWidth() {
+            return 1920;
+        }
+
+        @Override
+        public double getHeight() {
+            return 1080;
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void setFill(int argb) {
+        }
+
+        @Override
+        public void setStroke(int argb) {
+        }
+
+        @Override
+        public void setLineWidth(double width) {
+        }
+
+        @Override
+        public void setFont(String family, double size) {
+        }
+
+        @Override
+        public void setTextAlign(TextAlign align) {
+        }
+
+        @Override
+        public void beginPath() {
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+        }
+
+        @Override
+        public void lineTo(double x, double y) {
+        }
+
+        @Override
+        public void closePath() {
+        }
+
+        @Override
+        public void circle(double x, double y, double radius) {
+        }
+
+        @Override
+        public void fill() {
+        }
+
+        @Override
+        public void stroke() {
+        }
+
+        @Override
+        public void fillRect(double x, double y, double width, double height) {
+        }
+
+        @Override
+        public void fillText(String text, double x, double y) {
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import bench.BenchmarkRunner;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class BenchmarkRunnerTest {
+    @Test
+    void runAndRead() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.setWarmUpIterations(1);
+        runner.setMeasurementIterations(3);
+        runner.setIterationTime(20);
+        runner.setFilter("sqrt");
+
+        runner.register("Math.sqrt", "scale", 2, () -> {
+            double[] x = {1};
+            return () -> Math.sqrt(x[0] += 2);
+        });
+        runner.register("Math.cbrt", () -> () -> Math.cbrt(8));
+
+        List<BenchmarkRunner.Result> results = runner.run(new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).getScore() > 0);
+        assertTrue(results.get(0).getError() >= 0);
+
+        File file = File.createTempFile("benchmarks", ".json");
+
+        try {
+            runner.write(file, results);
+
+            List<BenchmarkRunner.Result> read = BenchmarkRunner.read(file);
+
+            assertEquals(1, read.size());
+            assertEquals("Math.sqrt{scale=2}", read.get(0).getKey());
+            assertEquals(results.get(0).getScore(), read.get(0).getScore(), 1e-9);
+            assertEquals(results.get(0).getError(), read.get(0).getError(), 1e-9);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+}
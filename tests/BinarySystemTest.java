@@ -0,0 +1,118 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import io.BinarySystem;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class BinarySystemTest {
+    @Test
+    void roundTrip() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+
+        File file = File.createTempFile("astrarium", BinarySystem.EXTENSION);
+        file.deleteOnExit();
+
+        JsonHub.exportBinary(file, astrarium);
+
+        assertTrue(BinarySystem.isBinary(file));
+
+        BinarySystem system = BinarySystem.map(file);
+
+        assertEquals(astrarium.getRoot().getAllChildren().size() + 1, system.getBodyCount());
+        assertEquals(-1, system.getParent(0));
+        assertEquals("Sun", system.getName(0));
+
+        // Same content, down to the last bit of each number
+        assertEquals(JsonHub.exportJson(astrarium), JsonHub.exportJson(JsonHub.importAstrarium(file)));
+    }
+
+    @Test
+    void lazy() throws IOException {
+        File file = File.createTempFile("astrarium", BinarySystem.EXTENSION);
+        file.deleteOnExit();
+
+        JsonHub.exportBinary(file, JsonHub.importDefaultMap("SolSystem"));
+
+        Astrarium astrarium = JsonHub.importAstrariumBinary(file);
+        CelestialBody earth = astrarium.getRoot().getChildren().get(2);
+
+        assertEquals("Earth", earth.getName());
+        assertFalse(earth.isLoaded());
+        assertTrue(earth.getChildren().isEmpty());
+        assertTrue(earth.getUnloadedChildrenExtent() > 0);
+
+        earth.loadChildren();
+
+        assertTrue(earth.isLoaded());
+        assertEquals(1, earth.getChildren().size());
+        assertSame(earth, earth.getChildren().get(0).getParent());
+    }
+
+    @Test
+    void saveOverOpened() throws IOException {
+        File file = File.createTempFile("astrarium", BinarySystem.EXTENSION);
+        file.deleteOnExit();
+
+        JsonHub.exportBinary(file, JsonHub.importDefaultMap("SolSystem"));
+
+        Astrarium astrarium = JsonHub.importAstrariumBinary(file);
+        CelestialBody earth = astrarium.getRoot().getChildren().get(2);
+
+        // Loaded completely, so that the system no longer needs the file it replaces
+        JsonHub.export(file, astrarium);
+
+        assertTrue(earth.isLoaded());
+        assertEquals(1, earth.getChildren().size());
+        assertEquals(JsonHub.exportJson(astrarium), JsonHub.exportJson(JsonHub.importAstrarium(file)));
+    }
+
+    @Test
+    void corrupt() throws IOException {
+        File file = File.createTempFile("astrarium", BinarySystem.EXTENSION);
+        file.deleteOnExit();
+
+        JsonHub.exportBinary(file, JsonHub.importDefaultMap("SolSystem"));
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int count = BinarySystem.map(file).getBodyCount();
+
+        // A count whose sections overflow an int, checked when the file is opened
+        assertThrows(IOException.class, () -> new BinarySystem(corrupt(bytes, 8, 0x1000_0000)));
+
+        // A parent after its body, a second root, and a name past the table, checked when the bodies are created
+        for (int[] corruption : new int[][]{{16 + 3 * 4, count - 1}, {16 + 4, -1}, {16 + count * 4 + 4, Integer.MAX_VALUE}}) {
+            BinarySystem system = new BinarySystem(corrupt(bytes, corruption[0], corruption[1]));
+
+            assertThrows(IOException.class, system::toLazyAstrarium);
+            assertThrows(IOException.class, system::toAstrarium);
+        }
+    }
+
+    private static ByteBuffer corrupt(byte[] bytes, int offset, int value) {
+        return ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+    }
+
+    @Test
+    void notBinary() throws IOException {
+        File file = File.createTempFile("astrarium", ".json");
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), JsonHub.exportJson(JsonHub.importDefaultMap("SolSystem")).getBytes());
+
+        assertFalse(BinarySystem.isBinary(file));
+        assertThrows(IOException.class, () -> BinarySystem.map(file));
+        assertNotNull(JsonHub.importAstrarium(file));
+    }
+}
@@ -2,6 +2,7 @@ import astrarium.Astrarium;
 import astrarium.CelestialBody;
 import astrarium.Orbit;
 import astrarium.utils.Position;
+import com.google.gson.JsonParseException;
 import io.JsonHub;
 import org.junit.jupiter.api.Test;
 
@@ -90,6 +91,19 @@ class CelestialBodyTest {
         assertEquals(null, parent.getOrbitAtTime(0));
     }
 
+    @Test
+    void missingOrbitParameter() {
+        String json = "{\"root\": {\"name\": \"Sun\", \"mass\": 1, \"radius\": 1, \"children\": [" +
+                "{\"name\": \"Planet\", \"mass\": 1, \"radius\": 1, \"orbit\": {\"eccentricity\": 0, " +
+                "\"inclination\": 0, \"longitudeOfAscendingNode\": 0, \"argumentOfPeriapsis\": 0, " +
+                "\"meanAnomalyAtEpoch\": 0}, \"children\": []}]}}";
+
+        JsonParseException exception = assertThrows(JsonParseException.class, () -> JsonHub.importAstrariumJson(json));
+
+        assertTrue(exception.getMessage().contains("Planet"));
+        assertTrue(exception.getMessage().contains("semiMajorAxis"));
+    }
+
     @Test
     void getStandardGravitationalParameter() throws IOException {
         CelestialBody earth = getEarth();
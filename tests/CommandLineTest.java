@@ -0,0 +1,70 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.utils.Position;
+import cli.Main;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class CommandLineTest {
+    @Test
+    void query() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main.run(new String[]{"query", "SolSystem", "Earth,Moon", "0,2026-10-18T00:00:00Z"}, out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(4, lines.length);
+
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody moon = astrarium.getRoot().getAllChildren().stream()
+                .filter(body -> body.getName().equals("Moon")).findFirst().orElseThrow(AssertionError::new);
+
+        String[] columns = lines[3].split(",");
+        Position expected = moon.getPositionAtTime(1_792_281_600_000L);
+
+        assertEquals("Moon", columns[0]);
+        assertEquals("1792281600000", columns[1]);
+        assertEquals(expected.getX(), Double.parseDouble(columns[2]), 1e3);
+        assertEquals(expected.getY(), Double.parseDouble(columns[3]), 1e3);
+        assertEquals(expected.getZ(), Double.parseDouble(columns[4]), 1e3);
+
+        assertThrows(NoSuchElementException.class, () -> Main.run(new String[]{"query", "SolSystem", "Vulcan", "0"}, out));
+        assertThrows(IllegalArgumentException.class, () -> Main.run(new String[]{"ephemeris", "SolSystem", "Earth", "0", "1", "0"}, out));
+    }
+
+    @Test
+    void headlessCore() throws IOException {
+        for (String folder : new String[]{"src/astrarium", "src/io", "src/cli"}) {
+            try (Stream<Path> files = Files.walk(Paths.get(folder))) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList())) {
+                    List<String> imports = Files.readAllLines(file).stream()
+                            .filter(line -> line.startsWith("import "))
+                            .collect(Collectors.toList());
+
+                    for (String line : imports) {
+                        String name = line.substring(line.startsWith("import static ") ? 14 : 7);
+
+                        assertFalse(name.startsWith("javafx.") || name.startsWith("fx.") || name.startsWith("render."), file + ": " + line);
+                        assertFalse((name.startsWith("sun.") || name.startsWith("com.sun.")) && !name.startsWith("com.sun.net.httpserver."), file + ": " + line);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import io.ColumnCodec;
+import io.EphemerisExporter;
+import io.EphemerisFile;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class EphemerisTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void codecs() {
+        double[] values = {1.5, 1.5, -0.0, 0.0, Double.NaN, Double.longBitsToDouble(0x7FF8_0000_0000_0001L),
+                Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 1e11, 1e11 + 1, 1e11 + 3, 42};
+
+        for (ColumnCodec codec : ColumnCodec.values()) {
+            ByteBuffer buffer = ByteBuffer.allocate(ColumnCodec.getMaximumSize(values.length));
+            codec.encode(values, values.length, buffer);
+            buffer.flip();
+
+            double[] decoded = new double[values.length];
+            codec.decode(buffer, decoded, values.length);
+
+            for (int i = 0; i < values.length; i++)
+                assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoded[i]), codec + " " + i);
+        }
+    }
+
+    @Test
+    void export() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody earth = astrarium.getRoot().getChildren().get(2);
+        List<CelestialBody> bodies = Arrays.asList(earth, earth.getChildren().get(0));
+
+        long start = 1_500_000_000_000L;
+
+        for (ColumnCodec codec : ColumnCodec.values()) {
+            File file = File.createTempFile("ephemeris", ".bin");
+            file.deleteOnExit();
+
+            EphemerisExporter exporter = new EphemerisExporter(bodies);
+            exporter.setCodec(codec);
+            exporter.setChunkSize(100);
+            exporter.setThreads(2);
+
+            assertEquals(1001, exporter.export(file, start, start + 1000 * HOUR, HOUR));
+
+            EphemerisFile ephemeris = EphemerisFile.map(file);
+
+            assertEquals("Moon", ephemeris.getName(1));
+            assertEquals(1001, ephemeris.getSampleCount());
+
+            double[] y = ephemeris.readColumn(1, 1);
+
+            for (int i = 0; i < y.length; i += 97)
+                // Computed by a query, whose solutions of Kepler's equation start from the previous sample
+                assertEquals(bodies.get(1).getPositionAtTime(start + i * HOUR).getY(), y[i], 1e3, codec.toString());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import astrarium.Astrarium;
+import astrarium.Orbit;
+import io.BinarySystem;
+import io.JsonHub;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class FlightRecorderEventsTest {
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void events() throws IOException {
+        Path directory = Files.createTempDirectory("astrarium");
+        File file = new File(directory.toFile(), "system.json");
+        File json = new File(directory.toFile(), "direct.json");
+        File binary = new File(directory.toFile(), "direct" + BinarySystem.EXTENSION);
+        Path output = directory.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"astrarium.Tick", "astrarium.KeplerNonConvergence", "astrarium.FileRead", "astrarium.FileWrite"})
+                recording.enable(name).withoutThreshold();
+
+            recording.start();
+
+            Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+            astrarium.setTime(10 * DAY);
+            JsonHub.export(file, astrarium);
+            JsonHub.importAstrarium(file);
+
+            // The entry points used by the command line and the generator
+            JsonHub.exportJson(json, astrarium);
+            JsonHub.importAstrariumJson(json);
+            JsonHub.exportBinary(binary, astrarium);
+            JsonHub.importAstrariumBinary(binary);
+
+            // More precise than a double can be
+            Orbit.calculateEccentricAnomaly(2.5, 0.99, 30);
+
+            recording.stop();
+            recording.dump(output);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(output);
+
+            RecordedEvent tick = find(events, "astrarium.Tick");
+            assertEquals(10 * DAY, tick.getInstant("time").toEpochMilli());
+            assertEquals(astrarium.getRoot().countBodies(), tick.getInt("bodies"));
+
+            RecordedEvent nonConvergence = find(events, "astrarium.KeplerNonConvergence");
+            assertTrue(nonConvergence.getInt("iterations") > 0);
+            assertTrue(nonConvergence.getDouble("residual") > nonConvergence.getDouble("tolerance"));
+
+            for (String name : new String[]{"astrarium.FileRead", "astrarium.FileWrite"}) {
+                List<RecordedEvent> fileEvents = findAll(events, name);
+                assertEquals(3, fileEvents.size(), name);
+
+                // Once per file, in the order they were accessed
+                File[] files = {file, json, binary};
+
+                for (int i = 0; i < files.length; i++) {
+                    RecordedEvent event = fileEvents.get(i);
+                    assertEquals(files[i].getPath(), event.getString("path"));
+                    assertEquals(files[i].length(), event.getLong("bytes"));
+                    assertEquals(i == 2 ? "binary" : "JSON", event.getString("format"));
+                }
+
+                assertEquals(astrarium.getRoot().countBodies(), fileEvents.get(0).getLong("bodies"));
+            }
+        } finally {
+            Files.deleteIfExists(output);
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(json.toPath());
+            Files.deleteIfExists(binary.toPath());
+            Files.delete(directory);
+        }
+    }
+
+    private static List<RecordedEvent> findAll(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(Collectors.toList());
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event recorded."));
+    }
+}
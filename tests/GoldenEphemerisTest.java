@@ -0,0 +1,283 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.ReferencePropagator;
+import astrarium.Snapshot;
+import astrarium.SystemGenerator;
+import astrarium.utils.Position;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Propagates the solar system and a few synthetic ones over fixed decades with every engine, and compares
+ * the positions with the golden ones stored in {@code tests/golden}, while timing every step against a budget.
+ * <p>
+ * The golden positions were computed by {@link ReferencePropagator}, so they are exact for the elements given:
+ * a difference is an error of the engine, not of the file. Run {@link #main(String[])} from the project directory
+ * to write them again, after changing the systems on purpose.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class GoldenEphemerisTest {
+    // From 1980-01-01 to 2040-01-01
+    private static final long START = 315_532_800_000L;
+    private static final long END = 2_208_988_800_000L;
+
+    // Ten times the errors measured, which come from solving Kepler's equation to 1e-10
+    private static final double RELATIVE_TOLERANCE = 1e-9;
+
+    // Milliseconds allowed to load or generate a system, the first one included
+    private static final long LOAD_BUDGET = 1_000;
+
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int ROUNDS = 10;
+
+    private static final Case[] CASES = {
+            new Case("SolSystem", 121) {
+                @Override
+                Astrarium load() throws IOException {
+                    return JsonHub.importDefaultMap("SolSystem");
+                }
+            },
+            new Case("Generated-60-1", 11) {
+                @Override
+                Astrarium load() {
+                    return SystemGenerator.forBodyCount(60, 1).generate();
+                }
+            },
+            new Case("Generated-60-2", 11) {
+                @Override
+                Astrarium load() {
+                    return SystemGenerator.forBodyCount(60, 2).generate();
+                }
+            }
+    };
+
+    private static final Engine[] ENGINES = {
+            // Nanoseconds allowed per position, five to ten times the ones measured, as other tests run alongside
+            new Engine("setTime", 5_000) {
+                @Override
+                void propagate(Astrarium astrarium, CelestialBody[] bodies, long[] times, double[] positions) {
+                    for (int m = 0; m < times.length; m++) {
+                        astrarium.setTime(times[m]);
+
+                        for (int n = 0; n < bodies.length; n++)
+                            store(positions, (n * times.length + m) * 3, bodies[n].getPosition());
+                    }
+                }
+            },
+            new Engine("getPositionAtTime", 10_000) {
+                @Override
+                void propagate(Astrarium astrarium, CelestialBody[] bodies, long[] times, double[] positions) {
+                    for (int n = 0; n < bodies.length; n++)
+                        for (int m = 0; m < times.length; m++)
+                            store(positions, (n * times.length + m) * 3, bodies[n].getPositionAtTime(times[m]));
+                }
+            },
+            new Engine("query", 5_000) {
+                @Override
+                void propagate(Astrarium astrarium, CelestialBody[] bodies, long[] times, double[] positions) {
+                    double[] result = astrarium.query(Arrays.asList(bodies), times);
+                    System.arraycopy(result, 0, positions, 0, result.length);
+                }
+            }
+    };
+
+    @Test
+    void golden() throws IOException {
+        List<String> failures = new ArrayList<>();
+
+        for (Case golden : CASES) {
+            long start = System.nanoTime();
+            Astrarium astrarium = golden.load();
+            long loading = System.nanoTime() - start;
+
+            CelestialBody[] bodies = Snapshot.flatten(astrarium.getRoot());
+            long[] times = golden.getTimes();
+            double[] expected = read(golden.name, bodies, times);
+            double[] tolerances = getTolerances(bodies);
+
+            System.out.printf("%s: %d bodies, %d times, loaded in %.1f ms%n",
+                    golden.name, bodies.length, times.length, loading / 1e6);
+
+            if (loading / 1_000_000 > LOAD_BUDGET)
+                failures.add(String.format("%s took %d ms to load, more than %d.",
+                        golden.name, loading / 1_000_000, LOAD_BUDGET));
+
+            for (Engine engine : ENGINES) {
+                double[] positions = new double[expected.length];
+
+                for (int i = 0; i < WARM_UP_ROUNDS; i++)
+                    engine.propagate(astrarium, bodies, times, positions);
+
+                long best = Long.MAX_VALUE;
+
+                for (int i = 0; i < ROUNDS; i++) {
+                    Arrays.fill(positions, Double.NaN);
+
+                    start = System.nanoTime();
+                    engine.propagate(astrarium, bodies, times, positions);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+
+                double perPosition = (double) best / (bodies.length * times.length);
+
+                System.out.printf("  %-18s %8.1f ms, %8.1f ns per position, budget %d%n",
+                        engine.name, best / 1e6, perPosition, engine.budget);
+
+                if (perPosition > engine.budget)
+                    failures.add(String.format("%s %s took %.1f ns per position, more than %d.",
+                            golden.name, engine.name, perPosition, engine.budget));
+
+                for (int n = 0; n < bodies.length; n++) {
+                    for (int m = 0; m < times.length; m++) {
+                        int index = (n * times.length + m) * 3;
+                        double distance = Math.sqrt(square(positions[index] - expected[index])
+                                + square(positions[index + 1] - expected[index + 1])
+                                + square(positions[index + 2] - expected[index + 2]));
+
+                        // Written so that NaN fails too
+                        if (!(distance <= tolerances[n]))
+                            failures.add(String.format("%s %s: %s at %d is %.3g m off, more than %.3g.",
+                                    golden.name, engine.name, bodies[n].getName(), times[m], distance, tolerances[n]));
+                    }
+                }
+            }
+        }
+
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    /**
+     * Writes the golden files of all the cases in {@code tests/golden}, or in the directory given.
+     */
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "tests/golden");
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+
+        for (Case golden : CASES) {
+            CelestialBody[] bodies = Snapshot.flatten(golden.load().getRoot());
+            long[] times = golden.getTimes();
+
+            try (PrintWriter writer = new PrintWriter(new File(directory, golden.name + ".tsv"), "UTF-8")) {
+                writer.println("# " + golden.name + ": positions from the root in meters, by ReferencePropagator");
+                writer.println("# body\tname\ttime\tx\ty\tz");
+
+                for (int n = 0; n < bodies.length; n++) {
+                    for (long time : times) {
+                        Position position = ReferencePropagator.getPositionAtTime(bodies[n], time);
+
+                        writer.println(n + "\t" + bodies[n].getName() + "\t" + time + "\t"
+                                + position.getX() + "\t" + position.getY() + "\t" + position.getZ());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a golden file, checking that it describes the same bodies at the same times.
+     */
+    private static double[] read(String name, CelestialBody[] bodies, long[] times) throws IOException {
+        InputStream in = GoldenEphemerisTest.class.getResourceAsStream("/golden/" + name + ".tsv");
+        assertNotNull(in, "No golden file for " + name);
+
+        double[] positions = new double[bodies.length * times.length * 3];
+        int index = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith("#"))
+                    continue;
+
+                String[] fields = line.split("\t");
+                int n = index / times.length;
+
+                assertEquals(n, Integer.parseInt(fields[0]), name);
+                assertEquals(bodies[n].getName(), fields[1], name);
+                assertEquals(times[index % times.length], Long.parseLong(fields[2]), name);
+
+                for (int i = 0; i < 3; i++)
+                    positions[index * 3 + i] = Double.parseDouble(fields[3 + i]);
+
+                index++;
+            }
+        }
+
+        assertEquals(bodies.length * times.length, index, name);
+
+        return positions;
+    }
+
+    /**
+     * Returns the largest distance allowed for each body, relative to the sum of the apoapses up to the root.
+     */
+    private static double[] getTolerances(CelestialBody[] bodies) {
+        double[] tolerances = new double[bodies.length];
+
+        for (int n = 0; n < bodies.length; n++)
+            for (Orbit orbit = bodies[n].getOrbit(); orbit != null; orbit = orbit.getParent().getOrbit())
+                tolerances[n] += RELATIVE_TOLERANCE * orbit.getApoapsis();
+
+        return tolerances;
+    }
+
+    private static void store(double[] positions, int index, Position position) {
+        positions[index] = position.getX();
+        positions[index + 1] = position.getY();
+        positions[index + 2] = position.getZ();
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    private static abstract class Case {
+        final String name;
+        final int samples;
+
+        Case(String name, int samples) {
+            this.name = name;
+            this.samples = samples;
+        }
+
+        abstract Astrarium load() throws IOException;
+
+        long[] getTimes() {
+            long[] times = new long[samples];
+
+            for (int i = 0; i < samples; i++)
+                times[i] = START + (END - START) / (samples - 1) * i;
+
+            return times;
+        }
+    }
+
+    private static abstract class Engine {
+        final String name;
+        final long budget;
+
+        Engine(String name, long budget) {
+            this.name = name;
+            this.budget = budget;
+        }
+
+        abstract void propagate(Astrarium astrarium, CelestialBody[] bodies, long[] times, double[] positions);
+    }
+}
@@ -0,0 +1,96 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import io.BinarySystem;
+import io.JsonHub;
+import io.Journal;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class JournalTest {
+    @Test
+    void replay() throws IOException, ExecutionException, InterruptedException {
+        File file = File.createTempFile("astrarium", ".json");
+        file.deleteOnExit();
+        Journal.getFile(file).deleteOnExit();
+
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        JsonHub.exportJson(file, astrarium);
+
+        Journal journal = Journal.create(file);
+        CelestialBody sun = astrarium.getRoot();
+        CelestialBody earth = sun.getChildren().get(2);
+        CelestialBody moon = earth.getChildren().get(0);
+
+        journal.added(new CelestialBody("Probe", 1000, 1, new Orbit(earth, 1e7, 0.1)));
+        journal.setOrbit(moon, new Orbit(sun, 1e11, 0.2));
+        journal.remove(sun.getChildren().get(0));
+        journal.commit().get();
+        journal.close();
+
+        // A record cut short by a crash
+        try (FileOutputStream out = new FileOutputStream(Journal.getFile(file), true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2});
+        }
+
+        Astrarium loaded = JsonHub.importAstrarium(file);
+        Journal.open(file, loaded).close();
+
+        assertEquals(JsonHub.exportJson(astrarium), JsonHub.exportJson(loaded));
+        assertEquals("Venus", loaded.getRoot().getChildren().get(0).getName());
+        assertEquals("Probe", loaded.getRoot().getChildren().get(1).getChildren().get(0).getName());
+
+        // A torn length close to 2 GiB, which must not be allocated
+        long length = Journal.getFile(file).length();
+
+        try (FileOutputStream out = new FileOutputStream(Journal.getFile(file), true)) {
+            out.write(new byte[]{0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 1, 2, 3, 4, 5, 6, 7, 8});
+        }
+
+        loaded = JsonHub.importAstrarium(file);
+        Journal.open(file, loaded).close();
+
+        assertEquals(JsonHub.exportJson(astrarium), JsonHub.exportJson(loaded));
+        assertEquals(length, Journal.getFile(file).length());
+    }
+
+    @Test
+    void compactBinary() throws IOException, ExecutionException, InterruptedException {
+        // A binary base without the usual extension
+        File file = File.createTempFile("astrarium", ".sav");
+        file.deleteOnExit();
+        Journal.getFile(file).deleteOnExit();
+
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        JsonHub.exportBinary(file, astrarium);
+
+        Journal journal = Journal.create(file);
+        CelestialBody sun = astrarium.getRoot();
+        CelestialBody moon = sun.getChildren().get(2).getChildren().get(0);
+
+        // Edits until the journal is compacted, and shrinks
+        for (long length = 0; Journal.getFile(file).length() >= length; ) {
+            length = Journal.getFile(file).length();
+
+            for (int i = 0; i < 1000; i++)
+                journal.setOrbit(moon, new Orbit(sun, 1e11 + i, 0.2));
+
+            journal.commit().get();
+        }
+
+        journal.close();
+
+        assertTrue(BinarySystem.isBinary(file));
+        assertEquals(JsonHub.exportJson(astrarium), JsonHub.exportJson(JsonHub.importAstrarium(file)));
+    }
+}
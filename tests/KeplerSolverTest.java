@@ -0,0 +1,88 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class KeplerSolverTest {
+    private static final double DELTA = 1e-10;
+
+    @Test
+    void converges() {
+        Random random = new Random(42);
+
+        for (double eccentricity : new double[]{0, 0.0167, 0.5, 0.9, 0.99, 0.999, 1}) {
+            for (int i = 0; i < 20_000; i++) {
+                double meanAnomaly = random.nextDouble() * 4 * Math.PI - 2 * Math.PI;
+                double eccentricAnomaly = Orbit.calculateEccentricAnomaly(meanAnomaly, eccentricity, 10);
+
+                assertEquals(meanAnomaly, eccentricAnomaly - eccentricity * Math.sin(eccentricAnomaly), DELTA,
+                        "M = " + meanAnomaly + ", e = " + eccentricity);
+            }
+        }
+
+        // Newton's method alone diverged from these, and divided by zero at the periapsis of a parabolic orbit
+        assertEquals(0.052715924727236727, solve(0.052715924727236727, 0.99), DELTA);
+        assertEquals(0.06151238415728815, solve(0.06151238415728815, 0.99), DELTA);
+        assertEquals(1e-12, solve(1e-12, 1), DELTA);
+        assertEquals(0, Orbit.calculateEccentricAnomaly(0, 1, 10));
+    }
+
+    @Test
+    void expensiveBodies() {
+        CelestialBody sun = new CelestialBody("Sun", 1.989e30, 6.957e8);
+        Astrarium astrarium = new Astrarium(sun);
+
+        CelestialBody circular = new CelestialBody("Circular", 1e20, 1e5, new Orbit(sun, 1e11, 0));
+        CelestialBody eccentric = new CelestialBody("Eccentric", 1e20, 1e5, new Orbit(sun, 1e11, 0.98));
+        new CelestialBody("Moderate", 1e20, 1e5, new Orbit(sun, 1e11, 0.3));
+
+        assertTrue(astrarium.getExpensiveBodies(3).isEmpty());
+
+        for (int i = 0; i < Astrarium.MIN_KEPLER_SOLVES; i++)
+            astrarium.setTime(i * 86_400_000L * 17);
+
+        List<CelestialBody> expensive = astrarium.getExpensiveBodies(2);
+
+        assertEquals(2, expensive.size());
+        assertSame(eccentric, expensive.get(0));
+        assertFalse(expensive.contains(circular));
+
+        // Only the rendering counts, the solutions that may run on other threads leave the orbits untouched
+        long solves = eccentric.getOrbit().getKeplerSolves();
+
+        Snapshot.capture(Snapshot.flatten(sun), 0);
+        eccentric.getPositionAtTime(0);
+
+        assertEquals(solves, eccentric.getOrbit().getKeplerSolves());
+    }
+
+    @Test
+    void threadIterations() throws InterruptedException {
+        long iterations = Orbit.getThreadKeplerIterations();
+
+        Thread other = new Thread(() -> Orbit.calculateEccentricAnomaly(1, 0.5, 10));
+        other.start();
+        other.join();
+
+        assertEquals(iterations, Orbit.getThreadKeplerIterations());
+
+        Orbit.calculateEccentricAnomaly(1, 0.5, 10);
+
+        assertTrue(Orbit.getThreadKeplerIterations() > iterations);
+    }
+
+    private static double solve(double meanAnomaly, double eccentricity) {
+        double eccentricAnomaly = Orbit.calculateEccentricAnomaly(meanAnomaly, eccentricity, 10);
+        return eccentricAnomaly - eccentricity * Math.sin(eccentricAnomaly);
+    }
+}
@@ -0,0 +1,100 @@
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import io.MinorPlanetCatalog;
+import io.ProgressListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static astrarium.utils.Mathematics.TWO_PI;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class MinorPlanetCatalogTest {
+    private static final String CERES = "00001    3.34  0.15 K2555 188.70269   73.27343   80.25221   10.58780  0.0794013  0.21424651   2.7660512  0 E2024-V47  7330 125 1801-2024 0.80 M-v 30k MPCLINUX   4000      (1) Ceres              20241101";
+    private static final String PALLAS = "00002    4.11  0.15 K2555 168.80063  310.93299  172.88669   34.92832  0.2306475  0.21380279   2.7697305  0 E2024-V47  8975 110 1804-2024 0.58 M-c 28k MPCLINUX   4000      (2) Pallas             20241027";
+    private static final String UNNAMED = "K24A01X        0.15 K2555  12.34567   45.67891  123.45678    1.23457  0.1000000  0.30000000   2.2000000  0 E2024-V47    12   1    5 days 0.30 M-v 3Ek MPCLINUX   0000";
+
+    private static File catalog() throws IOException {
+        File file = File.createTempFile("mpcorb", ".dat");
+        file.deleteOnExit();
+
+        List<String> lines = Arrays.asList(
+                "MINOR PLANET CENTER ORBIT DATABASE (MPCORB)",
+                "",
+                "Des'n     H     G   Epoch     M        Peri.      Node       Incl.       e            n           a        Reference #Obs #Opp    Arc    rms  Perts   Computer",
+                "----------------------------------------------------------------------------------------------------------------------------------------------------------------",
+                CERES, PALLAS, "", UNNAMED);
+
+        Files.write(file.toPath(), lines, StandardCharsets.US_ASCII);
+
+        return file;
+    }
+
+    @Test
+    void load() throws IOException {
+        CelestialBody sun = new CelestialBody("Sun", 1.988544E30, 6.957E8);
+
+        try (MinorPlanetCatalog catalog = MinorPlanetCatalog.open(catalog())) {
+            assertEquals(3, catalog.load(sun));
+        }
+
+        assertEquals("(1) Ceres", sun.getChildren().get(0).getName());
+        assertEquals("(2) Pallas", sun.getChildren().get(1).getName());
+        assertEquals("K24A01X", sun.getChildren().get(2).getName());
+
+        Orbit ceres = sun.getChildren().get(0).getOrbit();
+
+        //noinspection ConstantConditions
+        assertEquals(2.7660512 * MinorPlanetCatalog.ASTRONOMICAL_UNIT, ceres.getSemiMajorAxis(), 1);
+        assertEquals(0.0794013, ceres.getEccentricity());
+        assertEquals(Math.toRadians(10.58780), ceres.getInclination(), 1e-12);
+        assertEquals(Math.toRadians(80.25221), ceres.getLongitudeOfAscendingNode(), 1e-12);
+        assertEquals(Math.toRadians(73.27343), ceres.getArgumentOfPeriapsis(), 1e-12);
+
+        // The mean anomaly of the catalog at its epoch, 2025 May 5
+        long epoch = LocalDate.of(2025, 5, 5).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        double meanAnomaly = ceres.getMeanAnomaly(epoch) % TWO_PI;
+
+        assertEquals(Math.toRadians(188.70269), meanAnomaly, 1e-9);
+    }
+
+    @Test
+    void filter() throws IOException {
+        CelestialBody sun = new CelestialBody("Sun", 1.988544E30, 6.957E8);
+
+        try (MinorPlanetCatalog catalog = MinorPlanetCatalog.open(catalog())) {
+            catalog.setInclinationRange(0, Math.toRadians(20));
+            catalog.setMaximumAbsoluteMagnitude(10);
+
+            assertEquals(1, catalog.load(sun));
+        }
+
+        assertEquals("(1) Ceres", sun.getChildren().get(0).getName());
+    }
+
+    @Test
+    void limit() throws IOException {
+        CelestialBody sun = new CelestialBody("Sun", 1.988544E30, 6.957E8);
+
+        try (MinorPlanetCatalog catalog = MinorPlanetCatalog.open(catalog())) {
+            MinorPlanetCatalog.Selection selection = catalog.read(sun, ProgressListener.NONE);
+
+            assertEquals(3, selection.size());
+            assertEquals(2, selection.attach(2));
+        }
+
+        assertEquals(2, sun.getChildren().size());
+        assertEquals("(2) Pallas", sun.getChildren().get(1).getName());
+    }
+}
@@ -0,0 +1,51 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.utils.Position;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class PositionQueryTest {
+    @Test
+    void query() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody earth = astrarium.getRoot().getChildren().get(2);
+        List<CelestialBody> bodies = Arrays.asList(earth.getChildren().get(0), astrarium.getRoot(), earth, earth);
+
+        Random random = new Random(42);
+        long[] times = new long[5000];
+
+        for (int i = 0; i < times.length; i++)
+            times[i] = i % 7 == 0 ? times[i / 2] : 1_500_000_000_000L + random.nextInt(1_000_000) * 60_000L;
+
+        double[] positions = astrarium.query(bodies, times);
+
+        assertEquals(bodies.size() * times.length * 3, positions.length);
+
+        for (int n = 0; n < bodies.size(); n++) {
+            for (int m = 0; m < times.length; m += 13) {
+                Position expected = bodies.get(n).getPositionAtTime(times[m]);
+                int offset = (n * times.length + m) * 3;
+
+                assertEquals(expected.getX(), positions[offset], 1e-9 * expected.getMagnitude() + 1e-3);
+                assertEquals(expected.getY(), positions[offset + 1], 1e-9 * expected.getMagnitude() + 1e-3);
+                assertEquals(expected.getZ(), positions[offset + 2], 1e-9 * expected.getMagnitude() + 1e-3);
+            }
+        }
+
+        CelestialBody stranger = JsonHub.importDefaultMap("SolSystem").getRoot().getChildren().get(0);
+
+        assertThrows(IllegalArgumentException.class, () -> astrarium.query(Collections.singletonList(stranger), times));
+    }
+}
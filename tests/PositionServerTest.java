@@ -0,0 +1,94 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.utils.Position;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.JsonHub;
+import io.PositionServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class PositionServerTest {
+    private static final long TIME = 1_500_000_000_000L;
+
+    @Test
+    void queries() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody earth = astrarium.getRoot().getChildren().get(2);
+        CelestialBody moon = earth.getChildren().get(0);
+
+        try (PositionServer server = new PositionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), astrarium)) {
+            server.start();
+            String base = "http://localhost:" + server.getPort();
+
+            JsonObject json = get(base + "/positions?bodies=Earth,Moon&time=" + TIME + "," + (TIME + 1000)).getAsJsonObject();
+            JsonArray moonPositions = json.getAsJsonObject("positions").getAsJsonArray("Moon");
+            Position expected = moon.getPositionAtTime(TIME + 1000);
+
+            assertEquals(2, moonPositions.size());
+            assertEquals(expected.getX(), moonPositions.get(1).getAsJsonArray().get(0).getAsDouble(), 1e3);
+            assertEquals(expected.getZ(), moonPositions.get(1).getAsJsonArray().get(2).getAsDouble(), 1e3);
+
+            byte[] binary = read(new URL(base + "/positions?bodies=Moon&format=binary&start=" + TIME + "&end=" + (TIME + 10) + "&step=5").openStream());
+            ByteBuffer buffer = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
+
+            assertEquals(3, buffer.getInt());
+            assertEquals(1, buffer.getInt());
+            assertEquals(TIME, buffer.getLong());
+            buffer.position(8 + 3 * 8 + (2 * 3 + 1) * 8);
+            assertEquals(moon.getPositionAtTime(TIME + 10).getY(), buffer.getDouble(), 1e3);
+
+            JsonObject elements = get(base + "/elements?bodies=Earth&time=0").getAsJsonObject().getAsJsonObject("elements");
+            assertEquals(earth.getOrbit().getEccentricity(), elements.getAsJsonObject("Earth").get("eccentricity").getAsDouble());
+            assertEquals("Sun", elements.getAsJsonObject("Earth").get("parent").getAsString());
+
+            assertEquals(404, status(base + "/positions?bodies=Vulcan"));
+            assertEquals(400, status(base + "/positions?time=yesterday"));
+            assertEquals(400, status(base + "/positions?start=0&end=" + Long.MAX_VALUE + "&step=1"));
+            assertEquals(400, status(base + "/positions?start=" + Long.MIN_VALUE + "&end=" + Long.MAX_VALUE + "&step=" + Long.MAX_VALUE));
+        }
+    }
+
+    private static JsonElement get(String url) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(new URL(url).openStream(), StandardCharsets.UTF_8)) {
+            return new JsonParser().parse(reader);
+        }
+    }
+
+    private static int status(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream data = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = data.read(buffer)) >= 0)
+                out.write(buffer, 0, n);
+            return out.toByteArray();
+        }
+    }
+}
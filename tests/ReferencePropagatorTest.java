@@ -0,0 +1,178 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import astrarium.ReferencePropagator;
+import astrarium.utils.DoubleDouble;
+import astrarium.utils.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the fast paths of the propagation against {@link ReferencePropagator}, on random elements and times.
+ * <p>
+ * The declared tolerances follow from the fast path: Kepler's equation is solved to {@link #DELTA}, on a mean anomaly
+ * computed with doubles and never reduced, so off by about an ulp of itself after a century on a close orbit.
+ * An error on the mean anomaly moves the eccentric anomaly by that error over {@code 1 - e cos(E)},
+ * and the position by up to the semi-major axis times that.
+ * <p>
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class ReferencePropagatorTest {
+    private static final double DELTA = 1e-10;
+    private static final long CENTURY = 36_525 * 86_400_000L;
+    private static final double[] ECCENTRICITIES = {0, 0.0167, 0.3, 0.7, 0.9, 0.99, 0.999};
+    private static final int SAMPLES = 100;
+
+    /**
+     * The residual is evaluated with doubles by the solver, a couple of rounding errors of the mean anomaly.
+     */
+    private static final double RESIDUAL_ULPS = 2;
+
+    /**
+     * The errors measured were up to 2.4 times the scale of {@link #tolerance(Orbit, long)}.
+     */
+    private static final double POSITION_FACTOR = 4;
+
+    private final CelestialBody sun = new CelestialBody("Sun", 1.989e30, 6.957e8);
+
+    @Test
+    void doubleDouble() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            double angle = (random.nextDouble() * 2 - 1) * 1e4;
+            DoubleDouble sin = DoubleDouble.valueOf(angle).sin();
+            DoubleDouble cos = DoubleDouble.valueOf(angle).cos();
+
+            assertEquals(0, sin.multiply(sin).add(cos.multiply(cos)).subtract(DoubleDouble.ONE).doubleValue(), 1e-30);
+            assertEquals(Math.sin(angle), sin.doubleValue(), Math.ulp(1D));
+            assertEquals(Math.cos(angle), cos.doubleValue(), Math.ulp(1D));
+
+            DoubleDouble value = DoubleDouble.valueOf(random.nextDouble() * 1e10);
+            DoubleDouble root = value.sqrt();
+
+            assertEquals(0, root.multiply(root).subtract(value).doubleValue() / value.doubleValue(), 1e-30);
+            assertEquals(0, value.divide(root).subtract(root).doubleValue() / root.doubleValue(), 1e-30);
+        }
+
+        assertEquals(0, DoubleDouble.PI.sin().doubleValue(), 1e-31);
+        assertEquals(-1, DoubleDouble.valueOf(Long.MAX_VALUE).subtract(DoubleDouble.valueOf((double) Long.MAX_VALUE)).doubleValue());
+    }
+
+    @Test
+    void keplerSolver() {
+        Random random = new Random(42);
+
+        for (double eccentricity : ECCENTRICITIES) {
+            for (int i = 0; i < SAMPLES; i++) {
+                Orbit orbit = randomOrbit(random, sun, eccentricity);
+                double meanAnomaly = orbit.getMeanAnomaly(randomTime(random));
+                double eccentricAnomaly = Orbit.calculateEccentricAnomaly(meanAnomaly, eccentricity, 10);
+
+                DoubleDouble residual = ReferencePropagator.getKeplerResidual(
+                        DoubleDouble.valueOf(eccentricAnomaly), DoubleDouble.valueOf(meanAnomaly), eccentricity);
+
+                assertEquals(0, residual.doubleValue(), DELTA + RESIDUAL_ULPS * Math.ulp(meanAnomaly),
+                        "M = " + meanAnomaly + ", e = " + eccentricity);
+            }
+        }
+    }
+
+    @Test
+    void positionFromParent() {
+        Random random = new Random(42);
+
+        for (double eccentricity : ECCENTRICITIES) {
+            for (int i = 0; i < SAMPLES; i++) {
+                Orbit orbit = randomOrbit(random, sun, eccentricity);
+                long time = randomTime(random);
+
+                Position expected = ReferencePropagator.getPositionFromParent(orbit, time);
+                double tolerance = tolerance(orbit, time);
+                String message = orbit + " at " + time;
+
+                assertClose(expected, orbit.getPositionFromParent(time), tolerance, message);
+
+                orbit.renderAtTime(time);
+                assertClose(expected, new Position(orbit.getRenderedX(), orbit.getRenderedY(), orbit.getRenderedZ()),
+                        tolerance, message);
+            }
+        }
+    }
+
+    @Test
+    void query() {
+        Random random = new Random(42);
+        Astrarium astrarium = new Astrarium(sun);
+        List<CelestialBody> bodies = new ArrayList<>();
+
+        for (double eccentricity : ECCENTRICITIES) {
+            CelestialBody planet = new CelestialBody("Planet", 1e25, 1e7, randomOrbit(random, sun, eccentricity));
+            CelestialBody moon = new CelestialBody("Moon", 1e20, 1e5,
+                    randomOrbit(random, planet, eccentricity * random.nextDouble()));
+
+            bodies.add(planet);
+            bodies.add(moon);
+        }
+
+        long[] times = new long[SAMPLES / 4];
+
+        for (int i = 0; i < times.length; i++)
+            times[i] = randomTime(random);
+
+        double[] positions = astrarium.query(bodies, times);
+
+        for (int n = 0; n < bodies.size(); n++) {
+            CelestialBody body = bodies.get(n);
+
+            for (int m = 0; m < times.length; m++) {
+                Position expected = ReferencePropagator.getPositionAtTime(body, times[m]);
+                int index = (n * times.length + m) * 3;
+
+                double tolerance = POSITION_FACTOR * Math.ulp(expected.getMagnitude());
+                for (Orbit orbit = body.getOrbit(); orbit != null; orbit = orbit.getParent().getOrbit())
+                    tolerance += tolerance(orbit, times[m]);
+
+                assertClose(expected, new Position(positions[index], positions[index + 1], positions[index + 2]),
+                        tolerance, body.getOrbit() + " at " + times[m]);
+            }
+        }
+    }
+
+    /**
+     * Returns the largest distance allowed from the reference position.
+     */
+    private static double tolerance(Orbit orbit, long time) {
+        double meanAnomaly = orbit.getMeanAnomaly(time);
+        double eccentricAnomaly = ReferencePropagator.solveKepler(
+                ReferencePropagator.getMeanAnomaly(orbit, time), orbit.getEccentricity()).doubleValue();
+
+        return POSITION_FACTOR * orbit.getSemiMajorAxis() * (DELTA + Math.ulp(meanAnomaly))
+                / (1 - orbit.getEccentricity() * Math.cos(eccentricAnomaly));
+    }
+
+    private static Orbit randomOrbit(Random random, CelestialBody parent, double eccentricity) {
+        return new Orbit(parent, Math.pow(10, 6 + 7 * random.nextDouble()), eccentricity,
+                random.nextDouble() * Math.PI, random.nextDouble() * 2 * Math.PI,
+                random.nextDouble() * 2 * Math.PI, random.nextDouble() * 2 * Math.PI);
+    }
+
+    private static long randomTime(Random random) {
+        return (long) ((random.nextDouble() * 2 - 1) * CENTURY);
+    }
+
+    private static void assertClose(Position expected, Position actual, double tolerance, String message) {
+        double distance = Math.sqrt(Math.pow(expected.getX() - actual.getX(), 2)
+                + Math.pow(expected.getY() - actual.getY(), 2)
+                + Math.pow(expected.getZ() - actual.getZ(), 2));
+
+        assertTrue(distance <= tolerance, message + ": " + distance + " m off, more than " + tolerance);
+    }
+}
@@ -0,0 +1,59 @@
+import astrarium.utils.RollingHistogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class RollingHistogramTest {
+    @Test
+    void empty() {
+        RollingHistogram histogram = new RollingHistogram(10);
+
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getLast());
+        Assertions.assertEquals(0, histogram.getMean());
+        Assertions.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    void statistics() {
+        RollingHistogram histogram = new RollingHistogram(100);
+
+        for (int i = 100; i >= 1; i--)
+            histogram.record(i);
+
+        Assertions.assertEquals(100, histogram.getCount());
+        Assertions.assertEquals(1, histogram.getLast());
+        Assertions.assertEquals(1, histogram.getMin());
+        Assertions.assertEquals(100, histogram.getMax());
+        Assertions.assertEquals(50.5, histogram.getMean());
+        Assertions.assertEquals(50, histogram.getPercentile(50));
+        Assertions.assertEquals(99, histogram.getPercentile(99));
+    }
+
+    @Test
+    void rolling() {
+        RollingHistogram histogram = new RollingHistogram(3);
+
+        histogram.record(100);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+
+        Assertions.assertEquals(3, histogram.getCount());
+        Assertions.assertEquals(4, histogram.getTotalCount());
+        Assertions.assertEquals(3, histogram.getMax());
+        Assertions.assertEquals(2, histogram.getMean());
+
+        histogram.clear();
+
+        Assertions.assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    void invalidPercentile() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RollingHistogram(3).getPercentile(101));
+    }
+}
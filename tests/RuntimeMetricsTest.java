@@ -0,0 +1,43 @@
+import astrarium.Astrarium;
+import astrarium.diagnostics.RuntimeMetrics;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class RuntimeMetricsTest {
+    @Test
+    void mbean() throws IOException, JMException {
+        RuntimeMetrics.register();
+        RuntimeMetrics.register();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(RuntimeMetrics.NAME);
+
+        long ticks = (Long) server.getAttribute(name, "TickCount");
+        long bodies = (Long) server.getAttribute(name, "BodiesPropagated");
+        long solves = (Long) server.getAttribute(name, "KeplerSolves");
+
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        int count = astrarium.getRoot().countBodies();
+
+        for (int i = 0; i < 10; i++)
+            astrarium.setTime(i * 86_400_000L);
+
+        // Other tests may run at the same time
+        assertTrue((Long) server.getAttribute(name, "TickCount") - ticks >= 10);
+        assertTrue((Long) server.getAttribute(name, "BodiesPropagated") - bodies >= 10 * count);
+        assertTrue((Long) server.getAttribute(name, "KeplerSolves") - solves >= 10 * (count - 1));
+        assertTrue((Double) server.getAttribute(name, "KeplerIterationsPerSolve") > 0);
+    }
+}
@@ -0,0 +1,104 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Snapshot;
+import astrarium.utils.Position;
+import io.JsonHub;
+import io.SessionRecorder;
+import io.SessionRecording;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class SessionRecordingTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void replay() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody[] before = Snapshot.flatten(astrarium.getRoot());
+
+        File file = File.createTempFile("session", SessionRecording.EXTENSION);
+        file.deleteOnExit();
+
+        long start = 1_500_000_000_000L;
+
+        try (SessionRecorder recorder = SessionRecorder.create(file)) {
+            for (int i = 0; i < 1000; i++)
+                recorder.record(Snapshot.capture(before, start + i * HOUR));
+
+            astrarium.getRoot().getChildren().get(2).getChildren().get(0).remove();
+            CelestialBody[] after = Snapshot.flatten(astrarium.getRoot());
+
+            for (int i = 1000; i < 1100; i++)
+                recorder.record(Snapshot.capture(after, start + i * HOUR));
+        }
+
+        SessionRecording recording = SessionRecording.map(file);
+
+        assertEquals(2, recording.getSegmentCount());
+        assertEquals(start, recording.getStartTime());
+        assertEquals(0, recording.getSegmentAt(start + 500 * HOUR));
+        assertEquals(1, recording.getSegmentAt(start + 1050 * HOUR));
+        assertEquals(before.length - 1, Snapshot.flatten(recording.getAstrarium(1).getRoot()).length);
+
+        CelestialBody[] replayed = Snapshot.flatten(recording.getAstrarium(0).getRoot());
+        CelestialBody moon = replayed[0].getChildren().get(2).getChildren().get(0);
+
+        for (int i = 0; i < 1000; i += 97) {
+            long time = start + i * HOUR;
+
+            Snapshot snapshot = recording.getSnapshot(replayed, time);
+            recording.getAstrarium(0).setTime(time, snapshot, snapshot);
+
+            Position expected = moon.getPositionAtTime(time);
+            Position actual = moon.getPosition();
+
+            assertEquals(expected.getX(), actual.getX(), 1e-3);
+            assertEquals(expected.getY(), actual.getY(), 1e-3);
+        }
+
+        assertNull(recording.getSnapshot(replayed, start + 1050 * HOUR));
+        assertNull(recording.getSnapshot(before, start));
+    }
+
+    @Test
+    void rewind() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody[] bodies = Snapshot.flatten(astrarium.getRoot());
+
+        File file = File.createTempFile("session", SessionRecording.EXTENSION);
+        file.deleteOnExit();
+
+        try (SessionRecorder recorder = SessionRecorder.create(file)) {
+            for (int i = 0; i < 600; i++)
+                recorder.record(Snapshot.capture(bodies, i * HOUR));
+
+            // Played back over the same times, with other states
+            for (int i = 599; i >= 0; i--)
+                recorder.record(Snapshot.of(bodies, i * HOUR, new double[bodies.length]));
+        }
+
+        SessionRecording recording = SessionRecording.map(file);
+        CelestialBody[] replayed = Snapshot.flatten(recording.getAstrarium(0).getRoot());
+
+        assertTrue(recording.getBlockCount() > 2);
+
+        for (int i = 0; i < 600; i += 37) {
+            Snapshot expected = Snapshot.capture(bodies, i * HOUR);
+            Snapshot actual = recording.getSnapshot(replayed, i * HOUR);
+
+            for (int body = 1; body < bodies.length; body++)
+                assertEquals(expected.getEccentricAnomaly(body), actual.getEccentricAnomaly(body), 1e-12);
+        }
+
+        assertNull(recording.getSnapshot(replayed, 600 * HOUR));
+        assertNull(recording.getSnapshot(replayed, -HOUR));
+    }
+}
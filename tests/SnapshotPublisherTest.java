@@ -0,0 +1,153 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Playback;
+import astrarium.Snapshot;
+import astrarium.SnapshotPublisher;
+import astrarium.utils.Flow;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class SnapshotPublisherTest {
+    @Test
+    void conflation() throws Exception {
+        CelestialBody[] bodies = Snapshot.flatten(JsonHub.importDefaultMap("SolSystem").getRoot());
+        SnapshotPublisher publisher = new SnapshotPublisher();
+
+        Recorder slow = new Recorder(Long.MAX_VALUE, 5);
+        Recorder single = new Recorder(1, 0);
+
+        publisher.subscribe(slow);
+        publisher.subscribe(single);
+
+        for (int i = 1; i <= 200; i++)
+            publisher.submit(Snapshot.capture(bodies, i));
+
+        assertTrue(single.awaitItems(1));
+        single.subscription.request(1);
+        assertTrue(single.awaitItems(2));
+
+        publisher.close();
+
+        assertTrue(slow.completed.await(10, TimeUnit.SECONDS));
+        assertTrue(single.completed.await(10, TimeUnit.SECONDS));
+
+        assertTrue(slow.times.size() < 200, "The states published while busy must be skipped");
+        assertEquals(200, (long) slow.times.get(slow.times.size() - 1));
+
+        for (int i = 1; i < slow.times.size(); i++)
+            assertTrue(slow.times.get(i) > slow.times.get(i - 1));
+
+        assertEquals(2, single.times.size());
+        assertEquals(0, publisher.getSubscriberCount());
+        assertNull(slow.error);
+        assertNull(single.error);
+    }
+
+    @Test
+    void playback() throws IOException, InterruptedException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        Recorder recorder = new Recorder(Long.MAX_VALUE, 0);
+
+        try (Playback playback = new Playback(astrarium, 0)) {
+            playback.getPublisher().subscribe(recorder);
+            playback.advance(Playback.STEP / 2);
+
+            assertTrue(recorder.awaitItems(1));
+            assertEquals(playback.getTime(), (long) recorder.times.get(0));
+        }
+
+        assertTrue(recorder.completed.await(10, TimeUnit.SECONDS));
+        assertNull(recorder.error);
+    }
+
+    @Test
+    void wrongRequest() throws Exception {
+        CelestialBody[] bodies = Snapshot.flatten(JsonHub.importDefaultMap("SolSystem").getRoot());
+        SnapshotPublisher publisher = new SnapshotPublisher();
+
+        Recorder recorder = new Recorder(Long.MAX_VALUE, 0);
+        publisher.subscribe(recorder);
+        publisher.submit(Snapshot.capture(bodies, 1));
+
+        assertTrue(recorder.awaitItems(1));
+        recorder.subscription.request(0);
+
+        // Signalled by the thread delivering the states, not by the one requesting
+        assertTrue(recorder.failed.await(10, TimeUnit.SECONDS));
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertNotEquals(Thread.currentThread().getName(), recorder.errorThread);
+        assertEquals(0, publisher.getSubscriberCount());
+
+        publisher.submit(Snapshot.capture(bodies, 2));
+        publisher.close();
+
+        assertEquals(1, recorder.times.size());
+        assertEquals(1, recorder.completed.getCount());
+    }
+
+    private static class Recorder implements Flow.Subscriber<Snapshot> {
+        private final long initialDemand;
+        private final long delay;
+        private final List<Long> times = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile String errorThread;
+
+        Recorder(long initialDemand, long delay) {
+            this.initialDemand = initialDemand;
+            this.delay = delay;
+        }
+
+        boolean awaitItems(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+
+            while (times.size() < count && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+
+            return times.size() >= count;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(Snapshot item) {
+            times.add(item.getTime());
+
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            errorThread = Thread.currentThread().getName();
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
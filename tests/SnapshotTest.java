@@ -0,0 +1,99 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Playback;
+import astrarium.Snapshot;
+import astrarium.utils.Position;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class SnapshotTest {
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void renderTowards() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        CelestialBody[] bodies = Snapshot.flatten(astrarium.getRoot());
+
+        long start = 1_500_000_000_000L;
+
+        Snapshot before = Snapshot.capture(bodies, start);
+        Snapshot after = Snapshot.capture(bodies, start + 10 * DAY);
+
+        for (long time = start; time <= start + 10 * DAY; time += DAY) {
+            astrarium.setTime(time, before, after);
+
+            for (CelestialBody body : bodies) {
+                if (body.getOrbit() == null)
+                    continue;
+
+                Position interpolated = body.getPositionFromParent();
+                Position exact = body.getPositionFromParentAtTime(time);
+
+                // Within a hundred-thousandth of the orbit
+                assertEquals(0, interpolated.minus(exact).getMagnitude(), body.getOrbit().getSemiMajorAxis() * 1e-5, body.getName());
+            }
+        }
+    }
+
+    @Test
+    void playback() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+
+        try (Playback playback = new Playback(astrarium, 0)) {
+            playback.setWarp(1000);
+            playback.advance(Playback.STEP * 3 + Playback.STEP / 2);
+
+            assertEquals(175_000, playback.getTime());
+            assertEquals(175_000, astrarium.getTime());
+
+            playback.setReversed(true);
+            playback.advance(Playback.STEP * 2);
+
+            assertEquals(75_000, playback.getTime());
+
+            playback.setPaused(true);
+            playback.advance(Playback.STEP * 2);
+
+            assertEquals(75_000, playback.getTime());
+        }
+    }
+
+    @Test
+    void recording() throws IOException {
+        Astrarium astrarium = JsonHub.importDefaultMap("SolSystem");
+        List<Long> times = new ArrayList<>();
+
+        try (Playback playback = new Playback(astrarium, 0)) {
+            playback.setWarp(1000);
+            playback.setOnKeyframe(snapshot -> times.add(snapshot.getTime()));
+
+            // A long frame skips steps that were never scheduled
+            playback.advance(Playback.STEP / 2);
+            playback.advance(Playback.STEP * 20);
+
+            // The current step has been displayed when the clock is changed
+            playback.setWarp(2000);
+            playback.advance(Playback.STEP);
+        }
+
+        List<Long> expected = new ArrayList<>();
+
+        for (long time = 0; time <= 1_000_000; time += 50_000)
+            expected.add(time);
+
+        // The first step from the new origin, half a step after the last one
+        expected.add(1_025_000L);
+
+        assertEquals(expected, times);
+    }
+}
@@ -0,0 +1,59 @@
+import astrarium.Astrarium;
+import astrarium.CelestialBody;
+import astrarium.Snapshot;
+import astrarium.SystemGenerator;
+import io.JsonHub;
+import io.ProgressListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 18-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class SystemGeneratorTest {
+    @Test
+    void reproducible() throws IOException {
+        SystemGenerator generator = SystemGenerator.forBodyCount(5000, 3);
+        Astrarium eager = generator.generate();
+        Astrarium lazy = generator.generateLazy();
+
+        assertEquals(5001, generator.getBodyCount());
+        assertEquals(5000, eager.getRoot().getAllChildren().size());
+
+        CelestialBody root = lazy.getRoot();
+        CelestialBody planet = root.getChildren().get(2);
+
+        assertFalse(planet.isLoaded());
+        assertTrue(planet.getUnloadedChildrenExtent() > 0);
+        assertTrue(planet.getUnloadedChildrenExtent() < planet.getOrbit().getSemiMajorAxis());
+
+        lazy.getRoot().loadAll();
+
+        String json = JsonHub.exportJson(eager);
+
+        assertEquals(json, JsonHub.exportJson(lazy));
+        assertEquals(json, JsonHub.exportJson(generator.generate()));
+        assertNotEquals(json, JsonHub.exportJson(SystemGenerator.forBodyCount(5000, 4).generate()));
+
+        File file = File.createTempFile("generated", ".json");
+
+        try {
+            JsonHub.exportJson(file, generator, ProgressListener.NONE);
+            assertEquals(json, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+
+        // Every orbit is elliptic, so that the system can be propagated
+        for (CelestialBody body : Snapshot.flatten(eager.getRoot()))
+            assertTrue(body.getOrbit() == null || body.getOrbit().getEccentricity() <= SystemGenerator.MAX_ECCENTRICITY);
+    }
+}
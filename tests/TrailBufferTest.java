@@ -0,0 +1,110 @@
+import astrarium.CelestialBody;
+import astrarium.Orbit;
+import io.JsonHub;
+import org.junit.jupiter.api.Test;
+import render.DisplayList;
+import render.TrailBuffer;
+import render.Trails;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created on 19-Oct-26.
+ */
+@SuppressWarnings("JavaDoc")
+class TrailBufferTest {
+    @Test
+    void wraparound() {
+        TrailBuffer trail = new TrailBuffer(4);
+
+        for (int i = 0; i < 3; i++)
+            trail.append(i, -i, 2 * i);
+
+        assertEquals(3, trail.size());
+        assertEquals(0, trail.getX(0));
+        assertEquals(-2, trail.getY(2));
+
+        // The oldest positions are replaced, and the indices still go from the oldest to the newest
+        for (int i = 3; i < 10; i++)
+            trail.append(i, -i, 2 * i);
+
+        assertEquals(4, trail.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, trail.getX(i));
+            assertEquals(-6 - i, trail.getY(i));
+            assertEquals(12 + 2 * i, trail.getZ(i));
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> trail.getX(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> trail.getX(-1));
+
+        trail.clear();
+        assertEquals(0, trail.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> trail.getX(0));
+
+        trail.append(42, 0, 0);
+        assertEquals(1, trail.size());
+        assertEquals(42, trail.getX(0));
+
+        assertThrows(IllegalArgumentException.class, () -> new TrailBuffer(0));
+    }
+
+    @Test
+    void trails() throws IOException {
+        CelestialBody sun = JsonHub.importDefaultMap("SolSystem").getRoot();
+        CelestialBody earth = sun.getChildren().get(2);
+        CelestialBody moon = earth.getChildren().get(0);
+
+        DisplayList list = new DisplayList(1);
+        Trails trails = new Trails(16);
+
+        // The orbit of the Moon is too small to be drawn at this scale
+        render(sun, list, 1e-9, 0);
+        trails.record(list, 0, 1);
+
+        assertEquals(1, trails.get(earth).size());
+        assertNull(trails.get(moon));
+
+        Orbit orbit = earth.getOrbit();
+        assertEquals(orbit.getRenderedX(), trails.get(earth).getX(0));
+        assertEquals(orbit.getRenderedY(), trails.get(earth).getY(0));
+
+        // Too soon for a new sample
+        render(sun, list, 1e-9, Trails.SAMPLE_INTERVAL / 2);
+        trails.record(list, Trails.SAMPLE_INTERVAL / 2, 1);
+        assertEquals(1, trails.get(earth).size());
+
+        // Zoomed in on the Earth, the Moon is drawn and recorded from it
+        render(sun, list, 1e-6, Trails.SAMPLE_INTERVAL);
+        trails.record(list, Trails.SAMPLE_INTERVAL, 1);
+
+        assertEquals(2, trails.get(earth).size());
+        assertEquals(orbit.getRenderedX() + moon.getOrbit().getRenderedX(), trails.get(moon).getX(0));
+
+        // A jump clears the trails instead of joining two unrelated positions
+        long jump = Trails.SAMPLE_INTERVAL * 100;
+
+        render(sun, list, 1e-6, jump);
+        trails.record(list, jump, 1);
+
+        assertEquals(1, trails.get(earth).size());
+        assertEquals(1, trails.get(moon).size());
+
+        // The bodies no longer drawn are forgotten, as well as those removed
+        earth.remove();
+        render(sun, list, 1e-9, jump + Trails.SAMPLE_INTERVAL);
+        trails.record(list, jump + Trails.SAMPLE_INTERVAL, 1);
+
+        assertNull(trails.get(earth));
+        assertNull(trails.get(moon));
+        assertEquals(2, trails.get(sun).size());
+    }
+
+    private static void render(CelestialBody root, DisplayList list, double zoom, long time) {
+        root.renderAtTime(time);
+        list.build(root, zoom, 0, 0, 1920, 1080, body -> 0);
+    }
+}